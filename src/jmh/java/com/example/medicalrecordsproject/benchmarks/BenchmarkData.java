@@ -0,0 +1,121 @@
+package com.example.medicalrecordsproject.benchmarks;
+
+import com.example.medicalrecordsproject.data.entities.*;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Entity graph shared by the benchmarks. The same seed always gives the same data, so runs can be compared.
+final class BenchmarkData {
+
+    private static final long SEED = 42;
+    private static final int SPECIALTIES = 10;
+    private static final int DIAGNOSES = 50;
+    private static final int HEALTH_SYSTEMS = 4;
+    private static final int FLUSH_EVERY = 1000;
+
+    final List<Specialty> specialties = new ArrayList<>();
+    final List<Diagnosis> diagnoses = new ArrayList<>();
+    final List<HealthSystem> healthSystems = new ArrayList<>();
+    final List<Doctor> doctors = new ArrayList<>();
+    final List<Patient> patients = new ArrayList<>();
+    final List<Visit> visits = new ArrayList<>();
+
+    private BenchmarkData() {
+    }
+
+    // Entities with ids, as if they were loaded from the database
+    static BenchmarkData generate(int doctorCount, int patientCount, int visitCount) {
+        Map<Class<?>, Long> lastIds = new HashMap<>();
+        return generate(doctorCount, patientCount, visitCount,
+                entity -> entity.setId(lastIds.merge(entity.getClass(), 1L, Long::sum)));
+    }
+
+    // Has to run in a transaction. Every entity is persisted as soon as it is created, so it has its id
+    // before it is put in a Set (entities without an id are all equal to each other).
+    static BenchmarkData persist(int doctorCount, int patientCount, int visitCount, EntityManager entityManager) {
+        int[] persisted = {0};
+        BenchmarkData data = generate(doctorCount, patientCount, visitCount, entity -> {
+            entityManager.persist(entity);
+            if (++persisted[0] % FLUSH_EVERY == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        });
+        entityManager.flush();
+        entityManager.clear();
+        return data;
+    }
+
+    private static BenchmarkData generate(int doctorCount, int patientCount, int visitCount,
+                                          Consumer<BaseEntity> register) {
+        Random random = new Random(SEED);
+        BenchmarkData data = new BenchmarkData();
+
+        for (int i = 0; i < SPECIALTIES; i++) {
+            Specialty specialty = new Specialty();
+            specialty.setName("specialty" + i);
+            register.accept(specialty);
+            data.specialties.add(specialty);
+        }
+
+        for (int i = 0; i < DIAGNOSES; i++) {
+            Diagnosis diagnosis = new Diagnosis();
+            diagnosis.setName("diagnosis" + i);
+            register.accept(diagnosis);
+            data.diagnoses.add(diagnosis);
+        }
+
+        for (int i = 1; i <= HEALTH_SYSTEMS; i++) {
+            HealthSystem healthSystem = new HealthSystem();
+            healthSystem.setNoInsuranceFee(BigDecimal.valueOf(i * 1250L, 2));
+            register.accept(healthSystem);
+            data.healthSystems.add(healthSystem);
+        }
+
+        for (int i = 0; i < doctorCount; i++) {
+            Set<Specialty> doctorSpecialties = new HashSet<>();
+            doctorSpecialties.add(data.specialties.get(random.nextInt(SPECIALTIES)));
+            doctorSpecialties.add(data.specialties.get(random.nextInt(SPECIALTIES)));
+
+            Doctor doctor = new Doctor();
+            doctor.setName("doctor" + i);
+            doctor.setBirthdate(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(15000)));
+            doctor.setGp(i % 2 == 0);
+            doctor.setSpecialties(doctorSpecialties);
+            register.accept(doctor);
+            data.doctors.add(doctor);
+        }
+
+        for (int i = 0; i < patientCount; i++) {
+            Patient patient = new Patient();
+            patient.setName("patient" + i);
+            patient.setHasInsurance(random.nextInt(3) != 0);
+            patient.setGp(data.doctors.get(2 * random.nextInt((doctorCount + 1) / 2)));
+            register.accept(patient);
+            data.patients.add(patient);
+        }
+
+        for (int i = 0; i < visitCount; i++) {
+            Set<Diagnosis> visitDiagnoses = new HashSet<>();
+            int diagnosesCount = 1 + random.nextInt(3);
+            while (visitDiagnoses.size() < diagnosesCount) {
+                visitDiagnoses.add(data.diagnoses.get(random.nextInt(DIAGNOSES)));
+            }
+
+            Visit visit = new Visit();
+            visit.setPatient(data.patients.get(random.nextInt(patientCount)));
+            visit.setDoctor(data.doctors.get(random.nextInt(doctorCount)));
+            visit.setHealthSystem(data.healthSystems.get(random.nextInt(HEALTH_SYSTEMS)));
+            visit.setDiagnoses(visitDiagnoses);
+            visit.setVisitDate(LocalDate.of(2000, 1, 1).plusDays(random.nextInt(8000)));
+            register.accept(visit);
+            data.visits.add(visit);
+        }
+
+        return data;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.medicalrecordsproject.benchmarks;
+
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
+import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Writing the response bodies of the list endpoints, with an ObjectMapper configured like the one of Spring MVC
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param("10000")
+    public int size;
+
+    private ObjectMapper objectMapper;
+
+    private List<VisitResponse> visitResponses;
+
+    private List<DoctorResponse> doctorResponses;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        MapperUtil mapperUtil = new MapperUtil();
+        BenchmarkData data = BenchmarkData.generate(size, size, size);
+        visitResponses = mapperUtil.mapList(data.visits, VisitResponse.class);
+        doctorResponses = mapperUtil.mapList(data.doctors, DoctorResponse.class);
+    }
+
+    @Benchmark
+    public byte[] writeVisits() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(visitResponses);
+    }
+
+    @Benchmark
+    public byte[] writeDoctors() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(doctorResponses);
+    }
+}
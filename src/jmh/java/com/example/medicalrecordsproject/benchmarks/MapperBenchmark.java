@@ -0,0 +1,53 @@
+package com.example.medicalrecordsproject.benchmarks;
+
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse;
+import com.example.medicalrecordsproject.data.dtos.patients.PatientResponse;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
+import com.example.medicalrecordsproject.utils.MapperUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// MapperUtil.mapList over loaded entities, with ModelMapper and with the generated MapStruct mappers
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param("10000")
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean useGenerated;
+
+    private MapperUtil mapperUtil;
+
+    private BenchmarkData data;
+
+    @Setup
+    public void setup() {
+        mapperUtil = new MapperUtil();
+        ReflectionTestUtils.setField(mapperUtil, "useGenerated", useGenerated);
+        data = BenchmarkData.generate(size, size, size);
+    }
+
+    @Benchmark
+    public List<VisitResponse> mapVisits() {
+        return mapperUtil.mapList(data.visits, VisitResponse.class);
+    }
+
+    @Benchmark
+    public List<DoctorResponse> mapDoctors() {
+        return mapperUtil.mapList(data.doctors, DoctorResponse.class);
+    }
+
+    @Benchmark
+    public List<PatientResponse> mapPatients() {
+        return mapperUtil.mapList(data.patients, PatientResponse.class);
+    }
+}
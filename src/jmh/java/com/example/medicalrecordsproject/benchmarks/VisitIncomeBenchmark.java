@@ -0,0 +1,129 @@
+package com.example.medicalrecordsproject.benchmarks;
+
+import com.example.medicalrecordsproject.MedicalRecordsProjectApplication;
+import com.example.medicalrecordsproject.data.dtos.incomes.DoctorIncomeResponse;
+import com.example.medicalrecordsproject.jobs.IncomeLedgerReconcileJob;
+import com.example.medicalrecordsproject.service.VisitService;
+import com.example.medicalrecordsproject.utils.VisitAggregates;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The income methods of VisitService on the whole application context, against an in-memory H2 database
+// filled with the given number of visits. Run with "-p visits=100000" for a bigger dataset.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisitIncomeBenchmark {
+
+    @Param("10000")
+    public int visits;
+
+    private ConfigurableApplicationContext context;
+
+    private VisitService visitService;
+
+    private VisitAggregates visitAggregates;
+
+    private Long doctorId;
+
+    private Long diagnosisId;
+
+    private BigDecimal minIncome;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(MedicalRecordsProjectApplication.class)
+                .web(WebApplicationType.NONE)
+                // As arguments, so they take precedence over application.properties
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmarks;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.main.banner-mode=off",
+                        "--income-ledger.reconcile-cron=-",
+                        // Every call runs its query instead of reusing the result of the previous one
+                        "--visits.aggregates.ttl-ms=0",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor=WARN");
+
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                context.getBean(EntityManagerFactory.class));
+        BenchmarkData data = new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).execute(status ->
+                BenchmarkData.persist(Math.max(10, visits / 100), Math.max(50, visits / 10), visits, entityManager));
+
+        // The ledger, the rollups and the income index are built from the visits table
+        context.getBean(IncomeLedgerReconcileJob.class).reconcile();
+
+        visitService = context.getBean(VisitService.class);
+        visitAggregates = context.getBean(VisitAggregates.class);
+        doctorId = data.doctors.get(0).getId();
+        diagnosisId = data.diagnoses.get(0).getId();
+        minIncome = visitService.getTotalIncomeFromVisitsOfDoctor(doctorId);
+    }
+
+    // A ttl of 0 still lets a call join a computation that is in flight. Dropping the results before every
+    // call makes sure each one runs its own query instead of measuring a cache hit.
+    @Setup(Level.Invocation)
+    public void invalidateAggregates() {
+        visitAggregates.invalidateAll();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BigDecimal totalIncome() {
+        return visitService.getTotalIncomeFromVisits();
+    }
+
+    @Benchmark
+    public BigDecimal totalIncomeOfDoctor() {
+        return visitService.getTotalIncomeFromVisitsOfDoctor(doctorId);
+    }
+
+    @Benchmark
+    public BigDecimal totalIncomeOfDoctorInsuredPatients() {
+        return visitService.getTotalIncomeByDoctorInsuredPatients(doctorId);
+    }
+
+    @Benchmark
+    public BigDecimal totalIncomeByDiagnosis() {
+        return visitService.getTotalIncomeFromVisitsByDiagnosis(diagnosisId);
+    }
+
+    @Benchmark
+    public BigDecimal totalIncomeFromPatientsNoInsurance() {
+        return visitService.getTotalIncomeFromPatientsNoInsurance();
+    }
+
+    @Benchmark
+    public Integer countDoctorsBiggerIncome() {
+        return visitService.getCountDoctorsBiggerIncome(minIncome);
+    }
+
+    @Benchmark
+    public List<DoctorIncomeResponse> topDoctorsByIncome() {
+        return visitService.getTopDoctorsByIncome(10);
+    }
+
+    @Benchmark
+    public BigDecimal incomePercentileRankOfDoctor() {
+        return visitService.getIncomePercentileRankOfDoctor(doctorId);
+    }
+}
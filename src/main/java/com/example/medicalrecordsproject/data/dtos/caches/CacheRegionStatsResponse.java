@@ -0,0 +1,95 @@
+package com.example.medicalrecordsproject.data.dtos.caches;
+
+import java.util.Objects;
+
+// Counters of one region of the Hibernate second-level cache since startup
+public class CacheRegionStatsResponse {
+
+    private String region;
+
+    private long hits;
+
+    private long misses;
+
+    private long puts;
+
+    // hits / (hits + misses), 0 when the region was never read
+    private double hitRatio;
+
+    private long elementsInMemory;
+
+    public CacheRegionStatsResponse() {
+    }
+
+    public CacheRegionStatsResponse(String region, long hits, long misses, long puts, long elementsInMemory) {
+        this.region = region;
+        this.hits = hits;
+        this.misses = misses;
+        this.puts = puts;
+        this.hitRatio = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        this.elementsInMemory = elementsInMemory;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public long getPuts() {
+        return puts;
+    }
+
+    public void setPuts(long puts) {
+        this.puts = puts;
+    }
+
+    public double getHitRatio() {
+        return hitRatio;
+    }
+
+    public void setHitRatio(double hitRatio) {
+        this.hitRatio = hitRatio;
+    }
+
+    public long getElementsInMemory() {
+        return elementsInMemory;
+    }
+
+    public void setElementsInMemory(long elementsInMemory) {
+        this.elementsInMemory = elementsInMemory;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CacheRegionStatsResponse that = (CacheRegionStatsResponse) o;
+        return hits == that.hits && misses == that.misses && puts == that.puts
+                && Double.compare(that.hitRatio, hitRatio) == 0 && elementsInMemory == that.elementsInMemory
+                && Objects.equals(region, that.region);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(region, hits, misses, puts, hitRatio, elementsInMemory);
+    }
+}
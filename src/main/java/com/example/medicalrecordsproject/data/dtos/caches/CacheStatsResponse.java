@@ -0,0 +1,92 @@
+package com.example.medicalrecordsproject.data.dtos.caches;
+
+import java.util.Objects;
+
+public class CacheStatsResponse {
+
+    private String name;
+
+    private int size;
+
+    private int maxSize;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    public CacheStatsResponse() {
+    }
+
+    public CacheStatsResponse(String name, int size, int maxSize, long hits, long misses, long evictions) {
+        this.name = name;
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CacheStatsResponse that = (CacheStatsResponse) o;
+        return size == that.size && maxSize == that.maxSize && hits == that.hits && misses == that.misses
+                && evictions == that.evictions && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, size, maxSize, hits, misses, evictions);
+    }
+}
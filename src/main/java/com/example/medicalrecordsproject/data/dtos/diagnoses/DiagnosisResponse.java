@@ -11,6 +11,11 @@ public class DiagnosisResponse {
     public DiagnosisResponse() {
     }
 
+    public DiagnosisResponse(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
     public Long getId() {
         return id;
     }
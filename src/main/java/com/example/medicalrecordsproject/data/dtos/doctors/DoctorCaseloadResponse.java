@@ -0,0 +1,102 @@
+package com.example.medicalrecordsproject.data.dtos.doctors;
+
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+import java.util.Objects;
+
+// One page of the visits of a doctor in a period. The counts are over all the matching visits of the period,
+// not only the page.
+public class DoctorCaseloadResponse {
+
+    private long totalVisits;
+
+    private long insuredVisits;
+
+    private long uninsuredVisits;
+
+    private long patients;
+
+    private List<VisitResponse> visits;
+
+    // Sent in the X-Next-Cursor header like for the other paged lists
+    @JsonIgnore
+    private String nextCursor;
+
+    public DoctorCaseloadResponse() {
+    }
+
+    public DoctorCaseloadResponse(long totalVisits, long insuredVisits, long patients,
+                                  List<VisitResponse> visits, String nextCursor) {
+        this.totalVisits = totalVisits;
+        this.insuredVisits = insuredVisits;
+        this.uninsuredVisits = totalVisits - insuredVisits;
+        this.patients = patients;
+        this.visits = visits;
+        this.nextCursor = nextCursor;
+    }
+
+    public long getTotalVisits() {
+        return totalVisits;
+    }
+
+    public void setTotalVisits(long totalVisits) {
+        this.totalVisits = totalVisits;
+    }
+
+    public long getInsuredVisits() {
+        return insuredVisits;
+    }
+
+    public void setInsuredVisits(long insuredVisits) {
+        this.insuredVisits = insuredVisits;
+    }
+
+    public long getUninsuredVisits() {
+        return uninsuredVisits;
+    }
+
+    public void setUninsuredVisits(long uninsuredVisits) {
+        this.uninsuredVisits = uninsuredVisits;
+    }
+
+    public long getPatients() {
+        return patients;
+    }
+
+    public void setPatients(long patients) {
+        this.patients = patients;
+    }
+
+    public List<VisitResponse> getVisits() {
+        return visits;
+    }
+
+    public void setVisits(List<VisitResponse> visits) {
+        this.visits = visits;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DoctorCaseloadResponse that = (DoctorCaseloadResponse) o;
+        return totalVisits == that.totalVisits && insuredVisits == that.insuredVisits
+                && uninsuredVisits == that.uninsuredVisits && patients == that.patients
+                && Objects.equals(visits, that.visits) && Objects.equals(nextCursor, that.nextCursor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(totalVisits, insuredVisits, uninsuredVisits, patients, visits, nextCursor);
+    }
+}
@@ -25,6 +25,14 @@ public class DoctorResponse {
     public DoctorResponse() {
     }
 
+    // Used by the constructor expressions of DoctorRepository, the specialties are added from their own rows
+    public DoctorResponse(Long id, String name, LocalDate birthdate, Boolean isGp) {
+        this.id = id;
+        this.name = name;
+        this.birthdate = birthdate;
+        this.isGp = isGp;
+    }
+
     public Long getId() {
         return id;
     }
@@ -0,0 +1,88 @@
+package com.example.medicalrecordsproject.data.dtos.incomes;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+// Difference between the income ledger row of a doctor and the income computed from the visits table
+public class DoctorIncomeDrift {
+
+    private Long doctorId;
+
+    private BigDecimal ledgerInsuredIncome;
+
+    private BigDecimal actualInsuredIncome;
+
+    private BigDecimal ledgerUninsuredIncome;
+
+    private BigDecimal actualUninsuredIncome;
+
+    public DoctorIncomeDrift() {
+    }
+
+    public DoctorIncomeDrift(Long doctorId,
+                             BigDecimal ledgerInsuredIncome, BigDecimal actualInsuredIncome,
+                             BigDecimal ledgerUninsuredIncome, BigDecimal actualUninsuredIncome) {
+        this.doctorId = doctorId;
+        this.ledgerInsuredIncome = ledgerInsuredIncome;
+        this.actualInsuredIncome = actualInsuredIncome;
+        this.ledgerUninsuredIncome = ledgerUninsuredIncome;
+        this.actualUninsuredIncome = actualUninsuredIncome;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public BigDecimal getLedgerInsuredIncome() {
+        return ledgerInsuredIncome;
+    }
+
+    public void setLedgerInsuredIncome(BigDecimal ledgerInsuredIncome) {
+        this.ledgerInsuredIncome = ledgerInsuredIncome;
+    }
+
+    public BigDecimal getActualInsuredIncome() {
+        return actualInsuredIncome;
+    }
+
+    public void setActualInsuredIncome(BigDecimal actualInsuredIncome) {
+        this.actualInsuredIncome = actualInsuredIncome;
+    }
+
+    public BigDecimal getLedgerUninsuredIncome() {
+        return ledgerUninsuredIncome;
+    }
+
+    public void setLedgerUninsuredIncome(BigDecimal ledgerUninsuredIncome) {
+        this.ledgerUninsuredIncome = ledgerUninsuredIncome;
+    }
+
+    public BigDecimal getActualUninsuredIncome() {
+        return actualUninsuredIncome;
+    }
+
+    public void setActualUninsuredIncome(BigDecimal actualUninsuredIncome) {
+        this.actualUninsuredIncome = actualUninsuredIncome;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DoctorIncomeDrift that = (DoctorIncomeDrift) o;
+        return Objects.equals(doctorId, that.doctorId)
+                && Objects.equals(ledgerInsuredIncome, that.ledgerInsuredIncome)
+                && Objects.equals(actualInsuredIncome, that.actualInsuredIncome)
+                && Objects.equals(ledgerUninsuredIncome, that.ledgerUninsuredIncome)
+                && Objects.equals(actualUninsuredIncome, that.actualUninsuredIncome);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(doctorId, ledgerInsuredIncome, actualInsuredIncome, ledgerUninsuredIncome, actualUninsuredIncome);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.medicalrecordsproject.data.dtos.incomes;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+public class DoctorIncomeResponse {
+
+    private Long doctorId;
+
+    private BigDecimal income;
+
+    public DoctorIncomeResponse() {
+    }
+
+    public DoctorIncomeResponse(Long doctorId, BigDecimal income) {
+        this.doctorId = doctorId;
+        this.income = income;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public BigDecimal getIncome() {
+        return income;
+    }
+
+    public void setIncome(BigDecimal income) {
+        this.income = income;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DoctorIncomeResponse that = (DoctorIncomeResponse) o;
+        return Objects.equals(doctorId, that.doctorId) && Objects.equals(income, that.income);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(doctorId, income);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.medicalrecordsproject.data.dtos.incomes;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+// Income of one period and one doctor or one health system, the other id is null
+public class IncomeBucketResponse {
+
+    private LocalDate periodStart;
+
+    private Long doctorId;
+
+    private Long healthSystemId;
+
+    private BigDecimal insuredIncome;
+
+    private BigDecimal uninsuredIncome;
+
+    private long visits;
+
+    public IncomeBucketResponse() {
+    }
+
+    public IncomeBucketResponse(LocalDate periodStart, Long doctorId, Long healthSystemId) {
+        this.periodStart = periodStart;
+        this.doctorId = doctorId;
+        this.healthSystemId = healthSystemId;
+        this.insuredIncome = BigDecimal.ZERO;
+        this.uninsuredIncome = BigDecimal.ZERO;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public Long getHealthSystemId() {
+        return healthSystemId;
+    }
+
+    public void setHealthSystemId(Long healthSystemId) {
+        this.healthSystemId = healthSystemId;
+    }
+
+    public BigDecimal getInsuredIncome() {
+        return insuredIncome;
+    }
+
+    public void setInsuredIncome(BigDecimal insuredIncome) {
+        this.insuredIncome = insuredIncome;
+    }
+
+    public BigDecimal getUninsuredIncome() {
+        return uninsuredIncome;
+    }
+
+    public void setUninsuredIncome(BigDecimal uninsuredIncome) {
+        this.uninsuredIncome = uninsuredIncome;
+    }
+
+    public long getVisits() {
+        return visits;
+    }
+
+    public void setVisits(long visits) {
+        this.visits = visits;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IncomeBucketResponse that = (IncomeBucketResponse) o;
+        return visits == that.visits && Objects.equals(periodStart, that.periodStart)
+                && Objects.equals(doctorId, that.doctorId) && Objects.equals(healthSystemId, that.healthSystemId)
+                && Objects.equals(insuredIncome, that.insuredIncome) && Objects.equals(uninsuredIncome, that.uninsuredIncome);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(periodStart, doctorId, healthSystemId, insuredIncome, uninsuredIncome, visits);
+    }
+}
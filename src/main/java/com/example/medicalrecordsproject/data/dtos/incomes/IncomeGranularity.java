@@ -0,0 +1,31 @@
+package com.example.medicalrecordsproject.data.dtos.incomes;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+// Length of the periods of GET /visits/income, every period is named by its first day
+public enum IncomeGranularity {
+
+    DAY {
+        @Override
+        public LocalDate periodStart(LocalDate day) {
+            return day;
+        }
+    },
+    // ISO weeks, starting on Monday
+    WEEK {
+        @Override
+        public LocalDate periodStart(LocalDate day) {
+            return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+    },
+    MONTH {
+        @Override
+        public LocalDate periodStart(LocalDate day) {
+            return day.withDayOfMonth(1);
+        }
+    };
+
+    public abstract LocalDate periodStart(LocalDate day);
+}
@@ -0,0 +1,49 @@
+package com.example.medicalrecordsproject.data.dtos.pages;
+
+import java.util.List;
+import java.util.Objects;
+
+public class CursorPage<T> {
+
+    private List<T> items;
+
+    // Cursor of the last item, passed as "after" to get the next page. Null on the last page.
+    private String nextCursor;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CursorPage<?> that = (CursorPage<?>) o;
+        return Objects.equals(items, that.items) && Objects.equals(nextCursor, that.nextCursor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(items, nextCursor);
+    }
+}
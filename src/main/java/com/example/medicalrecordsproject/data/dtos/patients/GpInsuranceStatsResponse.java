@@ -0,0 +1,74 @@
+package com.example.medicalrecordsproject.data.dtos.patients;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+// Insured and uninsured patients of one GP, gpId is null for the patients without a GP
+public class GpInsuranceStatsResponse {
+
+    private Long gpId;
+
+    private long insuredPatients;
+
+    private long uninsuredPatients;
+
+    private BigDecimal percentWithoutInsurance;
+
+    public GpInsuranceStatsResponse() {
+    }
+
+    public GpInsuranceStatsResponse(Long gpId, long insuredPatients, long uninsuredPatients,
+                                    BigDecimal percentWithoutInsurance) {
+        this.gpId = gpId;
+        this.insuredPatients = insuredPatients;
+        this.uninsuredPatients = uninsuredPatients;
+        this.percentWithoutInsurance = percentWithoutInsurance;
+    }
+
+    public Long getGpId() {
+        return gpId;
+    }
+
+    public void setGpId(Long gpId) {
+        this.gpId = gpId;
+    }
+
+    public long getInsuredPatients() {
+        return insuredPatients;
+    }
+
+    public void setInsuredPatients(long insuredPatients) {
+        this.insuredPatients = insuredPatients;
+    }
+
+    public long getUninsuredPatients() {
+        return uninsuredPatients;
+    }
+
+    public void setUninsuredPatients(long uninsuredPatients) {
+        this.uninsuredPatients = uninsuredPatients;
+    }
+
+    public BigDecimal getPercentWithoutInsurance() {
+        return percentWithoutInsurance;
+    }
+
+    public void setPercentWithoutInsurance(BigDecimal percentWithoutInsurance) {
+        this.percentWithoutInsurance = percentWithoutInsurance;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GpInsuranceStatsResponse that = (GpInsuranceStatsResponse) o;
+        return insuredPatients == that.insuredPatients && uninsuredPatients == that.uninsuredPatients
+                && Objects.equals(gpId, that.gpId)
+                && Objects.equals(percentWithoutInsurance, that.percentWithoutInsurance);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(gpId, insuredPatients, uninsuredPatients, percentWithoutInsurance);
+    }
+}
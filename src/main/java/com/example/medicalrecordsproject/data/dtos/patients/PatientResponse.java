@@ -15,6 +15,14 @@ public class PatientResponse {
     public PatientResponse() {
     }
 
+    // Used by the constructor expressions of PatientRepository, the GP is read from the foreign key column
+    public PatientResponse(Long id, String name, Boolean hasInsurance, Long gpId) {
+        this.id = id;
+        this.name = name;
+        this.hasInsurance = hasInsurance;
+        this.gpId = gpId;
+    }
+
     public Long getId() {
         return id;
     }
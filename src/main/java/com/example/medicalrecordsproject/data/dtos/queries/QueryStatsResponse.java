@@ -0,0 +1,96 @@
+package com.example.medicalrecordsproject.data.dtos.queries;
+
+import java.util.Objects;
+
+// Executions of one JPQL or native query since startup, from the Hibernate statistics
+public class QueryStatsResponse {
+
+    private String query;
+
+    private long executions;
+
+    private long totalMillis;
+
+    private double meanMillis;
+
+    private long maxMillis;
+
+    // Rows returned by all the executions
+    private long rows;
+
+    public QueryStatsResponse() {
+    }
+
+    public QueryStatsResponse(String query, long executions, long totalMillis, double meanMillis, long maxMillis,
+                              long rows) {
+        this.query = query;
+        this.executions = executions;
+        this.totalMillis = totalMillis;
+        this.meanMillis = meanMillis;
+        this.maxMillis = maxMillis;
+        this.rows = rows;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public long getExecutions() {
+        return executions;
+    }
+
+    public void setExecutions(long executions) {
+        this.executions = executions;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public void setTotalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public void setMeanMillis(double meanMillis) {
+        this.meanMillis = meanMillis;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public void setMaxMillis(long maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        QueryStatsResponse that = (QueryStatsResponse) o;
+        return executions == that.executions && totalMillis == that.totalMillis
+                && Double.compare(that.meanMillis, meanMillis) == 0 && maxMillis == that.maxMillis
+                && rows == that.rows && Objects.equals(query, that.query);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(query, executions, totalMillis, meanMillis, maxMillis, rows);
+    }
+}
@@ -11,6 +11,11 @@ public class SpecialtyResponse {
     public SpecialtyResponse() {
     }
 
+    public SpecialtyResponse(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
     public Long getId() {
         return id;
     }
@@ -0,0 +1,49 @@
+package com.example.medicalrecordsproject.data.dtos.visits;
+
+import java.util.List;
+import java.util.Objects;
+
+// Why the visit at position index of a batch was not created
+public class VisitBatchError {
+
+    private int index;
+
+    private List<String> messages;
+
+    public VisitBatchError() {
+    }
+
+    public VisitBatchError(int index, List<String> messages) {
+        this.index = index;
+        this.messages = messages;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public List<String> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<String> messages) {
+        this.messages = messages;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        VisitBatchError that = (VisitBatchError) o;
+        return index == that.index && Objects.equals(messages, that.messages);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(index, messages);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.medicalrecordsproject.data.dtos.visits;
+
+import java.util.List;
+import java.util.Objects;
+
+public class VisitBatchResponse {
+
+    // Ids of the created visits, in the order of the valid items of the batch
+    private List<Long> createdIds;
+
+    private List<VisitBatchError> errors;
+
+    public VisitBatchResponse() {
+    }
+
+    public VisitBatchResponse(List<Long> createdIds, List<VisitBatchError> errors) {
+        this.createdIds = createdIds;
+        this.errors = errors;
+    }
+
+    public List<Long> getCreatedIds() {
+        return createdIds;
+    }
+
+    public void setCreatedIds(List<Long> createdIds) {
+        this.createdIds = createdIds;
+    }
+
+    public List<VisitBatchError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<VisitBatchError> errors) {
+        this.errors = errors;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        VisitBatchResponse that = (VisitBatchResponse) o;
+        return Objects.equals(createdIds, that.createdIds) && Objects.equals(errors, that.errors);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(createdIds, errors);
+    }
+}
@@ -18,7 +18,7 @@ public class VisitRequest {
 
     @NotEmpty(message = "Diagnoses cannot be empty")
     @NotNull(message = "Diagnoses cannot be null")
-    private Set<Long> diagnosesIds;
+    private Set<@NotNull(message = "Diagnosis ids cannot be null") Long> diagnosesIds;
 
     @NotNull(message = "Must provide Health System")
     private Long healthSystemId;
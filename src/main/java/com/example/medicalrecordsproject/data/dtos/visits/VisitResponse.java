@@ -21,6 +21,14 @@ public class VisitResponse {
     public VisitResponse() {
     }
 
+    // Used by the constructor expressions of VisitRepository, the diagnoses are added from their own rows
+    public VisitResponse(Long id, Long patientId, Long doctorId, LocalDate visitDate) {
+        this.id = id;
+        this.patientId = patientId;
+        this.doctorId = doctorId;
+        this.visitDate = visitDate;
+    }
+
     public Long getId() {
         return id;
     }
@@ -1,5 +1,9 @@
 package com.example.medicalrecordsproject.data.entities;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -8,8 +12,15 @@ import java.util.Objects;
 
 @MappedSuperclass
 public class BaseEntity {
+    // The ids come from one pooled sequence per entity (emulated with a table on MySQL) instead of
+    // IDENTITY columns, so Hibernate knows the id before the insert and can send the inserts in JDBC batches.
+    // Every call to the sequence reserves the next 50 ids.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pooled_ids")
+    @GenericGenerator(name = "pooled_ids", strategy = "enhanced-sequence", parameters = {
+            @Parameter(name = SequenceStyleGenerator.CONFIG_PREFER_SEQUENCE_PER_ENTITY, value = "true"),
+            @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50"),
+            @Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled-lo")})
     private Long id;
 
     public BaseEntity() {
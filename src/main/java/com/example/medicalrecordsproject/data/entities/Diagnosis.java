@@ -1,5 +1,8 @@
 package com.example.medicalrecordsproject.data.entities;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
@@ -7,6 +10,7 @@ import javax.validation.constraints.NotBlank;
 
 @Entity
 @Table(name = "diagnoses")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "diagnoses")
 public class Diagnosis extends BaseEntity {
     @NotBlank(message = "Name cannot be empty")
     @Column(name = "name", nullable = false)
@@ -1,5 +1,7 @@
 package com.example.medicalrecordsproject.data.entities;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import javax.persistence.*;
@@ -11,6 +13,7 @@ import java.util.Set;
 
 @Entity
 @Table(name = "doctors")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "doctors")
 public class Doctor extends BaseEntity {
     @NotBlank(message = "Name cannot be empty")
     @Column(name = "name", nullable = false)
@@ -22,6 +25,7 @@ public class Doctor extends BaseEntity {
     private LocalDate birthdate;
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "doctors.specialties")
     private Set<Specialty> specialties;
 
     @NotNull(message = "Must provide information whether the doctor is general practitioner")
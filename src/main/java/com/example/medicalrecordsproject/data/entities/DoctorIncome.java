@@ -0,0 +1,70 @@
+package com.example.medicalrecordsproject.data.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.math.BigDecimal;
+
+// Running totals of the visit fees of one doctor, split by whether the patient was insured.
+// Maintained by IncomeLedgerService whenever a visit, a patient's insurance or a fee changes.
+@Entity
+@Table(name = "doctor_incomes")
+public class DoctorIncome {
+
+    @Id
+    @Column(name = "doctor_id")
+    private Long doctorId;
+
+    @Column(name = "insured_income", nullable = false, precision = 19, scale = 2)
+    private BigDecimal insuredIncome;
+
+    @Column(name = "uninsured_income", nullable = false, precision = 19, scale = 2)
+    private BigDecimal uninsuredIncome;
+
+    // Raised by every change of the row, so of two values read from it the newer one can be told apart
+    @Column(name = "revision", nullable = false)
+    private long revision;
+
+    public DoctorIncome() {
+        this.insuredIncome = BigDecimal.ZERO;
+        this.uninsuredIncome = BigDecimal.ZERO;
+    }
+
+    public DoctorIncome(Long doctorId) {
+        this();
+        this.doctorId = doctorId;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public BigDecimal getInsuredIncome() {
+        return insuredIncome;
+    }
+
+    public void setInsuredIncome(BigDecimal insuredIncome) {
+        this.insuredIncome = insuredIncome;
+    }
+
+    public BigDecimal getUninsuredIncome() {
+        return uninsuredIncome;
+    }
+
+    public void setUninsuredIncome(BigDecimal uninsuredIncome) {
+        this.uninsuredIncome = uninsuredIncome;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+}
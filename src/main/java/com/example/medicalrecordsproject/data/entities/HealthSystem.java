@@ -1,5 +1,8 @@
 package com.example.medicalrecordsproject.data.entities;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
@@ -9,6 +12,7 @@ import java.math.BigDecimal;
 
 @Entity
 @Table(name = "health_systems")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "healthSystems")
 public class HealthSystem extends BaseEntity {
 
     @NotNull(message = "Must provide fee value")
@@ -0,0 +1,80 @@
+package com.example.medicalrecordsproject.data.entities;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+
+// Sum of the visit fees and number of visits of one day, doctor, health system and kind of patient.
+// Maintained by IncomeRollupService together with the income ledger, so the income of a period
+// is read from these rows instead of from the visits.
+@Entity
+@Table(name = "income_rollups", indexes = @Index(name = "idx_income_rollups_epoch_day", columnList = "epoch_day"))
+@IdClass(IncomeRollupId.class)
+public class IncomeRollup {
+
+    // LocalDate.toEpochDay() of the visit date
+    @Id
+    @Column(name = "epoch_day")
+    private Long epochDay;
+
+    @Id
+    @Column(name = "doctor_id")
+    private Long doctorId;
+
+    @Id
+    @Column(name = "health_system_id")
+    private Long healthSystemId;
+
+    @Id
+    @Column(name = "insured")
+    private Boolean insured;
+
+    @Column(name = "income", nullable = false, precision = 19, scale = 2)
+    private BigDecimal income;
+
+    @Column(name = "visits", nullable = false)
+    private long visits;
+
+    public IncomeRollup() {
+        this.income = BigDecimal.ZERO;
+    }
+
+    public IncomeRollup(IncomeRollupId id) {
+        this();
+        this.epochDay = id.getEpochDay();
+        this.doctorId = id.getDoctorId();
+        this.healthSystemId = id.getHealthSystemId();
+        this.insured = id.getInsured();
+    }
+
+    public Long getEpochDay() {
+        return epochDay;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public Long getHealthSystemId() {
+        return healthSystemId;
+    }
+
+    public Boolean getInsured() {
+        return insured;
+    }
+
+    public BigDecimal getIncome() {
+        return income;
+    }
+
+    public void setIncome(BigDecimal income) {
+        this.income = income;
+    }
+
+    public long getVisits() {
+        return visits;
+    }
+
+    public void setVisits(long visits) {
+        this.visits = visits;
+    }
+}
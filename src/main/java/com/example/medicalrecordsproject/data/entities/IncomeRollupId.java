@@ -0,0 +1,56 @@
+package com.example.medicalrecordsproject.data.entities;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+// Primary key of IncomeRollup
+public class IncomeRollupId implements Serializable {
+
+    private Long epochDay;
+
+    private Long doctorId;
+
+    private Long healthSystemId;
+
+    private Boolean insured;
+
+    public IncomeRollupId() {
+    }
+
+    public IncomeRollupId(Long epochDay, Long doctorId, Long healthSystemId, Boolean insured) {
+        this.epochDay = epochDay;
+        this.doctorId = doctorId;
+        this.healthSystemId = healthSystemId;
+        this.insured = insured;
+    }
+
+    public Long getEpochDay() {
+        return epochDay;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public Long getHealthSystemId() {
+        return healthSystemId;
+    }
+
+    public Boolean getInsured() {
+        return insured;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IncomeRollupId that = (IncomeRollupId) o;
+        return Objects.equals(epochDay, that.epochDay) && Objects.equals(doctorId, that.doctorId)
+                && Objects.equals(healthSystemId, that.healthSystemId) && Objects.equals(insured, that.insured);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(epochDay, doctorId, healthSystemId, insured);
+    }
+}
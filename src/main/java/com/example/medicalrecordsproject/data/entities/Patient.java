@@ -2,13 +2,16 @@ package com.example.medicalrecordsproject.data.entities;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
 @Entity
-@Table(name = "patients")
+@Table(name = "patients", indexes = {
+        @Index(name = "idx_patients_has_insurance", columnList = "has_insurance"),
+        @Index(name = "idx_patients_gp_id_has_insurance", columnList = "gp_id, has_insurance")})
 public class Patient extends BaseEntity {
     @NotBlank(message = "Name cannot be empty")
     @Column(name = "name", nullable = false)
@@ -1,10 +1,14 @@
 package com.example.medicalrecordsproject.data.entities;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 
 @Entity
 @Table(name = "specialties")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "specialties")
 public class Specialty extends BaseEntity {
     @NotBlank(message = "Name cannot be empty")
     @Column(name = "name", nullable = false)
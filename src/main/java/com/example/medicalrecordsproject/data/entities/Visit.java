@@ -10,7 +10,11 @@ import java.time.LocalDate;
 import java.util.Set;
 
 @Entity
-@Table(name = "visits")
+// The indexes are created by the migrations in db/migration, they are listed here to document the access paths
+@Table(name = "visits", indexes = {
+        @Index(name = "idx_visits_visit_date_id", columnList = "visitDate, id"),
+        @Index(name = "idx_visits_doctor_id_visit_date", columnList = "doctor_id, visitDate"),
+        @Index(name = "idx_visits_patient_id_visit_date", columnList = "patient_id, visitDate")})
 public class Visit extends BaseEntity {
 
     @NotNull(message = "Must provide patient")
@@ -24,6 +28,8 @@ public class Visit extends BaseEntity {
     @NotEmpty(message = "Diagnoses cannot be empty")
     @NotNull(message = "Diagnoses cannot be null")
     @ManyToMany
+    @JoinTable(name = "visits_diagnoses", indexes = @Index(
+            name = "idx_visits_diagnoses_diagnoses_id_visit_id", columnList = "diagnoses_id, visit_id"))
     private Set<Diagnosis> diagnoses;
 
     @NotNull(message = "Must provide Health System")
@@ -1,10 +1,15 @@
 package com.example.medicalrecordsproject.data.repositories;
 
 import com.example.medicalrecordsproject.data.entities.Diagnosis;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface DiagnosisRepository extends JpaRepository<Diagnosis, Long> {
 
+    // Keyset page: the Diagnosiss after the given id, read through the primary key index
+    List<Diagnosis> findAllByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
 }
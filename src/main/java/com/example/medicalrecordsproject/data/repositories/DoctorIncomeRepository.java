@@ -0,0 +1,46 @@
+package com.example.medicalrecordsproject.data.repositories;
+
+import com.example.medicalrecordsproject.data.entities.DoctorIncome;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DoctorIncomeRepository extends JpaRepository<DoctorIncome, Long> {
+
+    // Row lock so that concurrent visit writes for the same doctor don't lose updates
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT di " +
+            "FROM DoctorIncome di " +
+            "WHERE di.doctorId = :doctorId ")
+    Optional<DoctorIncome> findByDoctorIdForUpdate(Long doctorId);
+
+    // In the order of the doctor ids, like the visit writes lock them
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT di " +
+            "FROM DoctorIncome di " +
+            "ORDER BY di.doctorId ")
+    List<DoctorIncome> findAllForUpdate();
+
+    @Modifying
+    @Query("DELETE FROM DoctorIncome di " +
+            "WHERE di.doctorId = :doctorId ")
+    void deleteByDoctorId(Long doctorId);
+
+    // Used to build the doctor income index. Every Object[] row consists of:
+    // row[0] = doctorId, row[1] = income of the doctor, row[2] = revision of the row
+    @Query("SELECT di.doctorId, di.insuredIncome + di.uninsuredIncome, di.revision " +
+            "FROM DoctorIncome di ")
+    List<Object[]> getIncomesWithRevision();
+
+    @Query("SELECT COALESCE(SUM(di.insuredIncome + di.uninsuredIncome), 0) " +
+            "FROM DoctorIncome di ")
+    BigDecimal getTotalIncome();
+}
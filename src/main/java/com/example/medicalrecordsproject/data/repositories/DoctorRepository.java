@@ -1,10 +1,39 @@
 package com.example.medicalrecordsproject.data.repositories;
 
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse;
 import com.example.medicalrecordsproject.data.entities.Doctor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
 
+    // The list reads build DoctorResponse rows directly, no Doctor is loaded into the persistence context.
+    // The specialties can't be part of a constructor expression, they are read as rows and added to the responses.
+    // Keyset page: the doctors after the given id, read through the primary key index
+    @Query("SELECT new com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse(" +
+            "d.id, d.name, d.birthdate, d.isGp) " +
+            "FROM Doctor d " +
+            "WHERE d.id > :afterId " +
+            "ORDER BY d.id ")
+    List<DoctorResponse> findResponsesAfter(Long afterId, Pageable pageable);
+
+    // Every Object[] row consists of: row[0] = doctorId, row[1] = specialtyId, row[2] = specialty name
+    @Query("SELECT d.id, s.id, s.name " +
+            "FROM Doctor d " +
+            "JOIN d.specialties s " +
+            "WHERE d.id IN :doctorIds ")
+    List<Object[]> findSpecialtyRows(Collection<Long> doctorIds);
+
+    // Fetch plan for the doctor that is mapped to DoctorResponse, so its specialties
+    // are not loaded with one more query while the response is built
+    @EntityGraph(attributePaths = "specialties")
+    Optional<Doctor> findWithSpecialtiesById(Long id);
 }
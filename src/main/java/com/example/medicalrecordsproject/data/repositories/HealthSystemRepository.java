@@ -1,10 +1,15 @@
 package com.example.medicalrecordsproject.data.repositories;
 
 import com.example.medicalrecordsproject.data.entities.HealthSystem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface HealthSystemRepository extends JpaRepository<HealthSystem, Long> {
 
+    // Keyset page: the HealthSystems after the given id, read through the primary key index
+    List<HealthSystem> findAllByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
 }
@@ -0,0 +1,49 @@
+package com.example.medicalrecordsproject.data.repositories;
+
+import com.example.medicalrecordsproject.data.entities.IncomeRollup;
+import com.example.medicalrecordsproject.data.entities.IncomeRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IncomeRollupRepository extends JpaRepository<IncomeRollup, IncomeRollupId>, IncomeRollupRepositoryCustom {
+
+    // Row lock so that concurrent visit writes for the same day, doctor and health system don't lose updates
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r " +
+            "FROM IncomeRollup r " +
+            "WHERE r.epochDay = :epochDay " +
+            "AND r.doctorId = :doctorId " +
+            "AND r.healthSystemId = :healthSystemId " +
+            "AND r.insured = :insured ")
+    Optional<IncomeRollup> findByIdForUpdate(Long epochDay, Long doctorId, Long healthSystemId, Boolean insured);
+
+    // Every Object[] row consists of:
+    // row[0] = epoch day, row[1] = doctorId, row[2] = insured, row[3] = sum of income, row[4] = count of visits
+    @Query("SELECT r.epochDay, r.doctorId, r.insured, SUM(r.income), SUM(r.visits) " +
+            "FROM IncomeRollup r " +
+            "WHERE r.epochDay BETWEEN :fromDay AND :toDay " +
+            "GROUP BY r.epochDay, r.doctorId, r.insured " +
+            "ORDER BY r.epochDay, r.doctorId ")
+    List<Object[]> getIncomeGroupedByDayAndDoctor(Long fromDay, Long toDay);
+
+    // Every Object[] row consists of:
+    // row[0] = epoch day, row[1] = healthSystemId, row[2] = insured, row[3] = sum of income, row[4] = count of visits
+    @Query("SELECT r.epochDay, r.healthSystemId, r.insured, SUM(r.income), SUM(r.visits) " +
+            "FROM IncomeRollup r " +
+            "WHERE r.epochDay BETWEEN :fromDay AND :toDay " +
+            "GROUP BY r.epochDay, r.healthSystemId, r.insured " +
+            "ORDER BY r.epochDay, r.healthSystemId ")
+    List<Object[]> getIncomeGroupedByDayAndHealthSystem(Long fromDay, Long toDay);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM IncomeRollup r ")
+    void deleteAllRollups();
+}
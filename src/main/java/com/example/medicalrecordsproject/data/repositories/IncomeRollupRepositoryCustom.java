@@ -0,0 +1,11 @@
+package com.example.medicalrecordsproject.data.repositories;
+
+import com.example.medicalrecordsproject.data.entities.IncomeRollup;
+
+// Writes of the rollups that need the EntityManager itself, implemented in IncomeRollupRepositoryCustomImpl
+public interface IncomeRollupRepositoryCustom {
+
+    int insertRollupsOfAllVisits();
+
+    void persist(IncomeRollup rollup);
+}
@@ -0,0 +1,46 @@
+package com.example.medicalrecordsproject.data.repositories;
+
+import com.example.medicalrecordsproject.data.entities.IncomeRollup;
+import org.hibernate.query.NativeQuery;
+
+import javax.persistence.EntityManager;
+
+public class IncomeRollupRepositoryCustomImpl implements IncomeRollupRepositoryCustom {
+
+    // The epoch day is counted with TIMESTAMPDIFF, which H2 and MySQL both have
+    private static final String INSERT_ROLLUPS_OF_ALL_VISITS =
+            "INSERT INTO income_rollups (epoch_day, doctor_id, health_system_id, insured, income, visits) " +
+                    "SELECT TIMESTAMPDIFF(DAY, DATE '1970-01-01', v.visit_date), v.doctor_id, v.health_system_id, " +
+                    "p.has_insurance, SUM(hs.no_insurance_fee), COUNT(*) " +
+                    "FROM visits v " +
+                    "JOIN patients p ON p.id = v.patient_id " +
+                    "JOIN health_systems hs ON hs.id = v.health_system_id " +
+                    "GROUP BY v.visit_date, v.doctor_id, v.health_system_id, p.has_insurance";
+
+    private final EntityManager entityManager;
+
+    public IncomeRollupRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    // Sums the visits table into the rollups with one statement, the rows never pass through the application.
+    // Hibernate can't tell which tables a native statement writes and would evict every second-level cache
+    // region, so the statement is declared to touch only the rollups.
+    @Override
+    public int insertRollupsOfAllVisits() {
+        entityManager.flush();
+        int rows = entityManager.createNativeQuery(INSERT_ROLLUPS_OF_ALL_VISITS)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(IncomeRollup.class)
+                .executeUpdate();
+        entityManager.clear();
+        return rows;
+    }
+
+    // The id of a rollup is assigned, so save() would merge and select the row again
+    // although the locked read already found none
+    @Override
+    public void persist(IncomeRollup rollup) {
+        entityManager.persist(rollup);
+    }
+}
@@ -1,15 +1,56 @@
 package com.example.medicalrecordsproject.data.repositories;
 
+import com.example.medicalrecordsproject.data.dtos.patients.PatientResponse;
 import com.example.medicalrecordsproject.data.entities.Patient;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Long> {
 
-    List<Patient> findAllByHasInsuranceIsTrue();
+    // The list reads build PatientResponse rows directly, no Patient is loaded into the persistence context.
+    // p.gp.id is read from the foreign key column, so the GP isn't joined and the patients without a GP are kept.
+    @Query("SELECT new com.example.medicalrecordsproject.data.dtos.patients.PatientResponse(" +
+            "p.id, p.name, p.hasInsurance, p.gp.id) " +
+            "FROM Patient p " +
+            "WHERE p.hasInsurance = true ")
+    List<PatientResponse> findAllInsuredResponses();
 
-    Integer countAllByHasInsuranceIsFalse();
+    // Keyset page: the patients after the given id, read through the primary key index
+    @Query("SELECT new com.example.medicalrecordsproject.data.dtos.patients.PatientResponse(" +
+            "p.id, p.name, p.hasInsurance, p.gp.id) " +
+            "FROM Patient p " +
+            "WHERE p.id > :afterId " +
+            "ORDER BY p.id ")
+    List<PatientResponse> findResponsesAfter(Long afterId, Pageable pageable);
+
+    // Fetch plan for the patient that is mapped to PatientResponse, the GP is joined instead of loaded with one more query
+    @EntityGraph(attributePaths = "gp")
+    Optional<Patient> findWithGpById(Long id);
+
+    // Patient.gp is eager, so findAllById would load every distinct GP with one more query when they aren't cached
+    @EntityGraph(attributePaths = "gp")
+    List<Patient> findAllWithGpByIdIn(Collection<Long> ids);
+
+    // Counted in the database so no Patient is loaded. Every Object[] row consists of:
+    // row[0] = patient has insurance, row[1] = count of patients
+    @Query("SELECT p.hasInsurance, COUNT(p) " +
+            "FROM Patient p " +
+            "GROUP BY p.hasInsurance ")
+    List<Object[]> countGroupedByInsurance();
+
+    // p.gp.id is read from the foreign key column, so the patients without a GP are kept. Every Object[] row consists of:
+    // row[0] = gp id or null, row[1] = patient has insurance, row[2] = count of patients
+    @Query("SELECT p.gp.id, p.hasInsurance, COUNT(p) " +
+            "FROM Patient p " +
+            "GROUP BY p.gp.id, p.hasInsurance " +
+            "ORDER BY p.gp.id ")
+    List<Object[]> countGroupedByGpAndInsurance();
 }
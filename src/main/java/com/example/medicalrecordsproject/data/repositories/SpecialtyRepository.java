@@ -1,10 +1,15 @@
 package com.example.medicalrecordsproject.data.repositories;
 
 import com.example.medicalrecordsproject.data.entities.Specialty;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface SpecialtyRepository extends JpaRepository<Specialty, Long> {
 
+    // Keyset page: the Specialtys after the given id, read through the primary key index
+    List<Specialty> findAllByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
 }
@@ -1,18 +1,25 @@
 package com.example.medicalrecordsproject.data.repositories;
 
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
 import com.example.medicalrecordsproject.data.entities.Visit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface VisitRepository extends JpaRepository<Visit, Long> {
 
-    List<Visit> findAllByDoctorId(Long doctorId);
-
     int countAllByPatientId(Long patientId);
 
     @Query("SELECT COUNT(v) " +
@@ -21,32 +28,184 @@ public interface VisitRepository extends JpaRepository<Visit, Long> {
             "WHERE d.id = :diagnosisId ")
     int countAllByDiagnosisId(Long diagnosisId);
 
-//    @Query(value = "SELECT COUNT(*) " +
-//            "FROM (SELECT v.doctor_id, SUM(hs.no_insurance_fee) AS income " +
-//            "FROM visits v " +
-//            "JOIN health_systems hs on v.health_system_id = hs.id " +
-//            "GROUP BY doctor_id " +
-//            "HAVING income > :minIncome) AS a", nativeQuery = true)
-//    Integer getCountDoctorsBiggerIncome(BigDecimal minIncome);
+    // The income queries below sum the fees in the database and return a single value,
+    // so none of them loads Visit entities. COALESCE turns the SUM over no rows into 0.
+    @Query("SELECT COALESCE(SUM(hs.noInsuranceFee), 0) " +
+            "FROM Visit v " +
+            "JOIN v.healthSystem hs " +
+            "JOIN v.diagnoses d " +
+            "WHERE d.id = :diagnosisId ")
+    BigDecimal getTotalIncomeByDiagnosisId(Long diagnosisId);
 
+    @Query("SELECT COALESCE(SUM(hs.noInsuranceFee), 0) " +
+            "FROM Visit v " +
+            "JOIN v.healthSystem hs " +
+            "JOIN v.patient p " +
+            "WHERE p.hasInsurance = false ")
+    BigDecimal getTotalIncomeFromPatientsNoInsurance();
 
-    // The above method uses native SQL native Query and works too.
-    // The below method returns List<Object[]> and every Object[] row consists of:
-    // row[0] = doctorId, row[1] = sum of fees bigger than the given
+    // Rows used to maintain the income ledger. Every Object[] row consists of:
+    // row[0] = doctorId, row[1] = patient has insurance, row[2] = sum of fees
+    @Query("SELECT v.doctor.id, p.hasInsurance, SUM(hs.noInsuranceFee) " +
+            "FROM Visit v " +
+            "JOIN v.patient p " +
+            "JOIN v.healthSystem hs " +
+            "GROUP BY v.doctor.id, p.hasInsurance ")
+    List<Object[]> getIncomeGroupedByDoctorAndInsurance();
+
+    // row[0] = doctorId, row[1] = sum of fees of the visits of the given patient.
+    // Ordered by doctorId, the order in which the income ledger locks the rows of the doctors.
     @Query("SELECT v.doctor.id, SUM(hs.noInsuranceFee) " +
             "FROM Visit v " +
             "JOIN v.healthSystem hs " +
+            "WHERE v.patient.id = :patientId " +
             "GROUP BY v.doctor.id " +
-            "HAVING SUM(hs.noInsuranceFee) > :minIncome ")
-    List<Object[]> getAllDoctorsBiggerIncome(BigDecimal minIncome);
+            "ORDER BY v.doctor.id ")
+    List<Object[]> getIncomeOfPatientGroupedByDoctor(Long patientId);
+
+    // row[0] = doctorId, row[1] = patient has insurance, row[2] = count of visits with the given health system
+    @Query("SELECT v.doctor.id, p.hasInsurance, COUNT(v) " +
+            "FROM Visit v " +
+            "JOIN v.patient p " +
+            "WHERE v.healthSystem.id = :healthSystemId " +
+            "GROUP BY v.doctor.id, p.hasInsurance ")
+    List<Object[]> countVisitsOfHealthSystemGroupedByDoctorAndInsurance(Long healthSystemId);
+
+    // row[0] = visit date, row[1] = doctorId, row[2] = healthSystemId, row[3] = sum of fees, row[4] = count of visits
+    @Query("SELECT v.visitDate, v.doctor.id, hs.id, SUM(hs.noInsuranceFee), COUNT(v) " +
+            "FROM Visit v " +
+            "JOIN v.healthSystem hs " +
+            "WHERE v.patient.id = :patientId " +
+            "GROUP BY v.visitDate, v.doctor.id, hs.id ")
+    List<Object[]> getIncomeOfPatientGroupedByDayDoctorAndHealthSystem(Long patientId);
+
+    // row[0] = visit date, row[1] = doctorId, row[2] = patient has insurance, row[3] = count of visits
+    @Query("SELECT v.visitDate, v.doctor.id, p.hasInsurance, COUNT(v) " +
+            "FROM Visit v " +
+            "JOIN v.patient p " +
+            "WHERE v.healthSystem.id = :healthSystemId " +
+            "GROUP BY v.visitDate, v.doctor.id, p.hasInsurance ")
+    List<Object[]> countVisitsOfHealthSystemGroupedByDayDoctorAndInsurance(Long healthSystemId);
 
-    @Query("SELECT (v) " +
+    // The list reads build VisitResponse rows directly, no Visit, patient or doctor is loaded into the
+    // persistence context. The patient and doctor ids are read from the foreign key columns. The diagnoses
+    // can't be part of a constructor expression, they are read as rows and added to the responses.
+    // Keyset pages of visits ordered by (visitDate, id), read through the (visit_date, id) index.
+    // The first page has no key to seek from, the next pages start after the last visit of the previous one.
+    @Query("SELECT new com.example.medicalrecordsproject.data.dtos.visits.VisitResponse(" +
+            "v.id, v.patient.id, v.doctor.id, v.visitDate) " +
+            "FROM Visit v " +
+            "ORDER BY v.visitDate, v.id ")
+    List<VisitResponse> findFirstResponses(Pageable pageable);
+
+    @Query("SELECT new com.example.medicalrecordsproject.data.dtos.visits.VisitResponse(" +
+            "v.id, v.patient.id, v.doctor.id, v.visitDate) " +
+            "FROM Visit v " +
+            "WHERE v.visitDate > :visitDate " +
+            "OR (v.visitDate = :visitDate AND v.id > :id) " +
+            "ORDER BY v.visitDate, v.id ")
+    List<VisitResponse> findResponsesAfter(LocalDate visitDate, Long id, Pageable pageable);
+
+    // Keyset pages of the visits of one patient, newest first, ordered by (visitDate, id) descending and
+    // read backwards through the (patient_id, visit_date) index. The next pages start before the last visit
+    // of the previous one, the redundant visitDate <= :visitDate bound lets the database seek to it.
+    @Query("SELECT new com.example.medicalrecordsproject.data.dtos.visits.VisitResponse(" +
+            "v.id, v.patient.id, v.doctor.id, v.visitDate) " +
+            "FROM Visit v " +
+            "WHERE v.patient.id = :patientId " +
+            "ORDER BY v.visitDate DESC, v.id DESC ")
+    List<VisitResponse> findLatestResponsesOfPatient(Long patientId, Pageable pageable);
+
+    @Query("SELECT new com.example.medicalrecordsproject.data.dtos.visits.VisitResponse(" +
+            "v.id, v.patient.id, v.doctor.id, v.visitDate) " +
+            "FROM Visit v " +
+            "WHERE v.patient.id = :patientId " +
+            "AND v.visitDate <= :visitDate AND (v.visitDate < :visitDate OR v.id < :id) " +
+            "ORDER BY v.visitDate DESC, v.id DESC ")
+    List<VisitResponse> findResponsesOfPatientBefore(Long patientId, LocalDate visitDate, Long id, Pageable pageable);
+
+    // One page of the visits of a doctor in [from, to], optionally only those with a diagnosis or of insured or
+    // uninsured patients, together with the counts of all the matching visits, in one statement. Both derived
+    // tables seek through the (doctor_id, visit_date) index and read only the period. The page starts after
+    // (afterDate, afterId), for the first page that is (from, 0). The left join still returns the counts when
+    // the page is empty, as a row without a visit.
+    // Every Object[] row consists of: row[0] = matching visits, row[1] = of them by insured patients,
+    // row[2] = distinct patients, row[3] = visitId, row[4] = patientId, row[5] = visit date
+    @Query(value = "SELECT s.visits, s.insured_visits, s.patients, p.id, p.patient_id, p.visit_date " +
+            "FROM (SELECT COUNT(v.id) AS visits, " +
+            "COALESCE(SUM(CASE WHEN pt.has_insurance THEN 1 ELSE 0 END), 0) AS insured_visits, " +
+            "COUNT(DISTINCT v.patient_id) AS patients " +
+            "FROM visits v " +
+            "JOIN patients pt ON pt.id = v.patient_id " +
+            "WHERE v.doctor_id = :doctorId " +
+            "AND v.visit_date BETWEEN :from AND :to " +
+            "AND (:insured IS NULL OR pt.has_insurance = :insured) " +
+            "AND (:diagnosisId IS NULL OR EXISTS (SELECT 1 FROM visits_diagnoses vd " +
+            "WHERE vd.visit_id = v.id AND vd.diagnoses_id = :diagnosisId))) s " +
+            "LEFT JOIN (SELECT v.id, v.patient_id, v.visit_date " +
+            "FROM visits v " +
+            "JOIN patients pt ON pt.id = v.patient_id " +
+            "WHERE v.doctor_id = :doctorId " +
+            "AND v.visit_date >= :afterDate AND v.visit_date <= :to " +
+            "AND (v.visit_date > :afterDate OR v.id > :afterId) " +
+            "AND (:insured IS NULL OR pt.has_insurance = :insured) " +
+            "AND (:diagnosisId IS NULL OR EXISTS (SELECT 1 FROM visits_diagnoses vd " +
+            "WHERE vd.visit_id = v.id AND vd.diagnoses_id = :diagnosisId)) " +
+            "ORDER BY v.visit_date, v.id " +
+            "LIMIT :rows) p ON 1 = 1 " +
+            "ORDER BY p.visit_date, p.id", nativeQuery = true)
+    List<Object[]> findCaseloadRows(Long doctorId, LocalDate from, LocalDate to, Long diagnosisId, Boolean insured,
+                                    LocalDate afterDate, Long afterId, int rows);
+
+    // Every Object[] row consists of: row[0] = visitId, row[1] = diagnosisId, row[2] = diagnosis name
+    @Query("SELECT v.id, d.id, d.name " +
             "FROM Visit v " +
             "JOIN v.diagnoses d " +
-            "WHERE d.id = :diagnosisId ")
-    List<Visit> findAllVisitsByDiagnosis(Long diagnosisId);
+            "WHERE v.id IN :visitIds ")
+    List<Object[]> findDiagnosisRows(Collection<Long> visitIds);
+
+    // Streams for the NDJSON export. The rows are read from the database EXPORT_FETCH_SIZE at a time
+    // instead of being loaded into a list, and the caller must close the stream inside a transaction.
+    // The to-one relations are fetched in the same row, so reading a visit doesn't need another query.
+    // The diagnoses are loaded for a chunk of streamed visits at once with fetchDiagnoses.
+    String EXPORT_FETCH_SIZE = "500";
+
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")})
+    @Query("SELECT v " +
+            "FROM Visit v " +
+            "JOIN FETCH v.patient p " +
+            "LEFT JOIN FETCH p.gp " +
+            "JOIN FETCH v.doctor " +
+            "JOIN FETCH v.healthSystem " +
+            "ORDER BY v.id ")
+    Stream<Visit> streamAll();
+
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")})
+    @Query("SELECT v " +
+            "FROM Visit v " +
+            "JOIN FETCH v.patient p " +
+            "LEFT JOIN FETCH p.gp " +
+            "JOIN FETCH v.doctor " +
+            "JOIN FETCH v.healthSystem " +
+            "WHERE v.visitDate >= :since " +
+            "ORDER BY v.id ")
+    Stream<Visit> streamAllSince(LocalDate since);
 
-    List<Visit> findAllByPatient_HasInsuranceFalse();
+    // Fetch plan for the visit that is mapped to VisitResponse, so its diagnoses
+    // are not loaded with one more query while the response is built
+    @EntityGraph(attributePaths = {"patient", "patient.gp", "doctor", "healthSystem", "diagnoses"})
+    Optional<Visit> findWithDiagnosesById(Long id);
 
-    List<Visit> findAllByDoctorIdAndPatient_HasInsuranceTrue(Long doctorId);
+    // Loads the diagnoses of all given visits with one query. The visits have to be managed
+    // by the current persistence context, their diagnoses collections are initialized by the result.
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    @Query("SELECT DISTINCT v " +
+            "FROM Visit v " +
+            "LEFT JOIN FETCH v.diagnoses " +
+            "WHERE v IN :visits ")
+    List<Visit> fetchDiagnoses(Collection<Visit> visits);
 }
@@ -0,0 +1,37 @@
+package com.example.medicalrecordsproject.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+// The hikaricp.* meters of the replica pools, tagged with pool=replica-1, replica-2... Spring Boot only binds
+// the pool of the DataSource bean, which is the primary (tagged with spring.datasource.hikari.pool-name).
+@Component
+public class ReplicaPoolMetrics implements MeterBinder {
+
+    private final DataSource dataSource;
+
+    public ReplicaPoolMetrics(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        try {
+            if (!dataSource.isWrapperFor(ReplicaRoutingDataSource.class)) {
+                return;
+            }
+            for (HikariDataSource replica : dataSource.unwrap(ReplicaRoutingDataSource.class).getReplicas()) {
+                if (replica.getMetricRegistry() == null) {
+                    replica.setMetricRegistry(registry);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not find the replica pools", e);
+        }
+    }
+}
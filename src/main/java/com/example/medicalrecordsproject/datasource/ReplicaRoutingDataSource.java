@@ -0,0 +1,82 @@
+package com.example.medicalrecordsproject.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the statements of read-only transactions to the replica pools, taking turns between them, and
+ * everything else to the primary.
+ * JpaTransactionManager asks for the connection before the transaction is marked read-only, so the pool is
+ * only chosen when the first statement runs: the connections handed out are lazy proxies.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+
+    private final List<HikariDataSource> replicas;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica is needed");
+        }
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+
+        Router router = new Router(primary, this.replicas);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+    }
+
+    public List<HikariDataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (HikariDataSource replica : replicas) {
+            replica.close();
+        }
+        if (primary instanceof AutoCloseable) {
+            ((AutoCloseable) primary).close();
+        }
+    }
+
+    private static class Router extends AbstractRoutingDataSource {
+
+        private final List<String> replicaKeys = new ArrayList<>();
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Router(DataSource primary, List<HikariDataSource> replicas) {
+            Map<Object, Object> targets = new HashMap<>();
+            targets.put(PRIMARY, primary);
+            for (HikariDataSource replica : replicas) {
+                targets.put(replica.getPoolName(), replica);
+                replicaKeys.add(replica.getPoolName());
+            }
+            setTargetDataSources(targets);
+            setDefaultTargetDataSource(primary);
+            // An unknown key is a bug, it must not silently fall back to the primary
+            setLenientFallback(false);
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                return PRIMARY;
+            }
+            return replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size()));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.medicalrecordsproject.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Puts the configured replica pools next to the primary connection pool. It runs before the other
+// post processors, so the slow query log and the pool metrics see the statements of every pool.
+@Component
+public class ReplicaRoutingDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+    private final List<String> urls;
+
+    private final String username;
+
+    private final String password;
+
+    private final String driverClassName;
+
+    private final int maximumPoolSize;
+
+    public ReplicaRoutingDataSourcePostProcessor(@Value("${replicas.urls:}") String urls,
+                                                 @Value("${replicas.username:${spring.datasource.username:}}") String username,
+                                                 @Value("${replicas.password:${spring.datasource.password:}}") String password,
+                                                 @Value("${spring.datasource.driverClassName:}") String driverClassName,
+                                                 @Value("${replicas.maximum-pool-size:10}") int maximumPoolSize) {
+        this.urls = Arrays.stream(urls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .collect(Collectors.toList());
+        this.username = username;
+        this.password = password;
+        this.driverClassName = driverClassName;
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (urls.isEmpty() || !(bean instanceof DataSource) || bean instanceof ReplicaRoutingDataSource) {
+            return bean;
+        }
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            // The pool is started by the first read-only transaction, a replica that is down doesn't stop the startup
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setJdbcUrl(urls.get(i));
+            replica.setUsername(username);
+            replica.setPassword(password);
+            if (!driverClassName.isEmpty()) {
+                replica.setDriverClassName(driverClassName);
+            }
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource((DataSource) bean, replicas);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
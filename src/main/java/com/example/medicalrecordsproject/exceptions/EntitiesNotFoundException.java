@@ -0,0 +1,18 @@
+package com.example.medicalrecordsproject.exceptions;
+
+import java.util.List;
+
+// Thrown when some ids of a set of ids don't exist, listing all of them instead of only the first one
+public class EntitiesNotFoundException extends EntityNotFoundException {
+
+    private final List<Long> missingIds;
+
+    public EntitiesNotFoundException(String message, List<Long> missingIds) {
+        super(message);
+        this.missingIds = missingIds;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+}
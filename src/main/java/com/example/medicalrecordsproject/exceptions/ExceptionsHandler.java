@@ -27,6 +27,17 @@ public class ExceptionsHandler {
         return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(EntitiesNotFoundException.class)
+    public ResponseEntity<Object> handleEntitiesNotFoundException(
+            EntitiesNotFoundException ex, HttpServletRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("missingIds", ex.getMissingIds());
+
+        return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Object> handleMethodArgumentNotValidException(
             MethodArgumentNotValidException ex, HttpServletRequest request) {
@@ -92,4 +103,34 @@ public class ExceptionsHandler {
 
         return new ResponseEntity<>(body, HttpStatus.NOT_ACCEPTABLE);
     }
+
+    @ExceptionHandler(InvalidPageRequestException.class)
+    public ResponseEntity<Object> handleInvalidPageRequestException(
+            InvalidPageRequestException ex, HttpServletRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(BatchTooLargeException.class)
+    public ResponseEntity<Object> handleBatchTooLargeException(
+            BatchTooLargeException ex, HttpServletRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @ExceptionHandler(InvalidIncomeRequestException.class)
+    public ResponseEntity<Object> handleInvalidIncomeRequestException(
+            InvalidIncomeRequestException ex, HttpServletRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
 }
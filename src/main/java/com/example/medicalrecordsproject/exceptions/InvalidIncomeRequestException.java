@@ -0,0 +1,8 @@
+package com.example.medicalrecordsproject.exceptions;
+
+public class InvalidIncomeRequestException extends RuntimeException {
+
+    public InvalidIncomeRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.medicalrecordsproject.exceptions;
+
+public class InvalidPageRequestException extends RuntimeException {
+
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
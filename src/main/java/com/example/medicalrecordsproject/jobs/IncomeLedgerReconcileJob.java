@@ -0,0 +1,51 @@
+package com.example.medicalrecordsproject.jobs;
+
+import com.example.medicalrecordsproject.data.dtos.incomes.DoctorIncomeDrift;
+import com.example.medicalrecordsproject.service.DoctorIncomeIndexService;
+import com.example.medicalrecordsproject.service.IncomeLedgerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Rebuilds the income ledger and the income rollups from the visits table in one transaction, then the doctor
+// income index from the ledger, at startup and on a schedule,
+// and logs every difference found in the ledger
+@Component
+public class IncomeLedgerReconcileJob {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IncomeLedgerReconcileJob.class);
+
+    private final IncomeLedgerService incomeLedgerService;
+
+    private final DoctorIncomeIndexService doctorIncomeIndexService;
+
+    public IncomeLedgerReconcileJob(IncomeLedgerService incomeLedgerService,
+                                    DoctorIncomeIndexService doctorIncomeIndexService) {
+        this.incomeLedgerService = incomeLedgerService;
+        this.doctorIncomeIndexService = doctorIncomeIndexService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${income-ledger.reconcile-cron:0 0 3 * * *}")
+    public void reconcile() {
+        List<DoctorIncomeDrift> drifts = incomeLedgerService.reconcile();
+        doctorIncomeIndexService.rebuild();
+
+        if (drifts.isEmpty()) {
+            LOGGER.info("Income ledger is in sync with the visits table");
+            return;
+        }
+
+        for (DoctorIncomeDrift drift : drifts) {
+            LOGGER.warn("Income ledger drift for doctor {}: insured {} -> {}, uninsured {} -> {}",
+                    drift.getDoctorId(),
+                    drift.getLedgerInsuredIncome(), drift.getActualInsuredIncome(),
+                    drift.getLedgerUninsuredIncome(), drift.getActualUninsuredIncome());
+        }
+    }
+}
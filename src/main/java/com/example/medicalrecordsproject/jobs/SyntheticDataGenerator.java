@@ -0,0 +1,282 @@
+package com.example.medicalrecordsproject.jobs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.DatabaseMetaData;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+
+// Fills the database with a synthetic dataset for load tests and benchmarks: doctors with specialties,
+// patients with a GP, health systems, diagnoses and visits. The same settings and seed always give the same rows.
+// Most visits go to a few popular doctors and diagnoses, and there are more visits in the recent years
+// and fewer on weekends.
+// The rows are inserted with JDBC batches in a transaction per batch, so the income ledger, the rollups and
+// the income index have to be rebuilt afterwards (IncomeLedgerReconcileJob).
+@Component
+public class SyntheticDataGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final int BATCH_SIZE = 5000;
+
+    // Ids handed out by one call to a sequence, the increment of the pooled sequences in BaseEntity
+    private static final int ID_BLOCK = 50;
+
+    private static final String[] SPECIALTIES = {"Pediatrics", "Surgery", "Cardiology", "Dermatology",
+            "Neurology", "Oncology", "Orthopedics", "Psychiatry", "Radiology", "Urology", "Gynecology", "Endocrinology"};
+
+    private static final BigDecimal[] FEES = {new BigDecimal("10.00"), new BigDecimal("15.00"),
+            new BigDecimal("20.00"), new BigDecimal("25.00"), new BigDecimal("40.00")};
+
+    private static final double[] FEE_WEIGHTS = {40, 25, 20, 10, 5};
+
+    private static final double GP_SHARE = 0.3;
+    private static final double INSURED_SHARE = 0.75;
+    private static final double WITH_GP_SHARE = 0.9;
+    private static final double VISITS_TO_OWN_GP_SHARE = 0.5;
+    private static final double MOVED_FROM_WEEKEND_SHARE = 0.8;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public SyntheticDataGenerator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public static class Settings {
+
+        private final int doctors;
+
+        private final int patients;
+
+        private final int visits;
+
+        private final int diagnoses;
+
+        private final int years;
+
+        private final LocalDate lastVisitDate;
+
+        private final long seed;
+
+        public Settings(int doctors, int patients, int visits, int diagnoses,
+                        int years, LocalDate lastVisitDate, long seed) {
+            if (doctors < 1 || patients < 1 || visits < 0 || diagnoses < 1 || years < 1) {
+                throw new IllegalArgumentException("Synthetic data needs at least one doctor, patient and diagnosis");
+            }
+            this.doctors = doctors;
+            this.patients = patients;
+            this.visits = visits;
+            this.diagnoses = diagnoses;
+            this.years = years;
+            this.lastVisitDate = lastVisitDate;
+            this.seed = seed;
+        }
+    }
+
+    public void generate(Settings settings) {
+        long start = System.currentTimeMillis();
+        Random random = new Random(settings.seed);
+        boolean mysql = isMySql();
+
+        long firstSpecialtyId = reserveIds("specialty_seq", SPECIALTIES.length, mysql);
+        long firstDiagnosisId = reserveIds("diagnosis_seq", settings.diagnoses, mysql);
+        long firstHealthSystemId = reserveIds("health_system_seq", FEES.length, mysql);
+        long firstDoctorId = reserveIds("doctor_seq", settings.doctors, mysql);
+        long firstPatientId = reserveIds("patient_seq", settings.patients, mysql);
+        long firstVisitId = reserveIds("visit_seq", settings.visits, mysql);
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < SPECIALTIES.length; i++) {
+            rows.add(new Object[]{firstSpecialtyId + i, SPECIALTIES[i]});
+        }
+        insert("INSERT INTO specialties (id, name) VALUES (?, ?)", rows);
+
+        rows = new ArrayList<>();
+        for (int i = 0; i < settings.diagnoses; i++) {
+            rows.add(new Object[]{firstDiagnosisId + i, "Diagnosis " + (i + 1)});
+        }
+        insert("INSERT INTO diagnoses (id, name) VALUES (?, ?)", rows);
+
+        rows = new ArrayList<>();
+        for (int i = 0; i < FEES.length; i++) {
+            rows.add(new Object[]{firstHealthSystemId + i, FEES[i]});
+        }
+        insert("INSERT INTO health_systems (id, no_insurance_fee) VALUES (?, ?)", rows);
+
+        // Every doctor is a GP with the same chance, but there is always at least one
+        List<Integer> gps = new ArrayList<>();
+        rows = new ArrayList<>();
+        List<Object[]> specialtyRows = new ArrayList<>();
+        for (int i = 0; i < settings.doctors; i++) {
+            boolean isGp = i == 0 || random.nextDouble() < GP_SHARE;
+            if (isGp) {
+                gps.add(i);
+            }
+            LocalDate birthdate = LocalDate.of(1950, 1, 1).plusDays(random.nextInt(45 * 365));
+            rows.add(new Object[]{firstDoctorId + i, "Doctor " + (i + 1), birthdate, isGp});
+
+            int first = random.nextInt(SPECIALTIES.length);
+            int count = 1 + random.nextInt(3);
+            for (int j = 0; j < count; j++) {
+                specialtyRows.add(new Object[]{firstDoctorId + i, firstSpecialtyId + (first + j) % SPECIALTIES.length});
+            }
+        }
+        insert("INSERT INTO doctors (id, name, birthdate, is_gp) VALUES (?, ?, ?, ?)", rows);
+        insert("INSERT INTO doctors_specialties (doctor_id, specialties_id) VALUES (?, ?)", specialtyRows);
+
+        // Empty income ledger rows like DoctorService creates them, filled in when the ledger is reconciled
+        rows = new ArrayList<>();
+        for (int i = 0; i < settings.doctors; i++) {
+            rows.add(new Object[]{firstDoctorId + i});
+        }
+        insert("INSERT INTO doctor_incomes (doctor_id, insured_income, uninsured_income) VALUES (?, 0, 0)", rows);
+
+        // Index of the GP of every patient, -1 for patients without one
+        int[] gpOfPatient = new int[settings.patients];
+        rows = new ArrayList<>();
+        for (int i = 0; i < settings.patients; i++) {
+            gpOfPatient[i] = random.nextDouble() < WITH_GP_SHARE ? gps.get(random.nextInt(gps.size())) : -1;
+            rows.add(new Object[]{firstPatientId + i, "Patient " + (i + 1), random.nextDouble() < INSURED_SHARE,
+                    gpOfPatient[i] < 0 ? null : firstDoctorId + gpOfPatient[i]});
+            if (rows.size() == BATCH_SIZE) {
+                insert("INSERT INTO patients (id, name, has_insurance, gp_id) VALUES (?, ?, ?, ?)", rows);
+                rows = new ArrayList<>();
+            }
+        }
+        insert("INSERT INTO patients (id, name, has_insurance, gp_id) VALUES (?, ?, ?, ?)", rows);
+
+        WeightedIndex popularDoctors = WeightedIndex.zipf(settings.doctors, 0.8);
+        WeightedIndex commonDiagnoses = WeightedIndex.zipf(settings.diagnoses, 1.1);
+        WeightedIndex healthSystems = new WeightedIndex(FEE_WEIGHTS);
+        int days = (int) (settings.lastVisitDate.toEpochDay() - settings.lastVisitDate.minusYears(settings.years).toEpochDay());
+
+        List<Object[]> visitRows = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> diagnosisRows = new ArrayList<>(BATCH_SIZE * 2);
+        for (int i = 0; i < settings.visits; i++) {
+            long visitId = firstVisitId + i;
+
+            // Some patients visit much more often than others
+            int patient = (int) (settings.patients * Math.pow(random.nextDouble(), 2));
+            int doctor = gpOfPatient[patient] >= 0 && random.nextDouble() < VISITS_TO_OWN_GP_SHARE
+                    ? gpOfPatient[patient]
+                    : popularDoctors.next(random);
+
+            LocalDate visitDate = settings.lastVisitDate.minusDays((long) (days * Math.pow(random.nextDouble(), 1.5)));
+            if (visitDate.getDayOfWeek().compareTo(DayOfWeek.SATURDAY) >= 0 && random.nextDouble() < MOVED_FROM_WEEKEND_SHARE) {
+                visitDate = visitDate.with(DayOfWeek.FRIDAY);
+            }
+
+            visitRows.add(new Object[]{visitId, visitDate, firstDoctorId + doctor,
+                    firstHealthSystemId + healthSystems.next(random), firstPatientId + patient});
+
+            int diagnosesCount = 1 + random.nextInt(3);
+            Set<Integer> visitDiagnoses = new HashSet<>();
+            while (visitDiagnoses.size() < Math.min(diagnosesCount, settings.diagnoses)) {
+                visitDiagnoses.add(commonDiagnoses.next(random));
+            }
+            for (int diagnosis : visitDiagnoses) {
+                diagnosisRows.add(new Object[]{visitId, firstDiagnosisId + diagnosis});
+            }
+
+            if (visitRows.size() == BATCH_SIZE || i == settings.visits - 1) {
+                insertVisits(visitRows, diagnosisRows);
+                visitRows = new ArrayList<>(BATCH_SIZE);
+                diagnosisRows = new ArrayList<>(BATCH_SIZE * 2);
+            }
+        }
+
+        LOGGER.info("Generated {} doctors, {} patients and {} visits in {} ms",
+                settings.doctors, settings.patients, settings.visits, System.currentTimeMillis() - start);
+    }
+
+    private void insertVisits(List<Object[]> visitRows, List<Object[]> diagnosisRows) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("INSERT INTO visits (id, visit_date, doctor_id, health_system_id, patient_id) " +
+                    "VALUES (?, ?, ?, ?, ?)", visitRows);
+            jdbcTemplate.batchUpdate("INSERT INTO visits_diagnoses (visit_id, diagnoses_id) VALUES (?, ?)", diagnosisRows);
+        });
+    }
+
+    private void insert(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql, rows));
+        }
+    }
+
+    // Takes the next count ids of the sequence the same way Hibernate's pooled-lo optimizer does, so the
+    // application keeps allocating ids after the generated rows. Returns the first id, the rest follow it.
+    private long reserveIds(String sequence, int count, boolean mysql) {
+        int blocks = Math.max(1, (count + ID_BLOCK - 1) / ID_BLOCK);
+        return Objects.requireNonNull(transactionTemplate.execute(status -> {
+            if (mysql) {
+                // MySQL has no sequences, Hibernate emulates each one with a one-row table
+                Long next = jdbcTemplate.queryForObject("SELECT next_val FROM " + sequence + " FOR UPDATE", Long.class);
+                jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ?", next + (long) blocks * ID_BLOCK);
+                return next;
+            }
+
+            List<Long> values = jdbcTemplate.queryForList(
+                    "SELECT NEXT VALUE FOR " + sequence + " FROM SYSTEM_RANGE(1, ?)", Long.class, blocks);
+            long first = Collections.min(values);
+            if (Collections.max(values) - first != (long) (blocks - 1) * ID_BLOCK) {
+                throw new IllegalStateException("Ids of " + sequence + " were taken while generating synthetic data");
+            }
+            return first;
+        }));
+    }
+
+    // H2 is only on the test classpath, it is accepted for the tests and the benchmarks, not the packaged application
+    private boolean isMySql() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(Objects.requireNonNull(jdbcTemplate.getDataSource()),
+                    DatabaseMetaData::getDatabaseProductName);
+            if (!"MySQL".equals(product) && !"H2".equals(product)) {
+                throw new IllegalStateException("Synthetic data can only be generated on MySQL, not " + product);
+            }
+            return "MySQL".equals(product);
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("Could not read the database product", e);
+        }
+    }
+
+    // Picks indexes 0..n-1 with the given relative weights
+    static class WeightedIndex {
+
+        private final double[] cumulative;
+
+        WeightedIndex(double[] weights) {
+            cumulative = new double[weights.length];
+            double sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                cumulative[i] = sum;
+            }
+        }
+
+        // Index i has weight 1 / (i + 1)^exponent, so the first indexes are picked most often
+        static WeightedIndex zipf(int n, double exponent) {
+            double[] weights = new double[n];
+            for (int i = 0; i < n; i++) {
+                weights[i] = 1 / Math.pow(i + 1, exponent);
+            }
+            return new WeightedIndex(weights);
+        }
+
+        int next(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[cumulative.length - 1]);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
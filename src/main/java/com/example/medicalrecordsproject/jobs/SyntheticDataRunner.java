@@ -0,0 +1,51 @@
+package com.example.medicalrecordsproject.jobs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+// Generates the synthetic dataset once at startup when the synthetic-data profile is active, e.g.
+// java -jar MedicalRecordsProject.jar --spring.profiles.active=synthetic-data --synthetic-data.visits=10000000
+// The runners finish before the application is ready, so IncomeLedgerReconcileJob then builds
+// the income ledger, the rollups and the income index from the new visits.
+@Component
+@Profile("synthetic-data")
+public class SyntheticDataRunner implements CommandLineRunner {
+
+    private final SyntheticDataGenerator syntheticDataGenerator;
+
+    @Value("${synthetic-data.doctors:200}")
+    private int doctors;
+
+    @Value("${synthetic-data.patients:20000}")
+    private int patients;
+
+    @Value("${synthetic-data.visits:200000}")
+    private int visits;
+
+    @Value("${synthetic-data.diagnoses:300}")
+    private int diagnoses;
+
+    @Value("${synthetic-data.years:5}")
+    private int years;
+
+    // ISO date, e.g. 2023-12-31
+    @Value("${synthetic-data.last-visit-date:2023-12-31}")
+    private String lastVisitDate;
+
+    @Value("${synthetic-data.seed:42}")
+    private long seed;
+
+    public SyntheticDataRunner(SyntheticDataGenerator syntheticDataGenerator) {
+        this.syntheticDataGenerator = syntheticDataGenerator;
+    }
+
+    @Override
+    public void run(String... args) {
+        syntheticDataGenerator.generate(new SyntheticDataGenerator.Settings(
+                doctors, patients, visits, diagnoses, years, LocalDate.parse(lastVisitDate), seed));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.medicalrecordsproject.metrics;
+
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
+import com.example.medicalrecordsproject.service.*;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Times every call of the CRUD services and records how many rows it returned and how many SQL statements it ran:
+// service.calls (timer with a latency histogram, tagged with the exception thrown or "none"),
+// service.rows and service.sql.statements, all tagged with the service interface and the method name.
+// Ordered before the transaction interceptor (Ordered.LOWEST_PRECEDENCE), so the aspect wraps the transaction:
+// the timer includes the flush and the commit, and the statements flushed at commit are counted.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServiceMetricsAspect {
+
+    private static final List<Class<?>> SERVICES = List.of(PatientService.class, DoctorService.class,
+            VisitService.class, DiagnosisService.class, SpecialtyService.class, HealthSystemService.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    public ServiceMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(* com.example.medicalrecordsproject.service.PatientService.*(..))" +
+            " || execution(* com.example.medicalrecordsproject.service.DoctorService.*(..))" +
+            " || execution(* com.example.medicalrecordsproject.service.VisitService.*(..))" +
+            " || execution(* com.example.medicalrecordsproject.service.DiagnosisService.*(..))" +
+            " || execution(* com.example.medicalrecordsproject.service.SpecialtyService.*(..))" +
+            " || execution(* com.example.medicalrecordsproject.service.HealthSystemService.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodMeters methodMeters = meters.computeIfAbsent(((MethodSignature) joinPoint.getSignature()).getMethod(),
+                method -> new MethodMeters(serviceName(joinPoint.getTarget()), method.getName()));
+
+        long statementsBefore = SqlStatementCounter.current();
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            methodMeters.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            methodMeters.rows.record(rows(result));
+            return result;
+        } catch (Throwable e) {
+            methodMeters.timer(e.getClass().getSimpleName())
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        } finally {
+            methodMeters.statements.record(SqlStatementCounter.current() - statementsBefore);
+        }
+    }
+
+    private static String serviceName(Object target) {
+        return SERVICES.stream()
+                .filter(service -> service.isInstance(target))
+                .findFirst()
+                .map(Class::getSimpleName)
+                .orElseGet(() -> target.getClass().getSimpleName());
+    }
+
+    // Lists and pages count their items, a single response counts as one row and void or empty as none
+    private static int rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof CursorPage) {
+            return ((CursorPage<?>) result).getItems().size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return 1;
+    }
+
+    private class MethodMeters {
+
+        private final Tags tags;
+
+        private final Timer success;
+
+        private final DistributionSummary rows;
+
+        private final DistributionSummary statements;
+
+        private MethodMeters(String service, String method) {
+            this.tags = Tags.of("service", service, "method", method);
+            this.success = timer("none");
+            this.rows = DistributionSummary.builder("service.rows")
+                    .description("Rows returned by a service call")
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.statements = DistributionSummary.builder("service.sql.statements")
+                    .description("SQL statements run by a service call")
+                    .tags(tags)
+                    .register(meterRegistry);
+        }
+
+        // The registry returns the existing timer when it was already registered with the same tags
+        private Timer timer(String exception) {
+            return Timer.builder("service.calls")
+                    .description("Latency of the service calls")
+                    .tags(tags)
+                    .tag("exception", exception)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+    }
+}
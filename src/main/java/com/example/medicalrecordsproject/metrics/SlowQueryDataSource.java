@@ -0,0 +1,127 @@
+package com.example.medicalrecordsproject.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Times every statement executed through the connections of the wrapped pool and hands it to the SlowQueryLog.
+// It sits under Hibernate and JdbcTemplate alike, so it sees every statement, with the SQL as it is sent.
+public class SlowQueryDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final SlowQueryLog slowQueryLog;
+
+    public SlowQueryDataSource(DataSource targetDataSource, SlowQueryLog slowQueryLog) {
+        super(targetDataSource);
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(super.getConnection(username, password));
+    }
+
+    // The pool is closed through this wrapper when the context shuts down
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable) {
+            ((AutoCloseable) getTargetDataSource()).close();
+        }
+    }
+
+    private Connection connection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement) {
+                        // prepareStatement and prepareCall get the SQL, createStatement gets it when executed
+                        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                        return statement((Statement) result, sql);
+                    }
+                    return result;
+                });
+    }
+
+    private Statement statement(Statement statement, String sql) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class
+                : Statement.class;
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                new TimedStatement(statement, sql));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class TimedStatement implements InvocationHandler {
+
+        private final Statement statement;
+
+        private final String sql;
+
+        // Parameter index to value of the next execution, null when the binds are redacted
+        private final Map<Integer, Object> binds;
+
+        private int batchSize;
+
+        private TimedStatement(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+            this.binds = slowQueryLog.collectsBinds() ? new TreeMap<>() : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+
+            if (binds != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                binds.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters") && binds != null) {
+                binds.clear();
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+            }
+            return SlowQueryDataSource.invoke(statement, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            String executedSql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            boolean batch = method.getName().startsWith("executeBatch") || method.getName().startsWith("executeLargeBatch");
+            long start = System.nanoTime();
+            try {
+                return SlowQueryDataSource.invoke(statement, method, args);
+            } finally {
+                slowQueryLog.executed(executedSql, batch ? null : binds,
+                        batch ? batchSize : 0, System.nanoTime() - start);
+                if (batch) {
+                    batchSize = 0;
+                }
+            }
+        }
+    }
+}
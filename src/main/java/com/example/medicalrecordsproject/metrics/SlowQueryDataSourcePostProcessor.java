@@ -0,0 +1,32 @@
+package com.example.medicalrecordsproject.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+// Wraps the connection pool in a SlowQueryDataSource, so every statement is timed without tracing all of them
+@Component
+public class SlowQueryDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final boolean enabled;
+
+    private final SlowQueryLog slowQueryLog;
+
+    public SlowQueryDataSourcePostProcessor(@Value("${slow-query-log.enabled:true}") boolean enabled,
+                                            @Value("${slow-query-log.threshold-ms:200}") long thresholdMillis,
+                                            @Value("${slow-query-log.sample-rate:1.0}") double sampleRate,
+                                            @Value("${slow-query-log.redact-binds:true}") boolean redactBinds) {
+        this.enabled = enabled;
+        this.slowQueryLog = new SlowQueryLog(thresholdMillis, sampleRate, redactBinds);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (enabled && bean instanceof DataSource && !(bean instanceof SlowQueryDataSource)) {
+            return new SlowQueryDataSource((DataSource) bean, slowQueryLog);
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.medicalrecordsproject.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Logs the statements that ran longer than the threshold. Only the given fraction of them is logged,
+// so a slow database under load doesn't flood the log, and the bind values can be left out.
+public class SlowQueryLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private final long thresholdNanos;
+
+    private final double sampleRate;
+
+    private final boolean redactBinds;
+
+    public SlowQueryLog(long thresholdMillis, double sampleRate, boolean redactBinds) {
+        if (thresholdMillis < 0) {
+            throw new IllegalArgumentException("The slow query threshold can't be negative");
+        }
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("The slow query sample rate must be between 0 and 1");
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.sampleRate = sampleRate;
+        this.redactBinds = redactBinds;
+    }
+
+    // When the binds are redacted they are not even collected
+    public boolean collectsBinds() {
+        return !redactBinds;
+    }
+
+    // binds is null when they are redacted, batchSize is 0 for a single execution
+    public void executed(String sql, Map<Integer, Object> binds, int batchSize, long elapsedNanos) {
+        if (elapsedNanos < thresholdNanos || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        if (batchSize > 0) {
+            LOGGER.warn("Slow query, {} ms for a batch of {}: {}", elapsedMillis, batchSize, sql);
+        } else if (binds == null || binds.isEmpty()) {
+            LOGGER.warn("Slow query, {} ms: {}", elapsedMillis, sql);
+        } else {
+            // formatted now, the statement reuses the map for its next execution
+            LOGGER.warn("Slow query, {} ms: {} binds {}", elapsedMillis, sql, binds.toString());
+        }
+    }
+}
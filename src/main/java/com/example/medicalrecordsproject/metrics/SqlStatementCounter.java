@@ -0,0 +1,21 @@
+package com.example.medicalrecordsproject.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Counts the SQL statements Hibernate prepares on the current thread. Registered with
+// hibernate.session_factory.statement_inspector, so it is created by Hibernate and not by Spring.
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    // Statements prepared on this thread so far, callers measure the difference before and after a call
+    public static long current() {
+        return COUNT.get()[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+}
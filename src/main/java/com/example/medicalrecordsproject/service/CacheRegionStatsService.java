@@ -0,0 +1,10 @@
+package com.example.medicalrecordsproject.service;
+
+import com.example.medicalrecordsproject.data.dtos.caches.CacheRegionStatsResponse;
+
+import java.util.List;
+
+public interface CacheRegionStatsService {
+
+    List<CacheRegionStatsResponse> getRegionStats();
+}
@@ -2,14 +2,13 @@ package com.example.medicalrecordsproject.service;
 
 import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisRequest;
 import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisResponse;
-
-import java.util.List;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 
 public interface DiagnosisService {
 
     DiagnosisResponse createDiagnosis(DiagnosisRequest diagnosisRequest);
 
-    List<DiagnosisResponse> getAllDiagnoses();
+    CursorPage<DiagnosisResponse> getDiagnosesPage(int limit, String after);
 
     DiagnosisResponse getDiagnosisById(Long id);
 
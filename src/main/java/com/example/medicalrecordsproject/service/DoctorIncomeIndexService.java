@@ -0,0 +1,23 @@
+package com.example.medicalrecordsproject.service;
+
+import com.example.medicalrecordsproject.data.dtos.incomes.DoctorIncomeResponse;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface DoctorIncomeIndexService {
+
+    void doctorAdded(Long doctorId, long revision);
+
+    void doctorRemoved(Long doctorId);
+
+    void incomeChanged(Long doctorId, BigDecimal income, long revision);
+
+    void rebuild();
+
+    int countDoctorsAbove(BigDecimal minIncome);
+
+    List<DoctorIncomeResponse> getTopDoctors(int count);
+
+    BigDecimal getPercentileRank(Long doctorId);
+}
@@ -2,13 +2,12 @@ package com.example.medicalrecordsproject.service;
 
 import com.example.medicalrecordsproject.data.dtos.doctors.DoctorRequest;
 import com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse;
-
-import java.util.List;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 
 public interface DoctorService {
     DoctorResponse createDoctor(DoctorRequest doctorRequest);
 
-    List<DoctorResponse> getAllDoctors();
+    CursorPage<DoctorResponse> getDoctorsPage(int limit, String after);
 
     DoctorResponse getDoctorById(Long id);
 
@@ -2,13 +2,12 @@ package com.example.medicalrecordsproject.service;
 
 import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemRequest;
 import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemResponse;
-
-import java.util.List;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 
 public interface HealthSystemService {
     HealthSystemResponse createHealthSystem(HealthSystemRequest healthSystemRequest);
 
-    List<HealthSystemResponse> getAllHealthSystems();
+    CursorPage<HealthSystemResponse> getHealthSystemsPage(int limit, String after);
 
     HealthSystemResponse getHealthSystemById(Long id);
 
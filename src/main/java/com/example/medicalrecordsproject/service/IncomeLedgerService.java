@@ -0,0 +1,35 @@
+package com.example.medicalrecordsproject.service;
+
+import com.example.medicalrecordsproject.data.dtos.incomes.DoctorIncomeDrift;
+import com.example.medicalrecordsproject.data.entities.Visit;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+public interface IncomeLedgerService {
+
+    void doctorCreated(Long doctorId);
+
+    void doctorDeleted(Long doctorId);
+
+    void recordVisit(Visit visit);
+
+    void recordVisits(Collection<Visit> visits);
+
+    void removeVisit(Visit visit);
+
+    void moveVisit(Visit before, Visit after);
+
+    void patientInsuranceChanged(Long patientId, boolean hasInsurance);
+
+    void feeChanged(Long healthSystemId, BigDecimal oldFee, BigDecimal newFee);
+
+    BigDecimal getTotalIncome();
+
+    BigDecimal getIncomeOfDoctor(Long doctorId);
+
+    BigDecimal getInsuredIncomeOfDoctor(Long doctorId);
+
+    List<DoctorIncomeDrift> reconcile();
+}
@@ -0,0 +1,26 @@
+package com.example.medicalrecordsproject.service;
+
+import com.example.medicalrecordsproject.data.dtos.incomes.IncomeBucketResponse;
+import com.example.medicalrecordsproject.data.entities.Visit;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface IncomeRollupService {
+
+    void recordVisits(Collection<Visit> visits);
+
+    void removeVisit(Visit visit);
+
+    void moveVisit(Visit before, Visit after);
+
+    void patientInsuranceChanged(Long patientId, boolean hasInsurance);
+
+    void feeChanged(Long healthSystemId, BigDecimal oldFee, BigDecimal newFee);
+
+    void rebuild();
+
+    List<IncomeBucketResponse> getIncome(LocalDate from, LocalDate to, String granularity, String groupBy);
+}
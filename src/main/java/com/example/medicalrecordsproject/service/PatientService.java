@@ -1,14 +1,16 @@
 package com.example.medicalrecordsproject.service;
 
+import com.example.medicalrecordsproject.data.dtos.patients.GpInsuranceStatsResponse;
 import com.example.medicalrecordsproject.data.dtos.patients.PatientRequest;
 import com.example.medicalrecordsproject.data.dtos.patients.PatientResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 
 import java.math.BigDecimal;
 import java.util.List;
 
 public interface PatientService {
 
-    List<PatientResponse> getAllPatients();
+    CursorPage<PatientResponse> getPatientsPage(int limit, String after);
 
     PatientResponse getPatientById(Long id);
 
@@ -21,4 +23,6 @@ public interface PatientService {
     List<PatientResponse> getPatientsWithInsurance();
 
     BigDecimal getPatientsWithoutInsurance();
+
+    List<GpInsuranceStatsResponse> getInsuranceStatsByGp();
 }
@@ -0,0 +1,10 @@
+package com.example.medicalrecordsproject.service;
+
+import com.example.medicalrecordsproject.data.dtos.queries.QueryStatsResponse;
+
+import java.util.List;
+
+public interface QueryStatsService {
+
+    List<QueryStatsResponse> getQueryStats();
+}
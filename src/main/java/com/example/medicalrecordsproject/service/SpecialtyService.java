@@ -2,14 +2,13 @@ package com.example.medicalrecordsproject.service;
 
 import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyRequest;
 import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyResponse;
-
-import java.util.List;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 
 public interface SpecialtyService {
 
     SpecialtyResponse createSpecialty(SpecialtyRequest specialtyRequest);
 
-    List<SpecialtyResponse> getAllSpecialties();
+    CursorPage<SpecialtyResponse> getSpecialtiesPage(int limit, String after);
 
     SpecialtyResponse getSpecialtyById(Long id);
 
@@ -0,0 +1,12 @@
+package com.example.medicalrecordsproject.service;
+
+import com.example.medicalrecordsproject.data.dtos.visits.VisitBatchResponse;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitRequest;
+
+import java.util.List;
+
+public interface VisitBatchService {
+
+    // Creates the valid visits of the list and reports the errors of the others by their index in the list
+    VisitBatchResponse createVisits(List<VisitRequest> visitRequests);
+}
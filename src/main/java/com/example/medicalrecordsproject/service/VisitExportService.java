@@ -0,0 +1,11 @@
+package com.example.medicalrecordsproject.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+public interface VisitExportService {
+
+    // Writes every visit on or after since (all visits when since is null) as one JSON line
+    void exportVisits(LocalDate since, OutputStream outputStream) throws IOException;
+}
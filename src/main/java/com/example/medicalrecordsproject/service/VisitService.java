@@ -1,13 +1,23 @@
 package com.example.medicalrecordsproject.service;
 
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorCaseloadResponse;
+import com.example.medicalrecordsproject.data.dtos.incomes.DoctorIncomeResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.data.dtos.visits.VisitRequest;
 import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface VisitService {
-    List<VisitResponse> getAllVisits();
+
+    CursorPage<VisitResponse> getVisitsPage(int limit, String after);
+
+    CursorPage<VisitResponse> getVisitsOfPatientPage(Long patientId, int limit, String after);
+
+    DoctorCaseloadResponse getDoctorCaseload(Long doctorId, LocalDate from, LocalDate to, Long diagnosisId,
+                                             Boolean insured, int limit, String after);
 
     VisitResponse createVisit(VisitRequest visitRequest);
 
@@ -27,6 +37,10 @@ public interface VisitService {
 
     Integer getCountDoctorsBiggerIncome(BigDecimal minIncome);
 
+    List<DoctorIncomeResponse> getTopDoctorsByIncome(int limit);
+
+    BigDecimal getIncomePercentileRankOfDoctor(Long doctorId);
+
     BigDecimal getTotalIncomeFromVisitsByDiagnosis(Long diagnosisId);
 
     BigDecimal getTotalIncomeFromPatientsNoInsurance();
@@ -0,0 +1,37 @@
+package com.example.medicalrecordsproject.service.impl;
+
+import com.example.medicalrecordsproject.data.dtos.caches.CacheRegionStatsResponse;
+import com.example.medicalrecordsproject.service.CacheRegionStatsService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+public class CacheRegionStatsServiceImpl implements CacheRegionStatsService {
+
+    private final Statistics statistics;
+
+    public CacheRegionStatsServiceImpl(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // The counters are only kept while hibernate.generate_statistics is on
+    @Override
+    public List<CacheRegionStatsResponse> getRegionStats() {
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(region -> {
+                    CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+                    return new CacheRegionStatsResponse(region,
+                            regionStatistics.getHitCount(), regionStatistics.getMissCount(),
+                            regionStatistics.getPutCount(), regionStatistics.getElementCountInMemory());
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -2,12 +2,18 @@ package com.example.medicalrecordsproject.service.impl;
 
 import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisRequest;
 import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.data.entities.Diagnosis;
 import com.example.medicalrecordsproject.data.repositories.DiagnosisRepository;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.service.DiagnosisService;
+import com.example.medicalrecordsproject.utils.KeysetCursor;
 import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.example.medicalrecordsproject.utils.Paging;
+import com.example.medicalrecordsproject.utils.ReferenceCache;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -16,50 +22,68 @@ public class DiagnosisServiceImpl implements DiagnosisService {
 
     private final DiagnosisRepository diagnosisRepository;
     private final MapperUtil mapperUtil;
+    private final ReferenceCache<Diagnosis> diagnosisCache;
 
-    public DiagnosisServiceImpl(DiagnosisRepository diagnosisRepository, MapperUtil mapperUtil) {
+    public DiagnosisServiceImpl(DiagnosisRepository diagnosisRepository, MapperUtil mapperUtil,
+                                ReferenceCaches referenceCaches) {
         this.diagnosisRepository = diagnosisRepository;
         this.mapperUtil = mapperUtil;
+        this.diagnosisCache = referenceCaches.diagnoses();
     }
 
     @Override
+    @Transactional
     public DiagnosisResponse createDiagnosis(DiagnosisRequest diagnosisRequest) {
-        return mapperUtil.modelMapper()
-                .map(diagnosisRepository
-                        .save(mapperUtil.modelMapper()
-                                .map(diagnosisRequest, Diagnosis.class)), DiagnosisResponse.class);
+        Diagnosis savedDiagnosis = diagnosisRepository.save(mapperUtil.map(diagnosisRequest, Diagnosis.class));
+        diagnosisCache.invalidate(savedDiagnosis.getId());
+
+        return mapperUtil.map(savedDiagnosis, DiagnosisResponse.class);
     }
 
     @Override
-    public List<DiagnosisResponse> getAllDiagnoses() {
-        return mapperUtil.mapList(diagnosisRepository.findAll(), DiagnosisResponse.class);
+    @Transactional(readOnly = true)
+    public CursorPage<DiagnosisResponse> getDiagnosesPage(int limit, String after) {
+        int pageSize = Paging.checkLimit(limit);
+        Long afterId = after == null ? 0L : KeysetCursor.decodeId(after).getId();
+
+        // one row more than the page, to know if there is a next page
+        List<Diagnosis> diagnoses = diagnosisCache.getPage(afterId, pageSize + 1, diagnosisRepository::findAll,
+                () -> diagnosisRepository.findAllByIdGreaterThanOrderByIdAsc(afterId, Paging.firstRows(pageSize)));
+
+        return Paging.toPage(diagnoses, pageSize,
+                diagnosis -> mapperUtil.map(diagnosis, DiagnosisResponse.class),
+                diagnosis -> KeysetCursor.of(diagnosis.getId()));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public DiagnosisResponse getDiagnosisById(Long id) {
-        return mapperUtil.modelMapper()
-                .map(diagnosisRepository
-                                .findById(id)
-                                .orElseThrow(() -> new EntityNotFoundException("Diagnosis not found"))
-                        , DiagnosisResponse.class);
+        return mapperUtil.map(diagnosisCache
+                        .get(id, diagnosisRepository::findById)
+                        .orElseThrow(() -> new EntityNotFoundException("Diagnosis not found"))
+                , DiagnosisResponse.class);
     }
 
     @Override
+    @Transactional
     public DiagnosisResponse updateDiagnosis(Long id, DiagnosisRequest diagnosisRequest) {
         Diagnosis diagnosis = this.diagnosisRepository
                 .findById(id).orElseThrow(() -> new EntityNotFoundException("Diagnosis not found"));
 
-        mapperUtil.modelMapper().map(diagnosisRequest, diagnosis);
+        mapperUtil.map(diagnosisRequest, diagnosis);
+        Diagnosis savedDiagnosis = diagnosisRepository.save(diagnosis);
+        diagnosisCache.invalidate(id);
 
-        return mapperUtil.modelMapper()
-                .map(diagnosisRepository.save(diagnosis), DiagnosisResponse.class);
+        return mapperUtil.map(savedDiagnosis, DiagnosisResponse.class);
     }
 
     @Override
+    @Transactional
     public void deleteDiagnosis(Long id) {
         Diagnosis diagnosis = this.diagnosisRepository
                 .findById(id).orElseThrow(() -> new EntityNotFoundException("Diagnosis not found"));
 
         diagnosisRepository.delete(diagnosis);
+        diagnosisCache.invalidate(id);
     }
 }
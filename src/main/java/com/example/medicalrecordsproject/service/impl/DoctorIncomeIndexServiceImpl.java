@@ -0,0 +1,125 @@
+package com.example.medicalrecordsproject.service.impl;
+
+import com.example.medicalrecordsproject.data.dtos.incomes.DoctorIncomeResponse;
+import com.example.medicalrecordsproject.data.repositories.DoctorIncomeRepository;
+import com.example.medicalrecordsproject.service.DoctorIncomeIndexService;
+import com.example.medicalrecordsproject.utils.DoctorIncomeIndex;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class DoctorIncomeIndexServiceImpl implements DoctorIncomeIndexService {
+
+    private final DoctorIncomeRepository doctorIncomeRepository;
+
+    private final DoctorIncomeIndex index = new DoctorIncomeIndex();
+
+    // A deleted doctor keeps this revision until the next rebuild, so a late callback can't add it back
+    private static final long REMOVED = Long.MAX_VALUE;
+
+    // Revision of the ledger row every income in the index was taken from, guarded by this
+    private final Map<Long, Long> revisions = new HashMap<>();
+
+    // The index is built from the ledger on the first read, changes before that are already in the ledger
+    private volatile boolean built;
+
+    public DoctorIncomeIndexServiceImpl(DoctorIncomeRepository doctorIncomeRepository) {
+        this.doctorIncomeRepository = doctorIncomeRepository;
+    }
+
+    // Called by the income ledger with the new income and revision of a doctor's row. It is only applied
+    // when the transaction commits. Concurrent commits run their callbacks in any order, and a rebuild can
+    // read a row before or after the commit whose callback comes next, so an income only replaces the one
+    // in the index when its revision is newer.
+    @Override
+    public void incomeChanged(Long doctorId, BigDecimal income, long revision) {
+        afterCommit(() -> applyChange(doctorId, income, revision));
+    }
+
+    // A new doctor is in the index with no income, like the doctors without visits that a rebuild reads
+    @Override
+    public void doctorAdded(Long doctorId, long revision) {
+        afterCommit(() -> applyChange(doctorId, BigDecimal.ZERO, revision));
+    }
+
+    @Override
+    public void doctorRemoved(Long doctorId) {
+        afterCommit(() -> applyChange(doctorId, null, REMOVED));
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    // The monitor is held while the ledger is read, the changes committed meanwhile wait for the new index
+    @Override
+    public synchronized void rebuild() {
+        // row[0] = doctorId, row[1] = income of the doctor, row[2] = revision of the row
+        Map<Long, BigDecimal> incomeByDoctor = new HashMap<>();
+        revisions.clear();
+        for (Object[] row : doctorIncomeRepository.getIncomesWithRevision()) {
+            incomeByDoctor.put((Long) row[0], (BigDecimal) row[1]);
+            revisions.put((Long) row[0], (Long) row[2]);
+        }
+        index.replaceAll(incomeByDoctor);
+        built = true;
+    }
+
+    @Override
+    public int countDoctorsAbove(BigDecimal minIncome) {
+        return builtIndex().countAbove(minIncome);
+    }
+
+    @Override
+    public List<DoctorIncomeResponse> getTopDoctors(int count) {
+        return builtIndex().top(count);
+    }
+
+    @Override
+    public BigDecimal getPercentileRank(Long doctorId) {
+        DoctorIncomeIndex builtIndex = builtIndex();
+        return builtIndex.percentileRank(builtIndex.getIncome(doctorId));
+    }
+
+    // A null income takes the doctor out of the index
+    private synchronized void applyChange(Long doctorId, BigDecimal income, long revision) {
+        if (!built) {
+            return;
+        }
+        Long applied = revisions.get(doctorId);
+        if (applied == null || applied < revision) {
+            revisions.put(doctorId, revision);
+            if (income == null) {
+                index.remove(doctorId);
+            } else {
+                index.set(doctorId, income);
+            }
+        }
+    }
+
+    private DoctorIncomeIndex builtIndex() {
+        if (!built) {
+            synchronized (this) {
+                if (!built) {
+                    rebuild();
+                }
+            }
+        }
+        return index;
+    }
+}
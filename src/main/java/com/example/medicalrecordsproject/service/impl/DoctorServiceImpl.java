@@ -2,18 +2,30 @@ package com.example.medicalrecordsproject.service.impl;
 
 import com.example.medicalrecordsproject.data.dtos.doctors.DoctorRequest;
 import com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
+import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyResponse;
 import com.example.medicalrecordsproject.data.entities.Doctor;
 import com.example.medicalrecordsproject.data.entities.Specialty;
 import com.example.medicalrecordsproject.data.repositories.DoctorRepository;
 import com.example.medicalrecordsproject.data.repositories.SpecialtyRepository;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.service.DoctorService;
+import com.example.medicalrecordsproject.service.IncomeLedgerService;
+import com.example.medicalrecordsproject.utils.BulkLookup;
+import com.example.medicalrecordsproject.utils.ChildRows;
+import com.example.medicalrecordsproject.utils.KeysetCursor;
 import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.example.medicalrecordsproject.utils.Paging;
+import com.example.medicalrecordsproject.utils.ReferenceCache;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class DoctorServiceImpl implements DoctorService {
@@ -21,53 +33,76 @@ public class DoctorServiceImpl implements DoctorService {
     private final DoctorRepository doctorRepository;
     private final SpecialtyRepository specialtyRepository;
     private final MapperUtil mapperUtil;
+    private final ReferenceCache<Specialty> specialtyCache;
+    private final IncomeLedgerService incomeLedgerService;
 
-    public DoctorServiceImpl(DoctorRepository doctorRepository, SpecialtyRepository specialtyRepository, MapperUtil mapperUtil) {
+    public DoctorServiceImpl(DoctorRepository doctorRepository, SpecialtyRepository specialtyRepository, MapperUtil mapperUtil,
+                             ReferenceCaches referenceCaches, IncomeLedgerService incomeLedgerService) {
         this.doctorRepository = doctorRepository;
         this.specialtyRepository = specialtyRepository;
         this.mapperUtil = mapperUtil;
+        this.specialtyCache = referenceCaches.specialties();
+        this.incomeLedgerService = incomeLedgerService;
     }
 
     @Override
+    @Transactional
     public DoctorResponse createDoctor(DoctorRequest doctorRequest) {
         // If one of the given Specialties doesn't exist -> We don't create the Doctor because Exception is thrown.
         Set<Specialty> specialtiesFromSpecialtiesIds = getSpecialtiesFromSpecialtiesIds(doctorRequest);
 
         Doctor doctor = new Doctor();
-        mapperUtil.modelMapper().map(doctorRequest, doctor);
+        mapperUtil.map(doctorRequest, doctor);
         doctor.setSpecialties(specialtiesFromSpecialtiesIds);
 
-        return mapperUtil.modelMapper().map(doctorRepository.save(doctor), DoctorResponse.class);
+        Doctor savedDoctor = doctorRepository.save(doctor);
+        incomeLedgerService.doctorCreated(savedDoctor.getId());
+
+        return mapperUtil.map(savedDoctor, DoctorResponse.class);
     }
 
     public Set<Specialty> getSpecialtiesFromSpecialtiesIds(DoctorRequest doctorRequest) {
-        Set<Specialty> specialties = new HashSet<>();
+        return BulkLookup.findAllByIds(ids -> specialtyCache.getAllById(ids, specialtyRepository::findAllById),
+                doctorRequest.getSpecialtiesIds(), "Specialties");
+    }
 
-        if (doctorRequest.getSpecialtiesIds() != null) {
-            for (Long specialtiesId : doctorRequest.getSpecialtiesIds()) {
-                specialties.add(specialtyRepository.findById(specialtiesId)
-                        .orElseThrow(() -> new EntityNotFoundException("Specialty not found")));
-            }
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<DoctorResponse> getDoctorsPage(int limit, String after) {
+        int pageSize = Paging.checkLimit(limit);
+        Long afterId = after == null ? 0L : KeysetCursor.decodeId(after).getId();
+
+        CursorPage<DoctorResponse> page = Paging.toPage(
+                doctorRepository.findResponsesAfter(afterId, Paging.firstRows(pageSize)), pageSize,
+                Function.identity(),
+                doctor -> KeysetCursor.of(doctor.getId()));
+        if (!page.getItems().isEmpty()) {
+            List<Long> doctorIds = page.getItems().stream().map(DoctorResponse::getId).collect(Collectors.toList());
+            withSpecialties(page.getItems(), doctorRepository.findSpecialtyRows(doctorIds));
         }
-
-        return specialties;
+        return page;
     }
 
-    @Override
-    public List<DoctorResponse> getAllDoctors() {
-        return mapperUtil.mapList(doctorRepository.findAll(), DoctorResponse.class);
+    // Rows of (doctorId, specialtyId, specialty name)
+    private static List<DoctorResponse> withSpecialties(List<DoctorResponse> doctors, List<Object[]> specialtyRows) {
+        Map<Long, Set<SpecialtyResponse>> specialties = ChildRows.groupByOwner(specialtyRows, SpecialtyResponse::new);
+        for (DoctorResponse doctor : doctors) {
+            doctor.setSpecialties(ChildRows.of(specialties, doctor.getId()));
+        }
+        return doctors;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public DoctorResponse getDoctorById(Long id) {
-        return mapperUtil.modelMapper()
-                .map(doctorRepository
-                                .findById(id)
-                                .orElseThrow(() -> new EntityNotFoundException("Doctor not found"))
-                        , DoctorResponse.class);
+        return mapperUtil.map(doctorRepository
+                        .findWithSpecialtiesById(id)
+                        .orElseThrow(() -> new EntityNotFoundException("Doctor not found"))
+                , DoctorResponse.class);
     }
 
     @Override
+    @Transactional
     public DoctorResponse updateDoctor(Long id, DoctorRequest doctorRequest) {
         Doctor doctor = this.doctorRepository
                 .findById(id).orElseThrow(() -> new EntityNotFoundException("Doctor not found"));
@@ -75,17 +110,19 @@ public class DoctorServiceImpl implements DoctorService {
         // If one of the given Specialties doesn't exist -> We don't update the Doctor because Exception is thrown
         Set<Specialty> specialtiesFromSpecialtiesIds = getSpecialtiesFromSpecialtiesIds(doctorRequest);
 
-        mapperUtil.modelMapper().map(doctorRequest, doctor);
+        mapperUtil.map(doctorRequest, doctor);
         doctor.setSpecialties(specialtiesFromSpecialtiesIds);
 
-        return mapperUtil.modelMapper().map(doctorRepository.save(doctor), DoctorResponse.class);
+        return mapperUtil.map(doctorRepository.save(doctor), DoctorResponse.class);
     }
 
     @Override
+    @Transactional
     public void deleteDoctor(Long id) {
         Doctor doctor = this.doctorRepository
                 .findById(id).orElseThrow(() -> new EntityNotFoundException("Doctor not found"));
 
         doctorRepository.delete(doctor);
+        incomeLedgerService.doctorDeleted(id);
     }
 }
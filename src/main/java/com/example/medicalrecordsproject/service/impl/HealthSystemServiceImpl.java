@@ -2,13 +2,21 @@ package com.example.medicalrecordsproject.service.impl;
 
 import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemRequest;
 import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.data.entities.HealthSystem;
 import com.example.medicalrecordsproject.data.repositories.HealthSystemRepository;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.service.HealthSystemService;
+import com.example.medicalrecordsproject.service.IncomeLedgerService;
+import com.example.medicalrecordsproject.utils.KeysetCursor;
 import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.example.medicalrecordsproject.utils.Paging;
+import com.example.medicalrecordsproject.utils.ReferenceCache;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Service
@@ -16,49 +24,77 @@ public class HealthSystemServiceImpl implements HealthSystemService {
 
     private final HealthSystemRepository healthSystemRepository;
     private final MapperUtil mapperUtil;
+    private final ReferenceCache<HealthSystem> healthSystemCache;
+    private final IncomeLedgerService incomeLedgerService;
 
-    public HealthSystemServiceImpl(HealthSystemRepository healthSystemRepository, MapperUtil mapperUtil) {
+    public HealthSystemServiceImpl(HealthSystemRepository healthSystemRepository, MapperUtil mapperUtil,
+                                   ReferenceCaches referenceCaches,
+                                   IncomeLedgerService incomeLedgerService) {
         this.healthSystemRepository = healthSystemRepository;
         this.mapperUtil = mapperUtil;
+        this.healthSystemCache = referenceCaches.healthSystems();
+        this.incomeLedgerService = incomeLedgerService;
     }
 
     @Override
+    @Transactional
     public HealthSystemResponse createHealthSystem(HealthSystemRequest healthSystemRequest) {
-        return mapperUtil.modelMapper()
-                .map(healthSystemRepository
-                        .save(mapperUtil.modelMapper()
-                                .map(healthSystemRequest, HealthSystem.class)), HealthSystemResponse.class);
+        HealthSystem savedHealthSystem = healthSystemRepository.save(mapperUtil.map(healthSystemRequest, HealthSystem.class));
+        healthSystemCache.invalidate(savedHealthSystem.getId());
+
+        return mapperUtil.map(savedHealthSystem, HealthSystemResponse.class);
     }
 
     @Override
-    public List<HealthSystemResponse> getAllHealthSystems() {
-        return mapperUtil.mapList(healthSystemRepository.findAll(), HealthSystemResponse.class);
+    @Transactional(readOnly = true)
+    public CursorPage<HealthSystemResponse> getHealthSystemsPage(int limit, String after) {
+        int pageSize = Paging.checkLimit(limit);
+        Long afterId = after == null ? 0L : KeysetCursor.decodeId(after).getId();
+
+        // one row more than the page, to know if there is a next page
+        List<HealthSystem> healthSystems = healthSystemCache.getPage(afterId, pageSize + 1, healthSystemRepository::findAll,
+                () -> healthSystemRepository.findAllByIdGreaterThanOrderByIdAsc(afterId, Paging.firstRows(pageSize)));
+
+        return Paging.toPage(healthSystems, pageSize,
+                healthSystem -> mapperUtil.map(healthSystem, HealthSystemResponse.class),
+                healthSystem -> KeysetCursor.of(healthSystem.getId()));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public HealthSystemResponse getHealthSystemById(Long id) {
-        return mapperUtil.modelMapper()
-                .map(healthSystemRepository
-                                .findById(id)
-                                .orElseThrow(() -> new EntityNotFoundException("Health System not found"))
-                        , HealthSystemResponse.class);
+        return mapperUtil.map(healthSystemCache
+                        .get(id, healthSystemRepository::findById)
+                        .orElseThrow(() -> new EntityNotFoundException("Health System not found"))
+                , HealthSystemResponse.class);
     }
 
     @Override
+    @Transactional
     public HealthSystemResponse updateHealthSystem(Long id, HealthSystemRequest healthSystemRequest) {
         HealthSystem healthSystem = this.healthSystemRepository
                 .findById(id).orElseThrow(() -> new EntityNotFoundException("Health System not found"));
 
-        mapperUtil.modelMapper().map(healthSystemRequest, healthSystem);
+        BigDecimal oldFee = healthSystem.getNoInsuranceFee();
+        mapperUtil.map(healthSystemRequest, healthSystem);
+
+        HealthSystemResponse healthSystemResponse =
+                mapperUtil.map(healthSystemRepository.save(healthSystem), HealthSystemResponse.class);
+
+        // Every past visit with this health system now brings in the new fee
+        incomeLedgerService.feeChanged(id, oldFee, healthSystem.getNoInsuranceFee());
+        healthSystemCache.invalidate(id);
 
-        return mapperUtil.modelMapper().map(healthSystemRepository.save(healthSystem), HealthSystemResponse.class);
+        return healthSystemResponse;
     }
 
     @Override
+    @Transactional
     public void deleteHealthSystem(Long id) {
         HealthSystem healthSystem = this.healthSystemRepository
                 .findById(id).orElseThrow(() -> new EntityNotFoundException("Health System not found"));
 
         healthSystemRepository.delete(healthSystem);
+        healthSystemCache.invalidate(id);
     }
 }
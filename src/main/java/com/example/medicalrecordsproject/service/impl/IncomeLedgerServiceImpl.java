@@ -0,0 +1,270 @@
+package com.example.medicalrecordsproject.service.impl;
+
+import com.example.medicalrecordsproject.data.dtos.incomes.DoctorIncomeDrift;
+import com.example.medicalrecordsproject.data.entities.DoctorIncome;
+import com.example.medicalrecordsproject.data.entities.Visit;
+import com.example.medicalrecordsproject.data.repositories.DoctorIncomeRepository;
+import com.example.medicalrecordsproject.data.repositories.VisitRepository;
+import com.example.medicalrecordsproject.service.DoctorIncomeIndexService;
+import com.example.medicalrecordsproject.service.IncomeLedgerService;
+import com.example.medicalrecordsproject.service.IncomeRollupService;
+import com.example.medicalrecordsproject.utils.VisitAggregates;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+@Service
+public class IncomeLedgerServiceImpl implements IncomeLedgerService {
+
+    private final DoctorIncomeRepository doctorIncomeRepository;
+
+    private final VisitRepository visitRepository;
+
+    private final DoctorIncomeIndexService doctorIncomeIndexService;
+
+    private final IncomeRollupService incomeRollupService;
+
+    private final VisitAggregates visitAggregates;
+
+    public IncomeLedgerServiceImpl(DoctorIncomeRepository doctorIncomeRepository, VisitRepository visitRepository,
+                                   DoctorIncomeIndexService doctorIncomeIndexService,
+                                   IncomeRollupService incomeRollupService, VisitAggregates visitAggregates) {
+        this.doctorIncomeRepository = doctorIncomeRepository;
+        this.visitRepository = visitRepository;
+        this.doctorIncomeIndexService = doctorIncomeIndexService;
+        this.incomeRollupService = incomeRollupService;
+        this.visitAggregates = visitAggregates;
+    }
+
+    // Every doctor gets its ledger row when it is created, so the visit writes always find a row to lock.
+    // Creating it on the first visit instead would let two concurrent first visits both insert it.
+    @Override
+    @Transactional
+    public void doctorCreated(Long doctorId) {
+        DoctorIncome income = doctorIncomeRepository.save(new DoctorIncome(doctorId));
+        doctorIncomeIndexService.doctorAdded(doctorId, income.getRevision());
+    }
+
+    // A doctor can only be deleted without visits, so its row has nothing left to keep
+    @Override
+    @Transactional
+    public void doctorDeleted(Long doctorId) {
+        doctorIncomeRepository.deleteByDoctorId(doctorId);
+        doctorIncomeIndexService.doctorRemoved(doctorId);
+    }
+
+    // The write methods are called by the other services inside their own transaction,
+    // so the ledger is committed or rolled back together with the visit, patient or fee change.
+    // Every change is also applied to the daily income rollups and drops the cached visit aggregates.
+    @Override
+    @Transactional
+    public void recordVisit(Visit visit) {
+        addIncome(visit.getDoctor().getId(), visit.getPatient().isHasInsurance(),
+                visit.getHealthSystem().getNoInsuranceFee());
+        incomeRollupService.recordVisits(List.of(visit));
+        visitAggregates.invalidateAll();
+    }
+
+    // One ledger update per doctor instead of one per visit. The rows are locked in the order of the doctor ids,
+    // so two batches with the same doctors can't each hold a row the other one waits for.
+    @Override
+    @Transactional
+    public void recordVisits(Collection<Visit> visits) {
+        Map<Long, Map<Boolean, BigDecimal>> incomes = visits.stream()
+                .collect(Collectors.groupingBy(visit -> visit.getDoctor().getId(), TreeMap::new,
+                        Collectors.groupingBy(visit -> visit.getPatient().isHasInsurance(),
+                                Collectors.reducing(BigDecimal.ZERO,
+                                        visit -> visit.getHealthSystem().getNoInsuranceFee(), BigDecimal::add))));
+
+        incomes.forEach((doctorId, byInsured) -> addIncome(doctorId,
+                byInsured.getOrDefault(true, BigDecimal.ZERO), byInsured.getOrDefault(false, BigDecimal.ZERO)));
+        incomeRollupService.recordVisits(visits);
+        visitAggregates.invalidateAll();
+    }
+
+    @Override
+    @Transactional
+    public void removeVisit(Visit visit) {
+        addIncome(visit.getDoctor().getId(), visit.getPatient().isHasInsurance(),
+                visit.getHealthSystem().getNoInsuranceFee().negate());
+        incomeRollupService.removeVisit(visit);
+        visitAggregates.invalidateAll();
+    }
+
+    // An update can move the visit to another doctor. Both differences are applied in the order of the doctor ids
+    // like in recordVisits, so two updates moving visits between the same doctors in opposite directions
+    // can't each hold a row the other one waits for. The rollups are written while both rows are locked.
+    @Override
+    @Transactional
+    public void moveVisit(Visit before, Visit after) {
+        Map<Long, BigDecimal[]> differences = new TreeMap<>();
+        addFee(differences, before, before.getHealthSystem().getNoInsuranceFee().negate());
+        addFee(differences, after, after.getHealthSystem().getNoInsuranceFee());
+
+        differences.forEach((doctorId, byInsured) -> addIncome(doctorId, byInsured[0], byInsured[1]));
+        incomeRollupService.moveVisit(before, after);
+        visitAggregates.invalidateAll();
+    }
+
+    @Override
+    @Transactional
+    public void patientInsuranceChanged(Long patientId, boolean hasInsurance) {
+        // row[0] = doctorId, row[1] = sum of fees of the patient's visits to this doctor, ordered by doctorId
+        for (Object[] row : visitRepository.getIncomeOfPatientGroupedByDoctor(patientId)) {
+            Long doctorId = (Long) row[0];
+            BigDecimal income = (BigDecimal) row[1];
+
+            if (hasInsurance) {
+                addIncome(doctorId, income, income.negate());
+            } else {
+                addIncome(doctorId, income.negate(), income);
+            }
+        }
+        incomeRollupService.patientInsuranceChanged(patientId, hasInsurance);
+        visitAggregates.invalidateAll();
+    }
+
+    @Override
+    @Transactional
+    public void feeChanged(Long healthSystemId, BigDecimal oldFee, BigDecimal newFee) {
+        BigDecimal difference = newFee.subtract(oldFee);
+        if (difference.signum() == 0) {
+            return;
+        }
+
+        // row[0] = doctorId, row[1] = patient has insurance, row[2] = count of visits
+        Map<Long, BigDecimal[]> differences = new TreeMap<>();
+        for (Object[] row : visitRepository.countVisitsOfHealthSystemGroupedByDoctorAndInsurance(healthSystemId)) {
+            BigDecimal[] byInsured = differences.computeIfAbsent((Long) row[0],
+                    doctorId -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            byInsured[(Boolean) row[1] ? 0 : 1] = difference.multiply(BigDecimal.valueOf((Long) row[2]));
+        }
+        differences.forEach((doctorId, byInsured) -> addIncome(doctorId, byInsured[0], byInsured[1]));
+        incomeRollupService.feeChanged(healthSystemId, oldFee, newFee);
+        visitAggregates.invalidateAll();
+    }
+
+    // A sum over the ledger, one row per doctor rather than one per visit. A single total row would be
+    // locked by every visit write of every doctor, so all the writes would wait for each other.
+    @Override
+    public BigDecimal getTotalIncome() {
+        return doctorIncomeRepository.getTotalIncome();
+    }
+
+    @Override
+    public BigDecimal getIncomeOfDoctor(Long doctorId) {
+        return doctorIncomeRepository.findById(doctorId)
+                .map(income -> income.getInsuredIncome().add(income.getUninsuredIncome()))
+                .orElse(BigDecimal.ZERO);
+    }
+
+    @Override
+    public BigDecimal getInsuredIncomeOfDoctor(Long doctorId) {
+        return doctorIncomeRepository.findById(doctorId)
+                .map(DoctorIncome::getInsuredIncome)
+                .orElse(BigDecimal.ZERO);
+    }
+
+    @Override
+    @Transactional
+    public List<DoctorIncomeDrift> reconcile() {
+        // Locking the ledger first makes visit writers wait until the rebuilt ledger is committed,
+        // and makes this method wait for writers that already updated their doctor's row.
+        List<DoctorIncome> ledger = doctorIncomeRepository.findAllForUpdate();
+
+        // row[0] = doctorId, row[1] = patient has insurance, row[2] = sum of fees
+        Map<Long, DoctorIncome> actualIncomes = new HashMap<>();
+        for (Object[] row : visitRepository.getIncomeGroupedByDoctorAndInsurance()) {
+            DoctorIncome actual = actualIncomes.computeIfAbsent((Long) row[0], DoctorIncome::new);
+            if ((Boolean) row[1]) {
+                actual.setInsuredIncome((BigDecimal) row[2]);
+            } else {
+                actual.setUninsuredIncome((BigDecimal) row[2]);
+            }
+        }
+
+        List<DoctorIncomeDrift> drifts = new ArrayList<>();
+        List<DoctorIncome> changed = new ArrayList<>();
+        for (DoctorIncome income : ledger) {
+            DoctorIncome actual = actualIncomes.remove(income.getDoctorId());
+            if (actual == null) {
+                actual = new DoctorIncome(income.getDoctorId());
+            }
+            if (hasDrift(income, actual)) {
+                drifts.add(toDrift(income, actual));
+                income.setInsuredIncome(actual.getInsuredIncome());
+                income.setUninsuredIncome(actual.getUninsuredIncome());
+                income.setRevision(income.getRevision() + 1);
+                changed.add(income);
+            }
+        }
+
+        // Doctors with visits that have no ledger row at all
+        for (DoctorIncome actual : actualIncomes.values()) {
+            drifts.add(toDrift(new DoctorIncome(actual.getDoctorId()), actual));
+            actual.setRevision(1);
+            changed.add(actual);
+        }
+
+        doctorIncomeRepository.saveAll(changed);
+        for (DoctorIncome income : changed) {
+            doctorIncomeIndexService.incomeChanged(income.getDoctorId(),
+                    income.getInsuredIncome().add(income.getUninsuredIncome()), income.getRevision());
+        }
+        // Under the same locks, so the rollups are committed together with the ledger
+        incomeRollupService.rebuild();
+        visitAggregates.invalidateAll();
+
+        return drifts;
+    }
+
+    private void addIncome(Long doctorId, boolean insured, BigDecimal amount) {
+        if (insured) {
+            addIncome(doctorId, amount, BigDecimal.ZERO);
+        } else {
+            addIncome(doctorId, BigDecimal.ZERO, amount);
+        }
+    }
+
+    private static void addFee(Map<Long, BigDecimal[]> differences, Visit visit, BigDecimal fee) {
+        BigDecimal[] byInsured = differences.computeIfAbsent(visit.getDoctor().getId(),
+                doctorId -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+        int kind = visit.getPatient().isHasInsurance() ? 0 : 1;
+        byInsured[kind] = byInsured[kind].add(fee);
+    }
+
+    // One locked read and one update of the doctor's row for both kinds of patients
+    private void addIncome(Long doctorId, BigDecimal insuredAmount, BigDecimal uninsuredAmount) {
+        DoctorIncome income = doctorIncomeRepository.findByDoctorIdForUpdate(doctorId)
+                .orElseThrow(() -> new IllegalStateException("No income ledger row for doctor " + doctorId));
+
+        income.setInsuredIncome(income.getInsuredIncome().add(insuredAmount));
+        income.setUninsuredIncome(income.getUninsuredIncome().add(uninsuredAmount));
+        income.setRevision(income.getRevision() + 1);
+
+        doctorIncomeRepository.save(income);
+        if (insuredAmount.add(uninsuredAmount).signum() != 0) {
+            doctorIncomeIndexService.incomeChanged(doctorId,
+                    income.getInsuredIncome().add(income.getUninsuredIncome()), income.getRevision());
+        }
+    }
+
+    private static boolean hasDrift(DoctorIncome ledger, DoctorIncome actual) {
+        return ledger.getInsuredIncome().compareTo(actual.getInsuredIncome()) != 0
+                || ledger.getUninsuredIncome().compareTo(actual.getUninsuredIncome()) != 0;
+    }
+
+    private static DoctorIncomeDrift toDrift(DoctorIncome ledger, DoctorIncome actual) {
+        return new DoctorIncomeDrift(ledger.getDoctorId(),
+                ledger.getInsuredIncome(), actual.getInsuredIncome(),
+                ledger.getUninsuredIncome(), actual.getUninsuredIncome());
+    }
+}
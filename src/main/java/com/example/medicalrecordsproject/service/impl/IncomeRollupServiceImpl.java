@@ -0,0 +1,184 @@
+package com.example.medicalrecordsproject.service.impl;
+
+import com.example.medicalrecordsproject.data.dtos.incomes.IncomeBucketResponse;
+import com.example.medicalrecordsproject.data.dtos.incomes.IncomeGranularity;
+import com.example.medicalrecordsproject.data.entities.IncomeRollup;
+import com.example.medicalrecordsproject.data.entities.IncomeRollupId;
+import com.example.medicalrecordsproject.data.entities.Visit;
+import com.example.medicalrecordsproject.data.repositories.IncomeRollupRepository;
+import com.example.medicalrecordsproject.data.repositories.VisitRepository;
+import com.example.medicalrecordsproject.exceptions.InvalidIncomeRequestException;
+import com.example.medicalrecordsproject.service.IncomeRollupService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+@Service
+public class IncomeRollupServiceImpl implements IncomeRollupService {
+
+    private final IncomeRollupRepository incomeRollupRepository;
+
+    private final VisitRepository visitRepository;
+
+    public IncomeRollupServiceImpl(IncomeRollupRepository incomeRollupRepository, VisitRepository visitRepository) {
+        this.incomeRollupRepository = incomeRollupRepository;
+        this.visitRepository = visitRepository;
+    }
+
+    // Like the income ledger, the write methods join the transaction of the visit, patient or fee change
+    @Override
+    @Transactional
+    public void recordVisits(Collection<Visit> visits) {
+        Map<IncomeRollupId, BigDecimal> incomes = new HashMap<>();
+        Map<IncomeRollupId, Long> counts = new HashMap<>();
+        for (Visit visit : visits) {
+            IncomeRollupId id = rollupIdOf(visit);
+            incomes.merge(id, visit.getHealthSystem().getNoInsuranceFee(), BigDecimal::add);
+            counts.merge(id, 1L, Long::sum);
+        }
+
+        incomes.forEach((id, income) -> addIncome(id, income, counts.get(id)));
+    }
+
+    @Override
+    @Transactional
+    public void removeVisit(Visit visit) {
+        addIncome(rollupIdOf(visit), visit.getHealthSystem().getNoInsuranceFee().negate(), -1);
+    }
+
+    // Called by the ledger while it holds the rows of both doctors. The rollup id contains the health system,
+    // so the same id means the same fee and there is nothing to change.
+    @Override
+    @Transactional
+    public void moveVisit(Visit before, Visit after) {
+        IncomeRollupId oldId = rollupIdOf(before);
+        IncomeRollupId newId = rollupIdOf(after);
+        if (oldId.equals(newId)) {
+            return;
+        }
+
+        addIncome(oldId, before.getHealthSystem().getNoInsuranceFee().negate(), -1);
+        addIncome(newId, after.getHealthSystem().getNoInsuranceFee(), 1);
+    }
+
+    @Override
+    @Transactional
+    public void patientInsuranceChanged(Long patientId, boolean hasInsurance) {
+        // row[0] = visit date, row[1] = doctorId, row[2] = healthSystemId, row[3] = sum of fees, row[4] = count of visits
+        for (Object[] row : visitRepository.getIncomeOfPatientGroupedByDayDoctorAndHealthSystem(patientId)) {
+            long epochDay = ((LocalDate) row[0]).toEpochDay();
+            BigDecimal income = (BigDecimal) row[3];
+            long visits = (Long) row[4];
+
+            addIncome(new IncomeRollupId(epochDay, (Long) row[1], (Long) row[2], hasInsurance), income, visits);
+            addIncome(new IncomeRollupId(epochDay, (Long) row[1], (Long) row[2], !hasInsurance),
+                    income.negate(), -visits);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void feeChanged(Long healthSystemId, BigDecimal oldFee, BigDecimal newFee) {
+        BigDecimal difference = newFee.subtract(oldFee);
+        if (difference.signum() == 0) {
+            return;
+        }
+
+        // row[0] = visit date, row[1] = doctorId, row[2] = patient has insurance, row[3] = count of visits
+        for (Object[] row : visitRepository.countVisitsOfHealthSystemGroupedByDayDoctorAndInsurance(healthSystemId)) {
+            IncomeRollupId id = new IncomeRollupId(((LocalDate) row[0]).toEpochDay(), (Long) row[1],
+                    healthSystemId, (Boolean) row[2]);
+            addIncome(id, difference.multiply(BigDecimal.valueOf((Long) row[3])), 0);
+        }
+    }
+
+    // Called by the ledger reconcile inside its transaction, while it holds the locks of all the ledger rows.
+    // Every rollup writer locks its doctor's ledger row first, so none of them runs until the rebuild is committed.
+    @Override
+    @Transactional
+    public void rebuild() {
+        incomeRollupRepository.deleteAllRollups();
+        incomeRollupRepository.insertRollupsOfAllVisits();
+    }
+
+    // Reads only the rollup rows of the period, at most one per day, doctor or health system and kind of patient
+    @Override
+    public List<IncomeBucketResponse> getIncome(LocalDate from, LocalDate to, String granularity, String groupBy) {
+        if (from.isAfter(to)) {
+            throw new InvalidIncomeRequestException("The start of the period cannot be after its end");
+        }
+        IncomeGranularity periodLength = parseGranularity(granularity);
+        boolean byDoctor = isGroupedByDoctor(groupBy);
+
+        List<Object[]> rows = byDoctor
+                ? incomeRollupRepository.getIncomeGroupedByDayAndDoctor(from.toEpochDay(), to.toEpochDay())
+                : incomeRollupRepository.getIncomeGroupedByDayAndHealthSystem(from.toEpochDay(), to.toEpochDay());
+
+        // row[0] = epoch day, row[1] = doctorId or healthSystemId, row[2] = insured, row[3] = sum of income,
+        // row[4] = count of visits
+        Map<List<Object>, IncomeBucketResponse> buckets = new HashMap<>();
+        for (Object[] row : rows) {
+            LocalDate periodStart = periodLength.periodStart(LocalDate.ofEpochDay((Long) row[0]));
+            Long groupId = (Long) row[1];
+            IncomeBucketResponse bucket = buckets.computeIfAbsent(List.of(periodStart, groupId),
+                    key -> byDoctor
+                            ? new IncomeBucketResponse(periodStart, groupId, null)
+                            : new IncomeBucketResponse(periodStart, null, groupId));
+
+            if ((Boolean) row[2]) {
+                bucket.setInsuredIncome(bucket.getInsuredIncome().add((BigDecimal) row[3]));
+            } else {
+                bucket.setUninsuredIncome(bucket.getUninsuredIncome().add((BigDecimal) row[3]));
+            }
+            bucket.setVisits(bucket.getVisits() + (Long) row[4]);
+        }
+
+        List<IncomeBucketResponse> income = new ArrayList<>(buckets.values());
+        income.sort(Comparator.comparing(IncomeBucketResponse::getPeriodStart)
+                .thenComparing(bucket -> byDoctor ? bucket.getDoctorId() : bucket.getHealthSystemId()));
+        return income;
+    }
+
+    private void addIncome(IncomeRollupId id, BigDecimal amount, long visits) {
+        Optional<IncomeRollup> existing = incomeRollupRepository
+                .findByIdForUpdate(id.getEpochDay(), id.getDoctorId(), id.getHealthSystemId(), id.getInsured());
+        IncomeRollup rollup = existing.orElseGet(() -> new IncomeRollup(id));
+
+        rollup.setIncome(rollup.getIncome().add(amount));
+        rollup.setVisits(rollup.getVisits() + visits);
+
+        // A row without visits left is deleted, so the table only grows with the visits
+        if (rollup.getVisits() == 0) {
+            existing.ifPresent(incomeRollupRepository::delete);
+        } else if (existing.isEmpty()) {
+            incomeRollupRepository.persist(rollup);
+        }
+    }
+
+    private static IncomeRollupId rollupIdOf(Visit visit) {
+        return new IncomeRollupId(visit.getVisitDate().toEpochDay(), visit.getDoctor().getId(),
+                visit.getHealthSystem().getId(), visit.getPatient().isHasInsurance());
+    }
+
+    private static IncomeGranularity parseGranularity(String granularity) {
+        for (IncomeGranularity value : IncomeGranularity.values()) {
+            if (value.name().equalsIgnoreCase(granularity)) {
+                return value;
+            }
+        }
+        throw new InvalidIncomeRequestException("The granularity must be day, week or month");
+    }
+
+    private static boolean isGroupedByDoctor(String groupBy) {
+        if ("doctor".equalsIgnoreCase(groupBy)) {
+            return true;
+        }
+        if ("health-system".equalsIgnoreCase(groupBy)) {
+            return false;
+        }
+        throw new InvalidIncomeRequestException("The income can only be grouped by doctor or health-system");
+    }
+}
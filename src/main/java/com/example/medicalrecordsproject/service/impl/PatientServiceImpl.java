@@ -1,7 +1,9 @@
 package com.example.medicalrecordsproject.service.impl;
 
+import com.example.medicalrecordsproject.data.dtos.patients.GpInsuranceStatsResponse;
 import com.example.medicalrecordsproject.data.dtos.patients.PatientRequest;
 import com.example.medicalrecordsproject.data.dtos.patients.PatientResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.data.entities.Doctor;
 import com.example.medicalrecordsproject.data.entities.Patient;
 import com.example.medicalrecordsproject.data.repositories.DoctorRepository;
@@ -9,13 +11,21 @@ import com.example.medicalrecordsproject.data.repositories.PatientRepository;
 import com.example.medicalrecordsproject.exceptions.DoctorNotGpException;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.exceptions.NoPatientsException;
+import com.example.medicalrecordsproject.service.IncomeLedgerService;
 import com.example.medicalrecordsproject.service.PatientService;
+import com.example.medicalrecordsproject.utils.KeysetCursor;
 import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.example.medicalrecordsproject.utils.Paging;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 @Service
 public class PatientServiceImpl implements PatientService {
@@ -23,20 +33,24 @@ public class PatientServiceImpl implements PatientService {
     private final PatientRepository patientRepository;
     private final MapperUtil mapperUtil;
     private final DoctorRepository doctorRepository;
+    private final IncomeLedgerService incomeLedgerService;
 
-    public PatientServiceImpl(PatientRepository patientRepository, MapperUtil mapperUtil, DoctorRepository doctorRepository) {
+    public PatientServiceImpl(PatientRepository patientRepository, MapperUtil mapperUtil, DoctorRepository doctorRepository,
+                              IncomeLedgerService incomeLedgerService) {
         this.patientRepository = patientRepository;
         this.mapperUtil = mapperUtil;
         this.doctorRepository = doctorRepository;
+        this.incomeLedgerService = incomeLedgerService;
     }
 
     @Override
+    @Transactional
     public PatientResponse createPatient(PatientRequest patientRequest) {
 
         Patient patient = new Patient();
         mapPatientRequestToPatient(patientRequest, patient);
 
-        return mapperUtil.modelMapper().map(patientRepository.save(patient), PatientResponse.class);
+        return mapperUtil.map(patientRepository.save(patient), PatientResponse.class);
     }
 
     public void mapPatientRequestToPatient(PatientRequest patientRequest, Patient patient) {
@@ -63,31 +77,47 @@ public class PatientServiceImpl implements PatientService {
     }
 
     @Override
-    public List<PatientResponse> getAllPatients() {
-        return mapperUtil.mapList(patientRepository.findAll(), PatientResponse.class);
+    @Transactional(readOnly = true)
+    public CursorPage<PatientResponse> getPatientsPage(int limit, String after) {
+        int pageSize = Paging.checkLimit(limit);
+        Long afterId = after == null ? 0L : KeysetCursor.decodeId(after).getId();
+
+        return Paging.toPage(patientRepository.findResponsesAfter(afterId, Paging.firstRows(pageSize)), pageSize,
+                Function.identity(),
+                patient -> KeysetCursor.of(patient.getId()));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public PatientResponse getPatientById(Long id) {
-        return mapperUtil.modelMapper()
-                .map(patientRepository
-                                .findById(id)
-                                .orElseThrow(() -> new EntityNotFoundException("Patient not found"))
-                        , PatientResponse.class);
+        return mapperUtil.map(patientRepository
+                        .findWithGpById(id)
+                        .orElseThrow(() -> new EntityNotFoundException("Patient not found"))
+                , PatientResponse.class);
     }
 
     @Override
+    @Transactional
     public PatientResponse updatePatient(Long id, PatientRequest patientRequest) {
 
         Patient patient = this.patientRepository
                 .findById(id).orElseThrow(() -> new EntityNotFoundException("Patient not found"));
 
+        Boolean hadInsurance = patient.isHasInsurance();
         mapPatientRequestToPatient(patientRequest, patient);
 
-        return mapperUtil.modelMapper().map(patientRepository.save(patient), PatientResponse.class);
+        PatientResponse patientResponse = mapperUtil.map(patientRepository.save(patient), PatientResponse.class);
+
+        // The fees of the patient's past visits move between the insured and uninsured income of their doctors
+        if (!patient.isHasInsurance().equals(hadInsurance)) {
+            incomeLedgerService.patientInsuranceChanged(id, patient.isHasInsurance());
+        }
+
+        return patientResponse;
     }
 
     @Override
+    @Transactional
     public void deletePatient(Long id) {
         Patient patient = this.patientRepository
                 .findById(id).orElseThrow(() -> new EntityNotFoundException("Patient not found"));
@@ -96,19 +126,49 @@ public class PatientServiceImpl implements PatientService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<PatientResponse> getPatientsWithInsurance() {
-        return mapperUtil.mapList(patientRepository.findAllByHasInsuranceIsTrue(), PatientResponse.class);
+        return patientRepository.findAllInsuredResponses();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public BigDecimal getPatientsWithoutInsurance() {
-        BigDecimal countAll = BigDecimal.valueOf(patientRepository.findAll().size());
-        BigDecimal countWithoutInsurance = BigDecimal.valueOf(patientRepository.countAllByHasInsuranceIsFalse());
+        long countAll = 0;
+        long countWithoutInsurance = 0;
+        for (Object[] row : patientRepository.countGroupedByInsurance()) {
+            countAll += (Long) row[1];
+            if (Boolean.FALSE.equals(row[0])) {
+                countWithoutInsurance += (Long) row[1];
+            }
+        }
 
-        if (countAll.equals(BigDecimal.ZERO)) {
+        if (countAll == 0) {
             throw new NoPatientsException("There are no patients.");
         }
 
-        return countWithoutInsurance.divide(countAll, 2, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100));
+        return percentOf(countWithoutInsurance, countAll);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<GpInsuranceStatsResponse> getInsuranceStatsByGp() {
+        // The rows come ordered by GP, with one row for the insured and one for the uninsured patients of a GP
+        Map<Long, long[]> countsByGp = new LinkedHashMap<>();
+        for (Object[] row : patientRepository.countGroupedByGpAndInsurance()) {
+            long[] counts = countsByGp.computeIfAbsent((Long) row[0], gpId -> new long[2]);
+            counts[Boolean.TRUE.equals(row[1]) ? 0 : 1] += (Long) row[2];
+        }
+
+        List<GpInsuranceStatsResponse> stats = new ArrayList<>(countsByGp.size());
+        countsByGp.forEach((gpId, counts) -> stats.add(new GpInsuranceStatsResponse(gpId, counts[0], counts[1],
+                percentOf(counts[1], counts[0] + counts[1]))));
+        return stats;
+    }
+
+    private static BigDecimal percentOf(long part, long all) {
+        return BigDecimal.valueOf(part)
+                .divide(BigDecimal.valueOf(all), 2, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100));
     }
 }
@@ -0,0 +1,41 @@
+package com.example.medicalrecordsproject.service.impl;
+
+import com.example.medicalrecordsproject.data.dtos.queries.QueryStatsResponse;
+import com.example.medicalrecordsproject.service.QueryStatsService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+public class QueryStatsServiceImpl implements QueryStatsService {
+
+    private final Statistics statistics;
+
+    public QueryStatsServiceImpl(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // The counters are only kept while hibernate.generate_statistics is on. The queries that took the most
+    // time in total come first. Loads by id and lazy loads are not queries and are not included.
+    @Override
+    public List<QueryStatsResponse> getQueryStats() {
+        return Arrays.stream(statistics.getQueries())
+                .map(query -> {
+                    QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+                    return new QueryStatsResponse(query,
+                            queryStatistics.getExecutionCount(), queryStatistics.getExecutionTotalTime(),
+                            queryStatistics.getExecutionAvgTimeAsDouble(), queryStatistics.getExecutionMaxTime(),
+                            queryStatistics.getExecutionRowCount());
+                })
+                .sorted(Comparator.comparingLong(QueryStatsResponse::getTotalMillis).reversed()
+                        .thenComparing(QueryStatsResponse::getQuery))
+                .collect(Collectors.toList());
+    }
+}
@@ -2,12 +2,18 @@ package com.example.medicalrecordsproject.service.impl;
 
 import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyRequest;
 import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.data.entities.Specialty;
 import com.example.medicalrecordsproject.data.repositories.SpecialtyRepository;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.service.SpecialtyService;
+import com.example.medicalrecordsproject.utils.KeysetCursor;
 import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.example.medicalrecordsproject.utils.Paging;
+import com.example.medicalrecordsproject.utils.ReferenceCache;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -16,51 +22,68 @@ public class SpecialtyServiceImpl implements SpecialtyService {
 
     private final SpecialtyRepository specialtyRepository;
     private final MapperUtil mapperUtil;
+    private final ReferenceCache<Specialty> specialtyCache;
 
-    public SpecialtyServiceImpl(SpecialtyRepository specialtyRepository, MapperUtil mapperUtil) {
+    public SpecialtyServiceImpl(SpecialtyRepository specialtyRepository, MapperUtil mapperUtil,
+                                ReferenceCaches referenceCaches) {
         this.specialtyRepository = specialtyRepository;
         this.mapperUtil = mapperUtil;
+        this.specialtyCache = referenceCaches.specialties();
     }
 
     @Override
+    @Transactional
     public SpecialtyResponse createSpecialty(SpecialtyRequest specialtyRequest) {
-        return mapperUtil.modelMapper()
-                .map(specialtyRepository
-                        .save(mapperUtil.modelMapper()
-                                .map(specialtyRequest, Specialty.class)), SpecialtyResponse.class);
+        Specialty savedSpecialty = specialtyRepository.save(mapperUtil.map(specialtyRequest, Specialty.class));
+        specialtyCache.invalidate(savedSpecialty.getId());
+
+        return mapperUtil.map(savedSpecialty, SpecialtyResponse.class);
     }
 
     @Override
-    public List<SpecialtyResponse> getAllSpecialties() {
-        return mapperUtil.mapList(specialtyRepository.findAll(), SpecialtyResponse.class);
+    @Transactional(readOnly = true)
+    public CursorPage<SpecialtyResponse> getSpecialtiesPage(int limit, String after) {
+        int pageSize = Paging.checkLimit(limit);
+        Long afterId = after == null ? 0L : KeysetCursor.decodeId(after).getId();
+
+        // one row more than the page, to know if there is a next page
+        List<Specialty> specialties = specialtyCache.getPage(afterId, pageSize + 1, specialtyRepository::findAll,
+                () -> specialtyRepository.findAllByIdGreaterThanOrderByIdAsc(afterId, Paging.firstRows(pageSize)));
+
+        return Paging.toPage(specialties, pageSize,
+                specialty -> mapperUtil.map(specialty, SpecialtyResponse.class),
+                specialty -> KeysetCursor.of(specialty.getId()));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public SpecialtyResponse getSpecialtyById(Long id) {
-        return mapperUtil.modelMapper()
-                .map(specialtyRepository
-                                .findById(id)
-                                .orElseThrow(() -> new EntityNotFoundException("Specialty not found"))
-                        , SpecialtyResponse.class);
+        return mapperUtil.map(specialtyCache
+                        .get(id, specialtyRepository::findById)
+                        .orElseThrow(() -> new EntityNotFoundException("Specialty not found"))
+                , SpecialtyResponse.class);
     }
 
     @Override
+    @Transactional
     public SpecialtyResponse updateSpecialty(Long id, SpecialtyRequest specialtyRequest) {
         Specialty specialty = this.specialtyRepository
                 .findById(id).orElseThrow(() -> new EntityNotFoundException("Specialty not found"));
 
-        mapperUtil.modelMapper().map(specialtyRequest, specialty);
-
-        return mapperUtil.modelMapper()
-                .map(specialtyRepository.save(specialty), SpecialtyResponse.class);
+        mapperUtil.map(specialtyRequest, specialty);
+        Specialty savedSpecialty = specialtyRepository.save(specialty);
+        specialtyCache.invalidate(id);
 
+        return mapperUtil.map(savedSpecialty, SpecialtyResponse.class);
     }
 
     @Override
+    @Transactional
     public void deleteSpecialty(Long id) {
         Specialty specialty = this.specialtyRepository
                 .findById(id).orElseThrow(() -> new EntityNotFoundException("Specialty not found"));
 
         specialtyRepository.delete(specialty);
+        specialtyCache.invalidate(id);
     }
 }
@@ -0,0 +1,173 @@
+package com.example.medicalrecordsproject.service.impl;
+
+import com.example.medicalrecordsproject.data.dtos.visits.VisitBatchError;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitBatchResponse;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitRequest;
+import com.example.medicalrecordsproject.data.entities.*;
+import com.example.medicalrecordsproject.data.repositories.*;
+import com.example.medicalrecordsproject.exceptions.BatchTooLargeException;
+import com.example.medicalrecordsproject.service.IncomeLedgerService;
+import com.example.medicalrecordsproject.service.VisitBatchService;
+import com.example.medicalrecordsproject.utils.BulkLookup;
+import com.example.medicalrecordsproject.utils.ReferenceCache;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class VisitBatchServiceImpl implements VisitBatchService {
+
+    private final VisitRepository visitRepository;
+
+    private final PatientRepository patientRepository;
+
+    private final DoctorRepository doctorRepository;
+
+    private final DiagnosisRepository diagnosisRepository;
+
+    private final HealthSystemRepository healthSystemRepository;
+
+    private final IncomeLedgerService incomeLedgerService;
+
+    private final Validator validator;
+
+    private final ReferenceCache<Diagnosis> diagnosisCache;
+
+    private final ReferenceCache<HealthSystem> healthSystemCache;
+
+    @Value("${visits.batch.max-size:5000}")
+    private int maxSize;
+
+    public VisitBatchServiceImpl(VisitRepository visitRepository,
+                                 PatientRepository patientRepository, DoctorRepository doctorRepository,
+                                 DiagnosisRepository diagnosisRepository, HealthSystemRepository healthSystemRepository,
+                                 IncomeLedgerService incomeLedgerService, Validator validator,
+                                 ReferenceCaches referenceCaches) {
+        this.visitRepository = visitRepository;
+        this.patientRepository = patientRepository;
+        this.doctorRepository = doctorRepository;
+        this.diagnosisRepository = diagnosisRepository;
+        this.healthSystemRepository = healthSystemRepository;
+        this.incomeLedgerService = incomeLedgerService;
+        this.validator = validator;
+        this.diagnosisCache = referenceCaches.diagnoses();
+        this.healthSystemCache = referenceCaches.healthSystems();
+    }
+
+    // Every kind of reference is loaded with one IN query for the whole batch. The visits and their
+    // diagnoses rows are inserted with JDBC batches (hibernate.jdbc.batch_size) when the transaction flushes.
+    @Override
+    @Transactional
+    public VisitBatchResponse createVisits(List<VisitRequest> visitRequests) {
+        if (visitRequests.size() > maxSize) {
+            throw new BatchTooLargeException("A batch can have at most " + maxSize + " visits");
+        }
+
+        Map<Integer, List<String>> errors = new TreeMap<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < visitRequests.size(); i++) {
+            List<String> messages = validate(visitRequests.get(i));
+            if (messages.isEmpty()) {
+                validIndexes.add(i);
+            } else {
+                errors.put(i, messages);
+            }
+        }
+
+        List<VisitRequest> validRequests = validIndexes.stream()
+                .map(visitRequests::get)
+                .collect(Collectors.toList());
+
+        Map<Long, Patient> patients = BulkLookup.findAllByIdsAsMap(patientRepository::findAllWithGpByIdIn,
+                collectIds(validRequests, VisitRequest::getPatientId));
+        Map<Long, Doctor> doctors = BulkLookup.findAllByIdsAsMap(doctorRepository::findAllById,
+                collectIds(validRequests, VisitRequest::getDoctorId));
+        Map<Long, HealthSystem> healthSystems = BulkLookup.findAllByIdsAsMap(
+                ids -> healthSystemCache.getAllById(ids, healthSystemRepository::findAllById),
+                collectIds(validRequests, VisitRequest::getHealthSystemId));
+        Map<Long, Diagnosis> diagnoses = BulkLookup.findAllByIdsAsMap(
+                ids -> diagnosisCache.getAllById(ids, diagnosisRepository::findAllById),
+                validRequests.stream()
+                        .flatMap(visitRequest -> visitRequest.getDiagnosesIds().stream())
+                        .collect(Collectors.toSet()));
+
+        List<Visit> visits = new ArrayList<>();
+        for (int i : validIndexes) {
+            VisitRequest visitRequest = visitRequests.get(i);
+            List<String> messages = new ArrayList<>();
+
+            Patient patient = patients.get(visitRequest.getPatientId());
+            if (patient == null) {
+                messages.add("Patient not found");
+            }
+            Doctor doctor = doctors.get(visitRequest.getDoctorId());
+            if (doctor == null) {
+                messages.add("Doctor not found");
+            }
+            HealthSystem healthSystem = healthSystems.get(visitRequest.getHealthSystemId());
+            if (healthSystem == null) {
+                messages.add("Health System not found");
+            }
+            List<Long> missingDiagnosesIds = visitRequest.getDiagnosesIds()
+                    .stream()
+                    .filter(id -> !diagnoses.containsKey(id))
+                    .sorted()
+                    .collect(Collectors.toList());
+            if (!missingDiagnosesIds.isEmpty()) {
+                messages.add("Diagnoses not found: " + missingDiagnosesIds);
+            }
+
+            if (!messages.isEmpty()) {
+                errors.put(i, messages);
+                continue;
+            }
+
+            Visit visit = new Visit();
+            visit.setPatient(patient);
+            visit.setDoctor(doctor);
+            visit.setHealthSystem(healthSystem);
+            visit.setVisitDate(visitRequest.getVisitDate());
+            visit.setDiagnoses(visitRequest.getDiagnosesIds()
+                    .stream()
+                    .map(diagnoses::get)
+                    .collect(Collectors.toSet()));
+            visits.add(visit);
+        }
+
+        List<Visit> savedVisits = visitRepository.saveAll(visits);
+        incomeLedgerService.recordVisits(savedVisits);
+
+        return new VisitBatchResponse(
+                savedVisits.stream().map(Visit::getId).collect(Collectors.toList()),
+                errors.entrySet()
+                        .stream()
+                        .map(entry -> new VisitBatchError(entry.getKey(), entry.getValue()))
+                        .collect(Collectors.toList()));
+    }
+
+    // The same constraints as @Valid on POST /visits, but collected per item instead of failing the request
+    private List<String> validate(VisitRequest visitRequest) {
+        if (visitRequest == null) {
+            return List.of("Visit cannot be null");
+        }
+
+        return validator.validate(visitRequest)
+                .stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private static Set<Long> collectIds(List<VisitRequest> visitRequests, Function<VisitRequest, Long> idOf) {
+        return visitRequests.stream()
+                .map(idOf)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.medicalrecordsproject.service.impl;
+
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
+import com.example.medicalrecordsproject.data.entities.Visit;
+import com.example.medicalrecordsproject.data.repositories.VisitRepository;
+import com.example.medicalrecordsproject.service.VisitExportService;
+import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class VisitExportServiceImpl implements VisitExportService {
+
+    // The visits are written in chunks of one fetched block of rows. The diagnoses of a chunk are loaded
+    // with one query and the persistence context is cleared after each chunk, so the memory used
+    // doesn't grow with the number of exported visits.
+    static final int CHUNK_SIZE = Integer.parseInt(VisitRepository.EXPORT_FETCH_SIZE);
+
+    private static final int NEW_LINE = '\n';
+
+    private final VisitRepository visitRepository;
+
+    private final MapperUtil mapperUtil;
+
+    private final EntityManager entityManager;
+
+    private final ObjectWriter visitWriter;
+
+    public VisitExportServiceImpl(VisitRepository visitRepository, MapperUtil mapperUtil,
+                                  EntityManager entityManager, ObjectMapper objectMapper) {
+        this.visitRepository = visitRepository;
+        this.mapperUtil = mapperUtil;
+        this.entityManager = entityManager;
+        // The output stream stays open between lines and is closed by the caller
+        this.visitWriter = objectMapper.writerFor(VisitResponse.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportVisits(LocalDate since, OutputStream outputStream) throws IOException {
+        try (Stream<Visit> visits = since == null
+                ? visitRepository.streamAll()
+                : visitRepository.streamAllSince(since)) {
+
+            List<Visit> chunk = new ArrayList<>(CHUNK_SIZE);
+            Iterator<Visit> iterator = visits.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == CHUNK_SIZE) {
+                    writeChunk(chunk, outputStream);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(chunk, outputStream);
+            }
+        }
+    }
+
+    private void writeChunk(List<Visit> chunk, OutputStream outputStream) throws IOException {
+        visitRepository.fetchDiagnoses(chunk);
+        for (Visit visit : chunk) {
+            visitWriter.writeValue(outputStream, mapperUtil.map(visit, VisitResponse.class));
+            outputStream.write(NEW_LINE);
+        }
+        outputStream.flush();
+
+        entityManager.clear();
+        chunk.clear();
+    }
+}
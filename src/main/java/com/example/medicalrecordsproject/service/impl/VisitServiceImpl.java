@@ -1,18 +1,35 @@
 package com.example.medicalrecordsproject.service.impl;
 
+import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisResponse;
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorCaseloadResponse;
+import com.example.medicalrecordsproject.data.dtos.incomes.DoctorIncomeResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.data.dtos.visits.VisitRequest;
 import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
 import com.example.medicalrecordsproject.data.entities.*;
 import com.example.medicalrecordsproject.data.repositories.*;
 import com.example.medicalrecordsproject.exceptions.*;
 import com.example.medicalrecordsproject.service.*;
+import com.example.medicalrecordsproject.utils.BulkLookup;
+import com.example.medicalrecordsproject.utils.ChildRows;
+import com.example.medicalrecordsproject.utils.KeysetCursor;
 import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.example.medicalrecordsproject.utils.Paging;
+import com.example.medicalrecordsproject.utils.ReferenceCache;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
+import com.example.medicalrecordsproject.utils.SingleFlightCache;
+import com.example.medicalrecordsproject.utils.VisitAggregates;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.util.HashSet;
+import java.sql.Date;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class VisitServiceImpl implements VisitService {
@@ -29,24 +46,48 @@ public class VisitServiceImpl implements VisitService {
 
     private final HealthSystemRepository healthSystemRepository;
 
+    private final IncomeLedgerService incomeLedgerService;
+
+    private final DoctorIncomeIndexService doctorIncomeIndexService;
+
+    private final ReferenceCache<Diagnosis> diagnosisCache;
+
+    private final ReferenceCache<HealthSystem> healthSystemCache;
+
+    private final SingleFlightCache<String, BigDecimal> incomes;
+
+    private final SingleFlightCache<String, Integer> visitCounts;
+
     public VisitServiceImpl(VisitRepository visitRepository, MapperUtil mapperUtil,
                             PatientRepository patientRepository, DoctorRepository doctorRepository,
-                            DiagnosisRepository diagnosisRepository, HealthSystemRepository healthSystemRepository) {
+                            DiagnosisRepository diagnosisRepository, HealthSystemRepository healthSystemRepository,
+                            IncomeLedgerService incomeLedgerService, DoctorIncomeIndexService doctorIncomeIndexService,
+                            ReferenceCaches referenceCaches, VisitAggregates visitAggregates) {
         this.visitRepository = visitRepository;
         this.mapperUtil = mapperUtil;
         this.patientRepository = patientRepository;
         this.doctorRepository = doctorRepository;
         this.diagnosisRepository = diagnosisRepository;
         this.healthSystemRepository = healthSystemRepository;
+        this.incomeLedgerService = incomeLedgerService;
+        this.doctorIncomeIndexService = doctorIncomeIndexService;
+        this.diagnosisCache = referenceCaches.diagnoses();
+        this.healthSystemCache = referenceCaches.healthSystems();
+        this.incomes = visitAggregates.incomes();
+        this.visitCounts = visitAggregates.visitCounts();
     }
 
     @Override
+    @Transactional
     public VisitResponse createVisit(VisitRequest visitRequest) {
 
         Visit visit = new Visit();
         mapVisitRequestToVisit(visitRequest, visit);
 
-        return mapperUtil.modelMapper().map(visitRepository.save(visit), VisitResponse.class);
+        Visit savedVisit = visitRepository.save(visit);
+        incomeLedgerService.recordVisit(savedVisit);
+
+        return mapperUtil.map(savedVisit, VisitResponse.class);
     }
 
     public void mapVisitRequestToVisit(VisitRequest visitRequest, Visit visit) {
@@ -57,89 +98,192 @@ public class VisitServiceImpl implements VisitService {
                 .orElseThrow(() -> new EntityNotFoundException("Patient not found")));
         visit.setDoctor(doctorRepository.findById(visitRequest.getDoctorId())
                 .orElseThrow(() -> new EntityNotFoundException("Doctor not found")));
-        visit.setHealthSystem(healthSystemRepository.findById(visitRequest.getHealthSystemId())
+        visit.setHealthSystem(healthSystemCache.get(visitRequest.getHealthSystemId(), healthSystemRepository::findById)
                 .orElseThrow(() -> new EntityNotFoundException("Health System not found")));
         visit.setVisitDate(visitRequest.getVisitDate());
         visit.setDiagnoses(diagnosesFromDiagnosesIds);
     }
 
     public Set<Diagnosis> getDiagnosesFromDiagnosesIds(VisitRequest visitRequest) {
-        Set<Diagnosis> diagnoses = new HashSet<>();
+        return BulkLookup.findAllByIds(ids -> diagnosisCache.getAllById(ids, diagnosisRepository::findAllById),
+                visitRequest.getDiagnosesIds(), "Diagnoses");
+    }
 
-        for (Long diagnosesId : visitRequest.getDiagnosesIds()) {
-            diagnoses.add(diagnosisRepository.findById(diagnosesId)
-                    .orElseThrow(() -> new EntityNotFoundException("Diagnosis not found")));
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<VisitResponse> getVisitsPage(int limit, String after) {
+        int pageSize = Paging.checkLimit(limit);
+
+        List<VisitResponse> visits;
+        if (after == null) {
+            visits = visitRepository.findFirstResponses(Paging.firstRows(pageSize));
+        } else {
+            KeysetCursor cursor = KeysetCursor.decodeDateAndId(after);
+            visits = visitRepository.findResponsesAfter(cursor.getDate(), cursor.getId(), Paging.firstRows(pageSize));
         }
 
-        return diagnoses;
+        return withDiagnoses(Paging.toPage(visits, pageSize,
+                Function.identity(),
+                visit -> KeysetCursor.of(visit.getVisitDate(), visit.getId())));
     }
 
+    // The counts and the page come from one statement, then the diagnoses of the page from one more.
+    // Whether the doctor exists is only checked when there is no matching visit.
     @Override
-    public List<VisitResponse> getAllVisits() {
-        return mapperUtil.mapList(visitRepository.findAll(), VisitResponse.class);
+    @Transactional(readOnly = true)
+    public DoctorCaseloadResponse getDoctorCaseload(Long doctorId, LocalDate from, LocalDate to, Long diagnosisId,
+                                                    Boolean insured, int limit, String after) {
+        if (from.isAfter(to)) {
+            throw new InvalidPageRequestException("The start of the period cannot be after its end");
+        }
+        int pageSize = Paging.checkLimit(limit);
+        KeysetCursor cursor = after == null ? null : KeysetCursor.decodeDateAndId(after);
+        boolean fromStart = cursor == null || cursor.getDate().isBefore(from);
+
+        List<Object[]> rows = visitRepository.findCaseloadRows(doctorId, from, to, diagnosisId, insured,
+                fromStart ? from : cursor.getDate(), fromStart ? 0L : cursor.getId(), pageSize + 1);
+
+        // row[0] = matching visits, row[1] = of them by insured patients, row[2] = distinct patients,
+        // row[3] = visitId, row[4] = patientId, row[5] = visit date, null when the page is empty
+        Object[] counts = rows.get(0);
+        long totalVisits = ((Number) counts[0]).longValue();
+        if (totalVisits == 0 && !doctorRepository.existsById(doctorId)) {
+            throw new EntityNotFoundException("Doctor not found");
+        }
+        List<VisitResponse> visits = rows.stream()
+                .filter(row -> row[3] != null)
+                .map(row -> new VisitResponse(((Number) row[3]).longValue(), ((Number) row[4]).longValue(),
+                        doctorId, toLocalDate(row[5])))
+                .collect(Collectors.toList());
+
+        CursorPage<VisitResponse> page = withDiagnoses(Paging.toPage(visits, pageSize,
+                Function.identity(),
+                visit -> KeysetCursor.of(visit.getVisitDate(), visit.getId())));
+        return new DoctorCaseloadResponse(totalVisits, ((Number) counts[1]).longValue(),
+                ((Number) counts[2]).longValue(), page.getItems(), page.getNextCursor());
+    }
+
+    // Native queries return the dates as java.sql.Date
+    private static LocalDate toLocalDate(Object date) {
+        return date instanceof Date ? ((Date) date).toLocalDate() : (LocalDate) date;
+    }
+
+    // Adds the diagnoses of the visits of the page with one query
+    private CursorPage<VisitResponse> withDiagnoses(CursorPage<VisitResponse> page) {
+        if (!page.getItems().isEmpty()) {
+            List<Long> visitIds = page.getItems().stream().map(VisitResponse::getId).collect(Collectors.toList());
+            withDiagnoses(page.getItems(), visitRepository.findDiagnosisRows(visitIds));
+        }
+        return page;
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public CursorPage<VisitResponse> getVisitsOfPatientPage(Long patientId, int limit, String after) {
+        int pageSize = Paging.checkLimit(limit);
+        KeysetCursor cursor = after == null ? null : KeysetCursor.decodeDateAndId(after);
+        if (!patientRepository.existsById(patientId)) {
+            throw new EntityNotFoundException("Patient not found");
+        }
+
+        // Newest first, the next page starts before the last visit of this one
+        List<VisitResponse> visits = cursor == null
+                ? visitRepository.findLatestResponsesOfPatient(patientId, Paging.firstRows(pageSize))
+                : visitRepository.findResponsesOfPatientBefore(patientId, cursor.getDate(), cursor.getId(),
+                Paging.firstRows(pageSize));
+
+        return withDiagnoses(Paging.toPage(visits, pageSize,
+                Function.identity(),
+                visit -> KeysetCursor.of(visit.getVisitDate(), visit.getId())));
+    }
+
+    // Rows of (visitId, diagnosisId, diagnosis name)
+    private static List<VisitResponse> withDiagnoses(List<VisitResponse> visits, List<Object[]> diagnosisRows) {
+        Map<Long, Set<DiagnosisResponse>> diagnoses = ChildRows.groupByOwner(diagnosisRows, DiagnosisResponse::new);
+        for (VisitResponse visit : visits) {
+            visit.setDiagnoses(ChildRows.of(diagnoses, visit.getId()));
+        }
+        return visits;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public VisitResponse getVisitById(Long id) {
-        return mapperUtil.modelMapper()
-                .map(visitRepository
-                                .findById(id)
-                                .orElseThrow(() -> new EntityNotFoundException("Visit not found"))
-                        , VisitResponse.class);
+        return mapperUtil.map(visitRepository
+                        .findWithDiagnosesById(id)
+                        .orElseThrow(() -> new EntityNotFoundException("Visit not found"))
+                , VisitResponse.class);
     }
 
     @Override
+    @Transactional
     public VisitResponse updateVisit(Long id, VisitRequest visitRequest) {
         Visit visit = this.visitRepository
                 .findById(id).orElseThrow(() -> new EntityNotFoundException("Visit not found"));
 
+        // The old doctor, patient, fee and date are kept for the ledger before the request overwrites them
+        Visit before = new Visit();
+        before.setDoctor(visit.getDoctor());
+        before.setPatient(visit.getPatient());
+        before.setHealthSystem(visit.getHealthSystem());
+        before.setVisitDate(visit.getVisitDate());
         mapVisitRequestToVisit(visitRequest, visit);
 
-        return mapperUtil.modelMapper().map(visitRepository.save(visit), VisitResponse.class);
+        Visit savedVisit = visitRepository.save(visit);
+        incomeLedgerService.moveVisit(before, savedVisit);
+
+        return mapperUtil.map(savedVisit, VisitResponse.class);
     }
 
     @Override
+    @Transactional
     public void deleteVisit(Long id) {
         Visit visit = this.visitRepository
                 .findById(id).orElseThrow(() -> new EntityNotFoundException("Visit not found"));
 
+        incomeLedgerService.removeVisit(visit);
         visitRepository.delete(visit);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public BigDecimal getTotalIncomeFromVisits() {
-        return visitRepository.findAll().stream()
-                .map(visit -> visit.getHealthSystem().getNoInsuranceFee())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return incomes.get("total", incomeLedgerService::getTotalIncome);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public BigDecimal getTotalIncomeFromVisitsOfDoctor(Long doctorId) {
-        doctorRepository.findById(doctorId)
-                .orElseThrow(() -> new EntityNotFoundException("Doctor not found"));
+        checkDoctorExists(doctorId);
 
-        return visitRepository.findAllByDoctorId(doctorId).stream()
-                .map(visit -> visit.getHealthSystem().getNoInsuranceFee())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return incomeLedgerService.getIncomeOfDoctor(doctorId);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public int getCountVisitsOfPatient(Long patientId) {
-        patientRepository.findById(patientId)
-                .orElseThrow(() -> new EntityNotFoundException("Patient not found"));
+        // Concurrent calls for the same patient share the check and the count
+        return visitCounts.get("patient:" + patientId, () -> {
+            patientRepository.findById(patientId)
+                    .orElseThrow(() -> new EntityNotFoundException("Patient not found"));
 
-        return visitRepository.countAllByPatientId(patientId);
+            return visitRepository.countAllByPatientId(patientId);
+        });
     }
 
     @Override
+    @Transactional(readOnly = true)
     public int getCountVisitsByDiagnosis(Long diagnosisId) {
-        diagnosisRepository.findById(diagnosisId)
-                .orElseThrow(() -> new EntityNotFoundException("Diagnosis not found"));
+        return visitCounts.get("diagnosis:" + diagnosisId, () -> {
+            diagnosisRepository.findById(diagnosisId)
+                    .orElseThrow(() -> new EntityNotFoundException("Diagnosis not found"));
 
-        return visitRepository.countAllByDiagnosisId(diagnosisId);
+            return visitRepository.countAllByDiagnosisId(diagnosisId);
+        });
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Integer getCountDoctorsBiggerIncome(BigDecimal minIncome) {
         // method with native Query:
 //        return visitRepository.getCountDoctorsBiggerIncome(minIncome);
@@ -147,35 +291,54 @@ public class VisitServiceImpl implements VisitService {
             throw new NegativeIncomeException("The minimal income cannot be negative");
         }
 
-        List<Object[]> rows = visitRepository.getAllDoctorsBiggerIncome(minIncome);
-        return rows.size();
+        return doctorIncomeIndexService.countDoctorsAbove(minIncome);
     }
 
     @Override
-    public BigDecimal getTotalIncomeFromVisitsByDiagnosis(Long diagnosisId) {
-        // If the given Diagnosis doesn't exist -> Exception
-        diagnosisRepository.findById(diagnosisId)
-                .orElseThrow(() -> new EntityNotFoundException("Diagnosis not found"));
+    @Transactional(readOnly = true)
+    public List<DoctorIncomeResponse> getTopDoctorsByIncome(int limit) {
+        return doctorIncomeIndexService.getTopDoctors(Paging.checkLimit(limit));
+    }
 
-        return visitRepository.findAllVisitsByDiagnosis(diagnosisId).stream()
-                .map(visit -> visit.getHealthSystem().getNoInsuranceFee())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    @Override
+    @Transactional(readOnly = true)
+    public BigDecimal getIncomePercentileRankOfDoctor(Long doctorId) {
+        checkDoctorExists(doctorId);
+
+        return doctorIncomeIndexService.getPercentileRank(doctorId);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public BigDecimal getTotalIncomeFromVisitsByDiagnosis(Long diagnosisId) {
+        return incomes.get("diagnosis:" + diagnosisId, () -> {
+            // If the given Diagnosis doesn't exist -> Exception
+            if (!diagnosisRepository.existsById(diagnosisId)) {
+                throw new EntityNotFoundException("Diagnosis not found");
+            }
+
+            return visitRepository.getTotalIncomeByDiagnosisId(diagnosisId);
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public BigDecimal getTotalIncomeFromPatientsNoInsurance() {
-        return visitRepository.findAllByPatient_HasInsuranceFalse().stream()
-                .map(visit -> visit.getHealthSystem().getNoInsuranceFee())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return incomes.get("patients-no-insurance", visitRepository::getTotalIncomeFromPatientsNoInsurance);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public BigDecimal getTotalIncomeByDoctorInsuredPatients(Long doctorId) {
-        doctorRepository.findById(doctorId)
-                .orElseThrow(() -> new EntityNotFoundException("Doctor not found"));
+        checkDoctorExists(doctorId);
+
+        return incomeLedgerService.getInsuredIncomeOfDoctor(doctorId);
+    }
 
-        return visitRepository.findAllByDoctorIdAndPatient_HasInsuranceTrue(doctorId).stream()
-                .map(visit -> visit.getHealthSystem().getNoInsuranceFee())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // Checks that the Doctor exists without loading the entity
+    private void checkDoctorExists(Long doctorId) {
+        if (!doctorRepository.existsById(doctorId)) {
+            throw new EntityNotFoundException("Doctor not found");
+        }
     }
 }
@@ -0,0 +1,52 @@
+package com.example.medicalrecordsproject.utils;
+
+import com.example.medicalrecordsproject.data.entities.BaseEntity;
+import com.example.medicalrecordsproject.exceptions.EntitiesNotFoundException;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public final class BulkLookup {
+
+    private BulkLookup() {
+    }
+
+    // Loads all entities with the given ids with one call to the loader, e.g. repository::findAllById (one IN query).
+    // If some of them don't exist, throws EntitiesNotFoundException listing every missing id.
+    public static <T extends BaseEntity> Set<T> findAllByIds(Function<Set<Long>, ? extends Collection<T>> loader,
+                                                             Set<Long> ids, String entitiesName) {
+        if (ids == null || ids.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        Set<T> found = new HashSet<>(loader.apply(ids));
+        if (found.size() < ids.size()) {
+            Set<Long> foundIds = found.stream().map(BaseEntity::getId).collect(Collectors.toSet());
+            List<Long> missingIds = ids.stream()
+                    .filter(id -> !foundIds.contains(id))
+                    .sorted()
+                    .collect(Collectors.toList());
+
+            throw new EntitiesNotFoundException(entitiesName + " not found: " + missingIds, missingIds);
+        }
+
+        return found;
+    }
+
+    // Loads all entities with the given ids with one call to the loader, keyed by id. Ids that don't exist have no entry.
+    public static <T extends BaseEntity> Map<Long, T> findAllByIdsAsMap(Function<Set<Long>, ? extends Collection<T>> loader,
+                                                                        Set<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+
+        return loader.apply(ids)
+                .stream()
+                .collect(Collectors.toMap(BaseEntity::getId, Function.identity()));
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.medicalrecordsproject.utils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+// The list reads build their responses with constructor expressions, which can't hold a collection.
+// The collection is read as (owner id, child id, child name) rows instead and grouped here.
+public final class ChildRows {
+
+    private ChildRows() {
+    }
+
+    // Every child gets one response, shared by all of its owners
+    public static <R> Map<Long, Set<R>> groupByOwner(List<Object[]> rows, BiFunction<Long, String, R> child) {
+        Map<Long, R> children = new HashMap<>();
+        Map<Long, Set<R>> byOwner = new HashMap<>();
+        for (Object[] row : rows) {
+            R response = children.computeIfAbsent((Long) row[1], id -> child.apply(id, (String) row[2]));
+            byOwner.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add(response);
+        }
+        return byOwner;
+    }
+
+    // The owners without rows get an empty set, like an empty collection mapped from the entity
+    public static <R> Set<R> of(Map<Long, Set<R>> byOwner, Long ownerId) {
+        Set<R> children = byOwner.get(ownerId);
+        return children != null ? children : new HashSet<>();
+    }
+}
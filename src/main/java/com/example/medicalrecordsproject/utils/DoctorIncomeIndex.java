@@ -0,0 +1,187 @@
+package com.example.medicalrecordsproject.utils;
+
+import com.example.medicalrecordsproject.data.dtos.incomes.DoctorIncomeResponse;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * The income of every doctor kept in two arrays sorted by (income, doctor id), so the threshold,
+ * top N and percentile rank questions are answered with a binary search instead of a GROUP BY over all visits.
+ * Readers use the current snapshot without locking. A change copies the arrays, which is linear in the number
+ * of doctors, and is cheap because there are far fewer doctors than visits.
+ */
+public class DoctorIncomeIndex {
+
+    private static final class Snapshot {
+
+        private final long[] doctorIds;
+
+        private final BigDecimal[] incomes;
+
+        private final Map<Long, BigDecimal> incomeByDoctor;
+
+        private Snapshot(long[] doctorIds, BigDecimal[] incomes, Map<Long, BigDecimal> incomeByDoctor) {
+            this.doctorIds = doctorIds;
+            this.incomes = incomes;
+            this.incomeByDoctor = incomeByDoctor;
+        }
+    }
+
+    private volatile Snapshot snapshot = new Snapshot(new long[0], new BigDecimal[0], Map.of());
+
+    public synchronized void replaceAll(Map<Long, BigDecimal> incomeByDoctor) {
+        List<Map.Entry<Long, BigDecimal>> entries = new ArrayList<>(incomeByDoctor.entrySet());
+        entries.sort(Map.Entry.<Long, BigDecimal>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+
+        long[] doctorIds = new long[entries.size()];
+        BigDecimal[] incomes = new BigDecimal[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            doctorIds[i] = entries.get(i).getKey();
+            incomes[i] = entries.get(i).getValue();
+        }
+        snapshot = new Snapshot(doctorIds, incomes, new HashMap<>(incomeByDoctor));
+    }
+
+    // Adds a (possibly negative) amount to the income of the doctor, a doctor not in the index starts at zero
+    public synchronized void add(long doctorId, BigDecimal amount) {
+        set(doctorId, getIncome(doctorId).add(amount));
+    }
+
+    public synchronized void set(long doctorId, BigDecimal newIncome) {
+        Snapshot current = snapshot;
+        BigDecimal oldIncome = current.incomeByDoctor.get(doctorId);
+        int size = current.doctorIds.length;
+
+        long[] doctorIds;
+        BigDecimal[] incomes;
+        if (oldIncome == null) {
+            doctorIds = new long[size + 1];
+            incomes = new BigDecimal[size + 1];
+            System.arraycopy(current.doctorIds, 0, doctorIds, 0, size);
+            System.arraycopy(current.incomes, 0, incomes, 0, size);
+        } else {
+            // Take the doctor out, the arrays stay sorted
+            int oldPosition = positionOf(current, oldIncome, doctorId);
+            doctorIds = Arrays.copyOf(current.doctorIds, size);
+            incomes = Arrays.copyOf(current.incomes, size);
+            System.arraycopy(doctorIds, oldPosition + 1, doctorIds, oldPosition, size - oldPosition - 1);
+            System.arraycopy(incomes, oldPosition + 1, incomes, oldPosition, size - oldPosition - 1);
+            size--;
+        }
+
+        // Put it back at the position of the new income
+        int newPosition = insertionPoint(doctorIds, incomes, size, newIncome, doctorId);
+        System.arraycopy(doctorIds, newPosition, doctorIds, newPosition + 1, size - newPosition);
+        System.arraycopy(incomes, newPosition, incomes, newPosition + 1, size - newPosition);
+        doctorIds[newPosition] = doctorId;
+        incomes[newPosition] = newIncome;
+
+        Map<Long, BigDecimal> incomeByDoctor = new HashMap<>(current.incomeByDoctor);
+        incomeByDoctor.put(doctorId, newIncome);
+        snapshot = new Snapshot(doctorIds, incomes, incomeByDoctor);
+    }
+
+    public synchronized void remove(long doctorId) {
+        Snapshot current = snapshot;
+        BigDecimal income = current.incomeByDoctor.get(doctorId);
+        if (income == null) {
+            return;
+        }
+
+        int size = current.doctorIds.length;
+        int position = positionOf(current, income, doctorId);
+        long[] doctorIds = new long[size - 1];
+        BigDecimal[] incomes = new BigDecimal[size - 1];
+        System.arraycopy(current.doctorIds, 0, doctorIds, 0, position);
+        System.arraycopy(current.incomes, 0, incomes, 0, position);
+        System.arraycopy(current.doctorIds, position + 1, doctorIds, position, size - position - 1);
+        System.arraycopy(current.incomes, position + 1, incomes, position, size - position - 1);
+
+        Map<Long, BigDecimal> incomeByDoctor = new HashMap<>(current.incomeByDoctor);
+        incomeByDoctor.remove(doctorId);
+        snapshot = new Snapshot(doctorIds, incomes, incomeByDoctor);
+    }
+
+    public int size() {
+        return snapshot.doctorIds.length;
+    }
+
+    public BigDecimal getIncome(long doctorId) {
+        return snapshot.incomeByDoctor.getOrDefault(doctorId, BigDecimal.ZERO);
+    }
+
+    public int countAbove(BigDecimal threshold) {
+        Snapshot current = snapshot;
+        return current.incomes.length - countAtMost(current.incomes, threshold);
+    }
+
+    public List<DoctorIncomeResponse> top(int count) {
+        Snapshot current = snapshot;
+        int size = current.doctorIds.length;
+        List<DoctorIncomeResponse> top = new ArrayList<>(Math.min(count, size));
+        for (int i = size - 1; i >= 0 && i >= size - count; i--) {
+            top.add(new DoctorIncomeResponse(current.doctorIds[i], current.incomes[i]));
+        }
+        return top;
+    }
+
+    // Percent of the doctors in the index whose income is lower than the given one
+    public BigDecimal percentileRank(BigDecimal income) {
+        Snapshot current = snapshot;
+        if (current.incomes.length == 0) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        return BigDecimal.valueOf(countBelow(current.incomes, income) * 100L)
+                .divide(BigDecimal.valueOf(current.incomes.length), 2, RoundingMode.HALF_UP);
+    }
+
+    private static int countAtMost(BigDecimal[] incomes, BigDecimal income) {
+        int low = 0;
+        int high = incomes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (incomes[middle].compareTo(income) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int countBelow(BigDecimal[] incomes, BigDecimal income) {
+        int low = 0;
+        int high = incomes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (incomes[middle].compareTo(income) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int positionOf(Snapshot current, BigDecimal income, long doctorId) {
+        return insertionPoint(current.doctorIds, current.incomes, current.doctorIds.length, income, doctorId);
+    }
+
+    // First position whose (income, doctor id) is not smaller than the given one
+    private static int insertionPoint(long[] doctorIds, BigDecimal[] incomes, int size, BigDecimal income, long doctorId) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int compared = incomes[middle].compareTo(income);
+            if (compared < 0 || compared == 0 && doctorIds[middle] < doctorId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.medicalrecordsproject.utils;
+
+import com.example.medicalrecordsproject.exceptions.InvalidPageRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * The key of the last row of a page: the id alone, or the visit date and the id for visits.
+ * Clients get it as an opaque string and send it back unchanged in the "after" parameter.
+ */
+public class KeysetCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private final LocalDate date;
+
+    private final Long id;
+
+    private KeysetCursor(LocalDate date, Long id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public static KeysetCursor of(Long id) {
+        return new KeysetCursor(null, id);
+    }
+
+    public static KeysetCursor of(LocalDate date, Long id) {
+        return new KeysetCursor(date, id);
+    }
+
+    public static KeysetCursor decodeId(String cursor) {
+        return of(parseId(decode(cursor)));
+    }
+
+    public static KeysetCursor decodeDateAndId(String cursor) {
+        String[] parts = decode(cursor).split(SEPARATOR);
+        if (parts.length != 2) {
+            throw new InvalidPageRequestException("Invalid cursor");
+        }
+        try {
+            return of(LocalDate.parse(parts[0]), parseId(parts[1]));
+        } catch (DateTimeParseException e) {
+            throw new InvalidPageRequestException("Invalid cursor");
+        }
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String key = date == null ? String.valueOf(id) : date + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("Invalid cursor");
+        }
+    }
+
+    private static Long parseId(String id) {
+        try {
+            return Long.valueOf(id);
+        } catch (NumberFormatException e) {
+            throw new InvalidPageRequestException("Invalid cursor");
+        }
+    }
+}
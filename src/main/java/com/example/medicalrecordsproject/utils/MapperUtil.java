@@ -1,21 +1,126 @@
 package com.example.medicalrecordsproject.utils;
 
+import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisRequest;
+import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisResponse;
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorRequest;
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse;
+import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemRequest;
+import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemResponse;
+import com.example.medicalrecordsproject.data.dtos.patients.PatientRequest;
+import com.example.medicalrecordsproject.data.dtos.patients.PatientResponse;
+import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyRequest;
+import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyResponse;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitRequest;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
+import com.example.medicalrecordsproject.data.entities.*;
+import com.example.medicalrecordsproject.utils.mappers.GeneratedMappers;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Component
 public class MapperUtil {
+
+    // One ModelMapper for the whole application. Once all TypeMaps are registered the mapper
+    // is only read from, so it is safe to share it between request threads.
+    private final ModelMapper modelMapper;
+
+    // MapStruct mappers generated at compile time, used instead of ModelMapper when mapper.use-generated is set
+    private final GeneratedMappers generatedMappers;
+
+    @Value("${mapper.validate-on-startup:false}")
+    private boolean validateOnStartup;
+
+    @Value("${mapper.use-generated:false}")
+    private boolean useGenerated;
+
+    public MapperUtil() {
+        this.modelMapper = new ModelMapper();
+        this.generatedMappers = new GeneratedMappers();
+        registerTypeMaps(this.modelMapper);
+    }
+
     public ModelMapper modelMapper() {
-        return new ModelMapper();
+        return modelMapper;
+    }
+
+    public <T> T map(Object source, Class<T> target) {
+        if (useGenerated) {
+            return generatedMappers.map(source, target);
+        }
+        return modelMapper.map(source, target);
+    }
+
+    public void map(Object source, Object destination) {
+        if (useGenerated) {
+            generatedMappers.map(source, destination);
+        } else {
+            modelMapper.map(source, destination);
+        }
     }
 
     public <S, T> List<T> mapList(List<S> sourceList, Class<T> target) {
         return sourceList
                 .stream()
-                .map(item -> modelMapper().map(item, target))
+                .map(item -> map(item, target))
                 .collect(Collectors.toList());
     }
+
+    // Throws org.modelmapper.ValidationException listing every destination property
+    // that has no source, so a DTO change that breaks the mapping stops the application at startup.
+    @PostConstruct
+    public void validateTypeMaps() {
+        if (validateOnStartup) {
+            modelMapper.validate();
+        }
+    }
+
+    private static void registerTypeMaps(ModelMapper modelMapper) {
+        // Entity -> Response
+        modelMapper.createTypeMap(Specialty.class, SpecialtyResponse.class);
+        modelMapper.createTypeMap(Diagnosis.class, DiagnosisResponse.class);
+        modelMapper.createTypeMap(HealthSystem.class, HealthSystemResponse.class);
+        modelMapper.createTypeMap(Patient.class, PatientResponse.class);
+        modelMapper.emptyTypeMap(Doctor.class, DoctorResponse.class)
+                .addMappings(mapper -> mapper.skip(DoctorResponse::setMessage))
+                .implicitMappings();
+        modelMapper.createTypeMap(Visit.class, VisitResponse.class);
+
+        // Request -> Entity. The id always comes from the database and the relations are
+        // resolved by the services, so they are never taken from the request.
+        modelMapper.emptyTypeMap(SpecialtyRequest.class, Specialty.class)
+                .addMappings(mapper -> mapper.skip(Specialty::setId))
+                .implicitMappings();
+        modelMapper.emptyTypeMap(DiagnosisRequest.class, Diagnosis.class)
+                .addMappings(mapper -> mapper.skip(Diagnosis::setId))
+                .implicitMappings();
+        modelMapper.emptyTypeMap(HealthSystemRequest.class, HealthSystem.class)
+                .addMappings(mapper -> mapper.skip(HealthSystem::setId))
+                .implicitMappings();
+        modelMapper.emptyTypeMap(DoctorRequest.class, Doctor.class)
+                .addMappings(mapper -> {
+                    mapper.skip(Doctor::setId);
+                    mapper.skip(Doctor::setSpecialties);
+                })
+                .implicitMappings();
+        modelMapper.emptyTypeMap(PatientRequest.class, Patient.class)
+                .addMappings(mapper -> {
+                    mapper.skip(Patient::setId);
+                    mapper.skip(Patient::setGp);
+                })
+                .implicitMappings();
+        modelMapper.emptyTypeMap(VisitRequest.class, Visit.class)
+                .addMappings(mapper -> {
+                    mapper.skip(Visit::setId);
+                    mapper.skip(Visit::setPatient);
+                    mapper.skip(Visit::setDoctor);
+                    mapper.skip(Visit::setDiagnoses);
+                    mapper.skip(Visit::setHealthSystem);
+                })
+                .implicitMappings();
+    }
 }
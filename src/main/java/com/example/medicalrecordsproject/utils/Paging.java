@@ -0,0 +1,59 @@
+package com.example.medicalrecordsproject.utils;
+
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
+import com.example.medicalrecordsproject.exceptions.InvalidPageRequestException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Helpers for the keyset paged list endpoints. A page is read with a seek query
+// (WHERE key > last key ORDER BY key LIMIT n), never with OFFSET.
+public final class Paging {
+
+    // Used when the client doesn't send a limit, so old clients get a bounded response too
+    public static final String DEFAULT_LIMIT = "100";
+
+    public static final int MAX_LIMIT = 1000;
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private Paging() {
+    }
+
+    public static int checkLimit(int limit) {
+        if (limit < 1) {
+            throw new InvalidPageRequestException("The limit must be at least 1");
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    // One row more than the page size is read to know if there is a next page
+    public static Pageable firstRows(int limit) {
+        return PageRequest.of(0, limit + 1);
+    }
+
+    public static <E, R> CursorPage<R> toPage(List<E> rows, int limit,
+                                              Function<E, R> mapper, Function<E, KeysetCursor> keyOf) {
+        List<E> pageRows = rows.size() > limit ? rows.subList(0, limit) : rows;
+        String nextCursor = rows.size() > limit ? keyOf.apply(pageRows.get(limit - 1)).encode() : null;
+
+        return new CursorPage<>(pageRows.stream().map(mapper).collect(Collectors.toList()), nextCursor);
+    }
+
+    // The body stays a plain JSON array as before, the cursor of the next page is sent in a header
+    public static <T> ResponseEntity<List<T>> toResponse(CursorPage<T> page) {
+        return toResponse(page.getItems(), page.getNextCursor());
+    }
+
+    public static <T> ResponseEntity<T> toResponse(T body, String nextCursor) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.body(body);
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.medicalrecordsproject.utils;
+
+import com.example.medicalrecordsproject.data.dtos.caches.CacheStatsResponse;
+import com.example.medicalrecordsproject.data.entities.BaseEntity;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded least recently used cache of the rows of a small table, keyed by id, plus the list of all rows
+ * when the whole table fits in the cache.
+ * The cached entities are shared between requests, so they must only be read. Services that change a row
+ * load it from the repository and call invalidate(id) afterwards.
+ */
+public class ReferenceCache<T extends BaseEntity> {
+
+    private final String name;
+
+    private final int maxSize;
+
+    // Guarded by this
+    private final LinkedHashMap<Long, T> entries;
+
+    // Every row ordered by id, or null when not loaded yet. Guarded by this
+    private List<T> all;
+
+    // Set when the table had more rows than maxSize the last time all rows were loaded. Guarded by this
+    private boolean tooLargeForAll;
+
+    // Incremented by every invalidation, so a load that started before it doesn't put stale rows back
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ReferenceCache(String name, int maxSize) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, T> eldest) {
+                if (size() > ReferenceCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Optional<T> get(Long id, Function<Long, Optional<T>> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            T cached = entries.get(id);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            misses.increment();
+            loadGeneration = generation;
+        }
+
+        Optional<T> loaded = loader.apply(id);
+        loaded.ifPresent(entity -> putAll(List.of(entity), loadGeneration));
+        return loaded;
+    }
+
+    // The entities with the given ids that exist. Only the ids that aren't cached are passed to the loader.
+    public List<T> getAllById(Collection<Long> ids, Function<Set<Long>, ? extends Collection<T>> loader) {
+        List<T> found = new ArrayList<>(ids.size());
+        Set<Long> missing = new HashSet<>();
+        long loadGeneration;
+        synchronized (this) {
+            for (Long id : ids) {
+                T cached = entries.get(id);
+                if (cached != null) {
+                    found.add(cached);
+                } else {
+                    missing.add(id);
+                }
+            }
+            hits.add(found.size());
+            misses.add(missing.size());
+            loadGeneration = generation;
+        }
+
+        if (!missing.isEmpty()) {
+            Collection<T> loaded = loader.apply(missing);
+            putAll(loaded, loadGeneration);
+            found.addAll(loaded);
+        }
+        return found;
+    }
+
+    // Every row ordered by id. The rows are only kept when the table fits in the cache.
+    public List<T> getAll(Supplier<List<T>> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            if (all != null) {
+                hits.increment();
+                return all;
+            }
+            misses.increment();
+            loadGeneration = generation;
+        }
+
+        List<T> loaded = loader.get()
+                .stream()
+                .sorted(Comparator.comparing(BaseEntity::getId))
+                .collect(Collectors.toUnmodifiableList());
+
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                tooLargeForAll = loaded.size() > maxSize;
+                if (!tooLargeForAll) {
+                    all = loaded;
+                    loaded.forEach(entity -> entries.put(entity.getId(), entity));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // The rows with id > afterId ordered by id, at most count of them. Served from the list of all rows,
+    // unless the table doesn't fit in the cache, then pageLoader is used.
+    public List<T> getPage(Long afterId, int count, Supplier<List<T>> allLoader, Supplier<List<T>> pageLoader) {
+        synchronized (this) {
+            if (tooLargeForAll) {
+                misses.increment();
+                return pageLoader.get();
+            }
+        }
+
+        return getAll(allLoader)
+                .stream()
+                .filter(entity -> entity.getId() > afterId)
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    // Called after a row was created, changed or deleted. When a transaction is active the row is removed
+    // again when it ends, so a request that read the old row before the commit can't keep it cached.
+    public void invalidate(Long id) {
+        remove(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove(id);
+                }
+            });
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        all = null;
+        tooLargeForAll = false;
+    }
+
+    public synchronized CacheStatsResponse stats() {
+        return new CacheStatsResponse(name, entries.size(), maxSize,
+                hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private synchronized void remove(Long id) {
+        generation++;
+        if (id != null) {
+            entries.remove(id);
+        }
+        all = null;
+        tooLargeForAll = false;
+    }
+
+    private synchronized void putAll(Collection<T> loaded, long loadGeneration) {
+        if (loadGeneration == generation) {
+            loaded.forEach(entity -> entries.put(entity.getId(), entity));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.medicalrecordsproject.utils;
+
+import com.example.medicalrecordsproject.data.dtos.caches.CacheStatsResponse;
+import com.example.medicalrecordsproject.data.entities.Diagnosis;
+import com.example.medicalrecordsproject.data.entities.HealthSystem;
+import com.example.medicalrecordsproject.data.entities.Specialty;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// The caches of the tables that are read by almost every request but rarely change
+@Component
+public class ReferenceCaches {
+
+    private final ReferenceCache<Specialty> specialties;
+
+    private final ReferenceCache<Diagnosis> diagnoses;
+
+    private final ReferenceCache<HealthSystem> healthSystems;
+
+    public ReferenceCaches(@Value("${reference-cache.max-size:1000}") int maxSize) {
+        this.specialties = new ReferenceCache<>("specialties", maxSize);
+        this.diagnoses = new ReferenceCache<>("diagnoses", maxSize);
+        this.healthSystems = new ReferenceCache<>("healthSystems", maxSize);
+    }
+
+    public ReferenceCache<Specialty> specialties() {
+        return specialties;
+    }
+
+    public ReferenceCache<Diagnosis> diagnoses() {
+        return diagnoses;
+    }
+
+    public ReferenceCache<HealthSystem> healthSystems() {
+        return healthSystems;
+    }
+
+    public List<CacheStatsResponse> stats() {
+        return List.of(specialties.stats(), diagnoses.stats(), healthSystems.stats());
+    }
+
+    public void invalidateAll() {
+        specialties.invalidateAll();
+        diagnoses.invalidateAll();
+        healthSystems.invalidateAll();
+    }
+}
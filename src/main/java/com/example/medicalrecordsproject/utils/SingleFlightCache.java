@@ -0,0 +1,151 @@
+package com.example.medicalrecordsproject.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Shares one computation between the concurrent calls with the same key: the first caller runs the loader
+ * and the others wait for its result instead of running the same query again. The result is then kept for
+ * the given time, a ttl of 0 only joins the calls that are in flight. A loader that throws isn't kept,
+ * its exception is thrown to every caller that was waiting for it.
+ * Every computation belongs to the generation it started in. invalidateAll() starts a new one, and the
+ * computations of an older generation are neither joined nor kept, even when they finish after the invalidation.
+ */
+public class SingleFlightCache<K, V> {
+
+    // Above this many keys the expired results are dropped whenever a new computation starts
+    private static final int PURGE_THRESHOLD = 1024;
+
+    private final long ttlNanos;
+
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder computations = new LongAdder();
+
+    private final LongAdder sharedCalls = new LongAdder();
+
+    public SingleFlightCache(long ttlMillis) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("The ttl can't be negative");
+        }
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        while (true) {
+            Flight<V> flight = flights.get(key);
+            if (flight != null && !flight.isExpired(ttlNanos, generation.get())) {
+                sharedCalls.increment();
+                return flight.join();
+            }
+
+            Flight<V> started = new Flight<>(generation.get());
+            boolean owner = flight == null
+                    ? flights.putIfAbsent(key, started) == null
+                    : flights.replace(key, flight, started);
+            if (owner) {
+                return compute(key, started, loader);
+            }
+            // another caller started a computation in between, join that one
+        }
+    }
+
+    // Called after a row the results depend on was created, changed or deleted. When a transaction is active
+    // the results are dropped again when it ends, so a computation that read the old rows before the commit
+    // can't keep them for the whole ttl.
+    public void invalidateAll() {
+        startGeneration();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    startGeneration();
+                }
+            });
+        }
+    }
+
+    // How many times a loader was run
+    public long getComputations() {
+        return computations.sum();
+    }
+
+    // How many calls got the result of another caller's computation, in flight or kept for the ttl
+    public long getSharedCalls() {
+        return sharedCalls.sum();
+    }
+
+    // Raised before the map is cleared, so a computation that gets past the clear is still recognised as old
+    private void startGeneration() {
+        generation.incrementAndGet();
+        flights.clear();
+    }
+
+    private V compute(K key, Flight<V> flight, Supplier<V> loader) {
+        if (flights.size() > PURGE_THRESHOLD) {
+            long current = generation.get();
+            flights.values().removeIf(other -> other.isExpired(ttlNanos, current));
+        }
+        computations.increment();
+
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+
+        flight.completedAt = System.nanoTime();
+        flight.result.complete(value);
+        if (ttlNanos == 0 || flight.generation != generation.get()) {
+            flights.remove(key, flight);
+        }
+        return value;
+    }
+
+    private static class Flight<V> {
+
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        private final long generation;
+
+        // Written before the result is completed, so it is visible to everyone who sees the result done
+        private long completedAt;
+
+        private Flight(long generation) {
+            this.generation = generation;
+        }
+
+        // A computation of an older generation is expired even while it is running
+        private boolean isExpired(long ttlNanos, long currentGeneration) {
+            return generation != currentGeneration || result.isDone()
+                    && (result.isCompletedExceptionally() || System.nanoTime() - completedAt >= ttlNanos);
+        }
+
+        private V join() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.medicalrecordsproject.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+// The sums and counts over the visits that dashboards ask for many times at once. Every change that can
+// move them goes through the income ledger, which calls invalidateAll().
+@Component
+public class VisitAggregates {
+
+    private final SingleFlightCache<String, BigDecimal> incomes;
+
+    private final SingleFlightCache<String, Integer> visitCounts;
+
+    public VisitAggregates(@Value("${visits.aggregates.ttl-ms:2000}") long ttlMillis) {
+        this.incomes = new SingleFlightCache<>(ttlMillis);
+        this.visitCounts = new SingleFlightCache<>(ttlMillis);
+    }
+
+    public SingleFlightCache<String, BigDecimal> incomes() {
+        return incomes;
+    }
+
+    public SingleFlightCache<String, Integer> visitCounts() {
+        return visitCounts;
+    }
+
+    public void invalidateAll() {
+        incomes.invalidateAll();
+        visitCounts.invalidateAll();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.medicalrecordsproject.utils.mappers;
+
+import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisRequest;
+import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisResponse;
+import com.example.medicalrecordsproject.data.entities.Diagnosis;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+@Mapper(unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface DiagnosisMapper {
+
+    DiagnosisMapper INSTANCE = Mappers.getMapper(DiagnosisMapper.class);
+
+    DiagnosisResponse toResponse(Diagnosis diagnosis);
+
+    @Mapping(target = "id", ignore = true)
+    Diagnosis toEntity(DiagnosisRequest diagnosisRequest);
+
+    @Mapping(target = "id", ignore = true)
+    void updateEntity(DiagnosisRequest diagnosisRequest, @MappingTarget Diagnosis diagnosis);
+}
@@ -0,0 +1,28 @@
+package com.example.medicalrecordsproject.utils.mappers;
+
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorRequest;
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse;
+import com.example.medicalrecordsproject.data.entities.Doctor;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+@Mapper(uses = SpecialtyMapper.class, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface DoctorMapper {
+
+    DoctorMapper INSTANCE = Mappers.getMapper(DoctorMapper.class);
+
+    @Mapping(target = "message", ignore = true)
+    DoctorResponse toResponse(Doctor doctor);
+
+    // The specialties are resolved from specialtiesIds by DoctorServiceImpl
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "specialties", ignore = true)
+    Doctor toEntity(DoctorRequest doctorRequest);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "specialties", ignore = true)
+    void updateEntity(DoctorRequest doctorRequest, @MappingTarget Doctor doctor);
+}
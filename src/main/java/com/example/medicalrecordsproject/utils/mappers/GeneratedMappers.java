@@ -0,0 +1,91 @@
+package com.example.medicalrecordsproject.utils.mappers;
+
+import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisRequest;
+import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisResponse;
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorRequest;
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse;
+import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemRequest;
+import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemResponse;
+import com.example.medicalrecordsproject.data.dtos.patients.PatientRequest;
+import com.example.medicalrecordsproject.data.dtos.patients.PatientResponse;
+import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyRequest;
+import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyResponse;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitRequest;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
+import com.example.medicalrecordsproject.data.entities.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Looks up the MapStruct mapper for a (source class, target class) pair, so that MapperUtil
+ * can switch between ModelMapper and the generated code without changing the services.
+ */
+public class GeneratedMappers {
+
+    private final Map<Class<?>, Map<Class<?>, Function<Object, Object>>> converters = new HashMap<>();
+    private final Map<Class<?>, Map<Class<?>, BiConsumer<Object, Object>>> updaters = new HashMap<>();
+
+    public GeneratedMappers() {
+        registerConverter(Specialty.class, SpecialtyResponse.class, SpecialtyMapper.INSTANCE::toResponse);
+        registerConverter(SpecialtyRequest.class, Specialty.class, SpecialtyMapper.INSTANCE::toEntity);
+        registerUpdater(SpecialtyRequest.class, Specialty.class, SpecialtyMapper.INSTANCE::updateEntity);
+
+        registerConverter(Diagnosis.class, DiagnosisResponse.class, DiagnosisMapper.INSTANCE::toResponse);
+        registerConverter(DiagnosisRequest.class, Diagnosis.class, DiagnosisMapper.INSTANCE::toEntity);
+        registerUpdater(DiagnosisRequest.class, Diagnosis.class, DiagnosisMapper.INSTANCE::updateEntity);
+
+        registerConverter(HealthSystem.class, HealthSystemResponse.class, HealthSystemMapper.INSTANCE::toResponse);
+        registerConverter(HealthSystemRequest.class, HealthSystem.class, HealthSystemMapper.INSTANCE::toEntity);
+        registerUpdater(HealthSystemRequest.class, HealthSystem.class, HealthSystemMapper.INSTANCE::updateEntity);
+
+        registerConverter(Doctor.class, DoctorResponse.class, DoctorMapper.INSTANCE::toResponse);
+        registerConverter(DoctorRequest.class, Doctor.class, DoctorMapper.INSTANCE::toEntity);
+        registerUpdater(DoctorRequest.class, Doctor.class, DoctorMapper.INSTANCE::updateEntity);
+
+        registerConverter(Patient.class, PatientResponse.class, PatientMapper.INSTANCE::toResponse);
+        registerConverter(PatientRequest.class, Patient.class, PatientMapper.INSTANCE::toEntity);
+        registerUpdater(PatientRequest.class, Patient.class, PatientMapper.INSTANCE::updateEntity);
+
+        registerConverter(Visit.class, VisitResponse.class, VisitMapper.INSTANCE::toResponse);
+        registerConverter(VisitRequest.class, Visit.class, VisitMapper.INSTANCE::toEntity);
+        registerUpdater(VisitRequest.class, Visit.class, VisitMapper.INSTANCE::updateEntity);
+    }
+
+    public <T> T map(Object source, Class<T> target) {
+        return target.cast(find(converters, source.getClass(), target).apply(source));
+    }
+
+    public void map(Object source, Object destination) {
+        find(updaters, source.getClass(), destination.getClass()).accept(source, destination);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S, T> void registerConverter(Class<S> source, Class<T> target, Function<S, T> converter) {
+        converters.computeIfAbsent(source, key -> new HashMap<>()).put(target, (Function<Object, Object>) converter);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S, T> void registerUpdater(Class<S> source, Class<T> target, BiConsumer<S, T> updater) {
+        updaters.computeIfAbsent(source, key -> new HashMap<>()).put(target, (BiConsumer<Object, Object>) updater);
+    }
+
+    // Entities loaded by Hibernate can be proxy subclasses, so the lookup walks up the class hierarchy
+    private static <F> F find(Map<Class<?>, Map<Class<?>, F>> mappers, Class<?> source, Class<?> target) {
+        for (Class<?> sourceType = source; sourceType != null; sourceType = sourceType.getSuperclass()) {
+            Map<Class<?>, F> byTarget = mappers.get(sourceType);
+            if (byTarget == null) {
+                continue;
+            }
+            for (Class<?> targetType = target; targetType != null; targetType = targetType.getSuperclass()) {
+                F mapper = byTarget.get(targetType);
+                if (mapper != null) {
+                    return mapper;
+                }
+            }
+        }
+        throw new IllegalArgumentException("No generated mapper from " + source.getName() + " to " + target.getName());
+    }
+}
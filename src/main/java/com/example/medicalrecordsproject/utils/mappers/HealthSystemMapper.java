@@ -0,0 +1,24 @@
+package com.example.medicalrecordsproject.utils.mappers;
+
+import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemRequest;
+import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemResponse;
+import com.example.medicalrecordsproject.data.entities.HealthSystem;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+@Mapper(unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface HealthSystemMapper {
+
+    HealthSystemMapper INSTANCE = Mappers.getMapper(HealthSystemMapper.class);
+
+    HealthSystemResponse toResponse(HealthSystem healthSystem);
+
+    @Mapping(target = "id", ignore = true)
+    HealthSystem toEntity(HealthSystemRequest healthSystemRequest);
+
+    @Mapping(target = "id", ignore = true)
+    void updateEntity(HealthSystemRequest healthSystemRequest, @MappingTarget HealthSystem healthSystem);
+}
@@ -0,0 +1,28 @@
+package com.example.medicalrecordsproject.utils.mappers;
+
+import com.example.medicalrecordsproject.data.dtos.patients.PatientRequest;
+import com.example.medicalrecordsproject.data.dtos.patients.PatientResponse;
+import com.example.medicalrecordsproject.data.entities.Patient;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+@Mapper(unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface PatientMapper {
+
+    PatientMapper INSTANCE = Mappers.getMapper(PatientMapper.class);
+
+    @Mapping(target = "gpId", source = "gp.id")
+    PatientResponse toResponse(Patient patient);
+
+    // The GP is resolved from gpId by PatientServiceImpl
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "gp", ignore = true)
+    Patient toEntity(PatientRequest patientRequest);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "gp", ignore = true)
+    void updateEntity(PatientRequest patientRequest, @MappingTarget Patient patient);
+}
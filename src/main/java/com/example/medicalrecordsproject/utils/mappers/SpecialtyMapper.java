@@ -0,0 +1,24 @@
+package com.example.medicalrecordsproject.utils.mappers;
+
+import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyRequest;
+import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyResponse;
+import com.example.medicalrecordsproject.data.entities.Specialty;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+@Mapper(unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface SpecialtyMapper {
+
+    SpecialtyMapper INSTANCE = Mappers.getMapper(SpecialtyMapper.class);
+
+    SpecialtyResponse toResponse(Specialty specialty);
+
+    @Mapping(target = "id", ignore = true)
+    Specialty toEntity(SpecialtyRequest specialtyRequest);
+
+    @Mapping(target = "id", ignore = true)
+    void updateEntity(SpecialtyRequest specialtyRequest, @MappingTarget Specialty specialty);
+}
@@ -0,0 +1,35 @@
+package com.example.medicalrecordsproject.utils.mappers;
+
+import com.example.medicalrecordsproject.data.dtos.visits.VisitRequest;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
+import com.example.medicalrecordsproject.data.entities.Visit;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+@Mapper(uses = DiagnosisMapper.class, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface VisitMapper {
+
+    VisitMapper INSTANCE = Mappers.getMapper(VisitMapper.class);
+
+    @Mapping(target = "patientId", source = "patient.id")
+    @Mapping(target = "doctorId", source = "doctor.id")
+    VisitResponse toResponse(Visit visit);
+
+    // The patient, doctor, diagnoses and health system are resolved from their ids by VisitServiceImpl
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "patient", ignore = true)
+    @Mapping(target = "doctor", ignore = true)
+    @Mapping(target = "diagnoses", ignore = true)
+    @Mapping(target = "healthSystem", ignore = true)
+    Visit toEntity(VisitRequest visitRequest);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "patient", ignore = true)
+    @Mapping(target = "doctor", ignore = true)
+    @Mapping(target = "diagnoses", ignore = true)
+    @Mapping(target = "healthSystem", ignore = true)
+    void updateEntity(VisitRequest visitRequest, @MappingTarget Visit visit);
+}
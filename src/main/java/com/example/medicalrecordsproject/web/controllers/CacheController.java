@@ -0,0 +1,37 @@
+package com.example.medicalrecordsproject.web.controllers;
+
+import com.example.medicalrecordsproject.data.dtos.caches.CacheRegionStatsResponse;
+import com.example.medicalrecordsproject.data.dtos.caches.CacheStatsResponse;
+import com.example.medicalrecordsproject.service.CacheRegionStatsService;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/internal/caches")
+public class CacheController {
+
+    private final ReferenceCaches referenceCaches;
+
+    private final CacheRegionStatsService cacheRegionStatsService;
+
+    public CacheController(ReferenceCaches referenceCaches, CacheRegionStatsService cacheRegionStatsService) {
+        this.referenceCaches = referenceCaches;
+        this.cacheRegionStatsService = cacheRegionStatsService;
+    }
+
+    // Hits, misses and evictions of every reference data cache since startup
+    @GetMapping
+    public List<CacheStatsResponse> retrieveStats() {
+        return referenceCaches.stats();
+    }
+
+    // Hit ratio of every region of the Hibernate second-level cache since startup
+    @GetMapping("/regions")
+    public List<CacheRegionStatsResponse> retrieveRegionStats() {
+        return cacheRegionStatsService.getRegionStats();
+    }
+}
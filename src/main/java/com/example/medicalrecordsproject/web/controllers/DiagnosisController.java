@@ -3,7 +3,9 @@ package com.example.medicalrecordsproject.web.controllers;
 import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisRequest;
 import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisResponse;
 import com.example.medicalrecordsproject.service.DiagnosisService;
+import com.example.medicalrecordsproject.utils.Paging;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -26,8 +28,10 @@ public class DiagnosisController {
     }
 
     @GetMapping
-    public List<DiagnosisResponse> retrieveAll() {
-        return diagnosisService.getAllDiagnoses();
+    public ResponseEntity<List<DiagnosisResponse>> retrieveAll(
+            @RequestParam(defaultValue = Paging.DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String after) {
+        return Paging.toResponse(diagnosisService.getDiagnosesPage(limit, after));
     }
 
     @GetMapping("/{id}")
@@ -1,12 +1,18 @@
 package com.example.medicalrecordsproject.web.controllers;
 
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorCaseloadResponse;
 import com.example.medicalrecordsproject.data.dtos.doctors.DoctorRequest;
 import com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse;
 import com.example.medicalrecordsproject.service.DoctorService;
+import com.example.medicalrecordsproject.service.VisitService;
+import com.example.medicalrecordsproject.utils.Paging;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -15,8 +21,11 @@ public class DoctorController {
 
     private final DoctorService doctorService;
 
-    public DoctorController(DoctorService doctorService) {
+    private final VisitService visitService;
+
+    public DoctorController(DoctorService doctorService, VisitService visitService) {
         this.doctorService = doctorService;
+        this.visitService = visitService;
     }
 
     @PostMapping
@@ -26,8 +35,10 @@ public class DoctorController {
     }
 
     @GetMapping
-    public List<DoctorResponse> retrieveAll() {
-        return doctorService.getAllDoctors();
+    public ResponseEntity<List<DoctorResponse>> retrieveAll(
+            @RequestParam(defaultValue = Paging.DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String after) {
+        return Paging.toResponse(doctorService.getDoctorsPage(limit, after));
     }
 
     @GetMapping("/{id}")
@@ -35,6 +46,20 @@ public class DoctorController {
         return doctorService.getDoctorById(id);
     }
 
+    // The visits of the doctor in the period, oldest first, with the cursor of the next page in X-Next-Cursor
+    @GetMapping("/{id}/visits")
+    public ResponseEntity<DoctorCaseloadResponse> retrieveVisits(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long diagnosisId,
+            @RequestParam(required = false) Boolean insured,
+            @RequestParam(defaultValue = Paging.DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String after) {
+        DoctorCaseloadResponse caseload = visitService.getDoctorCaseload(id, from, to, diagnosisId, insured, limit, after);
+        return Paging.toResponse(caseload, caseload.getNextCursor());
+    }
+
     @PutMapping("/{id}")
     public DoctorResponse updateDoctor(@PathVariable Long id, @RequestBody @Valid DoctorRequest doctorRequest) {
         return doctorService.updateDoctor(id, doctorRequest);
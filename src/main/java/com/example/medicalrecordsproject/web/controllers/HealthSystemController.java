@@ -3,7 +3,9 @@ package com.example.medicalrecordsproject.web.controllers;
 import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemRequest;
 import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemResponse;
 import com.example.medicalrecordsproject.service.HealthSystemService;
+import com.example.medicalrecordsproject.utils.Paging;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -26,8 +28,10 @@ public class HealthSystemController {
     }
 
     @GetMapping
-    public List<HealthSystemResponse> retrieveAll() {
-        return healthSystemService.getAllHealthSystems();
+    public ResponseEntity<List<HealthSystemResponse>> retrieveAll(
+            @RequestParam(defaultValue = Paging.DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String after) {
+        return Paging.toResponse(healthSystemService.getHealthSystemsPage(limit, after));
     }
 
     @GetMapping("/{id}")
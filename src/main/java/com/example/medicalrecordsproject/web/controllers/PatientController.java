@@ -1,9 +1,14 @@
 package com.example.medicalrecordsproject.web.controllers;
 
+import com.example.medicalrecordsproject.data.dtos.patients.GpInsuranceStatsResponse;
 import com.example.medicalrecordsproject.data.dtos.patients.PatientRequest;
 import com.example.medicalrecordsproject.data.dtos.patients.PatientResponse;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
 import com.example.medicalrecordsproject.service.PatientService;
+import com.example.medicalrecordsproject.service.VisitService;
+import com.example.medicalrecordsproject.utils.Paging;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -16,8 +21,11 @@ public class PatientController {
 
     private final PatientService patientService;
 
-    public PatientController(PatientService patientService) {
+    private final VisitService visitService;
+
+    public PatientController(PatientService patientService, VisitService visitService) {
         this.patientService = patientService;
+        this.visitService = visitService;
     }
 
     @PostMapping
@@ -27,8 +35,10 @@ public class PatientController {
     }
 
     @GetMapping
-    public List<PatientResponse> retrieveAll() {
-        return patientService.getAllPatients();
+    public ResponseEntity<List<PatientResponse>> retrieveAll(
+            @RequestParam(defaultValue = Paging.DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String after) {
+        return Paging.toResponse(patientService.getPatientsPage(limit, after));
     }
 
     @GetMapping("/{id}")
@@ -36,6 +46,15 @@ public class PatientController {
         return patientService.getPatientById(id);
     }
 
+    // The visit history of the patient, newest first, with the cursor of the next page in X-Next-Cursor
+    @GetMapping("/{id}/visits")
+    public ResponseEntity<List<VisitResponse>> retrieveVisits(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = Paging.DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String after) {
+        return Paging.toResponse(visitService.getVisitsOfPatientPage(id, limit, after));
+    }
+
     @PutMapping("/{id}")
     public PatientResponse updatePatient(@PathVariable Long id, @RequestBody @Valid PatientRequest patientRequest) {
         return patientService.updatePatient(id, patientRequest);
@@ -56,4 +75,9 @@ public class PatientController {
     public BigDecimal getPatientsWithoutInsurance() {
         return patientService.getPatientsWithoutInsurance();
     }
+
+    @GetMapping("/insurance-by-gp")
+    public List<GpInsuranceStatsResponse> getInsuranceStatsByGp() {
+        return patientService.getInsuranceStatsByGp();
+    }
 }
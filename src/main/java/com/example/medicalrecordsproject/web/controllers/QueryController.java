@@ -0,0 +1,26 @@
+package com.example.medicalrecordsproject.web.controllers;
+
+import com.example.medicalrecordsproject.data.dtos.queries.QueryStatsResponse;
+import com.example.medicalrecordsproject.service.QueryStatsService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/internal/queries")
+public class QueryController {
+
+    private final QueryStatsService queryStatsService;
+
+    public QueryController(QueryStatsService queryStatsService) {
+        this.queryStatsService = queryStatsService;
+    }
+
+    // Executions, mean and max time and rows of every query since startup, the most expensive first
+    @GetMapping
+    public List<QueryStatsResponse> retrieveStats() {
+        return queryStatsService.getQueryStats();
+    }
+}
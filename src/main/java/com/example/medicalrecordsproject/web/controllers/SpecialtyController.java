@@ -3,7 +3,9 @@ package com.example.medicalrecordsproject.web.controllers;
 import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyRequest;
 import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyResponse;
 import com.example.medicalrecordsproject.service.SpecialtyService;
+import com.example.medicalrecordsproject.utils.Paging;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -26,8 +28,10 @@ public class SpecialtyController {
     }
 
     @GetMapping
-    public List<SpecialtyResponse> retrieveAll() {
-        return specialtyService.getAllSpecialties();
+    public ResponseEntity<List<SpecialtyResponse>> retrieveAll(
+            @RequestParam(defaultValue = Paging.DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String after) {
+        return Paging.toResponse(specialtyService.getSpecialtiesPage(limit, after));
     }
 
     @GetMapping("/{id}")
@@ -1,13 +1,25 @@
 package com.example.medicalrecordsproject.web.controllers;
 
+import com.example.medicalrecordsproject.data.dtos.incomes.DoctorIncomeResponse;
+import com.example.medicalrecordsproject.data.dtos.incomes.IncomeBucketResponse;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitBatchResponse;
 import com.example.medicalrecordsproject.data.dtos.visits.VisitRequest;
 import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
+import com.example.medicalrecordsproject.service.IncomeRollupService;
+import com.example.medicalrecordsproject.service.VisitBatchService;
+import com.example.medicalrecordsproject.service.VisitExportService;
 import com.example.medicalrecordsproject.service.VisitService;
+import com.example.medicalrecordsproject.utils.Paging;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -16,8 +28,18 @@ public class VisitController {
 
     private final VisitService visitService;
 
-    public VisitController(VisitService visitService) {
+    private final VisitExportService visitExportService;
+
+    private final VisitBatchService visitBatchService;
+
+    private final IncomeRollupService incomeRollupService;
+
+    public VisitController(VisitService visitService, VisitExportService visitExportService,
+                           VisitBatchService visitBatchService, IncomeRollupService incomeRollupService) {
         this.visitService = visitService;
+        this.visitExportService = visitExportService;
+        this.visitBatchService = visitBatchService;
+        this.incomeRollupService = incomeRollupService;
     }
 
     @PostMapping
@@ -26,9 +48,29 @@ public class VisitController {
         return visitService.createVisit(visitRequest);
     }
 
+    // The items are validated one by one, so an invalid visit is reported in the response
+    // instead of rejecting the whole batch
+    @PostMapping("/batch")
+    public VisitBatchResponse createVisits(@RequestBody List<VisitRequest> visitRequests) {
+        return visitBatchService.createVisits(visitRequests);
+    }
+
     @GetMapping
-    public List<VisitResponse> retrieveAll() {
-        return visitService.getAllVisits();
+    public ResponseEntity<List<VisitResponse>> retrieveAll(
+            @RequestParam(defaultValue = Paging.DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String after) {
+        return Paging.toResponse(visitService.getVisitsPage(limit, after));
+    }
+
+    // Newline delimited JSON written while the visits are read, for clients that need every visit
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportVisits(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since) {
+        StreamingResponseBody body = outputStream -> visitExportService.exportVisits(since, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/{id}")
@@ -52,6 +94,16 @@ public class VisitController {
         return visitService.getTotalIncomeFromVisits();
     }
 
+    // Income per period and doctor or health system, read from the daily rollups
+    @GetMapping("/income")
+    public List<IncomeBucketResponse> getIncome(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "month") String granularity,
+            @RequestParam(defaultValue = "doctor") String groupBy) {
+        return incomeRollupService.getIncome(from, to, granularity, groupBy);
+    }
+
     @GetMapping("/total-income-by-doctor/{doctorId}")
     public BigDecimal getTotalIncomeFromVisitsOfDoctor(@PathVariable Long doctorId) {
         return visitService.getTotalIncomeFromVisitsOfDoctor(doctorId);
@@ -72,6 +124,16 @@ public class VisitController {
         return visitService.getCountDoctorsBiggerIncome(minIncome);
     }
 
+    @GetMapping("/top-doctors-by-income")
+    public List<DoctorIncomeResponse> getTopDoctorsByIncome(@RequestParam(defaultValue = "10") int limit) {
+        return visitService.getTopDoctorsByIncome(limit);
+    }
+
+    @GetMapping("/income-percentile-rank/{doctorId}")
+    public BigDecimal getIncomePercentileRankOfDoctor(@PathVariable Long doctorId) {
+        return visitService.getIncomePercentileRankOfDoctor(doctorId);
+    }
+
     @GetMapping("/total-income-by-diagnosis/{diagnosisId}")
     public BigDecimal getTotalIncomeFromVisitsByDiagnosis(@PathVariable Long diagnosisId) {
         return visitService.getTotalIncomeFromVisitsByDiagnosis(diagnosisId);
@@ -0,0 +1,91 @@
+-- Schema as mapped by the entities, for the in-memory database of the tests.
+-- Every entity takes its ids from its own pooled sequence.
+
+create sequence diagnosis_seq start with 1 increment by 50;
+create sequence doctor_seq start with 1 increment by 50;
+create sequence health_system_seq start with 1 increment by 50;
+create sequence patient_seq start with 1 increment by 50;
+create sequence specialty_seq start with 1 increment by 50;
+create sequence visit_seq start with 1 increment by 50;
+
+create table diagnoses (
+    id bigint not null,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table specialties (
+    id bigint not null,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table health_systems (
+    id bigint not null,
+    no_insurance_fee numeric(19,2) not null,
+    primary key (id)
+);
+
+create table doctors (
+    id bigint not null,
+    birthdate date,
+    is_gp boolean not null,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table doctors_specialties (
+    doctor_id bigint not null,
+    specialties_id bigint not null,
+    primary key (doctor_id, specialties_id),
+    constraint fk_doctors_specialties_doctor_id foreign key (doctor_id) references doctors (id),
+    constraint fk_doctors_specialties_specialties_id foreign key (specialties_id) references specialties (id)
+);
+
+create table patients (
+    id bigint not null,
+    has_insurance boolean not null,
+    name varchar(255) not null,
+    gp_id bigint,
+    primary key (id),
+    constraint fk_patients_gp_id foreign key (gp_id) references doctors (id)
+);
+
+create table visits (
+    id bigint not null,
+    visit_date date not null,
+    doctor_id bigint not null,
+    health_system_id bigint not null,
+    patient_id bigint not null,
+    primary key (id),
+    constraint fk_visits_doctor_id foreign key (doctor_id) references doctors (id),
+    constraint fk_visits_health_system_id foreign key (health_system_id) references health_systems (id),
+    constraint fk_visits_patient_id foreign key (patient_id) references patients (id)
+);
+
+create index idx_visits_visit_date_id on visits (visit_date, id);
+
+create table visits_diagnoses (
+    visit_id bigint not null,
+    diagnoses_id bigint not null,
+    primary key (visit_id, diagnoses_id),
+    constraint fk_visits_diagnoses_visit_id foreign key (visit_id) references visits (id),
+    constraint fk_visits_diagnoses_diagnoses_id foreign key (diagnoses_id) references diagnoses (id)
+);
+
+create table doctor_incomes (
+    doctor_id bigint not null,
+    insured_income numeric(19,2) not null,
+    uninsured_income numeric(19,2) not null,
+    primary key (doctor_id)
+);
+
+create table income_rollups (
+    doctor_id bigint not null,
+    epoch_day bigint not null,
+    health_system_id bigint not null,
+    insured boolean not null,
+    income numeric(19,2) not null,
+    visits bigint not null,
+    primary key (doctor_id, epoch_day, health_system_id, insured)
+);
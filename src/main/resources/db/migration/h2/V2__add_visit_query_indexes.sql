@@ -0,0 +1,17 @@
+-- Indexes for the access paths of VisitRepository and PatientRepository
+
+-- Income and visits of one doctor, optionally within a period
+create index idx_visits_doctor_id_visit_date on visits (doctor_id, visit_date);
+
+-- Visits of one patient, e.g. when the patient's insurance changes
+create index idx_visits_patient_id on visits (patient_id);
+
+-- Visits with a diagnosis. The primary key (visit_id, diagnoses_id) serves the other direction.
+create index idx_visits_diagnoses_diagnoses_id_visit_id on visits_diagnoses (diagnoses_id, visit_id);
+
+-- Patient counts grouped by insurance, overall and per GP
+create index idx_patients_has_insurance on patients (has_insurance);
+create index idx_patients_gp_id_has_insurance on patients (gp_id, has_insurance);
+
+-- Income of a period, read from the daily rollups
+create index idx_income_rollups_epoch_day on income_rollups (epoch_day);
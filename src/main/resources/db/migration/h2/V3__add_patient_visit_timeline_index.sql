@@ -0,0 +1,6 @@
+-- Visit history of one patient, newest first: GET /patients/{id}/visits seeks through this index
+-- and stops after one page, however many visits the patient has
+create index idx_visits_patient_id_visit_date on visits (patient_id, visit_date);
+
+-- Every query that used the old index only filters on patient_id, a prefix of the new one
+drop index idx_visits_patient_id;
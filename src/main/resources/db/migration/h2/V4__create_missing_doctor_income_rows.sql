@@ -0,0 +1,6 @@
+-- Every doctor has an income ledger row from its creation on, the visit writes lock it and no longer insert it.
+-- Doctors without visits had none so far.
+insert into doctor_incomes (doctor_id, insured_income, uninsured_income)
+select d.id, 0, 0
+from doctors d
+where not exists (select 1 from doctor_incomes di where di.doctor_id = d.id);
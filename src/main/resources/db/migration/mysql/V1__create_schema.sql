@@ -0,0 +1,102 @@
+-- Schema as mapped by the entities. Every entity takes its ids from its own pooled sequence,
+-- which MySQL doesn't have, so Hibernate emulates each one with a one-row table.
+
+create table diagnosis_seq (next_val bigint) engine=InnoDB;
+insert into diagnosis_seq values (1);
+
+create table doctor_seq (next_val bigint) engine=InnoDB;
+insert into doctor_seq values (1);
+
+create table health_system_seq (next_val bigint) engine=InnoDB;
+insert into health_system_seq values (1);
+
+create table patient_seq (next_val bigint) engine=InnoDB;
+insert into patient_seq values (1);
+
+create table specialty_seq (next_val bigint) engine=InnoDB;
+insert into specialty_seq values (1);
+
+create table visit_seq (next_val bigint) engine=InnoDB;
+insert into visit_seq values (1);
+
+create table diagnoses (
+    id bigint not null,
+    name varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table specialties (
+    id bigint not null,
+    name varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table health_systems (
+    id bigint not null,
+    no_insurance_fee decimal(19,2) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table doctors (
+    id bigint not null,
+    birthdate date,
+    is_gp bit not null,
+    name varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table doctors_specialties (
+    doctor_id bigint not null,
+    specialties_id bigint not null,
+    primary key (doctor_id, specialties_id),
+    constraint fk_doctors_specialties_doctor_id foreign key (doctor_id) references doctors (id),
+    constraint fk_doctors_specialties_specialties_id foreign key (specialties_id) references specialties (id)
+) engine=InnoDB;
+
+create table patients (
+    id bigint not null,
+    has_insurance bit not null,
+    name varchar(255) not null,
+    gp_id bigint,
+    primary key (id),
+    constraint fk_patients_gp_id foreign key (gp_id) references doctors (id)
+) engine=InnoDB;
+
+create table visits (
+    id bigint not null,
+    visit_date date not null,
+    doctor_id bigint not null,
+    health_system_id bigint not null,
+    patient_id bigint not null,
+    primary key (id),
+    constraint fk_visits_doctor_id foreign key (doctor_id) references doctors (id),
+    constraint fk_visits_health_system_id foreign key (health_system_id) references health_systems (id),
+    constraint fk_visits_patient_id foreign key (patient_id) references patients (id)
+) engine=InnoDB;
+
+create index idx_visits_visit_date_id on visits (visit_date, id);
+
+create table visits_diagnoses (
+    visit_id bigint not null,
+    diagnoses_id bigint not null,
+    primary key (visit_id, diagnoses_id),
+    constraint fk_visits_diagnoses_visit_id foreign key (visit_id) references visits (id),
+    constraint fk_visits_diagnoses_diagnoses_id foreign key (diagnoses_id) references diagnoses (id)
+) engine=InnoDB;
+
+create table doctor_incomes (
+    doctor_id bigint not null,
+    insured_income decimal(19,2) not null,
+    uninsured_income decimal(19,2) not null,
+    primary key (doctor_id)
+) engine=InnoDB;
+
+create table income_rollups (
+    doctor_id bigint not null,
+    epoch_day bigint not null,
+    health_system_id bigint not null,
+    insured bit not null,
+    income decimal(19,2) not null,
+    visits bigint not null,
+    primary key (doctor_id, epoch_day, health_system_id, insured)
+) engine=InnoDB;
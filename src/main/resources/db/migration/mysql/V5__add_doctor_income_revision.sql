@@ -0,0 +1,2 @@
+-- Raised by every change of a ledger row, the doctor income index keeps the newest income of each doctor by it
+alter table doctor_incomes add column revision bigint default 0 not null;
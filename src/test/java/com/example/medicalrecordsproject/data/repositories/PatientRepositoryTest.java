@@ -1,15 +1,22 @@
 package com.example.medicalrecordsproject.data.repositories;
 
+import com.example.medicalrecordsproject.data.dtos.patients.PatientResponse;
 import com.example.medicalrecordsproject.helpers.Helpers;
+import com.example.medicalrecordsproject.helpers.StatementCounter;
+import com.example.medicalrecordsproject.data.entities.Doctor;
 import com.example.medicalrecordsproject.data.entities.Patient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -36,58 +43,117 @@ class PatientRepositoryTest {
     }
 
     @Test()
-    void testFindAllByHasInsuranceIsTrue_withInsuredPatients_shouldReturnPatients() {
+    void testFindAllInsuredResponses_withInsuredPatients_shouldReturnPatients() {
         testEntityManager.persistAndFlush(insuredPatient1);
         testEntityManager.persistAndFlush(insuredPatient2);
         testEntityManager.persistAndFlush(uninsuredPatient1);
 
-        List<Patient> expected = List.of(insuredPatient1, insuredPatient2);
+        List<PatientResponse> expected = List.of(responseOf(insuredPatient1), responseOf(insuredPatient2));
 
-        assertIterableEquals(expected, patientRepository.findAllByHasInsuranceIsTrue());
+        assertIterableEquals(expected, patientRepository.findAllInsuredResponses());
     }
 
     @Test()
-    void testFindAllByHasInsuranceIsTrue_withoutInsuredPatients_shouldReturnEmptyList() {
+    void testFindAllInsuredResponses_withoutInsuredPatients_shouldReturnEmptyList() {
         testEntityManager.persistAndFlush(uninsuredPatient1);
         testEntityManager.persistAndFlush(uninsuredPatient2);
 
-        assertIterableEquals(Collections.emptyList(), patientRepository.findAllByHasInsuranceIsTrue());
+        assertIterableEquals(Collections.emptyList(), patientRepository.findAllInsuredResponses());
     }
 
     @Test()
-    void testFindAllByHasInsuranceIsTrue_withoutPatients_shouldReturnEmptyList() {
+    void testFindAllInsuredResponses_withoutPatients_shouldReturnEmptyList() {
 
-        assertIterableEquals(Collections.emptyList(), patientRepository.findAllByHasInsuranceIsTrue());
+        assertIterableEquals(Collections.emptyList(), patientRepository.findAllInsuredResponses());
     }
 
     @Test()
-    void testCountAllByHasInsuranceIsFalse_withUninsuredPatients_shouldReturnCount() {
-        testEntityManager.persistAndFlush(uninsuredPatient1);
-        testEntityManager.persistAndFlush(uninsuredPatient2);
+    void testFindResponsesAfter_withLimit_shouldReturnNextPatientsById() {
         testEntityManager.persistAndFlush(insuredPatient1);
+        testEntityManager.persistAndFlush(insuredPatient2);
+        testEntityManager.persistAndFlush(uninsuredPatient1);
 
+        assertIterableEquals(List.of(responseOf(insuredPatient2)),
+                patientRepository.findResponsesAfter(insuredPatient1.getId(), PageRequest.of(0, 1)));
+        assertIterableEquals(Collections.emptyList(),
+                patientRepository.findResponsesAfter(uninsuredPatient1.getId(), PageRequest.of(0, 1)));
+    }
 
-        int expected = List.of(uninsuredPatient1, uninsuredPatient2).size();
+    @Test()
+    void testFindResponsesAfter_withAndWithoutGp_shouldReturnEveryPatientWithGpId() {
+        Doctor gp = new Doctor();
+        gp.setName("gp");
+        gp.setGp(true);
+        testEntityManager.persistAndFlush(gp);
+        insuredPatient1.setGp(gp);
+        testEntityManager.persistAndFlush(insuredPatient1);
+        testEntityManager.persistAndFlush(uninsuredPatient1);
+
+        List<PatientResponse> expected = List.of(responseOf(insuredPatient1), responseOf(uninsuredPatient1));
+        List<PatientResponse> actual = patientRepository.findResponsesAfter(0L, PageRequest.of(0, 10));
 
-        assertEquals(expected, patientRepository.countAllByHasInsuranceIsFalse());
+        assertIterableEquals(expected, actual);
+        assertEquals(gp.getId(), actual.get(0).getGpId());
     }
 
     @Test()
-    void testCountAllByHasInsuranceIsFalse_withoutUninsuredPatients_shouldReturnZero() {
+    void testFindAllWithGpByIdIn_withDifferentGps_shouldLoadGpsWithOneStatement() throws Exception {
+        Doctor gp1 = testEntityManager.persistAndFlush(Helpers.getDoctorIsGp());
+        Doctor gp2 = testEntityManager.persistAndFlush(Helpers.getDoctorNotGp());
+        insuredPatient1.setGp(gp1);
+        uninsuredPatient1.setGp(gp2);
         testEntityManager.persistAndFlush(insuredPatient1);
+        testEntityManager.persistAndFlush(uninsuredPatient1);
         testEntityManager.persistAndFlush(insuredPatient2);
+        testEntityManager.clear();
+        testEntityManager.getEntityManager().getEntityManagerFactory().getCache().evictAll();
+
+        StatementCounter statementCounter =
+                new StatementCounter(testEntityManager.getEntityManager().getEntityManagerFactory());
+        List<List<Patient>> found = new ArrayList<>();
+        long statements = statementCounter.count(() -> found.add(patientRepository.findAllWithGpByIdIn(
+                List.of(insuredPatient1.getId(), uninsuredPatient1.getId()))));
+
+        assertEquals(1, statements);
+        Map<Long, Long> gpIds = found.get(0).stream()
+                .collect(Collectors.toMap(Patient::getId, patient -> patient.getGp().getId()));
+        assertEquals(Map.of(insuredPatient1.getId(), gp1.getId(), uninsuredPatient1.getId(), gp2.getId()), gpIds);
+    }
 
+    @Test()
+    void testCountGroupedByInsurance_withPatients_shouldReturnCountPerGroup() {
+        testEntityManager.persistAndFlush(insuredPatient1);
+        testEntityManager.persistAndFlush(uninsuredPatient1);
+        testEntityManager.persistAndFlush(uninsuredPatient2);
 
-        int expected = 0;
+        Map<Object, Object> counts = patientRepository.countGroupedByInsurance().stream()
+                .collect(Collectors.toMap(row -> row[0], row -> row[1]));
 
-        assertEquals(expected, patientRepository.countAllByHasInsuranceIsFalse());
+        assertEquals(Map.of(true, 1L, false, 2L), counts);
     }
 
     @Test()
-    void testCountAllByHasInsuranceIsFalse_withoutPatients_shouldReturnZero() {
+    void testCountGroupedByGpAndInsurance_withAndWithoutGp_shouldReturnCountPerGpAndGroup() {
+        Doctor gp = testEntityManager.persistAndFlush(Helpers.getDoctorIsGp());
+        insuredPatient1.setGp(gp);
+        insuredPatient2.setGp(gp);
+        uninsuredPatient1.setGp(gp);
+        testEntityManager.persistAndFlush(insuredPatient1);
+        testEntityManager.persistAndFlush(insuredPatient2);
+        testEntityManager.persistAndFlush(uninsuredPatient1);
+        testEntityManager.persistAndFlush(uninsuredPatient2);
 
-        int expected = 0;
+        List<Object[]> rows = patientRepository.countGroupedByGpAndInsurance();
+
+        assertEquals(3, rows.size());
+        assertTrue(rows.stream().anyMatch(row -> gp.getId().equals(row[0]) && Boolean.TRUE.equals(row[1]) && row[2].equals(2L)));
+        assertTrue(rows.stream().anyMatch(row -> gp.getId().equals(row[0]) && Boolean.FALSE.equals(row[1]) && row[2].equals(1L)));
+        assertTrue(rows.stream().anyMatch(row -> row[0] == null && Boolean.FALSE.equals(row[1]) && row[2].equals(1L)));
+    }
 
-        assertEquals(expected, patientRepository.countAllByHasInsuranceIsFalse());
+    // The row the constructor expressions build for the patient
+    private static PatientResponse responseOf(Patient patient) {
+        return new PatientResponse(patient.getId(), patient.getName(), patient.isHasInsurance(),
+                patient.getGp() == null ? null : patient.getGp().getId());
     }
-}
\ No newline at end of file
+}
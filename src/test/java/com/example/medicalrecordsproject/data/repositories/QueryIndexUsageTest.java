@@ -0,0 +1,153 @@
+package com.example.medicalrecordsproject.data.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the SQL of the hot repository queries through EXPLAIN on the schema created by the migrations
+// and checks that no table is read with a full scan. H2 writes the chosen index of every table
+// as a comment in the plan, or "tableScan" when there is none.
+@DataJpaTest
+class QueryIndexUsageTest {
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private String explain(String sql) {
+        return testEntityManager.getEntityManager()
+                .createNativeQuery("EXPLAIN " + sql)
+                .getSingleResult()
+                .toString();
+    }
+
+    private void assertUsesIndexes(String sql, String... indexNames) {
+        String plan = explain(sql);
+
+        assertFalse(plan.contains("tableScan"), () -> "full scan in plan:\n" + plan);
+        for (String indexName : indexNames) {
+            assertTrue(plan.contains("PUBLIC." + indexName.toUpperCase()),
+                    () -> indexName + " not used in plan:\n" + plan);
+        }
+    }
+
+    @Test
+    void testVisitsOfDoctorInPeriod_shouldUseDoctorAndDateIndex() {
+        assertUsesIndexes("SELECT v.id " +
+                        "FROM visits v " +
+                        "WHERE v.doctor_id = 1 " +
+                        "AND v.visit_date BETWEEN DATE '2021-01-01' AND DATE '2021-12-31'",
+                "idx_visits_doctor_id_visit_date");
+    }
+
+    @Test
+    void testCaseloadOfDoctor_shouldSeekDoctorAndDateIndexForCountsAndPage() {
+        // VisitRepository.findCaseloadRows, with the diagnosis and insured filters
+        assertUsesIndexes("SELECT s.visits, s.insured_visits, s.patients, p.id, p.patient_id, p.visit_date " +
+                        "FROM (SELECT COUNT(v.id) AS visits, " +
+                        "SUM(CASE WHEN pt.has_insurance THEN 1 ELSE 0 END) AS insured_visits, " +
+                        "COUNT(DISTINCT v.patient_id) AS patients " +
+                        "FROM visits v " +
+                        "JOIN patients pt ON pt.id = v.patient_id " +
+                        "WHERE v.doctor_id = 1 " +
+                        "AND v.visit_date BETWEEN DATE '2021-01-01' AND DATE '2021-12-31' " +
+                        "AND pt.has_insurance = TRUE " +
+                        "AND EXISTS (SELECT 1 FROM visits_diagnoses vd " +
+                        "WHERE vd.visit_id = v.id AND vd.diagnoses_id = 1)) s " +
+                        "LEFT JOIN (SELECT v.id, v.patient_id, v.visit_date " +
+                        "FROM visits v " +
+                        "JOIN patients pt ON pt.id = v.patient_id " +
+                        "WHERE v.doctor_id = 1 " +
+                        "AND v.visit_date >= DATE '2021-03-01' AND v.visit_date <= DATE '2021-12-31' " +
+                        "AND (v.visit_date > DATE '2021-03-01' OR v.id > 10) " +
+                        "AND pt.has_insurance = TRUE " +
+                        "AND EXISTS (SELECT 1 FROM visits_diagnoses vd " +
+                        "WHERE vd.visit_id = v.id AND vd.diagnoses_id = 1) " +
+                        "ORDER BY v.visit_date, v.id " +
+                        "LIMIT 101) p ON 1 = 1 " +
+                        "ORDER BY p.visit_date, p.id",
+                "idx_visits_doctor_id_visit_date");
+    }
+
+    @Test
+    void testIncomeOfPatient_shouldReadVisitsOfPatientThroughIndex() {
+        // VisitRepository.getIncomeOfPatientGroupedByDoctor
+        assertUsesIndexes("SELECT v.doctor_id, SUM(hs.no_insurance_fee) " +
+                "FROM visits v " +
+                "JOIN health_systems hs ON hs.id = v.health_system_id " +
+                "WHERE v.patient_id = 1 " +
+                "GROUP BY v.doctor_id");
+    }
+
+    @Test
+    void testVisitHistoryOfPatient_shouldSeekPatientAndDateIndex() {
+        // VisitRepository.findResponsesOfPatientBefore
+        assertUsesIndexes("SELECT v.id, v.patient_id, v.doctor_id, v.visit_date " +
+                        "FROM visits v " +
+                        "WHERE v.patient_id = 1 " +
+                        "AND v.visit_date <= DATE '2021-08-11' " +
+                        "AND (v.visit_date < DATE '2021-08-11' OR v.id < 10) " +
+                        "ORDER BY v.visit_date DESC, v.id DESC " +
+                        "LIMIT 101",
+                "idx_visits_patient_id_visit_date");
+    }
+
+    @Test
+    void testVisitsWithDiagnosis_shouldUseDiagnosisIndexOfJoinTable() {
+        // VisitRepository.countAllByDiagnosisId
+        assertUsesIndexes("SELECT COUNT(v.id) " +
+                        "FROM visits v " +
+                        "JOIN visits_diagnoses vd ON vd.visit_id = v.id " +
+                        "WHERE vd.diagnoses_id = 1",
+                "idx_visits_diagnoses_diagnoses_id_visit_id");
+    }
+
+    @Test
+    void testDiagnosesOfVisits_shouldUsePrimaryKeyOfJoinTable() {
+        // VisitRepository.fetchDiagnoses and findDiagnosisRows
+        assertUsesIndexes("SELECT vd.visit_id, d.id, d.name " +
+                "FROM visits_diagnoses vd " +
+                "JOIN diagnoses d ON d.id = vd.diagnoses_id " +
+                "WHERE vd.visit_id IN (1, 2, 3)");
+    }
+
+    @Test
+    void testPatientsCountedByInsurance_shouldUseInsuranceIndex() {
+        // PatientRepository.countGroupedByInsurance
+        assertUsesIndexes("SELECT p.has_insurance, COUNT(p.id) " +
+                        "FROM patients p " +
+                        "GROUP BY p.has_insurance",
+                "idx_patients_has_insurance");
+    }
+
+    @Test
+    void testPatientsCountedByGpAndInsurance_shouldUseGpAndInsuranceIndex() {
+        // PatientRepository.countGroupedByGpAndInsurance
+        assertUsesIndexes("SELECT p.gp_id, p.has_insurance, COUNT(p.id) " +
+                        "FROM patients p " +
+                        "GROUP BY p.gp_id, p.has_insurance " +
+                        "ORDER BY p.gp_id",
+                "idx_patients_gp_id_has_insurance");
+    }
+
+    @Test
+    void testInsuredPatients_shouldUseInsuranceIndex() {
+        // PatientRepository.findAllInsuredResponses
+        assertUsesIndexes("SELECT p.id " +
+                        "FROM patients p " +
+                        "WHERE p.has_insurance = TRUE",
+                "idx_patients_has_insurance");
+    }
+
+    @Test
+    void testIncomeOfPeriod_shouldUseEpochDayIndexOfRollups() {
+        // IncomeRollupRepository.getIncomeGroupedByDayAndDoctor
+        assertUsesIndexes("SELECT r.epoch_day, r.doctor_id, r.insured, SUM(r.income), SUM(r.visits) " +
+                        "FROM income_rollups r " +
+                        "WHERE r.epoch_day BETWEEN 18000 AND 18100 " +
+                        "GROUP BY r.epoch_day, r.doctor_id, r.insured",
+                "idx_income_rollups_epoch_day");
+    }
+}
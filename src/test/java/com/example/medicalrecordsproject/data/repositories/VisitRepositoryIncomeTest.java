@@ -0,0 +1,139 @@
+package com.example.medicalrecordsproject.data.repositories;
+
+import com.example.medicalrecordsproject.data.entities.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Checks that the SUM queries give the same result as adding up the fees of the loaded visits in Java
+@DataJpaTest(showSql = false, properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor=WARN"})
+class VisitRepositoryIncomeTest {
+
+    private static final int DOCTORS = 20;
+    private static final int PATIENTS = 200;
+    private static final int DIAGNOSES = 15;
+    private static final int VISITS = 3000;
+
+    @Autowired
+    private VisitRepository visitRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private List<Doctor> doctors;
+    private List<Diagnosis> diagnoses;
+    private List<Visit> allVisits;
+
+    @BeforeEach
+    public void setup() {
+        Random random = new Random(42);
+
+        List<HealthSystem> healthSystems = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            HealthSystem healthSystem = new HealthSystem();
+            healthSystem.setNoInsuranceFee(BigDecimal.valueOf(i * 1250L, 2));
+            healthSystems.add(testEntityManager.persist(healthSystem));
+        }
+
+        doctors = new ArrayList<>();
+        for (int i = 0; i < DOCTORS; i++) {
+            Doctor doctor = new Doctor();
+            doctor.setName("doctor" + i);
+            doctor.setGp(i % 2 == 0);
+            doctors.add(testEntityManager.persist(doctor));
+        }
+
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < PATIENTS; i++) {
+            Patient patient = new Patient();
+            patient.setName("patient" + i);
+            patient.setHasInsurance(random.nextInt(3) != 0);
+            patient.setGp(doctors.get(2 * random.nextInt(DOCTORS / 2)));
+            patients.add(testEntityManager.persist(patient));
+        }
+
+        diagnoses = new ArrayList<>();
+        for (int i = 0; i < DIAGNOSES; i++) {
+            Diagnosis diagnosis = new Diagnosis();
+            diagnosis.setName("diagnosis" + i);
+            diagnoses.add(testEntityManager.persist(diagnosis));
+        }
+
+        for (int i = 0; i < VISITS; i++) {
+            Set<Diagnosis> visitDiagnoses = new HashSet<>();
+            int diagnosesCount = 1 + random.nextInt(3);
+            while (visitDiagnoses.size() < diagnosesCount) {
+                visitDiagnoses.add(diagnoses.get(random.nextInt(DIAGNOSES)));
+            }
+
+            Visit visit = new Visit();
+            visit.setPatient(patients.get(random.nextInt(PATIENTS)));
+            visit.setDoctor(doctors.get(random.nextInt(DOCTORS)));
+            visit.setHealthSystem(healthSystems.get(random.nextInt(healthSystems.size())));
+            visit.setDiagnoses(visitDiagnoses);
+            visit.setVisitDate(LocalDate.of(2000, 1, 1).plusDays(random.nextInt(8000)));
+            testEntityManager.persist(visit);
+
+            if (i % 500 == 0) {
+                testEntityManager.flush();
+                testEntityManager.clear();
+            }
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        allVisits = visitRepository.findAll();
+    }
+
+    private BigDecimal sumInJava(Predicate<Visit> filter) {
+        return allVisits.stream()
+                .filter(filter)
+                .map(visit -> visit.getHealthSystem().getNoInsuranceFee())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static void assertSameAmount(BigDecimal expected, BigDecimal actual) {
+        assertNotNull(actual);
+        assertEquals(0, expected.compareTo(actual), () -> "expected " + expected + " but was " + actual);
+    }
+
+    @Test
+    void testGetTotalIncomeByDiagnosisId_withGeneratedVisits_shouldEqualSumOfFeesForEveryDiagnosis() {
+        for (Diagnosis diagnosis : diagnoses) {
+            assertSameAmount(sumInJava(visit -> visit.getDiagnoses().contains(diagnosis)),
+                    visitRepository.getTotalIncomeByDiagnosisId(diagnosis.getId()));
+        }
+    }
+
+    @Test
+    void testGetTotalIncomeFromPatientsNoInsurance_withGeneratedVisits_shouldEqualSumOfFees() {
+        assertSameAmount(sumInJava(visit -> !visit.getPatient().isHasInsurance()),
+                visitRepository.getTotalIncomeFromPatientsNoInsurance());
+    }
+
+    @Test
+    void testIncomeQueries_withNotExistingIds_shouldReturnZero() {
+        long notExistId = -1L;
+
+        assertSameAmount(BigDecimal.ZERO, visitRepository.getTotalIncomeByDiagnosisId(notExistId));
+    }
+
+    @Test
+    void testIncomeQueries_withoutVisits_shouldReturnZero() {
+        visitRepository.deleteAll();
+        testEntityManager.flush();
+
+        assertSameAmount(BigDecimal.ZERO, visitRepository.getTotalIncomeFromPatientsNoInsurance());
+    }
+}
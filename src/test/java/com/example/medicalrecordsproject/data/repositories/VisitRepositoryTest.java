@@ -1,5 +1,6 @@
 package com.example.medicalrecordsproject.data.repositories;
 
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
 import com.example.medicalrecordsproject.data.entities.*;
 import com.example.medicalrecordsproject.helpers.Helpers;
 import org.junit.jupiter.api.BeforeEach;
@@ -7,13 +8,16 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.util.ReflectionTestUtils;
 
-import java.math.BigDecimal;
+import java.sql.Date;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -83,36 +87,61 @@ class VisitRepositoryTest {
     }
 
     @Test()
-    void testFindAllByDoctorId_withVisitsWithDoctorId_shouldReturnVisits() {
+    void testFindCaseloadRows_withVisitsInPeriod_shouldReturnCountsWithPage() {
 
         testEntityManager.persistAndFlush(visitContains1);
         testEntityManager.persistAndFlush(visitContains2);
         testEntityManager.persistAndFlush(visitNotContains);
 
-        List<Visit> expected = List.of(visitContains1, visitContains2);
+        List<Object[]> rows = visitRepository.findCaseloadRows(doctorIsGp.getId(), LocalDate.of(2000, 1, 1),
+                LocalDate.of(2030, 1, 1), null, null, LocalDate.of(2000, 1, 1), 0L, 1);
 
-        assertIterableEquals(expected, visitRepository.findAllByDoctorId(doctorIsGp.getId()));
+        assertEquals(1, rows.size());
+        assertEquals(List.of(2L, 2L, 1L, visitContains2.getId(), insuredPatient1.getId()),
+                caseloadValuesOf(rows.get(0)));
+        assertEquals(visitContains2.getVisitDate(), ((Date) rows.get(0)[5]).toLocalDate());
     }
 
     @Test()
-    void testFindAllByDoctorId_withVisitsWithoutDoctorId_shouldReturnEmptyList() {
+    void testFindCaseloadRows_withFiltersAndCursor_shouldCountAllMatchingAndSeekAfterCursor() {
 
         testEntityManager.persistAndFlush(visitContains1);
         testEntityManager.persistAndFlush(visitContains2);
+        testEntityManager.persistAndFlush(visitNotContains);
 
-        assertIterableEquals(Collections.emptyList(), visitRepository.findAllByDoctorId(doctorNotGp.getId()));
+        List<Object[]> withDiagnosis = visitRepository.findCaseloadRows(doctorIsGp.getId(), LocalDate.of(2000, 1, 1),
+                LocalDate.of(2030, 1, 1), diagnosis1.getId(), true,
+                visitContains2.getVisitDate(), visitContains2.getId(), 10);
+        assertEquals(1, withDiagnosis.size());
+        assertEquals(List.of(2L, 2L, 1L, visitContains1.getId(), insuredPatient1.getId()),
+                caseloadValuesOf(withDiagnosis.get(0)));
+
+        List<Object[]> uninsured = visitRepository.findCaseloadRows(doctorNotGp.getId(), LocalDate.of(2011, 7, 21),
+                LocalDate.of(2011, 7, 21), diagnosis2.getId(), false, LocalDate.of(2011, 7, 21), 0L, 10);
+        assertEquals(1, uninsured.size());
+        assertEquals(List.of(1L, 0L, 1L, visitNotContains.getId(), uninsuredPatient1.getId()),
+                caseloadValuesOf(uninsured.get(0)));
     }
 
     @Test()
-    void testFindAllByDoctorId_notExistingDoctor_shouldReturnEmptyList() {
+    void testFindCaseloadRows_withNoVisitsInPeriod_shouldReturnZeroCountsWithoutVisit() {
 
         testEntityManager.persistAndFlush(visitContains1);
         testEntityManager.persistAndFlush(visitContains2);
-        testEntityManager.persistAndFlush(visitNotContains);
 
-        long notExistId = 5L;
+        List<Object[]> rows = visitRepository.findCaseloadRows(doctorIsGp.getId(), LocalDate.of(2010, 1, 1),
+                LocalDate.of(2020, 1, 1), null, null, LocalDate.of(2010, 1, 1), 0L, 10);
 
-        assertIterableEquals(Collections.emptyList(), visitRepository.findAllByDoctorId(notExistId));
+        assertEquals(1, rows.size());
+        assertEquals(0L, ((Number) rows.get(0)[0]).longValue());
+        assertNull(rows.get(0)[3]);
+    }
+
+    // The counts, visit id and patient id of a caseload row as longs
+    private static List<Long> caseloadValuesOf(Object[] row) {
+        return Stream.of(row[0], row[1], row[2], row[3], row[4])
+                .map(value -> ((Number) value).longValue())
+                .collect(Collectors.toList());
     }
 
     @Test()
@@ -144,7 +173,7 @@ class VisitRepositoryTest {
         testEntityManager.persistAndFlush(visitContains1);
         testEntityManager.persistAndFlush(visitContains2);
 
-        long notExistId = 5L;
+        long notExistId = -1L;
         int expected = 0;
 
         assertEquals(expected, visitRepository.countAllByPatientId(notExistId));
@@ -177,137 +206,139 @@ class VisitRepositoryTest {
 
         testEntityManager.persistAndFlush(visitContains1);
 
-        long notExistId = 5L;
+        long notExistId = -1L;
         int expected = 0;
 
         assertEquals(expected, visitRepository.countAllByDiagnosisId(notExistId));
     }
 
     @Test()
-    void testGetAllDoctorsBiggerIncome_withVisitsWithDoctorsBiggerIncome_shouldReturnCollection() {
+    void testFindFirstResponses_withLimit_shouldReturnEarliestVisits() {
 
         testEntityManager.persistAndFlush(visitContains1);
         testEntityManager.persistAndFlush(visitContains2);
         testEntityManager.persistAndFlush(visitNotContains);
 
-        int expected = 1;
-        BigDecimal minIncome = BigDecimal.valueOf(15);
+        List<VisitResponse> expected = List.of(responseOf(visitContains2), responseOf(visitNotContains));
 
-        assertEquals(expected, visitRepository.getAllDoctorsBiggerIncome(minIncome).size());
+        assertIterableEquals(expected, visitRepository.findFirstResponses(PageRequest.of(0, 2)));
     }
 
     @Test()
-    void testGetAllDoctorsBiggerIncome_withVisitsWithDoctorsBiggerIncome_shouldReturnEmptyCollection() {
+    void testFindResponsesAfter_withVisitsOnSameDate_shouldSeekByDateThenId() {
 
         testEntityManager.persistAndFlush(visitContains1);
         testEntityManager.persistAndFlush(visitContains2);
         testEntityManager.persistAndFlush(visitNotContains);
 
-        int expected = 0;
-        BigDecimal minIncome = BigDecimal.valueOf(30);
-
-        assertEquals(expected, visitRepository.getAllDoctorsBiggerIncome(minIncome).size());
+        Visit sameDateVisit = new Visit();
+        ReflectionTestUtils.setField(sameDateVisit, "patient", uninsuredPatient1);
+        ReflectionTestUtils.setField(sameDateVisit, "doctor", doctorNotGp);
+        ReflectionTestUtils.setField(sameDateVisit, "diagnoses", Set.of(diagnosis1));
+        ReflectionTestUtils.setField(sameDateVisit, "healthSystem", healthSystem);
+        ReflectionTestUtils.setField(sameDateVisit, "visitDate", visitContains1.getVisitDate());
+        testEntityManager.persistAndFlush(sameDateVisit);
+
+        assertIterableEquals(List.of(responseOf(visitContains1), responseOf(sameDateVisit)),
+                visitRepository.findResponsesAfter(visitNotContains.getVisitDate(), visitNotContains.getId(),
+                        PageRequest.of(0, 10)));
+        assertIterableEquals(List.of(responseOf(sameDateVisit)),
+                visitRepository.findResponsesAfter(visitContains1.getVisitDate(), visitContains1.getId(),
+                        PageRequest.of(0, 10)));
     }
 
     @Test()
-    void testFindAllVisitsByDiagnosis_withVisitsWithDiagnosis_shouldReturnVisits() {
+    void testFindResponsesAfter_afterLastVisit_shouldReturnEmptyList() {
 
         testEntityManager.persistAndFlush(visitContains1);
         testEntityManager.persistAndFlush(visitContains2);
-        testEntityManager.persistAndFlush(visitNotContains);
-
-        List<Visit> expected = List.of(visitContains1, visitContains2);
-
-        assertIterableEquals(expected, visitRepository.findAllVisitsByDiagnosis(diagnosis1.getId()));
-    }
 
-    @Test()
-    void testFindAllVisitsByDiagnosis_withVisitsWithoutDiagnosis_shouldReturnEmptyList() {
-
-        testEntityManager.persistAndFlush(visitContains1);
-
-        assertIterableEquals(Collections.emptyList(), visitRepository.findAllVisitsByDiagnosis(diagnosis2.getId()));
+        assertIterableEquals(Collections.emptyList(),
+                visitRepository.findResponsesAfter(visitContains1.getVisitDate(), visitContains1.getId(),
+                        PageRequest.of(0, 10)));
     }
 
     @Test()
-    void testFindAllVisitsByDiagnosis_notExistingDiagnosis_shouldReturnEmptyList() {
+    void testFindLatestResponsesOfPatient_shouldReturnVisitsOfPatientNewestFirst() {
 
         testEntityManager.persistAndFlush(visitContains1);
         testEntityManager.persistAndFlush(visitContains2);
         testEntityManager.persistAndFlush(visitNotContains);
 
-        long notExistId = 5L;
-
-        assertIterableEquals(Collections.emptyList(), visitRepository.findAllVisitsByDiagnosis(notExistId));
+        assertIterableEquals(List.of(responseOf(visitContains1), responseOf(visitContains2)),
+                visitRepository.findLatestResponsesOfPatient(insuredPatient1.getId(), PageRequest.of(0, 10)));
+        assertIterableEquals(List.of(responseOf(visitContains1)),
+                visitRepository.findLatestResponsesOfPatient(insuredPatient1.getId(), PageRequest.of(0, 1)));
     }
 
     @Test()
-    void testFindAllByPatient_HasInsuranceFalse_withVisitsWithUninsuredPatients_shouldReturnVisits() {
+    void testFindResponsesOfPatientBefore_withVisitsOnSameDate_shouldSeekByDateThenId() {
 
         testEntityManager.persistAndFlush(visitContains1);
         testEntityManager.persistAndFlush(visitContains2);
         testEntityManager.persistAndFlush(visitNotContains);
 
-        List<Visit> expected = List.of(visitNotContains);
-
-        assertIterableEquals(expected, visitRepository.findAllByPatient_HasInsuranceFalse());
+        Visit sameDateVisit = new Visit();
+        ReflectionTestUtils.setField(sameDateVisit, "patient", insuredPatient1);
+        ReflectionTestUtils.setField(sameDateVisit, "doctor", doctorNotGp);
+        ReflectionTestUtils.setField(sameDateVisit, "diagnoses", Set.of(diagnosis1));
+        ReflectionTestUtils.setField(sameDateVisit, "healthSystem", healthSystem);
+        ReflectionTestUtils.setField(sameDateVisit, "visitDate", visitContains1.getVisitDate());
+        testEntityManager.persistAndFlush(sameDateVisit);
+
+        assertIterableEquals(List.of(responseOf(visitContains1), responseOf(visitContains2)),
+                visitRepository.findResponsesOfPatientBefore(insuredPatient1.getId(), sameDateVisit.getVisitDate(),
+                        sameDateVisit.getId(), PageRequest.of(0, 10)));
+        assertIterableEquals(Collections.emptyList(),
+                visitRepository.findResponsesOfPatientBefore(insuredPatient1.getId(), visitContains2.getVisitDate(),
+                        visitContains2.getId(), PageRequest.of(0, 10)));
     }
 
     @Test()
-    void testFindAllByPatient_HasInsuranceFalse_withVisitsWithoutUninsuredPatients_shouldReturnEmptyList() {
+    void testFindDiagnosisRows_shouldReturnDiagnosesOfGivenVisits() {
 
         testEntityManager.persistAndFlush(visitContains1);
         testEntityManager.persistAndFlush(visitContains2);
+        testEntityManager.persistAndFlush(visitNotContains);
 
-        assertIterableEquals(Collections.emptyList(), visitRepository.findAllByPatient_HasInsuranceFalse());
-    }
-
-    @Test()
-    void testFindAllByPatient_HasInsuranceFalse_withoutVisits_shouldReturnEmptyList() {
+        Set<List<Object>> expected = Set.of(
+                List.of(visitContains2.getId(), diagnosis1.getId(), diagnosis1.getName()),
+                List.of(visitContains2.getId(), diagnosis2.getId(), diagnosis2.getName()),
+                List.of(visitNotContains.getId(), diagnosis2.getId(), diagnosis2.getName()));
 
-        assertIterableEquals(Collections.emptyList(), visitRepository.findAllByPatient_HasInsuranceFalse());
+        assertEquals(expected, visitRepository.findDiagnosisRows(List.of(visitContains2.getId(), visitNotContains.getId()))
+                .stream().map(List::of).collect(Collectors.toSet()));
     }
 
-    @Test()
-    void testFindAllByDoctorIdAndPatient_HasInsuranceTrue_withExistingDoctorInsuredPatient_shouldReturnVisits() {
-
-        testEntityManager.persistAndFlush(visitContains1);
-        testEntityManager.persistAndFlush(visitContains2);
-        testEntityManager.persistAndFlush(visitNotContains);
-
-        List<Visit> expected = List.of(visitContains1, visitContains2);
-
-        assertIterableEquals(expected, visitRepository.findAllByDoctorIdAndPatient_HasInsuranceTrue(doctorIsGp.getId()));
+    // The row the constructor expressions build for the visit, without its diagnoses
+    private static VisitResponse responseOf(Visit visit) {
+        return new VisitResponse(visit.getId(), visit.getPatient().getId(), visit.getDoctor().getId(), visit.getVisitDate());
     }
 
     @Test()
-    void testFindAllByDoctorIdAndPatient_HasInsuranceTrue_withExistingDoctorUninsuredPatient_shouldReturnEmptyList() {
+    void testStreamAll_withVisits_shouldStreamAllVisitsById() {
 
         testEntityManager.persistAndFlush(visitContains1);
         testEntityManager.persistAndFlush(visitContains2);
         testEntityManager.persistAndFlush(visitNotContains);
+        testEntityManager.clear();
 
-        assertIterableEquals(Collections.emptyList(),
-                visitRepository.findAllByDoctorIdAndPatient_HasInsuranceTrue(doctorNotGp.getId()));
+        try (Stream<Visit> visits = visitRepository.streamAll()) {
+            assertIterableEquals(List.of(visitContains1, visitContains2, visitNotContains),
+                    visits.collect(Collectors.toList()));
+        }
     }
 
     @Test()
-    void testFindAllByDoctorIdAndPatient_HasInsuranceTrue_notExistingDoctor_shouldReturnEmptyList() {
+    void testStreamAllSince_withVisits_shouldStreamVisitsOnOrAfterDate() {
 
         testEntityManager.persistAndFlush(visitContains1);
         testEntityManager.persistAndFlush(visitContains2);
         testEntityManager.persistAndFlush(visitNotContains);
+        testEntityManager.clear();
 
-        long notExistId = 5L;
-
-        assertIterableEquals(Collections.emptyList(),
-                visitRepository.findAllByDoctorIdAndPatient_HasInsuranceTrue(notExistId));
-    }
-
-    @Test()
-    void testFindAllByDoctorIdAndPatient_HasInsuranceTrue_noVisits_shouldReturnEmptyList() {
-
-        assertIterableEquals(Collections.emptyList(),
-                visitRepository.findAllByDoctorIdAndPatient_HasInsuranceTrue(doctorIsGp.getId()));
+        try (Stream<Visit> visits = visitRepository.streamAllSince(visitNotContains.getVisitDate())) {
+            assertIterableEquals(List.of(visitContains1, visitNotContains), visits.collect(Collectors.toList()));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+package com.example.medicalrecordsproject.datasource;
+
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Two H2 databases stand for the primary and the replica, a row that is only in one of them shows where a request went
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingDataSourceTest.PRIMARY_URL,
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "replicas.urls=" + ReplicaRoutingDataSourceTest.REPLICA_URL,
+        "income-ledger.reconcile-cron=-",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor=WARN"})
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class ReplicaRoutingDataSourceTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    private static final long REPLICA_DOCTOR_ID = 900_000L;
+
+    private static final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+
+    private static final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    public static void migrateReplica() {
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "sa", "")
+                .locations("classpath:db/migration/h2")
+                .load()
+                .migrate();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        primary.update("DELETE FROM doctors");
+        replica.update("DELETE FROM doctors");
+    }
+
+    @Test
+    void testRead_shouldUseReplica() throws Exception {
+        replica.update("INSERT INTO doctors (id, birthdate, is_gp, name) VALUES (?, ?, ?, ?)",
+                REPLICA_DOCTOR_ID, java.sql.Date.valueOf("1980-01-01"), false, "replica doctor");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/doctors/" + REPLICA_DOCTOR_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("replica doctor"));
+    }
+
+    @Test
+    void testWrite_shouldUsePrimary() throws Exception {
+        DoctorRequest doctorRequest = new DoctorRequest();
+        doctorRequest.setName("primary doctor");
+        doctorRequest.setGp(false);
+        doctorRequest.setSpecialtiesIds(Set.of());
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/doctors")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(doctorRequest)))
+                .andExpect(status().isCreated());
+
+        // Not doctorRepository.count(), the repository reads are read-only and go to the replica too
+        assertEquals(1, primary.queryForObject("SELECT COUNT(*) FROM doctors", Integer.class));
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM doctors", Integer.class));
+    }
+
+    @Test
+    void testReplicaPool_shouldHaveItsOwnMetrics() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/doctors"))
+                .andExpect(status().isOk());
+
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "replica-1").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "primary").gauge());
+    }
+}
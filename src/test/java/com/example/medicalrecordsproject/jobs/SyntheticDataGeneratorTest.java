@@ -0,0 +1,131 @@
+package com.example.medicalrecordsproject.jobs;
+
+import com.example.medicalrecordsproject.data.entities.Doctor;
+import com.example.medicalrecordsproject.data.repositories.DoctorRepository;
+import com.example.medicalrecordsproject.data.repositories.PatientRepository;
+import com.example.medicalrecordsproject.data.repositories.VisitRepository;
+import com.example.medicalrecordsproject.helpers.Helpers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false, properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor=WARN"})
+@Import(SyntheticDataGenerator.class)
+class SyntheticDataGeneratorTest {
+
+    private static final LocalDate LAST_VISIT_DATE = LocalDate.of(2023, 12, 31);
+
+    private static final SyntheticDataGenerator.Settings SETTINGS =
+            new SyntheticDataGenerator.Settings(20, 300, 3000, 40, 2, LAST_VISIT_DATE, 7);
+
+    @Autowired
+    private SyntheticDataGenerator syntheticDataGenerator;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private VisitRepository visitRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    // Every visit relative to the first generated ids, so two runs can be compared
+    private List<Map<String, Object>> visitsFingerprint() {
+        return jdbcTemplate.queryForList("SELECT v.visit_date, " +
+                "v.doctor_id - (SELECT MIN(id) FROM doctors) AS doctor, " +
+                "v.patient_id - (SELECT MIN(id) FROM patients) AS patient, " +
+                "(SELECT COUNT(*) FROM visits_diagnoses vd WHERE vd.visit_id = v.id) AS diagnoses " +
+                "FROM visits v " +
+                "ORDER BY v.id");
+    }
+
+    private void deleteAll() {
+        for (String table : List.of("visits_diagnoses", "visits", "patients", "doctors_specialties", "doctors",
+                "health_systems", "diagnoses", "specialties")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void testGenerate_withSettings_shouldInsertRequestedRows() {
+        syntheticDataGenerator.generate(SETTINGS);
+
+        assertEquals(20, doctorRepository.count());
+        assertEquals(300, patientRepository.count());
+        assertEquals(3000, visitRepository.count());
+
+        Integer diagnosesPerVisit = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visits v " +
+                "WHERE (SELECT COUNT(*) FROM visits_diagnoses vd WHERE vd.visit_id = v.id) NOT BETWEEN 1 AND 3", Integer.class);
+        assertEquals(0, diagnosesPerVisit);
+
+        Integer patientsWithDoctorNotGp = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM patients p " +
+                "JOIN doctors d ON d.id = p.gp_id WHERE d.is_gp = FALSE", Integer.class);
+        assertEquals(0, patientsWithDoctorNotGp);
+
+        Integer doctorsWithoutSpecialty = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM doctors d " +
+                "WHERE NOT EXISTS (SELECT 1 FROM doctors_specialties ds WHERE ds.doctor_id = d.id)", Integer.class);
+        assertEquals(0, doctorsWithoutSpecialty);
+    }
+
+    @Test
+    void testGenerate_withSameSeed_shouldGenerateSameVisits() {
+        syntheticDataGenerator.generate(SETTINGS);
+        List<Map<String, Object>> first = visitsFingerprint();
+        deleteAll();
+
+        syntheticDataGenerator.generate(SETTINGS);
+
+        assertEquals(first, visitsFingerprint());
+    }
+
+    @Test
+    void testGenerate_withSettings_shouldSpreadVisitDatesOverYears() {
+        syntheticDataGenerator.generate(SETTINGS);
+
+        LocalDate firstVisitDate = jdbcTemplate.queryForObject("SELECT MIN(visit_date) FROM visits", LocalDate.class);
+        LocalDate lastVisitDate = jdbcTemplate.queryForObject("SELECT MAX(visit_date) FROM visits", LocalDate.class);
+
+        assertFalse(lastVisitDate.isAfter(LAST_VISIT_DATE));
+        assertFalse(firstVisitDate.isBefore(LAST_VISIT_DATE.minusYears(2)));
+        assertTrue(firstVisitDate.isBefore(LAST_VISIT_DATE.minusYears(1)));
+    }
+
+    @Test
+    void testGenerate_withSettings_shouldSkewDiagnoses() {
+        syntheticDataGenerator.generate(SETTINGS);
+
+        List<Integer> visitsPerDiagnosis = jdbcTemplate.queryForList("SELECT COUNT(*) FROM visits_diagnoses " +
+                "GROUP BY diagnoses_id ORDER BY COUNT(*) DESC", Integer.class);
+
+        assertTrue(visitsPerDiagnosis.get(0) > 5 * visitsPerDiagnosis.get(visitsPerDiagnosis.size() - 1));
+    }
+
+    @Test
+    void testPersist_afterGenerate_shouldContinueAfterGeneratedIds() {
+        syntheticDataGenerator.generate(SETTINGS);
+        Long lastGeneratedId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM doctors", Long.class);
+
+        Doctor doctor = testEntityManager.persistAndFlush(Helpers.getDoctorIsGp());
+
+        assertTrue(doctor.getId() > lastGeneratedId);
+        assertEquals(21, doctorRepository.count());
+    }
+}
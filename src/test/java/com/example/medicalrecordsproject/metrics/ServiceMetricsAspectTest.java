@@ -0,0 +1,124 @@
+package com.example.medicalrecordsproject.metrics;
+
+import com.example.medicalrecordsproject.data.entities.Doctor;
+import com.example.medicalrecordsproject.data.repositories.DoctorRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.OrderUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.interceptor.BeanFactoryTransactionAttributeSourceAdvisor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Calls DoctorService through the endpoints and reads the meters back, from the registry and from the Prometheus scrape
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor=WARN"})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@AutoConfigureMetrics
+class ServiceMetricsAspectTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private BeanFactoryTransactionAttributeSourceAdvisor transactionAdvisor;
+
+    @AfterEach
+    public void cleanup() {
+        doctorRepository.deleteAll();
+    }
+
+    private void addDoctors(int count) {
+        for (int i = 0; i < count; i++) {
+            Doctor doctor = new Doctor();
+            doctor.setName("doctor" + i);
+            doctor.setGp(false);
+            doctorRepository.save(doctor);
+        }
+    }
+
+    private Timer timer(String method, String exception) {
+        return meterRegistry.find("service.calls")
+                .tags("service", "DoctorService", "method", method, "exception", exception)
+                .timer();
+    }
+
+    private DistributionSummary summary(String name, String method) {
+        return meterRegistry.find(name)
+                .tags("service", "DoctorService", "method", method)
+                .summary();
+    }
+
+    private long count(Timer timer) {
+        return timer == null ? 0 : timer.count();
+    }
+
+    @Test
+    void testGetDoctorsPage_shouldRecordLatencyRowsAndStatements() throws Exception {
+        addDoctors(3);
+        long calls = count(timer("getDoctorsPage", "none"));
+        DistributionSummary rows = summary("service.rows", "getDoctorsPage");
+        double rowsBefore = rows == null ? 0 : rows.totalAmount();
+        DistributionSummary statements = summary("service.sql.statements", "getDoctorsPage");
+        double statementsBefore = statements == null ? 0 : statements.totalAmount();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/doctors"))
+                .andExpect(status().isOk());
+
+        assertEquals(calls + 1, count(timer("getDoctorsPage", "none")));
+        assertEquals(rowsBefore + 3, summary("service.rows", "getDoctorsPage").totalAmount());
+        assertTrue(summary("service.sql.statements", "getDoctorsPage").totalAmount() > statementsBefore);
+    }
+
+    @Test
+    void testGetDoctorById_withMissingDoctor_shouldTagTheException() throws Exception {
+        long calls = count(timer("getDoctorById", "EntityNotFoundException"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/doctors/{id}", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+
+        assertEquals(calls + 1, count(timer("getDoctorById", "EntityNotFoundException")));
+    }
+
+    @Test
+    void testPrometheus_afterServiceCall_shouldExposeLatencyHistogram() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/doctors"))
+                .andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(scrape.contains(
+                "service_calls_seconds_bucket{exception=\"none\",method=\"getDoctorsPage\",service=\"DoctorService\",le="));
+        assertTrue(scrape.contains("service_rows_count{method=\"getDoctorsPage\",service=\"DoctorService\",}"));
+        assertTrue(scrape.contains("service_sql_statements_sum{method=\"getDoctorsPage\",service=\"DoctorService\",}"));
+    }
+
+    @Test
+    void testOrder_shouldWrapTransactionInterceptor() {
+        // the lower order runs first, around the advisors with a higher one
+        assertTrue(OrderUtils.getOrder(ServiceMetricsAspect.class, Ordered.LOWEST_PRECEDENCE)
+                < transactionAdvisor.getOrder());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.medicalrecordsproject.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(OutputCaptureExtension.class)
+class SlowQueryDataSourceTest {
+
+    private static final String QUERY = "SELECT X FROM SYSTEM_RANGE(1, 3) WHERE X > ?";
+
+    private JdbcTemplate jdbcTemplate(SlowQueryLog slowQueryLog) {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:slow-query-log;DB_CLOSE_DELAY=-1", "sa", "", true);
+        return new JdbcTemplate(new SlowQueryDataSource(dataSource, slowQueryLog));
+    }
+
+    @Test
+    void testQuery_slowerThanThreshold_shouldLogWithBinds(CapturedOutput output) {
+        List<Long> rows = jdbcTemplate(new SlowQueryLog(0, 1, false)).queryForList(QUERY, Long.class, 1);
+
+        assertEquals(List.of(2L, 3L), rows);
+        assertTrue(output.getOut().contains("Slow query"));
+        assertTrue(output.getOut().contains(QUERY + " binds {1=1}"));
+    }
+
+    @Test
+    void testQuery_withRedactedBinds_shouldLogWithoutBinds(CapturedOutput output) {
+        jdbcTemplate(new SlowQueryLog(0, 1, true)).queryForList(QUERY, Long.class, 1);
+
+        assertTrue(output.getOut().contains(QUERY));
+        assertFalse(output.getOut().contains("binds"));
+    }
+
+    @Test
+    void testBatch_slowerThanThreshold_shouldLogBatchSize(CapturedOutput output) {
+        JdbcTemplate jdbcTemplate = jdbcTemplate(new SlowQueryLog(0, 1, false));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS slow_query_batch (id BIGINT)");
+
+        jdbcTemplate.batchUpdate("INSERT INTO slow_query_batch (id) VALUES (?)",
+                List.of(new Object[]{1L}, new Object[]{2L}, new Object[]{3L}));
+
+        assertTrue(output.getOut().contains("for a batch of 3: INSERT INTO slow_query_batch"));
+    }
+
+    @Test
+    void testQuery_fasterThanThreshold_shouldNotLog(CapturedOutput output) {
+        jdbcTemplate(new SlowQueryLog(60_000, 1, false)).queryForList(QUERY, Long.class, 1);
+
+        assertFalse(output.getOut().contains("Slow query"));
+    }
+
+    @Test
+    void testQuery_withZeroSampleRate_shouldNotLog(CapturedOutput output) {
+        jdbcTemplate(new SlowQueryLog(0, 0, false)).queryForList(QUERY, Long.class, 1);
+
+        assertFalse(output.getOut().contains("Slow query"));
+    }
+
+    @Test
+    void testSlowQueryLog_withInvalidSampleRate_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new SlowQueryLog(0, 1.5, true));
+    }
+}
@@ -2,11 +2,14 @@ package com.example.medicalrecordsproject.service.impl;
 
 import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisRequest;
 import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.data.entities.Diagnosis;
 import com.example.medicalrecordsproject.data.repositories.DiagnosisRepository;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.helpers.Helpers;
+import com.example.medicalrecordsproject.utils.KeysetCursor;
 import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,7 +19,6 @@ import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,6 +37,9 @@ class DiagnosisServiceImplTest {
     @Spy
     private MapperUtil mapperUtil;
 
+    @Spy
+    private ReferenceCaches referenceCaches = new ReferenceCaches(100);
+
     @InjectMocks
     private DiagnosisServiceImpl diagnosisService;
 
@@ -66,19 +71,14 @@ class DiagnosisServiceImplTest {
     }
 
     @Test
-    void testGetAllDiagnoses_withDiagnoses_shouldReturnAllDiagnosis() {
-        List<DiagnosisResponse> expected = mapperUtil.mapList(List.of(diagnosis1, diagnosis2), DiagnosisResponse.class);
+    void testGetDiagnosesPage_withMoreDiagnosesThanLimit_shouldReturnPageAndNextCursor() {
+        // the pages are cut from the cached list of all diagnoses
+        given(diagnosisRepository.findAll()).willReturn(List.of(diagnosis2, diagnosis1));
 
-        given(mapperUtil.mapList(diagnosisRepository.findAll(), DiagnosisResponse.class)).willReturn(expected);
+        CursorPage<DiagnosisResponse> page = diagnosisService.getDiagnosesPage(1, null);
 
-        assertIterableEquals(expected, diagnosisService.getAllDiagnoses());
-    }
-
-    @Test
-    void testGetAllDiagnoses_withNoDiagnoses_shouldReturnEmptyList() {
-        given(mapperUtil.mapList(diagnosisRepository.findAll(), DiagnosisResponse.class)).willReturn(Collections.emptyList());
-
-        assertIterableEquals(Collections.emptyList(), diagnosisService.getAllDiagnoses());
+        assertIterableEquals(mapperUtil.mapList(List.of(diagnosis1), DiagnosisResponse.class), page.getItems());
+        assertEquals(KeysetCursor.of(diagnosis1.getId()).encode(), page.getNextCursor());
     }
 
     @Test
@@ -118,6 +118,23 @@ class DiagnosisServiceImplTest {
         assertEquals(expectedDiagnosisResponse, actualDiagnosisResponse);
     }
 
+    @Test
+    void testGetDiagnosisById_afterUpdate_shouldLoadChangedDiagnosis() {
+        given(diagnosisRepository.findById(anyLong())).willReturn(Optional.of(diagnosis2));
+        given(diagnosisRepository.save(any())).willReturn(diagnosis2);
+
+        diagnosisService.getDiagnosisById(diagnosis2.getId());
+        diagnosisService.getDiagnosisById(diagnosis2.getId());
+        verify(diagnosisRepository, times(1)).findById(diagnosis2.getId());
+
+        diagnosisService.updateDiagnosis(diagnosis2.getId(), diagnosisRequest);
+        DiagnosisResponse actual = diagnosisService.getDiagnosisById(diagnosis2.getId());
+
+        // once for the first read, once for the update and once for the read after the update
+        verify(diagnosisRepository, times(3)).findById(diagnosis2.getId());
+        assertEquals("covid", actual.getName());
+    }
+
     @Test
     void testUpdateDiagnosis_withNoSuchDiagnosis_shouldThrow() {
         given(diagnosisRepository.findById(anyLong())).willReturn(Optional.empty());
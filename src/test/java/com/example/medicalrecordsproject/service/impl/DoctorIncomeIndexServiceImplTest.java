@@ -0,0 +1,153 @@
+package com.example.medicalrecordsproject.service.impl;
+
+import com.example.medicalrecordsproject.data.repositories.DoctorIncomeRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorIncomeIndexServiceImplTest {
+
+    @Mock
+    private DoctorIncomeRepository doctorIncomeRepository;
+
+    @InjectMocks
+    private DoctorIncomeIndexServiceImpl doctorIncomeIndexService;
+
+    @Test
+    void testCountDoctorsAbove_calledTwice_shouldBuildIndexOnce() {
+        given(doctorIncomeRepository.getIncomesWithRevision()).willReturn(List.of(
+                new Object[]{1L, BigDecimal.valueOf(10), 1L},
+                new Object[]{2L, BigDecimal.valueOf(30), 1L}));
+
+        assertEquals(2, doctorIncomeIndexService.countDoctorsAbove(BigDecimal.ZERO));
+        assertEquals(1, doctorIncomeIndexService.countDoctorsAbove(BigDecimal.valueOf(15)));
+        verify(doctorIncomeRepository, times(1)).getIncomesWithRevision();
+    }
+
+    @Test
+    void testIncomeChanged_afterBuild_shouldUpdateIndex() {
+        given(doctorIncomeRepository.getIncomesWithRevision())
+                .willReturn(List.<Object[]>of(new Object[]{1L, BigDecimal.valueOf(10), 1L}));
+        doctorIncomeIndexService.rebuild();
+
+        doctorIncomeIndexService.incomeChanged(2L, BigDecimal.valueOf(20), 1L);
+
+        assertEquals(2L, doctorIncomeIndexService.getTopDoctors(1).get(0).getDoctorId());
+        assertEquals(new BigDecimal("50.00"), doctorIncomeIndexService.getPercentileRank(2L));
+    }
+
+    @Test
+    void testIncomeChanged_beforeBuild_shouldBeReadFromLedger() {
+        doctorIncomeIndexService.incomeChanged(1L, BigDecimal.valueOf(20), 1L);
+        given(doctorIncomeRepository.getIncomesWithRevision())
+                .willReturn(List.<Object[]>of(new Object[]{1L, BigDecimal.valueOf(20), 1L}));
+
+        assertEquals(1, doctorIncomeIndexService.countDoctorsAbove(BigDecimal.TEN));
+    }
+
+    @Test
+    void testIncomeChanged_alreadyReadByRebuild_shouldBeIgnored() {
+        // the change was committed before the rebuild read the row, its callback comes after it
+        given(doctorIncomeRepository.getIncomesWithRevision())
+                .willReturn(List.<Object[]>of(new Object[]{1L, BigDecimal.valueOf(30), 2L}));
+        doctorIncomeIndexService.rebuild();
+
+        doctorIncomeIndexService.incomeChanged(1L, BigDecimal.valueOf(10), 1L);
+        doctorIncomeIndexService.incomeChanged(1L, BigDecimal.valueOf(30), 2L);
+
+        assertEquals(0, BigDecimal.valueOf(30).compareTo(doctorIncomeIndexService.getTopDoctors(1).get(0).getIncome()));
+    }
+
+    @Test
+    void testIncomeChanged_callbacksOutOfOrder_shouldKeepNewestIncome() {
+        given(doctorIncomeRepository.getIncomesWithRevision())
+                .willReturn(List.<Object[]>of(new Object[]{1L, BigDecimal.valueOf(10), 1L}));
+        doctorIncomeIndexService.rebuild();
+
+        doctorIncomeIndexService.incomeChanged(1L, BigDecimal.valueOf(30), 3L);
+        doctorIncomeIndexService.incomeChanged(1L, BigDecimal.valueOf(20), 2L);
+
+        assertEquals(1, doctorIncomeIndexService.countDoctorsAbove(BigDecimal.valueOf(25)));
+    }
+
+    @Test
+    void testIncomeChanged_duringRebuild_shouldBeAppliedAfterIt() throws Exception {
+        Thread callback = new Thread(() -> doctorIncomeIndexService.incomeChanged(1L, BigDecimal.valueOf(50), 3L));
+        given(doctorIncomeRepository.getIncomesWithRevision())
+                .willReturn(List.<Object[]>of(new Object[]{1L, BigDecimal.valueOf(10), 1L}))
+                .willAnswer(invocation -> {
+                    // committed after the ledger was read, the callback has to wait for the new index
+                    callback.start();
+                    while (callback.getState() != Thread.State.BLOCKED) {
+                        Thread.onSpinWait();
+                    }
+                    return List.<Object[]>of(new Object[]{1L, BigDecimal.valueOf(20), 2L});
+                });
+        doctorIncomeIndexService.rebuild();
+
+        doctorIncomeIndexService.rebuild();
+        callback.join();
+
+        assertEquals(1, doctorIncomeIndexService.countDoctorsAbove(BigDecimal.valueOf(40)));
+    }
+
+    @Test
+    void testDoctorAdded_afterBuild_shouldCountWithoutIncome() {
+        given(doctorIncomeRepository.getIncomesWithRevision())
+                .willReturn(List.<Object[]>of(new Object[]{1L, BigDecimal.valueOf(10), 1L}));
+        doctorIncomeIndexService.rebuild();
+
+        doctorIncomeIndexService.doctorAdded(2L, 0L);
+
+        assertEquals(2, doctorIncomeIndexService.getTopDoctors(5).size());
+        assertEquals(new BigDecimal("50.00"), doctorIncomeIndexService.getPercentileRank(1L));
+    }
+
+    @Test
+    void testDoctorAdded_alreadyChangedByLaterCommit_shouldKeepIncome() {
+        given(doctorIncomeRepository.getIncomesWithRevision()).willReturn(List.of());
+        doctorIncomeIndexService.rebuild();
+
+        doctorIncomeIndexService.incomeChanged(2L, BigDecimal.valueOf(20), 1L);
+        doctorIncomeIndexService.doctorAdded(2L, 0L);
+
+        assertEquals(1, doctorIncomeIndexService.countDoctorsAbove(BigDecimal.TEN));
+    }
+
+    @Test
+    void testDoctorRemoved_afterBuild_shouldLeaveRankAndTop() {
+        given(doctorIncomeRepository.getIncomesWithRevision()).willReturn(List.of(
+                new Object[]{1L, BigDecimal.valueOf(10), 1L},
+                new Object[]{2L, BigDecimal.ZERO, 0L}));
+        doctorIncomeIndexService.rebuild();
+
+        doctorIncomeIndexService.doctorRemoved(2L);
+        // a change committed before the delete whose callback comes after it
+        doctorIncomeIndexService.incomeChanged(2L, BigDecimal.valueOf(30), 1L);
+
+        assertEquals(1, doctorIncomeIndexService.getTopDoctors(5).size());
+        assertEquals(new BigDecimal("0.00"), doctorIncomeIndexService.getPercentileRank(1L));
+    }
+
+    @Test
+    void testRebuild_shouldReplaceIndex() {
+        given(doctorIncomeRepository.getIncomesWithRevision())
+                .willReturn(List.<Object[]>of(new Object[]{1L, BigDecimal.valueOf(10), 1L}))
+                .willReturn(List.of());
+        doctorIncomeIndexService.rebuild();
+
+        doctorIncomeIndexService.rebuild();
+
+        assertEquals(0, doctorIncomeIndexService.countDoctorsAbove(BigDecimal.ZERO));
+    }
+}
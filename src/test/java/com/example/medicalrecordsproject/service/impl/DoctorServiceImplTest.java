@@ -2,13 +2,18 @@ package com.example.medicalrecordsproject.service.impl;
 
 import com.example.medicalrecordsproject.data.dtos.doctors.DoctorRequest;
 import com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.data.entities.Doctor;
 import com.example.medicalrecordsproject.data.entities.Specialty;
 import com.example.medicalrecordsproject.data.repositories.DoctorRepository;
 import com.example.medicalrecordsproject.data.repositories.SpecialtyRepository;
+import com.example.medicalrecordsproject.exceptions.EntitiesNotFoundException;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.helpers.Helpers;
+import com.example.medicalrecordsproject.service.IncomeLedgerService;
+import com.example.medicalrecordsproject.utils.KeysetCursor;
 import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,6 +21,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.*;
@@ -38,6 +44,12 @@ class DoctorServiceImplTest {
     @Spy
     private MapperUtil mapperUtil;
 
+    @Spy
+    private ReferenceCaches referenceCaches = new ReferenceCaches(100);
+
+    @Mock
+    private IncomeLedgerService incomeLedgerService;
+
     @InjectMocks
     private DoctorServiceImpl doctorService;
 
@@ -65,8 +77,7 @@ class DoctorServiceImplTest {
 
     @Test
     void testCreateDoctor_withExistingSpecialties_shouldAddNewDoctor() {
-        given(specialtyRepository.findById(anyLong())).willReturn(Optional.of(specialty1));
-        given(specialtyRepository.findById(anyLong())).willReturn(Optional.of(specialty2));
+        given(specialtyRepository.findAllById(any())).willReturn(List.of(specialty1, specialty2));
         given(doctorRepository.save(any())).willReturn(doctor1);
 
         ReflectionTestUtils.setField(doctor1, "specialties", Set.of(specialty1, specialty2));
@@ -78,11 +89,12 @@ class DoctorServiceImplTest {
         DoctorResponse actualDoctorResponse = doctorService.createDoctor(doctorRequest);
 
         assertEquals(expectedDoctorResponse, actualDoctorResponse);
+        verify(incomeLedgerService).doctorCreated(doctor1.getId());
     }
 
     @Test
     void testCreateDoctor_withOneNotExistingSpecialty_shouldThrow() {
-//        given(specialtyRepository.findById(specialty1.getId())).willReturn(Optional.of(specialty1));
+//        given(specialtyRepository.findAllById(any())).willReturn(List.of(specialty1));
 //        given(specialtyRepository.findById(specialty2.getId())).willReturn(Optional.empty());
 
         ReflectionTestUtils.setField(doctorRequest, "specialtiesIds", Set.of(specialty1.getId(), specialty2.getId()));
@@ -90,6 +102,7 @@ class DoctorServiceImplTest {
         assertThrows(EntityNotFoundException.class,
                 () -> doctorService.createDoctor(doctorRequest));
         verify(doctorRepository, never()).save(any());
+        verifyNoInteractions(incomeLedgerService);
     }
 
     @Test
@@ -106,8 +119,7 @@ class DoctorServiceImplTest {
 
     @Test
     void testGetSpecialtiesFromSpecialtiesIds_withDoctorRequestExistingSpecialties_shouldReturnSpecialties() {
-        given(specialtyRepository.findById(specialty1.getId())).willReturn(Optional.of(specialty1));
-        given(specialtyRepository.findById(specialty2.getId())).willReturn(Optional.of(specialty2));
+        given(specialtyRepository.findAllById(any())).willReturn(List.of(specialty1, specialty2));
         Set<Specialty> expected = Set.of(specialty1, specialty2);
 
         ReflectionTestUtils.setField(doctorRequest, "specialtiesIds", Set.of(specialty1.getId(), specialty2.getId()));
@@ -122,7 +134,7 @@ class DoctorServiceImplTest {
 
     @Test
     void testGetSpecialtiesFromSpecialtiesIds_withDoctorRequestOneNotExistingSpecialty_shouldThrow() {
-        given(specialtyRepository.findById(specialty1.getId())).willReturn(Optional.of(specialty1));
+        given(specialtyRepository.findAllById(any())).willReturn(List.of(specialty1));
 
         ReflectionTestUtils.setField(doctorRequest, "specialtiesIds", Set.of(specialty1.getId(), specialty2.getId()));
 
@@ -131,26 +143,41 @@ class DoctorServiceImplTest {
     }
 
     @Test
-    void testGetAllDoctors_withDoctors_shouldReturnAllDoctors() {
-        List<DoctorResponse> expected = mapperUtil.mapList(List.of(doctor1), DoctorResponse.class);
+    void testGetSpecialtiesFromSpecialtiesIds_withDoctorRequestNotExistingSpecialties_shouldListAllMissingIds() {
+        given(specialtyRepository.findAllById(any())).willReturn(List.of());
 
-        given(mapperUtil.mapList(doctorRepository.findAll(), DoctorResponse.class)).willReturn(expected);
+        ReflectionTestUtils.setField(doctorRequest, "specialtiesIds", Set.of(specialty1.getId(), specialty2.getId()));
+
+        EntitiesNotFoundException exception = assertThrows(EntitiesNotFoundException.class,
+                () -> doctorService.getSpecialtiesFromSpecialtiesIds(doctorRequest));
 
-        assertIterableEquals(expected, doctorService.getAllDoctors());
+        assertEquals(List.of(specialty1.getId(), specialty2.getId()), exception.getMissingIds());
     }
 
     @Test
-    void testGetAllDoctors_withNoDoctors_shouldReturnEmptyList() {
-        given(mapperUtil.mapList(doctorRepository.findAll(), DoctorResponse.class)).willReturn(Collections.emptyList());
+    void testGetDoctorsPage_withAfterCursorOnLastPage_shouldReturnNoCursor() {
+        ReflectionTestUtils.setField(doctor1, "specialties", Set.of(specialty1));
 
-        assertIterableEquals(Collections.emptyList(), doctorService.getAllDoctors());
+        given(doctorRepository.findResponsesAfter(0L, PageRequest.of(0, 11))).willReturn(List.of(doctorResponseOf(doctor1)));
+        given(doctorRepository.findSpecialtyRows(List.of(1L))).willReturn(List.<Object[]>of(
+                new Object[]{1L, specialty1.getId(), specialty1.getName()}));
+
+        CursorPage<DoctorResponse> page = doctorService.getDoctorsPage(10, KeysetCursor.of(0L).encode());
+
+        assertIterableEquals(mapperUtil.mapList(List.of(doctor1), DoctorResponse.class), page.getItems());
+        assertNull(page.getNextCursor());
+    }
+
+    // The row the constructor expression of DoctorRepository builds for the doctor
+    private static DoctorResponse doctorResponseOf(Doctor doctor) {
+        return new DoctorResponse(doctor.getId(), doctor.getName(), doctor.getBirthdate(), doctor.isGp());
     }
 
     @Test
     void testGetDoctorById_withDoctor_shouldReturnDoctor() {
         DoctorResponse expected = mapperUtil.modelMapper().map(doctor1, DoctorResponse.class);
 
-        given(doctorRepository.findById(anyLong())).willReturn(Optional.of(doctor1));
+        given(doctorRepository.findWithSpecialtiesById(anyLong())).willReturn(Optional.of(doctor1));
 
         DoctorResponse actual = doctorService.getDoctorById(doctor1.getId());
 
@@ -159,7 +186,7 @@ class DoctorServiceImplTest {
 
     @Test
     void testGetDoctorById_withNoSuchDoctor_shouldThrow() {
-        given(doctorRepository.findById(anyLong())).willReturn(Optional.empty());
+        given(doctorRepository.findWithSpecialtiesById(anyLong())).willReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class, () -> doctorService.getDoctorById(1L));
     }
@@ -167,8 +194,7 @@ class DoctorServiceImplTest {
     @Test
     void testUpdateDoctor_withExistingDoctorExistingSpecialties_shouldUpdateDoctor() {
         given(doctorRepository.findById(anyLong())).willReturn(Optional.of(doctor1));
-        given(specialtyRepository.findById(specialty1.getId())).willReturn(Optional.of(specialty1));
-        given(specialtyRepository.findById(specialty2.getId())).willReturn(Optional.of(specialty2));
+        given(specialtyRepository.findAllById(any())).willReturn(List.of(specialty1, specialty2));
         given(doctorRepository.save(any())).willReturn(doctor1);
 
         Doctor expectedUpdated = new Doctor();
@@ -190,7 +216,7 @@ class DoctorServiceImplTest {
     @Test
     void testUpdateDoctor_withExistingDoctorOneNotExistingSpecialty_shouldThrow() {
         given(doctorRepository.findById(anyLong())).willReturn(Optional.of(doctor1));
-        given(specialtyRepository.findById(specialty1.getId())).willReturn(Optional.of(specialty1));
+        given(specialtyRepository.findAllById(any())).willReturn(List.of(specialty1));
 
         ReflectionTestUtils.setField(doctorRequest, "specialtiesIds", Set.of(specialty1.getId(), specialty2.getId()));
 
@@ -215,6 +241,7 @@ class DoctorServiceImplTest {
         doctorService.deleteDoctor(doctor1.getId());
 
         verify(doctorRepository, times(1)).delete(doctor1);
+        verify(incomeLedgerService).doctorDeleted(doctor1.getId());
     }
 
     @Test
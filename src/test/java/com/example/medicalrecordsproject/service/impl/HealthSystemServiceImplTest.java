@@ -2,11 +2,15 @@ package com.example.medicalrecordsproject.service.impl;
 
 import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemRequest;
 import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.data.entities.HealthSystem;
 import com.example.medicalrecordsproject.data.repositories.HealthSystemRepository;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.helpers.Helpers;
+import com.example.medicalrecordsproject.service.IncomeLedgerService;
+import com.example.medicalrecordsproject.utils.KeysetCursor;
 import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,7 +21,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,6 +39,12 @@ class HealthSystemServiceImplTest {
     @Spy
     private MapperUtil mapperUtil;
 
+    @Spy
+    private ReferenceCaches referenceCaches = new ReferenceCaches(100);
+
+    @Mock
+    private IncomeLedgerService incomeLedgerService;
+
     @InjectMocks
     private HealthSystemServiceImpl healthSystemService;
 
@@ -63,19 +72,13 @@ class HealthSystemServiceImplTest {
     }
 
     @Test
-    void testGetAllHealthSystems_withHealthSystems_shouldReturnAllHealthSystems() {
-        List<HealthSystemResponse> expected = mapperUtil.mapList(List.of(healthSystem), HealthSystemResponse.class);
+    void testGetHealthSystemsPage_withAfterCursorOnLastPage_shouldReturnNoCursor() {
+        given(healthSystemRepository.findAll()).willReturn(List.of(healthSystem));
 
-        given(mapperUtil.mapList(healthSystemRepository.findAll(), HealthSystemResponse.class)).willReturn(expected);
-
-        assertIterableEquals(expected, healthSystemService.getAllHealthSystems());
-    }
-
-    @Test
-    void testGetAllHealthSystems_withNoHealthSystems_shouldReturnEmptyList() {
-        given(mapperUtil.mapList(healthSystemRepository.findAll(), HealthSystemResponse.class)).willReturn(Collections.emptyList());
+        CursorPage<HealthSystemResponse> page = healthSystemService.getHealthSystemsPage(10, KeysetCursor.of(0L).encode());
 
-        assertIterableEquals(Collections.emptyList(), healthSystemService.getAllHealthSystems());
+        assertIterableEquals(mapperUtil.mapList(List.of(healthSystem), HealthSystemResponse.class), page.getItems());
+        assertNull(page.getNextCursor());
     }
 
     @Test
@@ -113,6 +116,8 @@ class HealthSystemServiceImplTest {
                 .updateHealthSystem(healthSystem.getId(), healthSystemRequest);
 
         assertEquals(expectedHealthSystemResponse, actualHealthSystemResponse);
+        verify(incomeLedgerService, times(1))
+                .feeChanged(healthSystem.getId(), BigDecimal.valueOf(10), BigDecimal.valueOf(20));
     }
 
     @Test
@@ -0,0 +1,208 @@
+package com.example.medicalrecordsproject.service.impl;
+
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorRequest;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitRequest;
+import com.example.medicalrecordsproject.data.entities.Diagnosis;
+import com.example.medicalrecordsproject.data.entities.HealthSystem;
+import com.example.medicalrecordsproject.data.entities.Patient;
+import com.example.medicalrecordsproject.data.repositories.*;
+import com.example.medicalrecordsproject.service.DoctorService;
+import com.example.medicalrecordsproject.service.IncomeLedgerService;
+import com.example.medicalrecordsproject.service.VisitBatchService;
+import com.example.medicalrecordsproject.service.VisitService;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Writes visits of the same doctors from several threads at once, every one in its own committed transaction
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor=WARN"})
+@AutoConfigureTestDatabase
+class IncomeLedgerConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private VisitService visitService;
+
+    @Autowired
+    private VisitBatchService visitBatchService;
+
+    @Autowired
+    private IncomeLedgerService incomeLedgerService;
+
+    @Autowired
+    private DiagnosisRepository diagnosisRepository;
+
+    @Autowired
+    private HealthSystemRepository healthSystemRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private VisitRepository visitRepository;
+
+    @Autowired
+    private DoctorIncomeRepository doctorIncomeRepository;
+
+    @Autowired
+    private IncomeRollupRepository incomeRollupRepository;
+
+    @Autowired
+    private ReferenceCaches referenceCaches;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    private Diagnosis diagnosis;
+    private HealthSystem healthSystem;
+    private Patient patient;
+
+    @BeforeEach
+    public void setup() {
+        diagnosis = new Diagnosis();
+        diagnosis.setName("flu");
+        diagnosis = diagnosisRepository.save(diagnosis);
+
+        healthSystem = new HealthSystem();
+        healthSystem.setNoInsuranceFee(BigDecimal.TEN);
+        healthSystem = healthSystemRepository.save(healthSystem);
+
+        patient = new Patient();
+        patient.setName("patient");
+        patient.setHasInsurance(false);
+        patient = patientRepository.save(patient);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        executor.shutdownNow();
+        visitRepository.deleteAll();
+        patientRepository.deleteAll();
+        doctorRepository.deleteAll();
+        healthSystemRepository.deleteAll();
+        diagnosisRepository.deleteAll();
+        doctorIncomeRepository.deleteAll();
+        incomeRollupRepository.deleteAll();
+        // the rows were deleted through the repositories, not the services
+        referenceCaches.invalidateAll();
+    }
+
+    private Long createDoctor(String name) {
+        DoctorRequest doctorRequest = new DoctorRequest();
+        doctorRequest.setName(name);
+        doctorRequest.setBirthdate(LocalDate.of(1970, 1, 1));
+        doctorRequest.setSpecialtiesIds(Set.of());
+        doctorRequest.setGp(false);
+        return doctorService.createDoctor(doctorRequest).getId();
+    }
+
+    private VisitRequest visitRequest(Long doctorId) {
+        VisitRequest visitRequest = new VisitRequest();
+        visitRequest.setPatientId(patient.getId());
+        visitRequest.setDoctorId(doctorId);
+        visitRequest.setHealthSystemId(healthSystem.getId());
+        visitRequest.setDiagnosesIds(Set.of(diagnosis.getId()));
+        visitRequest.setVisitDate(LocalDate.of(2021, 8, 11));
+        return visitRequest;
+    }
+
+    // Starts every task at the same time and waits for all of them, rethrowing the first failure
+    private void runConcurrently(List<Callable<Object>> tasks) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        for (Callable<Object> task : tasks) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        for (Future<Object> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void testCreateVisit_firstVisitsOfNewDoctorAtOnce_shouldAllBeRecorded() throws Exception {
+        Long doctorId = createDoctor("new doctor");
+
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(() -> visitService.createVisit(visitRequest(doctorId)));
+        }
+        runConcurrently(tasks);
+
+        assertEquals(THREADS, visitRepository.count());
+        assertEquals(0, BigDecimal.TEN.multiply(BigDecimal.valueOf(THREADS))
+                .compareTo(incomeLedgerService.getIncomeOfDoctor(doctorId)));
+    }
+
+    @Test
+    void testCreateVisits_batchesWithSameDoctorsInOppositeOrder_shouldAllBeRecorded() throws Exception {
+        Long firstDoctorId = createDoctor("first doctor");
+        Long secondDoctorId = createDoctor("second doctor");
+
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            List<VisitRequest> batch = i % 2 == 0
+                    ? List.of(visitRequest(firstDoctorId), visitRequest(secondDoctorId))
+                    : List.of(visitRequest(secondDoctorId), visitRequest(firstDoctorId));
+            tasks.add(() -> visitBatchService.createVisits(batch));
+        }
+        runConcurrently(tasks);
+
+        assertEquals(2 * THREADS, visitRepository.count());
+        for (Long doctorId : List.of(firstDoctorId, secondDoctorId)) {
+            assertEquals(0, BigDecimal.TEN.multiply(BigDecimal.valueOf(THREADS))
+                    .compareTo(incomeLedgerService.getIncomeOfDoctor(doctorId)));
+        }
+    }
+
+    @Test
+    void testUpdateVisit_movingVisitsBetweenSameDoctorsInOppositeDirections_shouldAllBeRecorded() throws Exception {
+        Long firstDoctorId = createDoctor("first doctor");
+        Long secondDoctorId = createDoctor("second doctor");
+        List<Long> firstVisitIds = new ArrayList<>();
+        List<Long> secondVisitIds = new ArrayList<>();
+        for (int i = 0; i < THREADS / 2; i++) {
+            firstVisitIds.add(visitService.createVisit(visitRequest(firstDoctorId)).getId());
+            secondVisitIds.add(visitService.createVisit(visitRequest(secondDoctorId)).getId());
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS / 2; i++) {
+            Long firstVisitId = firstVisitIds.get(i);
+            Long secondVisitId = secondVisitIds.get(i);
+            tasks.add(() -> visitService.updateVisit(firstVisitId, visitRequest(secondDoctorId)));
+            tasks.add(() -> visitService.updateVisit(secondVisitId, visitRequest(firstDoctorId)));
+        }
+        runConcurrently(tasks);
+
+        assertTrue(incomeLedgerService.reconcile().isEmpty());
+        for (Long doctorId : List.of(firstDoctorId, secondDoctorId)) {
+            assertEquals(0, BigDecimal.TEN.multiply(BigDecimal.valueOf(THREADS / 2))
+                    .compareTo(incomeLedgerService.getIncomeOfDoctor(doctorId)));
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.medicalrecordsproject.service.impl;
+
+import com.example.medicalrecordsproject.data.dtos.incomes.DoctorIncomeDrift;
+import com.example.medicalrecordsproject.data.entities.*;
+import com.example.medicalrecordsproject.data.repositories.DoctorIncomeRepository;
+import com.example.medicalrecordsproject.data.repositories.IncomeRollupRepository;
+import com.example.medicalrecordsproject.data.repositories.VisitRepository;
+import com.example.medicalrecordsproject.helpers.Helpers;
+import com.example.medicalrecordsproject.utils.VisitAggregates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({IncomeLedgerServiceImpl.class, DoctorIncomeIndexServiceImpl.class, IncomeRollupServiceImpl.class,
+        VisitAggregates.class})
+class IncomeLedgerServiceImplTest {
+
+    @Autowired
+    private IncomeLedgerServiceImpl incomeLedgerService;
+
+    @Autowired
+    private DoctorIncomeRepository doctorIncomeRepository;
+
+    @Autowired
+    private VisitRepository visitRepository;
+
+    @Autowired
+    private IncomeRollupRepository incomeRollupRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private Doctor doctorIsGp;
+    private Doctor doctorNotGp;
+    private Patient insuredPatient1;
+    private Patient uninsuredPatient1;
+    private HealthSystem healthSystem;
+    private Visit visit1;
+    private Visit visit2;
+    private Visit visit3;
+
+    @BeforeEach
+    public void setup() {
+        doctorIsGp = testEntityManager.persistAndFlush(Helpers.getDoctorIsGp());
+        doctorNotGp = testEntityManager.persistAndFlush(Helpers.getDoctorNotGp());
+        healthSystem = testEntityManager.persistAndFlush(Helpers.getHealthSystem());
+        insuredPatient1 = testEntityManager.persistAndFlush(Helpers.getInsuredPatient1());
+        uninsuredPatient1 = testEntityManager.persistAndFlush(Helpers.getUninsuredPatient1());
+        Diagnosis diagnosis1 = testEntityManager.persistAndFlush(Helpers.getDiagnosis1());
+        // DoctorService creates the ledger row of every new doctor
+        incomeLedgerService.doctorCreated(doctorIsGp.getId());
+        incomeLedgerService.doctorCreated(doctorNotGp.getId());
+
+        visit1 = newVisit(insuredPatient1, doctorIsGp, diagnosis1);
+        visit2 = newVisit(uninsuredPatient1, doctorIsGp, diagnosis1);
+        visit3 = newVisit(uninsuredPatient1, doctorNotGp, diagnosis1);
+    }
+
+    private Visit newVisit(Patient patient, Doctor doctor, Diagnosis diagnosis) {
+        Visit visit = new Visit();
+        ReflectionTestUtils.setField(visit, "patient", patient);
+        ReflectionTestUtils.setField(visit, "doctor", doctor);
+        ReflectionTestUtils.setField(visit, "healthSystem", healthSystem);
+        ReflectionTestUtils.setField(visit, "diagnoses", Set.of(diagnosis));
+        ReflectionTestUtils.setField(visit, "visitDate", LocalDate.of(2021, 8, 11));
+        return visit;
+    }
+
+    private void recordAll() {
+        for (Visit visit : List.of(visit1, visit2, visit3)) {
+            testEntityManager.persistAndFlush(visit);
+            incomeLedgerService.recordVisit(visit);
+        }
+        testEntityManager.flush();
+    }
+
+    private static void assertSameAmount(BigDecimal expected, BigDecimal actual) {
+        assertEquals(0, expected.compareTo(actual), () -> "expected " + expected + " but was " + actual);
+    }
+
+    private void assertLedgerMatchesVisits() {
+        // row[0] = doctorId, row[1] = patient has insurance, row[2] = sum of fees
+        Map<Long, BigDecimal> incomes = new HashMap<>();
+        Map<Long, BigDecimal> insuredIncomes = new HashMap<>();
+        for (Object[] row : visitRepository.getIncomeGroupedByDoctorAndInsurance()) {
+            incomes.merge((Long) row[0], (BigDecimal) row[2], BigDecimal::add);
+            if ((Boolean) row[1]) {
+                insuredIncomes.put((Long) row[0], (BigDecimal) row[2]);
+            }
+        }
+
+        assertSameAmount(incomes.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add),
+                incomeLedgerService.getTotalIncome());
+        for (Doctor doctor : List.of(doctorIsGp, doctorNotGp)) {
+            assertSameAmount(incomes.getOrDefault(doctor.getId(), BigDecimal.ZERO),
+                    incomeLedgerService.getIncomeOfDoctor(doctor.getId()));
+            assertSameAmount(insuredIncomes.getOrDefault(doctor.getId(), BigDecimal.ZERO),
+                    incomeLedgerService.getInsuredIncomeOfDoctor(doctor.getId()));
+        }
+    }
+
+    @Test
+    void testRecordVisit_withVisits_shouldMatchVisitsTable() {
+        recordAll();
+
+        assertSameAmount(BigDecimal.valueOf(30), incomeLedgerService.getTotalIncome());
+        assertSameAmount(BigDecimal.valueOf(20), incomeLedgerService.getIncomeOfDoctor(doctorIsGp.getId()));
+        assertSameAmount(BigDecimal.valueOf(10), incomeLedgerService.getInsuredIncomeOfDoctor(doctorIsGp.getId()));
+        assertLedgerMatchesVisits();
+    }
+
+    @Test
+    void testRecordVisits_withVisits_shouldMatchVisitsTable() {
+        List<Visit> visits = List.of(visit1, visit2, visit3);
+        visits.forEach(testEntityManager::persist);
+        incomeLedgerService.recordVisits(visits);
+        testEntityManager.flush();
+
+        assertSameAmount(BigDecimal.valueOf(20), incomeLedgerService.getIncomeOfDoctor(doctorIsGp.getId()));
+        assertSameAmount(BigDecimal.valueOf(10), incomeLedgerService.getInsuredIncomeOfDoctor(doctorIsGp.getId()));
+        assertLedgerMatchesVisits();
+    }
+
+    @Test
+    void testRemoveVisit_withRecordedVisit_shouldMatchVisitsTable() {
+        recordAll();
+
+        incomeLedgerService.removeVisit(visit2);
+        visitRepository.delete(visit2);
+        testEntityManager.flush();
+
+        assertSameAmount(BigDecimal.valueOf(10), incomeLedgerService.getIncomeOfDoctor(doctorIsGp.getId()));
+        assertLedgerMatchesVisits();
+    }
+
+    @Test
+    void testMoveVisit_toOtherDoctorAndPatient_shouldMatchVisitsTable() {
+        recordAll();
+        long rollups = incomeRollupRepository.count();
+
+        Visit before = newVisit(uninsuredPatient1, doctorNotGp, visit3.getDiagnoses().iterator().next());
+        ReflectionTestUtils.setField(visit3, "doctor", doctorIsGp);
+        ReflectionTestUtils.setField(visit3, "patient", insuredPatient1);
+        ReflectionTestUtils.setField(visit3, "visitDate", LocalDate.of(2021, 8, 12));
+        testEntityManager.flush();
+        incomeLedgerService.moveVisit(before, visit3);
+        testEntityManager.flush();
+
+        assertSameAmount(BigDecimal.ZERO, incomeLedgerService.getIncomeOfDoctor(doctorNotGp.getId()));
+        assertSameAmount(BigDecimal.valueOf(20), incomeLedgerService.getInsuredIncomeOfDoctor(doctorIsGp.getId()));
+        assertLedgerMatchesVisits();
+        // the rollup of the old day and doctor has no visits left, the new day gets its own
+        assertEquals(rollups, incomeRollupRepository.count());
+        assertTrue(incomeLedgerService.reconcile().isEmpty());
+    }
+
+    @Test
+    void testGetIncomeOfDoctor_withoutVisits_shouldReturnZero() {
+        assertSameAmount(BigDecimal.ZERO, incomeLedgerService.getIncomeOfDoctor(doctorNotGp.getId()));
+        assertSameAmount(BigDecimal.ZERO, incomeLedgerService.getInsuredIncomeOfDoctor(doctorNotGp.getId()));
+        assertSameAmount(BigDecimal.ZERO, incomeLedgerService.getTotalIncome());
+    }
+
+    @Test
+    void testDoctorDeleted_shouldDeleteLedgerRow() {
+        incomeLedgerService.doctorDeleted(doctorNotGp.getId());
+        testEntityManager.clear();
+
+        assertTrue(doctorIncomeRepository.findById(doctorNotGp.getId()).isEmpty());
+        assertTrue(doctorIncomeRepository.findById(doctorIsGp.getId()).isPresent());
+    }
+
+    @Test
+    void testPatientInsuranceChanged_withVisitsOfPatient_shouldMoveIncome() {
+        recordAll();
+
+        uninsuredPatient1.setHasInsurance(true);
+        testEntityManager.flush();
+        incomeLedgerService.patientInsuranceChanged(uninsuredPatient1.getId(), true);
+
+        assertSameAmount(BigDecimal.valueOf(20), incomeLedgerService.getInsuredIncomeOfDoctor(doctorIsGp.getId()));
+        assertLedgerMatchesVisits();
+    }
+
+    @Test
+    void testFeeChanged_withVisitsOfHealthSystem_shouldApplyDifference() {
+        recordAll();
+
+        BigDecimal oldFee = healthSystem.getNoInsuranceFee();
+        healthSystem.setNoInsuranceFee(BigDecimal.valueOf(25));
+        testEntityManager.flush();
+        incomeLedgerService.feeChanged(healthSystem.getId(), oldFee, BigDecimal.valueOf(25));
+
+        assertSameAmount(BigDecimal.valueOf(75), incomeLedgerService.getTotalIncome());
+        assertLedgerMatchesVisits();
+    }
+
+    @Test
+    void testReconcile_withLedgerInSync_shouldReportNoDrift() {
+        recordAll();
+
+        assertTrue(incomeLedgerService.reconcile().isEmpty());
+    }
+
+    @Test
+    void testReconcile_withDriftAndMissingRows_shouldReportAndRebuild() {
+        recordAll();
+
+        DoctorIncome tampered = doctorIncomeRepository.findById(doctorIsGp.getId()).orElseThrow();
+        tampered.setInsuredIncome(BigDecimal.valueOf(999));
+        doctorIncomeRepository.deleteById(doctorNotGp.getId());
+        testEntityManager.flush();
+
+        List<DoctorIncomeDrift> drifts = incomeLedgerService.reconcile();
+        testEntityManager.flush();
+
+        assertEquals(2, drifts.size());
+        assertTrue(drifts.stream().anyMatch(drift -> drift.getDoctorId().equals(doctorIsGp.getId())
+                && drift.getLedgerInsuredIncome().compareTo(BigDecimal.valueOf(999)) == 0));
+        assertTrue(drifts.stream().anyMatch(drift -> drift.getDoctorId().equals(doctorNotGp.getId())
+                && drift.getLedgerUninsuredIncome().signum() == 0));
+        assertLedgerMatchesVisits();
+        assertTrue(incomeLedgerService.reconcile().isEmpty());
+    }
+
+    @Test
+    void testReconcile_withRollupsDeleted_shouldRebuildRollups() {
+        recordAll();
+        testEntityManager.flush();
+        long rollups = incomeRollupRepository.count();
+        incomeRollupRepository.deleteAllInBatch();
+
+        incomeLedgerService.reconcile();
+
+        assertEquals(rollups, incomeRollupRepository.count());
+    }
+}
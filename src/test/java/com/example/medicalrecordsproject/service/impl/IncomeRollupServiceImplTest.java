@@ -0,0 +1,210 @@
+package com.example.medicalrecordsproject.service.impl;
+
+import com.example.medicalrecordsproject.data.dtos.incomes.IncomeBucketResponse;
+import com.example.medicalrecordsproject.data.entities.*;
+import com.example.medicalrecordsproject.data.repositories.IncomeRollupRepository;
+import com.example.medicalrecordsproject.exceptions.InvalidIncomeRequestException;
+import com.example.medicalrecordsproject.helpers.Helpers;
+import com.example.medicalrecordsproject.helpers.StatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(IncomeRollupServiceImpl.class)
+class IncomeRollupServiceImplTest {
+
+    @Autowired
+    private IncomeRollupServiceImpl incomeRollupService;
+
+    @Autowired
+    private IncomeRollupRepository incomeRollupRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private Doctor doctorIsGp;
+    private Doctor doctorNotGp;
+    private Patient uninsuredPatient1;
+    private HealthSystem healthSystem;
+    private Diagnosis diagnosis1;
+    private List<Visit> visits;
+
+    // Mon 2021-08-09, Wed 2021-08-11 and Mon 2021-08-16 are in two weeks of the same month
+    @BeforeEach
+    public void setup() {
+        doctorIsGp = testEntityManager.persistAndFlush(Helpers.getDoctorIsGp());
+        doctorNotGp = testEntityManager.persistAndFlush(Helpers.getDoctorNotGp());
+        healthSystem = testEntityManager.persistAndFlush(Helpers.getHealthSystem());
+        Patient insuredPatient1 = testEntityManager.persistAndFlush(Helpers.getInsuredPatient1());
+        uninsuredPatient1 = testEntityManager.persistAndFlush(Helpers.getUninsuredPatient1());
+        diagnosis1 = testEntityManager.persistAndFlush(Helpers.getDiagnosis1());
+
+        visits = List.of(
+                newVisit(insuredPatient1, doctorIsGp, LocalDate.of(2021, 8, 9)),
+                newVisit(uninsuredPatient1, doctorIsGp, LocalDate.of(2021, 8, 11)),
+                newVisit(uninsuredPatient1, doctorIsGp, LocalDate.of(2021, 8, 16)),
+                newVisit(uninsuredPatient1, doctorNotGp, LocalDate.of(2021, 8, 16)));
+    }
+
+    private Visit newVisit(Patient patient, Doctor doctor, LocalDate visitDate) {
+        Visit visit = new Visit();
+        ReflectionTestUtils.setField(visit, "patient", patient);
+        ReflectionTestUtils.setField(visit, "doctor", doctor);
+        ReflectionTestUtils.setField(visit, "healthSystem", healthSystem);
+        ReflectionTestUtils.setField(visit, "diagnoses", Set.of(diagnosis1));
+        ReflectionTestUtils.setField(visit, "visitDate", visitDate);
+        return visit;
+    }
+
+    private void recordAll() {
+        visits.forEach(testEntityManager::persist);
+        incomeRollupService.recordVisits(visits);
+        testEntityManager.flush();
+    }
+
+    private Map<IncomeRollupId, String> rollupRows() {
+        testEntityManager.flush();
+        testEntityManager.clear();
+        return incomeRollupRepository.findAll().stream()
+                .collect(Collectors.toMap(
+                        rollup -> new IncomeRollupId(rollup.getEpochDay(), rollup.getDoctorId(),
+                                rollup.getHealthSystemId(), rollup.getInsured()),
+                        rollup -> rollup.getIncome().stripTrailingZeros().toPlainString() + "/" + rollup.getVisits()));
+    }
+
+    private void assertRollupsMatchVisits() {
+        Map<IncomeRollupId, String> maintained = rollupRows();
+        incomeRollupService.rebuild();
+        assertEquals(rollupRows(), maintained);
+    }
+
+    private static void assertSameAmount(BigDecimal expected, BigDecimal actual) {
+        assertEquals(0, expected.compareTo(actual), () -> "expected " + expected + " but was " + actual);
+    }
+
+    @Test
+    void testRecordVisits_withVisits_shouldMatchVisitsTable() {
+        recordAll();
+
+        assertEquals(4, incomeRollupRepository.count());
+        assertRollupsMatchVisits();
+    }
+
+    @Test
+    void testRecordVisits_withNewRollup_shouldInsertWithoutSelectingItAgain() throws Exception {
+        Visit visit = visits.get(0);
+        testEntityManager.persistAndFlush(visit);
+        StatementCounter statementCounter =
+                new StatementCounter(testEntityManager.getEntityManager().getEntityManagerFactory());
+
+        // the locked read and the insert
+        assertEquals(2, statementCounter.count(() -> {
+            incomeRollupService.recordVisits(List.of(visit));
+            testEntityManager.flush();
+        }));
+    }
+
+    @Test
+    void testRemoveVisit_withLastVisitOfDay_shouldDeleteRollup() {
+        recordAll();
+
+        incomeRollupService.removeVisit(visits.get(3));
+        testEntityManager.remove(visits.get(3));
+
+        assertEquals(3, incomeRollupRepository.count());
+        assertRollupsMatchVisits();
+    }
+
+    @Test
+    void testPatientInsuranceChanged_withVisitsOfPatient_shouldMoveIncome() {
+        recordAll();
+
+        uninsuredPatient1.setHasInsurance(true);
+        testEntityManager.flush();
+        incomeRollupService.patientInsuranceChanged(uninsuredPatient1.getId(), true);
+
+        assertRollupsMatchVisits();
+    }
+
+    @Test
+    void testFeeChanged_withVisitsOfHealthSystem_shouldApplyDifference() {
+        recordAll();
+
+        BigDecimal oldFee = healthSystem.getNoInsuranceFee();
+        healthSystem.setNoInsuranceFee(BigDecimal.valueOf(25));
+        testEntityManager.flush();
+        incomeRollupService.feeChanged(healthSystem.getId(), oldFee, BigDecimal.valueOf(25));
+
+        assertRollupsMatchVisits();
+    }
+
+    @Test
+    void testGetIncome_byWeekAndDoctor_shouldSumDaysOfEveryWeek() {
+        recordAll();
+
+        List<IncomeBucketResponse> income = incomeRollupService.getIncome(
+                LocalDate.of(2021, 8, 1), LocalDate.of(2021, 8, 31), "week", "doctor");
+
+        assertEquals(3, income.size());
+        assertEquals(LocalDate.of(2021, 8, 9), income.get(0).getPeriodStart());
+        assertEquals(doctorIsGp.getId(), income.get(0).getDoctorId());
+        assertNull(income.get(0).getHealthSystemId());
+        assertSameAmount(BigDecimal.valueOf(10), income.get(0).getInsuredIncome());
+        assertSameAmount(BigDecimal.valueOf(10), income.get(0).getUninsuredIncome());
+        assertEquals(2, income.get(0).getVisits());
+        assertEquals(LocalDate.of(2021, 8, 16), income.get(1).getPeriodStart());
+        assertEquals(doctorIsGp.getId(), income.get(1).getDoctorId());
+        assertEquals(doctorNotGp.getId(), income.get(2).getDoctorId());
+    }
+
+    @Test
+    void testGetIncome_byMonthAndHealthSystem_shouldSumWholeMonth() {
+        recordAll();
+
+        List<IncomeBucketResponse> income = incomeRollupService.getIncome(
+                LocalDate.of(2021, 1, 1), LocalDate.of(2021, 12, 31), "MONTH", "health-system");
+
+        assertEquals(1, income.size());
+        assertEquals(LocalDate.of(2021, 8, 1), income.get(0).getPeriodStart());
+        assertEquals(healthSystem.getId(), income.get(0).getHealthSystemId());
+        assertSameAmount(BigDecimal.valueOf(30), income.get(0).getUninsuredIncome());
+        assertEquals(4, income.get(0).getVisits());
+    }
+
+    @Test
+    void testGetIncome_byDay_shouldOnlyReadDaysOfPeriod() {
+        recordAll();
+
+        List<IncomeBucketResponse> income = incomeRollupService.getIncome(
+                LocalDate.of(2021, 8, 10), LocalDate.of(2021, 8, 15), "day", "doctor");
+
+        assertEquals(1, income.size());
+        assertEquals(LocalDate.of(2021, 8, 11), income.get(0).getPeriodStart());
+    }
+
+    @Test
+    void testGetIncome_withInvalidRequest_shouldThrow() {
+        LocalDate day = LocalDate.of(2021, 8, 11);
+
+        assertThrows(InvalidIncomeRequestException.class,
+                () -> incomeRollupService.getIncome(day, day.minusDays(1), "day", "doctor"));
+        assertThrows(InvalidIncomeRequestException.class,
+                () -> incomeRollupService.getIncome(day, day, "year", "doctor"));
+        assertThrows(InvalidIncomeRequestException.class,
+                () -> incomeRollupService.getIncome(day, day, "day", "patient"));
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.medicalrecordsproject.service.impl;
 
+import com.example.medicalrecordsproject.data.dtos.patients.GpInsuranceStatsResponse;
 import com.example.medicalrecordsproject.data.dtos.patients.PatientRequest;
 import com.example.medicalrecordsproject.data.dtos.patients.PatientResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.data.entities.Doctor;
 import com.example.medicalrecordsproject.data.entities.Patient;
 import com.example.medicalrecordsproject.data.repositories.DoctorRepository;
@@ -10,6 +12,8 @@ import com.example.medicalrecordsproject.exceptions.DoctorNotGpException;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.exceptions.NoPatientsException;
 import com.example.medicalrecordsproject.helpers.Helpers;
+import com.example.medicalrecordsproject.service.IncomeLedgerService;
+import com.example.medicalrecordsproject.utils.KeysetCursor;
 import com.example.medicalrecordsproject.utils.MapperUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,6 +22,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
@@ -44,6 +49,9 @@ class PatientServiceImplTest {
     @Spy
     private MapperUtil mapperUtil;
 
+    @Mock
+    private IncomeLedgerService incomeLedgerService;
+
     @InjectMocks
     private PatientServiceImpl patientService;
 
@@ -174,26 +182,21 @@ class PatientServiceImplTest {
     }
 
     @Test
-    void testGetAllPatients_withPatients_shouldReturnAllPatients() {
-        List<PatientResponse> expected = mapperUtil.mapList(List.of(insuredPatient1, insuredPatient2), PatientResponse.class);
+    void testGetPatientsPage_withMorePatientsThanLimit_shouldReturnPageAndNextCursor() {
+        given(patientRepository.findResponsesAfter(0L, PageRequest.of(0, 2)))
+                .willReturn(List.of(patientResponseOf(insuredPatient1), patientResponseOf(insuredPatient2)));
 
-        given(mapperUtil.mapList(patientRepository.findAll(), PatientResponse.class)).willReturn(expected);
+        CursorPage<PatientResponse> page = patientService.getPatientsPage(1, null);
 
-        assertIterableEquals(expected, patientService.getAllPatients());
-    }
-
-    @Test
-    void testGetAllPatients_withNoPatients_shouldReturnEmptyList() {
-        given(mapperUtil.mapList(patientRepository.findAll(), PatientResponse.class)).willReturn(Collections.emptyList());
-
-        assertIterableEquals(Collections.emptyList(), patientService.getAllPatients());
+        assertIterableEquals(mapperUtil.mapList(List.of(insuredPatient1), PatientResponse.class), page.getItems());
+        assertEquals(KeysetCursor.of(insuredPatient1.getId()).encode(), page.getNextCursor());
     }
 
     @Test
     void testGetPatientById_withPatient_shouldReturnPatient() {
         PatientResponse expected = mapperUtil.modelMapper().map(insuredPatient1, PatientResponse.class);
 
-        given(patientRepository.findById(anyLong())).willReturn(Optional.of(insuredPatient1));
+        given(patientRepository.findWithGpById(anyLong())).willReturn(Optional.of(insuredPatient1));
 
         PatientResponse actual = patientService.getPatientById(insuredPatient1.getId());
 
@@ -202,7 +205,7 @@ class PatientServiceImplTest {
 
     @Test
     void testGetPatientById_withNoSuchPatient_shouldThrow() {
-        given(patientRepository.findById(anyLong())).willReturn(Optional.empty());
+        given(patientRepository.findWithGpById(anyLong())).willReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class, () -> patientService.getPatientById(1L));
     }
@@ -227,6 +230,7 @@ class PatientServiceImplTest {
         PatientResponse actualPatientResponse = patientService.updatePatient(insuredPatient1.getId(), patientRequestDoctorGp);
 
         assertEquals(expectedPatientResponse, actualPatientResponse);
+        verify(incomeLedgerService, times(1)).patientInsuranceChanged(insuredPatient1.getId(), false);
     }
 
     @Test
@@ -283,55 +287,83 @@ class PatientServiceImplTest {
     @Test
     void testGetPatientsWithInsurance_withPatientsWithInsurance_shouldReturnPatients() {
         List<PatientResponse> expected = mapperUtil.mapList(List.of(insuredPatient1, insuredPatient2), PatientResponse.class);
-        given(mapperUtil.mapList(patientRepository.findAllByHasInsuranceIsTrue(), PatientResponse.class)).willReturn(expected);
+        given(patientRepository.findAllInsuredResponses())
+                .willReturn(List.of(patientResponseOf(insuredPatient1), patientResponseOf(insuredPatient2)));
 
         assertIterableEquals(expected, patientService.getPatientsWithInsurance());
     }
 
     @Test
     void testGetPatientsWithInsurance_withoutPatientsWithInsurance_shouldReturnEmptyList() {
-        given(mapperUtil.mapList(patientRepository.findAllByHasInsuranceIsTrue(), PatientResponse.class)).willReturn(Collections.emptyList());
+        given(patientRepository.findAllInsuredResponses()).willReturn(Collections.emptyList());
 
         assertIterableEquals(Collections.emptyList(), patientService.getPatientsWithInsurance());
     }
 
+    // The row the constructor expressions of PatientRepository build for the patient
+    private static PatientResponse patientResponseOf(Patient patient) {
+        return new PatientResponse(patient.getId(), patient.getName(), patient.isHasInsurance(),
+                patient.getGp() == null ? null : patient.getGp().getId());
+    }
+
     @Test
     void testGetPatientsWithoutInsurance_withPatientsWithoutInsurance_shouldReturnPercent() {
-        uninsuredPatient1 = Helpers.getUninsuredPatient1();
-        ReflectionTestUtils.setField(insuredPatient2, "id", 3L);
-        List<Patient> allPatients = List.of(insuredPatient1, insuredPatient2, uninsuredPatient1);
-        BigDecimal countAllPatients = BigDecimal.valueOf(allPatients.size());
-        given(patientRepository.findAll()).willReturn(allPatients);
-        int countUninsuredPatients = List.of(uninsuredPatient1).size();
-        given(patientRepository.countAllByHasInsuranceIsFalse()).willReturn(countUninsuredPatients);
+        given(patientRepository.countGroupedByInsurance())
+                .willReturn(List.of(new Object[]{true, 2L}, new Object[]{false, 1L}));
 
-        BigDecimal expected = BigDecimal.valueOf(countUninsuredPatients)
-                .divide(countAllPatients, 2, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100));
+        BigDecimal expected = BigDecimal.valueOf(1)
+                .divide(BigDecimal.valueOf(3), 2, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100));
 
         assertEquals(expected, patientService.getPatientsWithoutInsurance());
+        verify(patientRepository, never()).findAll();
     }
 
     @Test
     void testGetPatientsWithoutInsurance_withoutPatientsWithoutInsurance_shouldReturnPercentZero() {
-        List<Patient> allPatients = List.of(insuredPatient1, insuredPatient2);
-        BigDecimal countAllPatients = BigDecimal.valueOf(allPatients.size());
-        given(patientRepository.findAll()).willReturn(allPatients);
-        int countUninsuredPatients = 0;
-        given(patientRepository.countAllByHasInsuranceIsFalse()).willReturn(countUninsuredPatients);
+        given(patientRepository.countGroupedByInsurance())
+                .willReturn(Collections.singletonList(new Object[]{true, 2L}));
 
-        BigDecimal expected = BigDecimal.valueOf(countUninsuredPatients)
-                .divide(countAllPatients, 2, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100));
+        BigDecimal expected = BigDecimal.ZERO
+                .divide(BigDecimal.valueOf(2), 2, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100));
 
         assertEquals(expected, patientService.getPatientsWithoutInsurance());
     }
 
     @Test
     void testGetPatientsWithoutInsurance_withoutAnyPatients_shouldThrow() {
-        given(patientRepository.findAll()).willReturn(Collections.emptyList());
-        int countUninsuredPatients = 0;
-        given(patientRepository.countAllByHasInsuranceIsFalse()).willReturn(countUninsuredPatients);
+        given(patientRepository.countGroupedByInsurance()).willReturn(Collections.emptyList());
 
         assertThrows(NoPatientsException.class,
                 () -> patientService.getPatientsWithoutInsurance());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetInsuranceStatsByGp_withPatients_shouldReturnCountsOfEveryGp() {
+        given(patientRepository.countGroupedByGpAndInsurance()).willReturn(List.of(
+                new Object[]{null, false, 1L},
+                new Object[]{1L, false, 1L},
+                new Object[]{1L, true, 3L},
+                new Object[]{2L, true, 2L}));
+
+        List<GpInsuranceStatsResponse> expected = List.of(
+                new GpInsuranceStatsResponse(null, 0, 1, new BigDecimal("100")),
+                new GpInsuranceStatsResponse(1L, 3, 1, new BigDecimal("25")),
+                new GpInsuranceStatsResponse(2L, 2, 0, new BigDecimal("0")));
+        List<GpInsuranceStatsResponse> actual = patientService.getInsuranceStatsByGp();
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getGpId(), actual.get(i).getGpId());
+            assertEquals(expected.get(i).getInsuredPatients(), actual.get(i).getInsuredPatients());
+            assertEquals(expected.get(i).getUninsuredPatients(), actual.get(i).getUninsuredPatients());
+            assertEquals(0, expected.get(i).getPercentWithoutInsurance().compareTo(actual.get(i).getPercentWithoutInsurance()));
+        }
+    }
+
+    @Test
+    void testGetInsuranceStatsByGp_withoutPatients_shouldReturnEmptyList() {
+        given(patientRepository.countGroupedByGpAndInsurance()).willReturn(Collections.emptyList());
+
+        assertTrue(patientService.getInsuranceStatsByGp().isEmpty());
+    }
+}
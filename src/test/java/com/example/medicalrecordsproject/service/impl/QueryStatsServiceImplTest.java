@@ -0,0 +1,63 @@
+package com.example.medicalrecordsproject.service.impl;
+
+import com.example.medicalrecordsproject.data.dtos.queries.QueryStatsResponse;
+import com.example.medicalrecordsproject.data.entities.Specialty;
+import com.example.medicalrecordsproject.data.repositories.SpecialtyRepository;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(showSql = false, properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor=WARN"})
+@Import(QueryStatsServiceImpl.class)
+class QueryStatsServiceImplTest {
+
+    @Autowired
+    private QueryStatsServiceImpl queryStatsService;
+
+    @Autowired
+    private SpecialtyRepository specialtyRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    public void setup() {
+        entityManagerFactory.unwrap(SessionFactory.class).getStatistics().clear();
+    }
+
+    @Test
+    void testGetQueryStats_afterQueries_shouldCountExecutionsAndRows() {
+        for (int i = 0; i < 3; i++) {
+            Specialty specialty = new Specialty();
+            specialty.setName("specialty" + i);
+            specialtyRepository.save(specialty);
+        }
+
+        specialtyRepository.findAll();
+        specialtyRepository.findAll();
+
+        List<QueryStatsResponse> stats = queryStatsService.getQueryStats();
+
+        assertEquals(1, stats.size());
+        assertTrue(stats.get(0).getQuery().contains("Specialty"));
+        assertEquals(2, stats.get(0).getExecutions());
+        assertEquals(6, stats.get(0).getRows());
+        assertTrue(stats.get(0).getMaxMillis() >= stats.get(0).getMeanMillis());
+    }
+
+    @Test
+    void testGetQueryStats_withoutQueries_shouldReturnEmptyList() {
+        assertTrue(queryStatsService.getQueryStats().isEmpty());
+    }
+}
@@ -2,11 +2,14 @@ package com.example.medicalrecordsproject.service.impl;
 
 import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyRequest;
 import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.data.entities.Specialty;
 import com.example.medicalrecordsproject.data.repositories.SpecialtyRepository;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.helpers.Helpers;
+import com.example.medicalrecordsproject.utils.KeysetCursor;
 import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,7 +19,6 @@ import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,6 +37,9 @@ class SpecialtyServiceImplTest {
     @Spy
     private MapperUtil mapperUtil;
 
+    @Spy
+    private ReferenceCaches referenceCaches = new ReferenceCaches(100);
+
     @InjectMocks
     private SpecialtyServiceImpl specialtyService;
 
@@ -66,19 +71,14 @@ class SpecialtyServiceImplTest {
     }
 
     @Test
-    void testGetAllSpecialties_withSpecialties_shouldReturnAllSpecialties() {
-        List<SpecialtyResponse> expected = mapperUtil.mapList(List.of(specialty1, specialty2), SpecialtyResponse.class);
-
-        given(mapperUtil.mapList(specialtyRepository.findAll(), SpecialtyResponse.class)).willReturn(expected);
+    void testGetSpecialtiesPage_withMoreSpecialtiesThanLimit_shouldReturnPageAndNextCursor() {
+        // the pages are cut from the cached list of all specialties
+        given(specialtyRepository.findAll()).willReturn(List.of(specialty2, specialty1));
 
-        assertIterableEquals(expected, specialtyService.getAllSpecialties());
-    }
-
-    @Test
-    void testGetAllSpecialties_withNoSpecialties_shouldReturnEmptyList() {
-        given(mapperUtil.mapList(specialtyRepository.findAll(), SpecialtyResponse.class)).willReturn(Collections.emptyList());
+        CursorPage<SpecialtyResponse> page = specialtyService.getSpecialtiesPage(1, null);
 
-        assertIterableEquals(Collections.emptyList(), specialtyService.getAllSpecialties());
+        assertIterableEquals(mapperUtil.mapList(List.of(specialty1), SpecialtyResponse.class), page.getItems());
+        assertEquals(KeysetCursor.of(specialty1.getId()).encode(), page.getNextCursor());
     }
 
     @Test
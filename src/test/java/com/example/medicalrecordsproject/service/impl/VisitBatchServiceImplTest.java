@@ -0,0 +1,167 @@
+package com.example.medicalrecordsproject.service.impl;
+
+import com.example.medicalrecordsproject.data.dtos.visits.VisitBatchError;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitBatchResponse;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitRequest;
+import com.example.medicalrecordsproject.data.entities.*;
+import com.example.medicalrecordsproject.data.repositories.*;
+import com.example.medicalrecordsproject.exceptions.BatchTooLargeException;
+import com.example.medicalrecordsproject.helpers.Helpers;
+import com.example.medicalrecordsproject.service.IncomeLedgerService;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VisitBatchServiceImplTest {
+
+    @Mock(lenient = true)
+    private VisitRepository visitRepository;
+
+    @Mock(lenient = true)
+    private PatientRepository patientRepository;
+
+    @Mock(lenient = true)
+    private DoctorRepository doctorRepository;
+
+    @Mock(lenient = true)
+    private DiagnosisRepository diagnosisRepository;
+
+    @Mock(lenient = true)
+    private HealthSystemRepository healthSystemRepository;
+
+    @Mock
+    private IncomeLedgerService incomeLedgerService;
+
+    private VisitBatchServiceImpl visitBatchService;
+
+    private Patient insuredPatient1;
+    private Doctor doctorIsGp;
+    private HealthSystem healthSystem;
+    private Diagnosis diagnosis1;
+    private Diagnosis diagnosis2;
+
+    @BeforeEach
+    public void setup() {
+        visitBatchService = new VisitBatchServiceImpl(visitRepository, patientRepository, doctorRepository,
+                diagnosisRepository, healthSystemRepository, incomeLedgerService,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ReferenceCaches(100));
+        ReflectionTestUtils.setField(visitBatchService, "maxSize", 3);
+
+        insuredPatient1 = Helpers.getInsuredPatient1();
+        ReflectionTestUtils.setField(insuredPatient1, "id", 1L);
+        doctorIsGp = Helpers.getDoctorIsGp();
+        ReflectionTestUtils.setField(doctorIsGp, "id", 2L);
+        healthSystem = Helpers.getHealthSystem();
+        ReflectionTestUtils.setField(healthSystem, "id", 1L);
+        diagnosis1 = Helpers.getDiagnosis1();
+        ReflectionTestUtils.setField(diagnosis1, "id", 1L);
+        diagnosis2 = Helpers.getDiagnosis2();
+        ReflectionTestUtils.setField(diagnosis2, "id", 2L);
+
+        given(patientRepository.findAllWithGpByIdIn(any())).willReturn(List.of(insuredPatient1));
+        given(doctorRepository.findAllById(any())).willReturn(List.of(doctorIsGp));
+        given(healthSystemRepository.findAllById(any())).willReturn(List.of(healthSystem));
+        given(diagnosisRepository.findAllById(any())).willReturn(List.of(diagnosis1, diagnosis2));
+
+        // The ids are given by Hibernate when the visits are persisted
+        given(visitRepository.saveAll(any())).willAnswer(invocation -> {
+            List<Visit> visits = new ArrayList<>(invocation.getArgument(0));
+            for (int i = 0; i < visits.size(); i++) {
+                visits.get(i).setId(100L + i);
+            }
+            return visits;
+        });
+    }
+
+    private VisitRequest newRequest(Long patientId, Long doctorId, Set<Long> diagnosesIds) {
+        VisitRequest visitRequest = new VisitRequest();
+        ReflectionTestUtils.setField(visitRequest, "patientId", patientId);
+        ReflectionTestUtils.setField(visitRequest, "healthSystemId", healthSystem.getId());
+        ReflectionTestUtils.setField(visitRequest, "doctorId", doctorId);
+        ReflectionTestUtils.setField(visitRequest, "diagnosesIds", diagnosesIds);
+        ReflectionTestUtils.setField(visitRequest, "visitDate", LocalDate.of(2021, 8, 11));
+        return visitRequest;
+    }
+
+    @Test
+    void testCreateVisits_withValidRequests_shouldSaveAllAndRecordIncome() {
+        List<VisitRequest> visitRequests = List.of(
+                newRequest(insuredPatient1.getId(), doctorIsGp.getId(), Set.of(diagnosis1.getId())),
+                newRequest(insuredPatient1.getId(), doctorIsGp.getId(), Set.of(diagnosis1.getId(), diagnosis2.getId())));
+
+        VisitBatchResponse response = visitBatchService.createVisits(visitRequests);
+
+        assertEquals(new VisitBatchResponse(List.of(100L, 101L), List.of()), response);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Visit>> saved = ArgumentCaptor.forClass(List.class);
+        verify(visitRepository).saveAll(saved.capture());
+        assertEquals(Set.of(diagnosis1, diagnosis2), saved.getValue().get(1).getDiagnoses());
+        assertEquals(doctorIsGp, saved.getValue().get(0).getDoctor());
+        verify(incomeLedgerService).recordVisits(any());
+    }
+
+    @Test
+    void testCreateVisits_withInvalidAndMissingReferences_shouldReportErrorsByIndex() {
+        List<VisitRequest> visitRequests = new ArrayList<>();
+        visitRequests.add(newRequest(insuredPatient1.getId(), doctorIsGp.getId(), Set.of(diagnosis1.getId())));
+        visitRequests.add(newRequest(null, doctorIsGp.getId(), Set.of(diagnosis1.getId())));
+        visitRequests.add(newRequest(insuredPatient1.getId(), 9L, Set.of(diagnosis1.getId(), 7L, 5L)));
+
+        VisitBatchResponse response = visitBatchService.createVisits(visitRequests);
+
+        assertEquals(List.of(100L), response.getCreatedIds());
+        assertEquals(List.of(
+                        new VisitBatchError(1, List.of("Must provide patient")),
+                        new VisitBatchError(2, List.of("Doctor not found", "Diagnoses not found: [5, 7]"))),
+                response.getErrors());
+    }
+
+    @Test
+    void testCreateVisits_withNullDiagnosisId_shouldReportErrorBeforeLookup() {
+        List<VisitRequest> visitRequests = List.of(newRequest(insuredPatient1.getId(), doctorIsGp.getId(),
+                new HashSet<>(Arrays.asList(null, diagnosis1.getId(), 7L))));
+
+        VisitBatchResponse response = visitBatchService.createVisits(visitRequests);
+
+        assertTrue(response.getCreatedIds().isEmpty());
+        assertEquals(List.of(new VisitBatchError(0, List.of("Diagnosis ids cannot be null"))), response.getErrors());
+        verify(diagnosisRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void testCreateVisits_withNullItem_shouldReportError() {
+        List<VisitRequest> visitRequests = new ArrayList<>();
+        visitRequests.add(null);
+
+        VisitBatchResponse response = visitBatchService.createVisits(visitRequests);
+
+        assertTrue(response.getCreatedIds().isEmpty());
+        assertEquals(List.of(new VisitBatchError(0, List.of("Visit cannot be null"))), response.getErrors());
+        verify(patientRepository, never()).findAllWithGpByIdIn(any());
+    }
+
+    @Test
+    void testCreateVisits_withMoreThanMaxSize_shouldThrow() {
+        VisitRequest visitRequest = newRequest(insuredPatient1.getId(), doctorIsGp.getId(), Set.of(diagnosis1.getId()));
+
+        assertThrows(BatchTooLargeException.class,
+                () -> visitBatchService.createVisits(List.of(visitRequest, visitRequest, visitRequest, visitRequest)));
+        verify(visitRepository, never()).saveAll(any());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.medicalrecordsproject.service.impl;
+
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
+import com.example.medicalrecordsproject.data.entities.*;
+import com.example.medicalrecordsproject.data.repositories.VisitRepository;
+import com.example.medicalrecordsproject.helpers.Helpers;
+import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VisitExportServiceImplTest {
+
+    @Mock
+    private VisitRepository visitRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private final MapperUtil mapperUtil = new MapperUtil();
+
+    // Configured like the ObjectMapper of the application, so dates are written as "yyyy-MM-dd"
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private VisitExportServiceImpl visitExportService;
+
+    private Visit visit1;
+    private Visit visit2;
+
+    @BeforeEach
+    public void setup() {
+        visitExportService = new VisitExportServiceImpl(visitRepository, mapperUtil, entityManager, objectMapper);
+
+        Patient patient = Helpers.getInsuredPatient1();
+        ReflectionTestUtils.setField(patient, "id", 1L);
+        Doctor doctor = Helpers.getDoctorIsGp();
+        ReflectionTestUtils.setField(doctor, "id", 2L);
+        Diagnosis diagnosis = Helpers.getDiagnosis1();
+        ReflectionTestUtils.setField(diagnosis, "id", 3L);
+
+        visit1 = newVisit(1L, patient, doctor, diagnosis, LocalDate.of(2021, 8, 11));
+        visit2 = newVisit(2L, patient, doctor, diagnosis, LocalDate.of(2007, 7, 21));
+    }
+
+    private static Visit newVisit(Long id, Patient patient, Doctor doctor, Diagnosis diagnosis, LocalDate visitDate) {
+        Visit visit = new Visit();
+        ReflectionTestUtils.setField(visit, "id", id);
+        ReflectionTestUtils.setField(visit, "patient", patient);
+        ReflectionTestUtils.setField(visit, "doctor", doctor);
+        ReflectionTestUtils.setField(visit, "diagnoses", Set.of(diagnosis));
+        ReflectionTestUtils.setField(visit, "visitDate", visitDate);
+        return visit;
+    }
+
+    @Test
+    void testExportVisits_withoutSince_shouldWriteOneJsonLinePerVisit() throws Exception {
+        given(visitRepository.streamAll()).willReturn(Stream.of(visit1, visit2));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        visitExportService.exportVisits(null, outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(mapperUtil.map(visit1, VisitResponse.class), objectMapper.readValue(lines[0], VisitResponse.class));
+        assertEquals(mapperUtil.map(visit2, VisitResponse.class), objectMapper.readValue(lines[1], VisitResponse.class));
+        assertTrue(lines[0].contains("\"visitDate\":\"2021-08-11\""));
+        verify(visitRepository, never()).streamAllSince(any());
+    }
+
+    @Test
+    void testExportVisits_withSince_shouldUseSinceQueryAndCloseStream() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        given(visitRepository.streamAllSince(LocalDate.of(2021, 1, 1)))
+                .willReturn(Stream.of(visit1).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        visitExportService.exportVisits(LocalDate.of(2021, 1, 1), outputStream);
+
+        assertEquals(1, outputStream.toString(StandardCharsets.UTF_8).split("\n").length);
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void testExportVisits_withoutVisits_shouldWriteNothing() throws Exception {
+        given(visitRepository.streamAll()).willReturn(Stream.empty());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        visitExportService.exportVisits(null, outputStream);
+
+        assertEquals(0, outputStream.size());
+        verify(visitRepository, never()).fetchDiagnoses(any());
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    void testExportVisits_withMoreVisitsThanChunkSize_shouldLoadDiagnosesAndClearPerChunk() throws Exception {
+        List<Visit> visits = new ArrayList<>();
+        for (int i = 0; i < 2 * VisitExportServiceImpl.CHUNK_SIZE + 1; i++) {
+            visits.add(i % 2 == 0 ? visit1 : visit2);
+        }
+        given(visitRepository.streamAll()).willReturn(visits.stream());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        visitExportService.exportVisits(null, outputStream);
+
+        assertEquals(visits.size(), outputStream.toString(StandardCharsets.UTF_8).split("\n").length);
+        verify(visitRepository, times(3)).fetchDiagnoses(anyList());
+        verify(entityManager, times(3)).clear();
+    }
+}
@@ -1,13 +1,24 @@
 package com.example.medicalrecordsproject.service.impl;
 
+import com.example.medicalrecordsproject.data.dtos.incomes.DoctorIncomeResponse;
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorCaseloadResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.data.dtos.visits.VisitRequest;
 import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
 import com.example.medicalrecordsproject.data.entities.*;
 import com.example.medicalrecordsproject.data.repositories.*;
+import com.example.medicalrecordsproject.exceptions.EntitiesNotFoundException;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
+import com.example.medicalrecordsproject.exceptions.InvalidPageRequestException;
 import com.example.medicalrecordsproject.exceptions.NegativeIncomeException;
 import com.example.medicalrecordsproject.helpers.Helpers;
+import com.example.medicalrecordsproject.service.DoctorIncomeIndexService;
+import com.example.medicalrecordsproject.service.IncomeLedgerService;
+import com.example.medicalrecordsproject.utils.KeysetCursor;
 import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
+import com.example.medicalrecordsproject.utils.Paging;
+import com.example.medicalrecordsproject.utils.VisitAggregates;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,6 +26,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
@@ -36,6 +48,13 @@ class VisitServiceImplTest {
     @Spy
     private MapperUtil mapperUtil;
 
+    @Spy
+    private ReferenceCaches referenceCaches = new ReferenceCaches(100);
+
+    // Without a ttl every call runs its own query, as the tests expect
+    @Spy
+    private VisitAggregates visitAggregates = new VisitAggregates(0);
+
     @Mock(lenient = true)
     private PatientRepository patientRepository;
 
@@ -48,6 +67,12 @@ class VisitServiceImplTest {
     @Mock(lenient = true)
     private HealthSystemRepository healthSystemRepository;
 
+    @Mock
+    private IncomeLedgerService incomeLedgerService;
+
+    @Mock
+    private DoctorIncomeIndexService doctorIncomeIndexService;
+
     @InjectMocks
     private VisitServiceImpl visitService;
 
@@ -124,8 +149,7 @@ class VisitServiceImplTest {
     void testCreateVisit_withAllPropertiesExisting_shouldAddNewVisit() {
         given(patientRepository.findById(anyLong())).willReturn(Optional.of(insuredPatient1));
         given(doctorRepository.findById(anyLong())).willReturn(Optional.of(doctorIsGp));
-        given(diagnosisRepository.findById(diagnosis1.getId())).willReturn(Optional.of(diagnosis1));
-        given(diagnosisRepository.findById(diagnosis2.getId())).willReturn(Optional.of(diagnosis2));
+        given(diagnosisRepository.findAllById(any())).willReturn(List.of(diagnosis1, diagnosis2));
         given(healthSystemRepository.findById(anyLong())).willReturn(Optional.of(healthSystem));
         given(visitRepository.save(any())).willReturn(visitContains1);
 
@@ -135,14 +159,14 @@ class VisitServiceImplTest {
         VisitResponse actualVisitResponse = visitService.createVisit(visitCreateRequest);
 
         assertEquals(expectedVisitResponse, actualVisitResponse);
+        verify(incomeLedgerService, times(1)).recordVisit(visitContains1);
     }
 
     @Test
     void testCreateVisit_withOneDiagnosisNotExisting_shouldThrow() {
         given(patientRepository.findById(anyLong())).willReturn(Optional.of(insuredPatient1));
         given(doctorRepository.findById(anyLong())).willReturn(Optional.of(doctorIsGp));
-        given(diagnosisRepository.findById(diagnosis1.getId())).willReturn(Optional.of(diagnosis1));
-        given(diagnosisRepository.findById(diagnosis2.getId())).willReturn(Optional.empty());
+        given(diagnosisRepository.findAllById(any())).willReturn(List.of(diagnosis1));
         given(healthSystemRepository.findById(anyLong())).willReturn(Optional.of(healthSystem));
 
         assertThrows(EntityNotFoundException.class,
@@ -154,8 +178,7 @@ class VisitServiceImplTest {
     void testCreateVisit_withPatientNotExisting_shouldThrow() {
         given(patientRepository.findById(anyLong())).willReturn(Optional.empty());
         given(doctorRepository.findById(anyLong())).willReturn(Optional.of(doctorIsGp));
-        given(diagnosisRepository.findById(diagnosis1.getId())).willReturn(Optional.of(diagnosis1));
-        given(diagnosisRepository.findById(diagnosis2.getId())).willReturn(Optional.of(diagnosis2));
+        given(diagnosisRepository.findAllById(any())).willReturn(List.of(diagnosis1, diagnosis2));
         given(healthSystemRepository.findById(anyLong())).willReturn(Optional.of(healthSystem));
 
         assertThrows(EntityNotFoundException.class,
@@ -167,8 +190,7 @@ class VisitServiceImplTest {
     void testCreateVisit_withDoctorNotExisting_shouldThrow() {
         given(patientRepository.findById(anyLong())).willReturn(Optional.of(insuredPatient1));
         given(doctorRepository.findById(anyLong())).willReturn(Optional.empty());
-        given(diagnosisRepository.findById(diagnosis1.getId())).willReturn(Optional.of(diagnosis1));
-        given(diagnosisRepository.findById(diagnosis2.getId())).willReturn(Optional.of(diagnosis2));
+        given(diagnosisRepository.findAllById(any())).willReturn(List.of(diagnosis1, diagnosis2));
         given(healthSystemRepository.findById(anyLong())).willReturn(Optional.of(healthSystem));
 
         assertThrows(EntityNotFoundException.class,
@@ -180,8 +202,7 @@ class VisitServiceImplTest {
     void testCreateVisit_withHealthSystemNotExisting_shouldThrow() {
         given(patientRepository.findById(anyLong())).willReturn(Optional.of(insuredPatient1));
         given(doctorRepository.findById(anyLong())).willReturn(Optional.of(doctorIsGp));
-        given(diagnosisRepository.findById(diagnosis1.getId())).willReturn(Optional.of(diagnosis1));
-        given(diagnosisRepository.findById(diagnosis2.getId())).willReturn(Optional.of(diagnosis2));
+        given(diagnosisRepository.findAllById(any())).willReturn(List.of(diagnosis1, diagnosis2));
         given(healthSystemRepository.findById(anyLong())).willReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class,
@@ -193,8 +214,7 @@ class VisitServiceImplTest {
     void testMapVisitRequestToVisit_withVisitRequestAllPropertiesExisting_shouldMap() {
         given(patientRepository.findById(anyLong())).willReturn(Optional.of(insuredPatient1));
         given(doctorRepository.findById(anyLong())).willReturn(Optional.of(doctorIsGp));
-        given(diagnosisRepository.findById(diagnosis1.getId())).willReturn(Optional.of(diagnosis1));
-        given(diagnosisRepository.findById(diagnosis2.getId())).willReturn(Optional.of(diagnosis2));
+        given(diagnosisRepository.findAllById(any())).willReturn(List.of(diagnosis1, diagnosis2));
         given(healthSystemRepository.findById(anyLong())).willReturn(Optional.of(healthSystem));
 
         Visit visit = new Visit();
@@ -212,8 +232,7 @@ class VisitServiceImplTest {
     void testMapVisitRequestToVisit_withOneDiagnosisNotExisting_shouldThrow() {
         given(patientRepository.findById(anyLong())).willReturn(Optional.of(insuredPatient1));
         given(doctorRepository.findById(anyLong())).willReturn(Optional.of(doctorIsGp));
-        given(diagnosisRepository.findById(diagnosis1.getId())).willReturn(Optional.of(diagnosis1));
-        given(diagnosisRepository.findById(diagnosis2.getId())).willReturn(Optional.empty());
+        given(diagnosisRepository.findAllById(any())).willReturn(List.of(diagnosis1));
         given(healthSystemRepository.findById(anyLong())).willReturn(Optional.of(healthSystem));
 
         Visit visit = new Visit();
@@ -224,8 +243,7 @@ class VisitServiceImplTest {
 
     @Test
     void testGetDiagnosesFromDiagnosesIds_withVisitRequestExistingDiagnoses_shouldReturnDiagnoses() {
-        given(diagnosisRepository.findById(diagnosis1.getId())).willReturn(Optional.of(diagnosis1));
-        given(diagnosisRepository.findById(diagnosis2.getId())).willReturn(Optional.of(diagnosis2));
+        given(diagnosisRepository.findAllById(any())).willReturn(List.of(diagnosis1, diagnosis2));
 
         Set<Diagnosis> expected = Set.of(diagnosis1, diagnosis2);
 
@@ -239,34 +257,197 @@ class VisitServiceImplTest {
 
     @Test
     void testGetDiagnosesFromDiagnosesIds_withVisitRequestOneNotExistingDiagnoses_shouldThrow() {
-        given(diagnosisRepository.findById(diagnosis1.getId())).willReturn(Optional.of(diagnosis1));
-        given(diagnosisRepository.findById(diagnosis2.getId())).willReturn(Optional.empty());
+        given(diagnosisRepository.findAllById(any())).willReturn(List.of(diagnosis1));
 
         assertThrows(EntityNotFoundException.class,
                 () -> visitService.getDiagnosesFromDiagnosesIds(visitCreateRequest));
     }
 
     @Test
-    void testGetAllVisits_withVisits_shouldReturnAllVisits() {
-        List<VisitResponse> expected = mapperUtil.mapList(List.of(visitContains1, visitContains2), VisitResponse.class);
+    void testGetDiagnosesFromDiagnosesIds_withVisitRequestNotExistingDiagnoses_shouldListAllMissingIds() {
+        given(diagnosisRepository.findAllById(any())).willReturn(List.of(diagnosis1));
+        ReflectionTestUtils.setField(visitCreateRequest, "diagnosesIds", Set.of(diagnosis1.getId(), 8L, 5L));
+
+        EntitiesNotFoundException exception = assertThrows(EntitiesNotFoundException.class,
+                () -> visitService.getDiagnosesFromDiagnosesIds(visitCreateRequest));
+
+        assertEquals(List.of(5L, 8L), exception.getMissingIds());
+        assertEquals("Diagnoses not found: [5, 8]", exception.getMessage());
+        verify(diagnosisRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void testGetVisitsPage_withMoreVisitsThanLimit_shouldReturnPageAndNextCursor() {
+        given(visitRepository.findFirstResponses(PageRequest.of(0, 3))).willReturn(List.of(
+                visitResponseOf(visitContains2), visitResponseOf(visitNotContains), visitResponseOf(visitContains1)));
+        given(visitRepository.findDiagnosisRows(List.of(visitContains2.getId(), visitNotContains.getId())))
+                .willReturn(diagnosisRowsOf(visitContains2, visitNotContains));
+
+        CursorPage<VisitResponse> page = visitService.getVisitsPage(2, null);
+
+        assertIterableEquals(mapperUtil.mapList(List.of(visitContains2, visitNotContains), VisitResponse.class),
+                page.getItems());
+        assertEquals(KeysetCursor.of(visitNotContains.getVisitDate(), visitNotContains.getId()).encode(),
+                page.getNextCursor());
+    }
+
+    @Test
+    void testGetVisitsPage_withAfterCursorOnLastPage_shouldSeekAndReturnNoCursor() {
+        String after = KeysetCursor.of(visitNotContains.getVisitDate(), visitNotContains.getId()).encode();
+
+        given(visitRepository.findResponsesAfter(visitNotContains.getVisitDate(), visitNotContains.getId(), PageRequest.of(0, 3)))
+                .willReturn(List.of(visitResponseOf(visitContains1)));
+        given(visitRepository.findDiagnosisRows(List.of(visitContains1.getId())))
+                .willReturn(diagnosisRowsOf(visitContains1));
+
+        CursorPage<VisitResponse> page = visitService.getVisitsPage(2, after);
+
+        assertIterableEquals(mapperUtil.mapList(List.of(visitContains1), VisitResponse.class), page.getItems());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetVisitsPage_withLimitOverMax_shouldUseMaxLimit() {
+        given(visitRepository.findFirstResponses(PageRequest.of(0, Paging.MAX_LIMIT + 1)))
+                .willReturn(Collections.emptyList());
+
+        assertIterableEquals(Collections.emptyList(), visitService.getVisitsPage(Paging.MAX_LIMIT * 10, null).getItems());
+        verify(visitRepository, never()).findDiagnosisRows(any());
+    }
+
+    @Test
+    void testGetVisitsOfPatientPage_withMoreVisitsThanLimit_shouldReturnNewestAndNextCursor() {
+        Long patientId = visitContains1.getPatient().getId();
+        given(patientRepository.existsById(patientId)).willReturn(true);
+        given(visitRepository.findLatestResponsesOfPatient(patientId, PageRequest.of(0, 2)))
+                .willReturn(List.of(visitResponseOf(visitContains1), visitResponseOf(visitContains2)));
+        given(visitRepository.findDiagnosisRows(List.of(visitContains1.getId())))
+                .willReturn(diagnosisRowsOf(visitContains1));
+
+        CursorPage<VisitResponse> page = visitService.getVisitsOfPatientPage(patientId, 1, null);
+
+        assertIterableEquals(mapperUtil.mapList(List.of(visitContains1), VisitResponse.class), page.getItems());
+        assertEquals(KeysetCursor.of(visitContains1.getVisitDate(), visitContains1.getId()).encode(),
+                page.getNextCursor());
+    }
+
+    @Test
+    void testGetVisitsOfPatientPage_withAfterCursor_shouldSeekBeforeCursor() {
+        Long patientId = visitContains2.getPatient().getId();
+        String after = KeysetCursor.of(visitContains1.getVisitDate(), visitContains1.getId()).encode();
+        given(patientRepository.existsById(patientId)).willReturn(true);
+        given(visitRepository.findResponsesOfPatientBefore(patientId, visitContains1.getVisitDate(),
+                visitContains1.getId(), PageRequest.of(0, 2)))
+                .willReturn(List.of(visitResponseOf(visitContains2)));
+        given(visitRepository.findDiagnosisRows(List.of(visitContains2.getId())))
+                .willReturn(diagnosisRowsOf(visitContains2));
+
+        CursorPage<VisitResponse> page = visitService.getVisitsOfPatientPage(patientId, 1, after);
+
+        assertIterableEquals(mapperUtil.mapList(List.of(visitContains2), VisitResponse.class), page.getItems());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetVisitsOfPatientPage_withNoSuchPatient_shouldThrow() {
+        given(patientRepository.existsById(1L)).willReturn(false);
+
+        assertThrows(EntityNotFoundException.class, () -> visitService.getVisitsOfPatientPage(1L, 10, null));
+        assertThrows(InvalidPageRequestException.class, () -> visitService.getVisitsOfPatientPage(1L, 10, "not a cursor"));
+        verifyNoInteractions(visitRepository);
+    }
+
+    @Test
+    void testGetDoctorCaseload_withMoreVisitsThanLimit_shouldReturnCountsPageAndNextCursor() {
+        Long doctorId = visitContains2.getDoctor().getId();
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(2030, 1, 1);
+        given(visitRepository.findCaseloadRows(doctorId, from, to, null, true, from, 0L, 2)).willReturn(List.of(
+                caseloadRowOf(4, 3, 2, visitContains2), caseloadRowOf(4, 3, 2, visitContains1)));
+        given(visitRepository.findDiagnosisRows(List.of(visitContains2.getId())))
+                .willReturn(diagnosisRowsOf(visitContains2));
+
+        DoctorCaseloadResponse caseload = visitService.getDoctorCaseload(doctorId, from, to, null, true, 1, null);
+
+        assertEquals(new DoctorCaseloadResponse(4, 3, 2,
+                mapperUtil.mapList(List.of(visitContains2), VisitResponse.class),
+                KeysetCursor.of(visitContains2.getVisitDate(), visitContains2.getId()).encode()), caseload);
+        assertEquals(1, caseload.getUninsuredVisits());
+    }
+
+    @Test
+    void testGetDoctorCaseload_withCursorBeforePeriod_shouldStartAtPeriod() {
+        LocalDate from = LocalDate.of(2021, 1, 1);
+        LocalDate to = LocalDate.of(2021, 12, 31);
+        String after = KeysetCursor.of(LocalDate.of(2020, 6, 1), 9L).encode();
+        given(visitRepository.findCaseloadRows(1L, from, to, 2L, null, from, 0L, 11))
+                .willReturn(List.<Object[]>of(new Object[]{0L, 0L, 0L, null, null, null}));
+        given(doctorRepository.existsById(1L)).willReturn(true);
 
-        given(mapperUtil.mapList(visitRepository.findAll(), VisitResponse.class)).willReturn(expected);
+        DoctorCaseloadResponse caseload = visitService.getDoctorCaseload(1L, from, to, 2L, null, 10, after);
 
-        assertIterableEquals(expected, visitService.getAllVisits());
+        assertEquals(new DoctorCaseloadResponse(0, 0, 0, List.of(), null), caseload);
+        verify(visitRepository, never()).findDiagnosisRows(any());
     }
 
     @Test
-    void testGetAllVisits_withNoVisits_shouldReturnEmptyList() {
-        given(mapperUtil.mapList(doctorRepository.findAll(), VisitResponse.class)).willReturn(Collections.emptyList());
+    void testGetDoctorCaseload_withNoSuchDoctor_shouldThrow() {
+        LocalDate day = LocalDate.of(2021, 1, 1);
+        given(visitRepository.findCaseloadRows(1L, day, day, null, null, day, 0L, 11))
+                .willReturn(List.<Object[]>of(new Object[]{0L, 0L, 0L, null, null, null}));
+        given(doctorRepository.existsById(1L)).willReturn(false);
+
+        assertThrows(EntityNotFoundException.class,
+                () -> visitService.getDoctorCaseload(1L, day, day, null, null, 10, null));
+    }
+
+    @Test
+    void testGetDoctorCaseload_withInvalidPeriodOrLimit_shouldThrow() {
+        LocalDate day = LocalDate.of(2021, 1, 1);
+
+        assertThrows(InvalidPageRequestException.class,
+                () -> visitService.getDoctorCaseload(1L, day, day.minusDays(1), null, null, 10, null));
+        assertThrows(InvalidPageRequestException.class,
+                () -> visitService.getDoctorCaseload(1L, day, day, null, null, 0, null));
+        verifyNoInteractions(visitRepository);
+    }
+
+    // A row of VisitRepository.findCaseloadRows with the given counts and the visit, its date as the JDBC driver returns it
+    private static Object[] caseloadRowOf(long visits, long insuredVisits, long patients, Visit visit) {
+        return new Object[]{visits, insuredVisits, patients, visit.getId(), visit.getPatient().getId(),
+                java.sql.Date.valueOf(visit.getVisitDate())};
+    }
 
-        assertIterableEquals(Collections.emptyList(), visitService.getAllVisits());
+    // The row the constructor expressions of VisitRepository build for the visit
+    private static VisitResponse visitResponseOf(Visit visit) {
+        return new VisitResponse(visit.getId(), visit.getPatient().getId(), visit.getDoctor().getId(), visit.getVisitDate());
+    }
+
+    // The (visitId, diagnosisId, diagnosis name) rows of the visits
+    private static List<Object[]> diagnosisRowsOf(Visit... visits) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Visit visit : visits) {
+            for (Diagnosis diagnosis : visit.getDiagnoses()) {
+                rows.add(new Object[]{visit.getId(), diagnosis.getId(), diagnosis.getName()});
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    void testGetVisitsPage_withInvalidLimitOrCursor_shouldThrow() {
+        assertThrows(InvalidPageRequestException.class, () -> visitService.getVisitsPage(0, null));
+        assertThrows(InvalidPageRequestException.class, () -> visitService.getVisitsPage(10, "not a cursor"));
+        assertThrows(InvalidPageRequestException.class,
+                () -> visitService.getVisitsPage(10, KeysetCursor.of(5L).encode()));
+        verifyNoInteractions(visitRepository);
     }
 
     @Test
     void testGetVisitById_withVisit_shouldReturnVisit() {
         VisitResponse expected = mapperUtil.modelMapper().map(visitContains1, VisitResponse.class);
 
-        given(visitRepository.findById(anyLong())).willReturn(Optional.of(visitContains1));
+        given(visitRepository.findWithDiagnosesById(anyLong())).willReturn(Optional.of(visitContains1));
 
         VisitResponse actual = visitService.getVisitById(visitContains1.getId());
 
@@ -275,7 +456,7 @@ class VisitServiceImplTest {
 
     @Test
     void testGetVisitById_withNoSuchVisit_shouldThrow() {
-        given(visitRepository.findById(anyLong())).willReturn(Optional.empty());
+        given(visitRepository.findWithDiagnosesById(anyLong())).willReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class, () -> visitService.getVisitById(1L));
     }
@@ -285,7 +466,7 @@ class VisitServiceImplTest {
         given(visitRepository.findById(visitContains1.getId())).willReturn(Optional.of(visitContains1));
         given(patientRepository.findById(uninsuredPatient1.getId())).willReturn(Optional.of(uninsuredPatient1));
         given(doctorRepository.findById(doctorNotGp.getId())).willReturn(Optional.of(doctorNotGp));
-        given(diagnosisRepository.findById(diagnosis1.getId())).willReturn(Optional.of(diagnosis1));
+        given(diagnosisRepository.findAllById(any())).willReturn(List.of(diagnosis1));
         given(healthSystemRepository.findById(healthSystem.getId())).willReturn(Optional.of(healthSystem));
         given(visitRepository.save(any())).willReturn(visitContains1);
 
@@ -300,9 +481,15 @@ class VisitServiceImplTest {
         VisitResponse expectedVisitResponse =
                 mapperUtil.modelMapper().map(expectedUpdated, VisitResponse.class);
 
+        Doctor oldDoctor = visitContains1.getDoctor();
+        Patient oldPatient = visitContains1.getPatient();
+
         VisitResponse actualVisitResponse = visitService.updateVisit(visitContains1.getId(), visitUpdateRequest);
 
         assertEquals(expectedVisitResponse, actualVisitResponse);
+        verify(incomeLedgerService, times(1)).moveVisit(
+                argThat(before -> before.getDoctor() == oldDoctor && before.getPatient() == oldPatient),
+                eq(visitContains1));
     }
 
     @Test
@@ -324,6 +511,7 @@ class VisitServiceImplTest {
         visitService.deleteVisit(visitContains1.getId());
 
         verify(visitRepository, times(1)).delete(visitContains1);
+        verify(incomeLedgerService, times(1)).removeVisit(visitContains1);
     }
 
     @Test
@@ -338,18 +526,19 @@ class VisitServiceImplTest {
     @Test
     void testGetTotalIncomeFromVisits_withVisits_shouldReturnIncome() {
         List<Visit> allVisits = List.of(visitContains1, visitContains2, visitNotContains);
-        given(visitRepository.findAll()).willReturn(allVisits);
 
         BigDecimal expected = allVisits.stream()
                 .map(visit -> visit.getHealthSystem().getNoInsuranceFee())
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
+        given(incomeLedgerService.getTotalIncome()).willReturn(expected);
 
         assertEquals(expected, visitService.getTotalIncomeFromVisits());
+        verify(visitRepository, never()).findAll();
     }
 
     @Test
     void testGetTotalIncomeFromVisits_withoutVisits_shouldReturnZero() {
-        given(visitRepository.findAll()).willReturn(Collections.emptyList());
+        given(incomeLedgerService.getTotalIncome()).willReturn(BigDecimal.ZERO);
 
         BigDecimal expected = BigDecimal.ZERO;
 
@@ -358,22 +547,22 @@ class VisitServiceImplTest {
 
     @Test
     void testGetTotalIncomeFromVisitsOfDoctor_withExistingDoctorHasVisits_shouldReturnIncome() {
-        given(doctorRepository.findById(anyLong())).willReturn(Optional.of(doctorIsGp));
+        given(doctorRepository.existsById(anyLong())).willReturn(true);
 
         List<Visit> allVisitsByDoctor = List.of(visitContains1, visitContains2);
-        given(visitRepository.findAllByDoctorId(doctorIsGp.getId())).willReturn(allVisitsByDoctor);
 
         BigDecimal expected = allVisitsByDoctor.stream()
                 .map(visit -> visit.getHealthSystem().getNoInsuranceFee())
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
+        given(incomeLedgerService.getIncomeOfDoctor(doctorIsGp.getId())).willReturn(expected);
 
         assertEquals(expected, visitService.getTotalIncomeFromVisitsOfDoctor(doctorIsGp.getId()));
     }
 
     @Test
     void testGetTotalIncomeFromVisitsOfDoctor_withExistingDoctorHasNoVisits_shouldReturnZero() {
-        given(doctorRepository.findById(anyLong())).willReturn(Optional.of(doctorIsGp));
-        given(visitRepository.findAllByDoctorId(doctorIsGp.getId())).willReturn(Collections.emptyList());
+        given(doctorRepository.existsById(anyLong())).willReturn(true);
+        given(incomeLedgerService.getIncomeOfDoctor(doctorIsGp.getId())).willReturn(BigDecimal.ZERO);
 
         BigDecimal expected = BigDecimal.ZERO;
 
@@ -438,18 +627,10 @@ class VisitServiceImplTest {
 
     @Test
     void testGetCountDoctorsBiggerIncome_withDoctorsWithBiggerIncome_shouldReturnCount() {
-        Object[] row = new Object[2];
-        row[0] = doctorIsGp;
-        row[1] = BigDecimal.valueOf(20);
-        List<Object[]> expectedRows = new ArrayList<>();
-        expectedRows.add(row);
-
-        int expected = expectedRows.size();
-
         BigDecimal minIncome = BigDecimal.valueOf(15);
-        given(visitRepository.getAllDoctorsBiggerIncome(minIncome)).willReturn(expectedRows);
+        given(doctorIncomeIndexService.countDoctorsAbove(minIncome)).willReturn(1);
 
-        assertEquals(expected, visitService.getCountDoctorsBiggerIncome(minIncome));
+        assertEquals(1, visitService.getCountDoctorsBiggerIncome(minIncome));
     }
 
     @Test
@@ -457,7 +638,7 @@ class VisitServiceImplTest {
         int expected = 0;
 
         BigDecimal minIncome = BigDecimal.valueOf(15);
-        given(visitRepository.getAllDoctorsBiggerIncome(minIncome)).willReturn(Collections.emptyList());
+        given(doctorIncomeIndexService.countDoctorsAbove(minIncome)).willReturn(0);
 
         assertEquals(expected, visitService.getCountDoctorsBiggerIncome(minIncome));
     }
@@ -470,24 +651,54 @@ class VisitServiceImplTest {
                 () -> visitService.getCountDoctorsBiggerIncome(minIncome));
     }
 
+    @Test
+    void testGetTopDoctorsByIncome_withLimitOverMaximum_shouldAskForMaximum() {
+        List<DoctorIncomeResponse> expected = List.of(new DoctorIncomeResponse(doctorIsGp.getId(), BigDecimal.TEN));
+        given(doctorIncomeIndexService.getTopDoctors(Paging.MAX_LIMIT)).willReturn(expected);
+
+        assertEquals(expected, visitService.getTopDoctorsByIncome(Paging.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void testGetTopDoctorsByIncome_withZeroLimit_shouldThrow() {
+        assertThrows(InvalidPageRequestException.class,
+                () -> visitService.getTopDoctorsByIncome(0));
+    }
+
+    @Test
+    void testGetIncomePercentileRankOfDoctor_withExistingDoctor_shouldReturnRank() {
+        given(doctorRepository.existsById(doctorIsGp.getId())).willReturn(true);
+        given(doctorIncomeIndexService.getPercentileRank(doctorIsGp.getId())).willReturn(new BigDecimal("50.00"));
+
+        assertEquals(new BigDecimal("50.00"), visitService.getIncomePercentileRankOfDoctor(doctorIsGp.getId()));
+    }
+
+    @Test
+    void testGetIncomePercentileRankOfDoctor_withNotExistingDoctor_shouldThrow() {
+        given(doctorRepository.existsById(anyLong())).willReturn(false);
+
+        assertThrows(EntityNotFoundException.class,
+                () -> visitService.getIncomePercentileRankOfDoctor(1L));
+    }
+
     @Test
     void testGetTotalIncomeFromVisitsByDiagnosis_withExistingDiagnosisHasVisits_shouldReturnIncome() {
-        given(diagnosisRepository.findById(diagnosis1.getId())).willReturn(Optional.of(diagnosis1));
+        given(diagnosisRepository.existsById(diagnosis1.getId())).willReturn(true);
 
         List<Visit> allVisitsByDiagnosis = List.of(visitContains1, visitContains2);
-        given(visitRepository.findAllVisitsByDiagnosis(diagnosis1.getId())).willReturn(allVisitsByDiagnosis);
 
         BigDecimal expected = allVisitsByDiagnosis.stream()
                 .map(visit -> visit.getHealthSystem().getNoInsuranceFee())
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
+        given(visitRepository.getTotalIncomeByDiagnosisId(diagnosis1.getId())).willReturn(expected);
 
         assertEquals(expected, visitService.getTotalIncomeFromVisitsByDiagnosis(diagnosis1.getId()));
     }
 
     @Test
     void testGetTotalIncomeFromVisitsByDiagnosis_withExistingDiagnosisHasNoVisits_shouldReturnZero() {
-        given(diagnosisRepository.findById(diagnosis1.getId())).willReturn(Optional.of(diagnosis1));
-        given(visitRepository.findAllVisitsByDiagnosis(diagnosis1.getId())).willReturn(Collections.emptyList());
+        given(diagnosisRepository.existsById(diagnosis1.getId())).willReturn(true);
+        given(visitRepository.getTotalIncomeByDiagnosisId(diagnosis1.getId())).willReturn(BigDecimal.ZERO);
 
         BigDecimal expected = BigDecimal.ZERO;
 
@@ -504,18 +715,18 @@ class VisitServiceImplTest {
     @Test
     void testGetTotalIncomeFromPatientsNoInsurance_withVisits_shouldReturnIncome() {
         List<Visit> allVisitsUninsuredPatients = List.of(visitNotContains);
-        given(visitRepository.findAllByPatient_HasInsuranceFalse()).willReturn(allVisitsUninsuredPatients);
 
         BigDecimal expected = allVisitsUninsuredPatients.stream()
                 .map(visit -> visit.getHealthSystem().getNoInsuranceFee())
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
+        given(visitRepository.getTotalIncomeFromPatientsNoInsurance()).willReturn(expected);
 
         assertEquals(expected, visitService.getTotalIncomeFromPatientsNoInsurance());
     }
 
     @Test
     void testGetTotalIncomeFromPatientsNoInsurance_withoutVisits_shouldReturnZero() {
-        given(visitRepository.findAllByPatient_HasInsuranceFalse()).willReturn(Collections.emptyList());
+        given(visitRepository.getTotalIncomeFromPatientsNoInsurance()).willReturn(BigDecimal.ZERO);
 
         BigDecimal expected = BigDecimal.ZERO;
 
@@ -524,24 +735,24 @@ class VisitServiceImplTest {
 
     @Test
     void testGetTotalIncomeByDoctorInsuredPatients_withExistingDoctorHasVisitsWithInsuredPatients_shouldReturnIncome() {
-        given(doctorRepository.findById(anyLong())).willReturn(Optional.of(doctorIsGp));
+        given(doctorRepository.existsById(anyLong())).willReturn(true);
 
         List<Visit> visitsByDoctorWithInsuredPatients = List.of(visitContains1, visitContains2);
-        given(visitRepository.findAllByDoctorIdAndPatient_HasInsuranceTrue(doctorIsGp.getId()))
-                .willReturn(visitsByDoctorWithInsuredPatients);
 
         BigDecimal expected = visitsByDoctorWithInsuredPatients.stream()
                 .map(visit -> visit.getHealthSystem().getNoInsuranceFee())
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
+        given(incomeLedgerService.getInsuredIncomeOfDoctor(doctorIsGp.getId()))
+                .willReturn(expected);
 
         assertEquals(expected, visitService.getTotalIncomeByDoctorInsuredPatients(doctorIsGp.getId()));
     }
 
     @Test
     void testGetTotalIncomeByDoctorInsuredPatients_withExistingDoctorHasNoVisitsWithInsuredPatients_shouldReturnZero() {
-        given(doctorRepository.findById(anyLong())).willReturn(Optional.of(doctorNotGp));
-        given(visitRepository.findAllByDoctorIdAndPatient_HasInsuranceTrue(doctorNotGp.getId()))
-                .willReturn(Collections.emptyList());
+        given(doctorRepository.existsById(anyLong())).willReturn(true);
+        given(incomeLedgerService.getInsuredIncomeOfDoctor(doctorNotGp.getId()))
+                .willReturn(BigDecimal.ZERO);
 
         BigDecimal expected = BigDecimal.ZERO;
 
@@ -0,0 +1,105 @@
+package com.example.medicalrecordsproject.utils;
+
+import com.example.medicalrecordsproject.data.dtos.incomes.DoctorIncomeResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DoctorIncomeIndexTest {
+
+    private DoctorIncomeIndex index;
+
+    @BeforeEach
+    public void setup() {
+        index = new DoctorIncomeIndex();
+        index.replaceAll(Map.of(
+                1L, BigDecimal.valueOf(10),
+                2L, BigDecimal.valueOf(30),
+                3L, BigDecimal.valueOf(20),
+                4L, BigDecimal.valueOf(20)));
+    }
+
+    @Test
+    void testCountAbove_withThresholds_shouldCountStrictlyBiggerIncomes() {
+        assertEquals(4, index.countAbove(BigDecimal.ZERO));
+        assertEquals(3, index.countAbove(BigDecimal.valueOf(10)));
+        assertEquals(1, index.countAbove(BigDecimal.valueOf(20)));
+        assertEquals(1, index.countAbove(new BigDecimal("29.99")));
+        assertEquals(0, index.countAbove(BigDecimal.valueOf(30)));
+    }
+
+    @Test
+    void testTop_shouldReturnBiggestIncomesFirst() {
+        assertEquals(List.of(
+                        new DoctorIncomeResponse(2L, BigDecimal.valueOf(30)),
+                        new DoctorIncomeResponse(4L, BigDecimal.valueOf(20))),
+                index.top(2));
+        assertEquals(4, index.top(10).size());
+    }
+
+    @Test
+    void testPercentileRank_shouldReturnPercentOfLowerIncomes() {
+        assertEquals(new BigDecimal("0.00"), index.percentileRank(BigDecimal.valueOf(10)));
+        assertEquals(new BigDecimal("25.00"), index.percentileRank(BigDecimal.valueOf(20)));
+        assertEquals(new BigDecimal("75.00"), index.percentileRank(BigDecimal.valueOf(30)));
+        assertEquals(new BigDecimal("100.00"), index.percentileRank(BigDecimal.valueOf(31)));
+        assertEquals(new BigDecimal("0.00"), new DoctorIncomeIndex().percentileRank(BigDecimal.TEN));
+    }
+
+    @Test
+    void testAdd_withExistingAndNewDoctors_shouldKeepOrder() {
+        index.add(1L, BigDecimal.valueOf(25));
+        index.add(5L, BigDecimal.valueOf(5));
+        index.add(2L, BigDecimal.valueOf(-30));
+
+        assertEquals(5, index.size());
+        assertEquals(BigDecimal.valueOf(35), index.getIncome(1L));
+        assertEquals(BigDecimal.ZERO, index.getIncome(6L));
+        assertEquals(List.of(1L, 4L, 3L, 5L, 2L), index.top(5).stream()
+                .map(DoctorIncomeResponse::getDoctorId)
+                .collect(Collectors.toList()));
+        assertEquals(3, index.countAbove(BigDecimal.valueOf(5)));
+    }
+
+    @Test
+    void testRemove_withExistingAndMissingDoctors_shouldKeepOrder() {
+        index.remove(3L);
+        index.remove(6L);
+
+        assertEquals(3, index.size());
+        assertEquals(BigDecimal.ZERO, index.getIncome(3L));
+        assertEquals(List.of(2L, 4L, 1L), index.top(5).stream()
+                .map(DoctorIncomeResponse::getDoctorId)
+                .collect(Collectors.toList()));
+        assertEquals(new BigDecimal("66.67"), index.percentileRank(BigDecimal.valueOf(30)));
+    }
+
+    @Test
+    void testAdd_withRandomChanges_shouldMatchSortingAllIncomes() {
+        Random random = new Random(42);
+        Map<Long, BigDecimal> expected = new HashMap<>();
+        index.replaceAll(expected);
+
+        for (int i = 0; i < 2000; i++) {
+            long doctorId = random.nextInt(50);
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(2000) - 500, 2);
+            expected.merge(doctorId, amount, BigDecimal::add);
+            index.add(doctorId, amount);
+        }
+
+        BigDecimal threshold = BigDecimal.valueOf(5);
+        assertEquals(expected.values().stream().filter(income -> income.compareTo(threshold) > 0).count(),
+                index.countAbove(threshold));
+        List<BigDecimal> sortedIncomes = expected.values().stream()
+                .sorted(Comparator.reverseOrder())
+                .collect(Collectors.toList());
+        assertEquals(sortedIncomes, index.top(expected.size()).stream()
+                .map(DoctorIncomeResponse::getIncome)
+                .collect(Collectors.toList()));
+    }
+}
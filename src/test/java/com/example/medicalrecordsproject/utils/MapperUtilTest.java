@@ -0,0 +1,100 @@
+package com.example.medicalrecordsproject.utils;
+
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorRequest;
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse;
+import com.example.medicalrecordsproject.data.dtos.patients.PatientResponse;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
+import com.example.medicalrecordsproject.data.entities.*;
+import com.example.medicalrecordsproject.helpers.Helpers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapperUtilTest {
+
+    private MapperUtil mapperUtil;
+
+    private List<Visit> visits;
+
+    @BeforeEach
+    public void setup() {
+        mapperUtil = new MapperUtil();
+
+        Doctor doctor = Helpers.getDoctorIsGp();
+        ReflectionTestUtils.setField(doctor, "id", 1L);
+        Patient patient = Helpers.getInsuredPatient1();
+        ReflectionTestUtils.setField(patient, "id", 1L);
+        ReflectionTestUtils.setField(patient, "gp", doctor);
+        HealthSystem healthSystem = Helpers.getHealthSystem();
+        ReflectionTestUtils.setField(healthSystem, "id", 1L);
+        Diagnosis diagnosis1 = Helpers.getDiagnosis1();
+        ReflectionTestUtils.setField(diagnosis1, "id", 1L);
+        Diagnosis diagnosis2 = Helpers.getDiagnosis2();
+        ReflectionTestUtils.setField(diagnosis2, "id", 2L);
+
+        visits = new ArrayList<>();
+        for (long i = 1; i <= 20; i++) {
+            Visit visit = new Visit();
+            ReflectionTestUtils.setField(visit, "id", i);
+            ReflectionTestUtils.setField(visit, "patient", patient);
+            ReflectionTestUtils.setField(visit, "doctor", doctor);
+            ReflectionTestUtils.setField(visit, "healthSystem", healthSystem);
+            ReflectionTestUtils.setField(visit, "diagnoses", Set.of(diagnosis1, diagnosis2));
+            ReflectionTestUtils.setField(visit, "visitDate", LocalDate.of(2021, 8, 11));
+            visits.add(visit);
+        }
+    }
+
+    @Test
+    void testModelMapper_calledTwice_shouldReturnSameInstance() {
+        assertSame(mapperUtil.modelMapper(), mapperUtil.modelMapper());
+    }
+
+    @Test
+    void testValidateTypeMaps_withValidationEnabled_shouldNotThrow() {
+        ReflectionTestUtils.setField(mapperUtil, "validateOnStartup", true);
+
+        assertDoesNotThrow(() -> mapperUtil.validateTypeMaps());
+    }
+
+    @Test
+    void testMapList_withVisits_shouldMapSameAsNewModelMapper() {
+        List<VisitResponse> expected = visits.stream()
+                .map(visit -> new ModelMapper().map(visit, VisitResponse.class))
+                .collect(Collectors.toList());
+
+        assertIterableEquals(expected, mapperUtil.mapList(visits, VisitResponse.class));
+    }
+
+    @Test
+    void testMap_withPatientWithGp_shouldMapGpId() {
+        PatientResponse patientResponse = mapperUtil.modelMapper().map(visits.get(0).getPatient(), PatientResponse.class);
+
+        assertEquals(1L, patientResponse.getGpId());
+    }
+
+    @Test
+    void testMap_withDoctorRequest_shouldNotTouchIdAndSpecialties() {
+        Doctor doctor = Helpers.getDoctorNotGp();
+        ReflectionTestUtils.setField(doctor, "id", 3L);
+        doctor.setSpecialties(Set.of(Helpers.getSpecialty1()));
+        DoctorRequest doctorRequest = Helpers.getDoctorRequest();
+        doctorRequest.setSpecialtiesIds(Set.of(5L));
+
+        mapperUtil.modelMapper().map(doctorRequest, doctor);
+
+        assertEquals(3L, doctor.getId());
+        assertEquals("New Name", doctor.getName());
+        assertEquals(1, doctor.getSpecialties().size());
+        assertNull(mapperUtil.modelMapper().map(doctor, DoctorResponse.class).getMessage());
+    }
+}
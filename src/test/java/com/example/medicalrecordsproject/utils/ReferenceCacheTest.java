@@ -0,0 +1,135 @@
+package com.example.medicalrecordsproject.utils;
+
+import com.example.medicalrecordsproject.data.dtos.caches.CacheStatsResponse;
+import com.example.medicalrecordsproject.data.entities.Diagnosis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceCacheTest {
+
+    private ReferenceCache<Diagnosis> cache;
+
+    private Map<Long, Diagnosis> table;
+
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void setup() {
+        cache = new ReferenceCache<>("diagnoses", 2);
+        table = new TreeMap<>();
+        for (long id = 1; id <= 3; id++) {
+            Diagnosis diagnosis = new Diagnosis();
+            diagnosis.setId(id);
+            diagnosis.setName("diagnosis" + id);
+            table.put(id, diagnosis);
+        }
+        loads = new AtomicInteger();
+    }
+
+    private Optional<Diagnosis> findById(Long id) {
+        loads.incrementAndGet();
+        return Optional.ofNullable(table.get(id));
+    }
+
+    private List<Diagnosis> findAllById(Set<Long> ids) {
+        loads.incrementAndGet();
+        return ids.stream().map(table::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private List<Diagnosis> findAll() {
+        loads.incrementAndGet();
+        return new ArrayList<>(table.values());
+    }
+
+    @Test
+    void testGet_twice_shouldLoadOnce() {
+        cache.get(1L, this::findById);
+        Optional<Diagnosis> cached = cache.get(1L, this::findById);
+
+        assertEquals(table.get(1L), cached.orElseThrow());
+        assertEquals(1, loads.get());
+        assertEquals(new CacheStatsResponse("diagnoses", 1, 2, 1, 1, 0), cache.stats());
+    }
+
+    @Test
+    void testGet_withMoreRowsThanMaxSize_shouldEvictLeastRecentlyUsed() {
+        cache.get(1L, this::findById);
+        cache.get(2L, this::findById);
+        cache.get(1L, this::findById);
+        cache.get(3L, this::findById);
+
+        // 2 was used less recently than 1
+        cache.get(1L, this::findById);
+        assertEquals(3, loads.get());
+        cache.get(2L, this::findById);
+        assertEquals(4, loads.get());
+        assertEquals(2, cache.stats().getEvictions());
+    }
+
+    @Test
+    void testGetAllById_withSomeCached_shouldLoadOnlyMissingIds() {
+        cache.get(1L, this::findById);
+        List<Set<Long>> requested = new ArrayList<>();
+
+        List<Diagnosis> found = cache.getAllById(Set.of(1L, 2L, 9L), ids -> {
+            requested.add(ids);
+            return findAllById(ids);
+        });
+
+        assertEquals(List.of(Set.of(2L, 9L)), requested);
+        assertEquals(Set.of(table.get(1L), table.get(2L)), new HashSet<>(found));
+    }
+
+    @Test
+    void testGetPage_withTableFittingInCache_shouldServePagesFromAllRows() {
+        table.remove(3L);
+
+        List<Diagnosis> firstPage = cache.getPage(0L, 1, this::findAll, List::of);
+        List<Diagnosis> secondPage = cache.getPage(1L, 5, this::findAll, List::of);
+
+        assertEquals(List.of(table.get(1L)), firstPage);
+        assertEquals(List.of(table.get(2L)), secondPage);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testGetPage_withTableLargerThanCache_shouldUsePageLoader() {
+        cache.getAll(this::findAll);
+
+        List<Diagnosis> page = cache.getPage(0L, 1, this::findAll, () -> List.of(table.get(1L)));
+
+        assertEquals(List.of(table.get(1L)), page);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testInvalidate_shouldReloadRowAndAllRows() {
+        table.remove(3L);
+        cache.getAll(this::findAll);
+        table.get(1L).setName("changed");
+
+        cache.invalidate(1L);
+
+        assertEquals("changed", cache.get(1L, this::findById).orElseThrow().getName());
+        cache.getAll(this::findAll);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testInvalidate_duringLoad_shouldNotCacheLoadedRow() {
+        cache.get(1L, id -> {
+            // another request changes the row while this one is reading it
+            cache.invalidate(id);
+            return findById(id);
+        });
+        cache.get(1L, this::findById);
+
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.medicalrecordsproject.utils;
+
+import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightCacheTest {
+
+    private static final int CALLERS = 20;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    public void cleanup() {
+        executor.shutdownNow();
+    }
+
+    private Integer load() {
+        return loads.incrementAndGet();
+    }
+
+    // Every caller asks for the same key while the first computation waits for release.
+    // Returns once all the other callers are waiting for that computation.
+    private List<Future<Integer>> callConcurrently(SingleFlightCache<String, Integer> cache,
+                                                   Supplier<Integer> loader, CountDownLatch release) throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Supplier<Integer> blockingLoader = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader.get();
+        };
+
+        List<Future<Integer>> results = new ArrayList<>();
+        results.add(executor.submit(() -> cache.get("total", blockingLoader)));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(executor.submit(() -> cache.get("total", blockingLoader)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (cache.getSharedCalls() < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(CALLERS - 1, cache.getSharedCalls());
+        return results;
+    }
+
+    @Test
+    void testGet_concurrentCallsWithSameKey_shouldComputeOnce() throws Exception {
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(60_000);
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Integer>> results = callConcurrently(cache, this::load, release);
+        release.countDown();
+
+        for (Future<Integer> result : results) {
+            assertEquals(1, result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getComputations());
+    }
+
+    @Test
+    void testGet_loaderThrows_shouldThrowToEveryWaitingCallerAndNotKeepIt() throws Exception {
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(60_000);
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Integer>> results = callConcurrently(cache, () -> {
+            loads.incrementAndGet();
+            throw new EntityNotFoundException("Diagnosis not found");
+        }, release);
+        release.countDown();
+
+        for (Future<Integer> result : results) {
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> result.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(EntityNotFoundException.class, exception.getCause());
+        }
+        assertEquals(1, loads.get());
+
+        assertEquals(2, cache.get("total", this::load));
+    }
+
+    @Test
+    void testGet_withinTtl_shouldReuseResult() {
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(60_000);
+
+        assertEquals(1, cache.get("total", this::load));
+        assertEquals(1, cache.get("total", this::load));
+        assertEquals(2, cache.get("diagnosis:1", this::load));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGet_withoutTtl_shouldComputeAgainAfterCompletion() {
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(0);
+
+        assertEquals(1, cache.get("total", this::load));
+        assertEquals(2, cache.get("total", this::load));
+    }
+
+    @Test
+    void testGet_afterTtl_shouldComputeAgain() throws Exception {
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(1);
+
+        assertEquals(1, cache.get("total", this::load));
+        Thread.sleep(5);
+
+        assertEquals(2, cache.get("total", this::load));
+    }
+
+    @Test
+    void testInvalidateAll_shouldComputeAgain() {
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(60_000);
+        cache.get("total", this::load);
+
+        cache.invalidateAll();
+
+        assertEquals(2, cache.get("total", this::load));
+    }
+
+    @Test
+    void testInvalidateAll_duringComputation_shouldNotKeepOldResult() throws Exception {
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(60_000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Integer> result = executor.submit(() -> cache.get("total", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return load();
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        cache.invalidateAll();
+        release.countDown();
+
+        assertEquals(1, result.get(10, TimeUnit.SECONDS));
+        assertEquals(2, cache.get("total", this::load));
+    }
+
+    @Test
+    void testInvalidateAll_withoutTransaction_shouldNotShareOrKeepLoadStartedBefore() throws Exception {
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(60_000);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Integer>> before = callConcurrently(cache, this::load, release);
+
+        cache.invalidateAll();
+        // the old load is still running, a call after the invalidation computes its own result
+        assertEquals(1, cache.get("total", this::load));
+        release.countDown();
+
+        for (Future<Integer> result : before) {
+            assertEquals(2, result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, cache.get("total", this::load));
+        assertEquals(2, cache.getComputations());
+    }
+
+    @Test
+    void testConstructor_withNegativeTtl_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new SingleFlightCache<String, Integer>(-1));
+    }
+}
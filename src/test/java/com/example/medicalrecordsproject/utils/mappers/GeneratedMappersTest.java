@@ -0,0 +1,177 @@
+package com.example.medicalrecordsproject.utils.mappers;
+
+import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisRequest;
+import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisResponse;
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorRequest;
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse;
+import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemRequest;
+import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemResponse;
+import com.example.medicalrecordsproject.data.dtos.patients.PatientRequest;
+import com.example.medicalrecordsproject.data.dtos.patients.PatientResponse;
+import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyRequest;
+import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyResponse;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitRequest;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
+import com.example.medicalrecordsproject.data.entities.*;
+import com.example.medicalrecordsproject.helpers.Helpers;
+import com.example.medicalrecordsproject.utils.MapperUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Parity between the ModelMapper TypeMaps in MapperUtil and the generated MapStruct mappers
+class GeneratedMappersTest {
+
+    private MapperUtil modelMapperUtil;
+    private MapperUtil generatedMapperUtil;
+
+    private Doctor doctorIsGp;
+    private Doctor doctorNotGp;
+    private Patient insuredPatient1;
+    private Patient uninsuredPatient1;
+    private Diagnosis diagnosis1;
+    private Specialty specialty1;
+    private HealthSystem healthSystem;
+    private Visit visit;
+
+    @BeforeEach
+    public void setup() {
+        modelMapperUtil = new MapperUtil();
+        generatedMapperUtil = new MapperUtil();
+        ReflectionTestUtils.setField(generatedMapperUtil, "useGenerated", true);
+
+        specialty1 = Helpers.getSpecialty1();
+        ReflectionTestUtils.setField(specialty1, "id", 1L);
+        Specialty specialty2 = Helpers.getSpecialty2();
+        ReflectionTestUtils.setField(specialty2, "id", 2L);
+
+        doctorIsGp = Helpers.getDoctorIsGp();
+        ReflectionTestUtils.setField(doctorIsGp, "id", 1L);
+        ReflectionTestUtils.setField(doctorIsGp, "birthdate", LocalDate.of(1970, 1, 1));
+        ReflectionTestUtils.setField(doctorIsGp, "specialties", Set.of(specialty1, specialty2));
+
+        doctorNotGp = Helpers.getDoctorNotGp();
+        ReflectionTestUtils.setField(doctorNotGp, "id", 2L);
+
+        insuredPatient1 = Helpers.getInsuredPatient1();
+        ReflectionTestUtils.setField(insuredPatient1, "id", 1L);
+        ReflectionTestUtils.setField(insuredPatient1, "gp", doctorIsGp);
+
+        uninsuredPatient1 = Helpers.getUninsuredPatient1();
+        ReflectionTestUtils.setField(uninsuredPatient1, "id", 2L);
+
+        diagnosis1 = Helpers.getDiagnosis1();
+        ReflectionTestUtils.setField(diagnosis1, "id", 1L);
+        Diagnosis diagnosis2 = Helpers.getDiagnosis2();
+        ReflectionTestUtils.setField(diagnosis2, "id", 2L);
+
+        healthSystem = Helpers.getHealthSystem();
+        ReflectionTestUtils.setField(healthSystem, "id", 1L);
+
+        visit = new Visit();
+        ReflectionTestUtils.setField(visit, "id", 1L);
+        ReflectionTestUtils.setField(visit, "patient", insuredPatient1);
+        ReflectionTestUtils.setField(visit, "doctor", doctorIsGp);
+        ReflectionTestUtils.setField(visit, "healthSystem", healthSystem);
+        ReflectionTestUtils.setField(visit, "diagnoses", Set.of(diagnosis1, diagnosis2));
+        ReflectionTestUtils.setField(visit, "visitDate", LocalDate.of(2021, 8, 11));
+    }
+
+    @Test
+    void testMap_withSpecialty_shouldProduceSameResponse() {
+        assertEquals(modelMapperUtil.map(specialty1, SpecialtyResponse.class),
+                generatedMapperUtil.map(specialty1, SpecialtyResponse.class));
+    }
+
+    @Test
+    void testMap_withDiagnosis_shouldProduceSameResponse() {
+        assertEquals(modelMapperUtil.map(diagnosis1, DiagnosisResponse.class),
+                generatedMapperUtil.map(diagnosis1, DiagnosisResponse.class));
+    }
+
+    @Test
+    void testMap_withHealthSystem_shouldProduceSameResponse() {
+        assertEquals(modelMapperUtil.map(healthSystem, HealthSystemResponse.class),
+                generatedMapperUtil.map(healthSystem, HealthSystemResponse.class));
+    }
+
+    @Test
+    void testMap_withDoctors_shouldProduceSameResponses() {
+        List<Doctor> doctors = List.of(doctorIsGp, doctorNotGp);
+
+        assertIterableEquals(modelMapperUtil.mapList(doctors, DoctorResponse.class),
+                generatedMapperUtil.mapList(doctors, DoctorResponse.class));
+    }
+
+    @Test
+    void testMap_withPatientsWithAndWithoutGp_shouldProduceSameResponses() {
+        List<Patient> patients = List.of(insuredPatient1, uninsuredPatient1);
+
+        assertIterableEquals(modelMapperUtil.mapList(patients, PatientResponse.class),
+                generatedMapperUtil.mapList(patients, PatientResponse.class));
+    }
+
+    @Test
+    void testMap_withVisit_shouldProduceSameResponse() {
+        VisitResponse expected = modelMapperUtil.map(visit, VisitResponse.class);
+        VisitResponse actual = generatedMapperUtil.map(visit, VisitResponse.class);
+
+        assertEquals(expected, actual);
+        assertEquals(2, actual.getDiagnoses().size());
+        assertEquals(insuredPatient1.getId(), actual.getPatientId());
+        assertEquals(doctorIsGp.getId(), actual.getDoctorId());
+    }
+
+    @Test
+    void testMap_withRequests_shouldProduceSameEntities() {
+        SpecialtyRequest specialtyRequest = Helpers.getSpecialtyRequest();
+        assertEquals(modelMapperUtil.map(specialtyRequest, Specialty.class).getName(),
+                generatedMapperUtil.map(specialtyRequest, Specialty.class).getName());
+
+        DiagnosisRequest diagnosisRequest = Helpers.getDiagnosisRequest();
+        assertEquals(modelMapperUtil.map(diagnosisRequest, Diagnosis.class).getName(),
+                generatedMapperUtil.map(diagnosisRequest, Diagnosis.class).getName());
+
+        HealthSystemRequest healthSystemRequest = Helpers.getHealthSystemRequest();
+        assertEquals(modelMapperUtil.map(healthSystemRequest, HealthSystem.class).getNoInsuranceFee(),
+                generatedMapperUtil.map(healthSystemRequest, HealthSystem.class).getNoInsuranceFee());
+
+        PatientRequest patientRequest = Helpers.getPatientRequest();
+        Patient expectedPatient = modelMapperUtil.map(patientRequest, Patient.class);
+        Patient actualPatient = generatedMapperUtil.map(patientRequest, Patient.class);
+        assertEquals(expectedPatient.getName(), actualPatient.getName());
+        assertEquals(expectedPatient.isHasInsurance(), actualPatient.isHasInsurance());
+        assertNull(actualPatient.getGp());
+
+        VisitRequest visitRequest = new VisitRequest();
+        ReflectionTestUtils.setField(visitRequest, "patientId", 1L);
+        ReflectionTestUtils.setField(visitRequest, "visitDate", LocalDate.of(2021, 8, 11));
+        Visit actualVisit = generatedMapperUtil.map(visitRequest, Visit.class);
+        assertEquals(modelMapperUtil.map(visitRequest, Visit.class).getVisitDate(), actualVisit.getVisitDate());
+        assertNull(actualVisit.getPatient());
+    }
+
+    @Test
+    void testMap_withDoctorRequestOntoDoctor_shouldUpdateSameFields() {
+        DoctorRequest doctorRequest = Helpers.getDoctorRequest();
+        doctorRequest.setSpecialtiesIds(Set.of(5L));
+        Doctor expected = Helpers.getDoctorIsGp();
+        ReflectionTestUtils.setField(expected, "id", 1L);
+        ReflectionTestUtils.setField(expected, "specialties", Set.of(specialty1));
+        Doctor actual = Helpers.getDoctorIsGp();
+        ReflectionTestUtils.setField(actual, "id", 1L);
+        ReflectionTestUtils.setField(actual, "specialties", Set.of(specialty1));
+
+        modelMapperUtil.map(doctorRequest, expected);
+        generatedMapperUtil.map(doctorRequest, actual);
+
+        assertEquals(modelMapperUtil.map(expected, DoctorResponse.class),
+                generatedMapperUtil.map(actual, DoctorResponse.class));
+    }
+}
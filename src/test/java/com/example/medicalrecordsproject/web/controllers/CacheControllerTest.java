@@ -0,0 +1,60 @@
+package com.example.medicalrecordsproject.web.controllers;
+
+import com.example.medicalrecordsproject.data.dtos.caches.CacheRegionStatsResponse;
+import com.example.medicalrecordsproject.data.dtos.caches.CacheStatsResponse;
+import com.example.medicalrecordsproject.service.impl.CacheRegionStatsServiceImpl;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.List;
+
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(CacheController.class)
+class CacheControllerTest {
+
+    @MockBean
+    private ReferenceCaches referenceCaches;
+
+    @MockBean
+    private CacheRegionStatsServiceImpl cacheRegionStatsService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testRetrieveStats_shouldReturnCountersOfEveryCache() throws Exception {
+        given(referenceCaches.stats()).willReturn(List.of(
+                new CacheStatsResponse("specialties", 3, 1000, 10, 3, 0),
+                new CacheStatsResponse("diagnoses", 1000, 1000, 50, 1200, 200)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/internal/caches"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("specialties"))
+                .andExpect(jsonPath("$[0].hits").value(10))
+                .andExpect(jsonPath("$[1].misses").value(1200))
+                .andExpect(jsonPath("$[1].evictions").value(200));
+    }
+
+    @Test
+    void testRetrieveRegionStats_shouldReturnHitRatioOfEveryRegion() throws Exception {
+        given(cacheRegionStatsService.getRegionStats()).willReturn(List.of(
+                new CacheRegionStatsResponse("diagnoses", 0, 0, 0, 0),
+                new CacheRegionStatsResponse("doctors", 3, 1, 1, 1)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/internal/caches/regions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].region").value("diagnoses"))
+                .andExpect(jsonPath("$[0].hitRatio").value(0.0))
+                .andExpect(jsonPath("$[1].hits").value(3))
+                .andExpect(jsonPath("$[1].hitRatio").value(0.75))
+                .andExpect(jsonPath("$[1].elementsInMemory").value(1));
+    }
+}
@@ -2,6 +2,7 @@ package com.example.medicalrecordsproject.web.controllers;
 
 import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisRequest;
 import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.service.impl.DiagnosisServiceImpl;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -89,7 +90,7 @@ class DiagnosisControllerTest {
 
         List<DiagnosisResponse> expected = List.of(diagnosisResponse1, diagnosisResponse2);
 
-        given(diagnosisService.getAllDiagnoses()).willReturn(expected);
+        given(diagnosisService.getDiagnosesPage(100, null)).willReturn(new CursorPage<>(expected, null));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/diagnoses"))
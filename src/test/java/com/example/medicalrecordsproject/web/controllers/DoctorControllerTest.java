@@ -1,10 +1,16 @@
 package com.example.medicalrecordsproject.web.controllers;
 
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorCaseloadResponse;
 import com.example.medicalrecordsproject.data.dtos.doctors.DoctorRequest;
 import com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse;
 import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.service.impl.DoctorServiceImpl;
+import com.example.medicalrecordsproject.service.impl.VisitServiceImpl;
+import com.example.medicalrecordsproject.utils.KeysetCursor;
+import com.example.medicalrecordsproject.utils.Paging;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +32,7 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -35,6 +42,9 @@ class DoctorControllerTest {
     @MockBean
     private DoctorServiceImpl doctorService;
 
+    @MockBean
+    private VisitServiceImpl visitService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -122,7 +132,7 @@ class DoctorControllerTest {
 
         List<DoctorResponse> expected = List.of(doctorResponse);
 
-        given(doctorService.getAllDoctors()).willReturn(expected);
+        given(doctorService.getDoctorsPage(100, null)).willReturn(new CursorPage<>(expected, null));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/doctors"))
@@ -173,6 +183,37 @@ class DoctorControllerTest {
                 .andDo(print());
     }
 
+    @Test
+    void testRetrieveVisits_withFilters_shouldReturnCountsPageAndNextCursor() throws Exception {
+        VisitResponse visitResponse = new VisitResponse(7L, 3L, 1L, LocalDate.of(2023, 5, 4));
+        String nextCursor = KeysetCursor.of(visitResponse.getVisitDate(), visitResponse.getId()).encode();
+
+        given(visitService.getDoctorCaseload(1L, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31), 2L, true, 1, null))
+                .willReturn(new DoctorCaseloadResponse(5, 5, 2, List.of(visitResponse), nextCursor));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/doctors/1/visits?from=2023-01-01&to=2023-12-31&diagnosisId=2&insured=true&limit=1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(Paging.NEXT_CURSOR_HEADER, nextCursor))
+                .andExpect(jsonPath("$.totalVisits", is(5)))
+                .andExpect(jsonPath("$.insuredVisits", is(5)))
+                .andExpect(jsonPath("$.uninsuredVisits", is(0)))
+                .andExpect(jsonPath("$.patients", is(2)))
+                .andExpect(jsonPath("$.visits[0].id", is(7)))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void testRetrieveVisits_withoutPeriod_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/doctors/1/visits?from=2023-01-01")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testUpdateDoctor_withValidData_shouldUpdate() throws Exception {
         SpecialtyResponse specialtyResponse1 = new SpecialtyResponse();
@@ -2,6 +2,7 @@ package com.example.medicalrecordsproject.web.controllers;
 
 import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemRequest;
 import com.example.medicalrecordsproject.data.dtos.healthSystem.HealthSystemResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.service.impl.HealthSystemServiceImpl;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -89,7 +90,7 @@ class HealthSystemControllerTest {
 
         List<HealthSystemResponse> expected = List.of(healthSystemResponse1, healthSystemResponse2);
 
-        given(healthSystemService.getAllHealthSystems()).willReturn(expected);
+        given(healthSystemService.getHealthSystemsPage(100, null)).willReturn(new CursorPage<>(expected, null));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/healthSystem"))
@@ -0,0 +1,191 @@
+package com.example.medicalrecordsproject.web.controllers;
+
+import com.example.medicalrecordsproject.data.dtos.doctors.DoctorResponse;
+import com.example.medicalrecordsproject.data.dtos.patients.PatientResponse;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
+import com.example.medicalrecordsproject.data.entities.*;
+import com.example.medicalrecordsproject.data.repositories.*;
+import com.example.medicalrecordsproject.utils.MapperUtil;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The list endpoints build their responses with constructor expressions. Their JSON must be the same
+// as the JSON of the entities mapped with MapperUtil, which the single-row endpoints still use.
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor=WARN"})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class ListResponsesTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MapperUtil mapperUtil;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SpecialtyRepository specialtyRepository;
+
+    @Autowired
+    private DiagnosisRepository diagnosisRepository;
+
+    @Autowired
+    private HealthSystemRepository healthSystemRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private VisitRepository visitRepository;
+
+    @Autowired
+    private ReferenceCaches referenceCaches;
+
+    // A doctor with two specialties and one without, a patient with a GP and one without
+    // and visits with one and two diagnoses
+    @BeforeEach
+    public void setup() {
+        Specialty specialty1 = new Specialty();
+        specialty1.setName("specialty1");
+        specialty1 = specialtyRepository.save(specialty1);
+        Specialty specialty2 = new Specialty();
+        specialty2.setName("specialty2");
+        specialty2 = specialtyRepository.save(specialty2);
+
+        Diagnosis diagnosis1 = new Diagnosis();
+        diagnosis1.setName("diagnosis1");
+        diagnosis1 = diagnosisRepository.save(diagnosis1);
+        Diagnosis diagnosis2 = new Diagnosis();
+        diagnosis2.setName("diagnosis2");
+        diagnosis2 = diagnosisRepository.save(diagnosis2);
+
+        HealthSystem healthSystem = new HealthSystem();
+        healthSystem.setNoInsuranceFee(BigDecimal.TEN);
+        healthSystem = healthSystemRepository.save(healthSystem);
+
+        Doctor gp = new Doctor();
+        gp.setName("gp");
+        gp.setGp(true);
+        gp.setBirthdate(LocalDate.of(1970, 5, 1));
+        gp.setSpecialties(Set.of(specialty1, specialty2));
+        gp = doctorRepository.save(gp);
+        Doctor surgeon = new Doctor();
+        surgeon.setName("surgeon");
+        surgeon.setGp(false);
+        surgeon.setSpecialties(Set.of());
+        surgeon = doctorRepository.save(surgeon);
+
+        Patient insured = new Patient();
+        insured.setName("insured");
+        insured.setHasInsurance(true);
+        insured.setGp(gp);
+        insured = patientRepository.save(insured);
+        Patient uninsured = new Patient();
+        uninsured.setName("uninsured");
+        uninsured.setHasInsurance(false);
+        uninsured = patientRepository.save(uninsured);
+
+        visitRepository.save(visit(insured, gp, healthSystem, LocalDate.of(2021, 3, 1), Set.of(diagnosis1)));
+        visitRepository.save(visit(uninsured, surgeon, healthSystem, LocalDate.of(2020, 3, 1), Set.of(diagnosis1, diagnosis2)));
+    }
+
+    private static Visit visit(Patient patient, Doctor doctor, HealthSystem healthSystem, LocalDate date, Set<Diagnosis> diagnoses) {
+        Visit visit = new Visit();
+        visit.setPatient(patient);
+        visit.setDoctor(doctor);
+        visit.setHealthSystem(healthSystem);
+        visit.setVisitDate(date);
+        visit.setDiagnoses(diagnoses);
+        return visit;
+    }
+
+    @AfterEach
+    public void cleanup() {
+        visitRepository.deleteAll();
+        patientRepository.deleteAll();
+        doctorRepository.deleteAll();
+        healthSystemRepository.deleteAll();
+        diagnosisRepository.deleteAll();
+        specialtyRepository.deleteAll();
+        referenceCaches.invalidateAll();
+    }
+
+    // The entities are mapped inside a transaction, so their collections can be loaded
+    private <T> List<T> mapped(Supplier<List<?>> entities, Class<T> target) {
+        return transactionTemplate.execute(status -> mapperUtil.mapList(new ArrayList<>(entities.get()), target));
+    }
+
+    private <T> void assertSameJson(String url, List<T> expected, TypeReference<List<T>> type) throws Exception {
+        String json = mockMvc.perform(MockMvcRequestBuilders.get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // the same values, the sets compared regardless of their order
+        assertEquals(expected, objectMapper.readValue(json, type));
+        // and the same property names
+        JsonNode expectedTree = objectMapper.valueToTree(expected);
+        JsonNode actualTree = objectMapper.readTree(json);
+        for (int i = 0; i < expectedTree.size(); i++) {
+            List<String> expectedNames = new ArrayList<>();
+            List<String> actualNames = new ArrayList<>();
+            expectedTree.get(i).fieldNames().forEachRemaining(expectedNames::add);
+            actualTree.get(i).fieldNames().forEachRemaining(actualNames::add);
+            assertEquals(expectedNames, actualNames);
+        }
+    }
+
+    @Test
+    void testRetrieveAllDoctors_shouldReturnSameJsonAsMappedEntities() throws Exception {
+        List<DoctorResponse> expected = mapped(() -> doctorRepository.findAll(), DoctorResponse.class);
+        expected.sort(Comparator.comparing(DoctorResponse::getId));
+
+        assertSameJson("/doctors", expected, new TypeReference<>() {});
+    }
+
+    @Test
+    void testRetrievePatients_shouldReturnSameJsonAsMappedEntities() throws Exception {
+        List<PatientResponse> expected = mapped(() -> patientRepository.findAll(), PatientResponse.class);
+        expected.sort(Comparator.comparing(PatientResponse::getId));
+
+        assertSameJson("/patients", expected, new TypeReference<>() {});
+        assertSameJson("/patients/has-insurance", expected.subList(0, 1), new TypeReference<>() {});
+    }
+
+    @Test
+    void testRetrieveAllVisits_shouldReturnSameJsonAsMappedEntities() throws Exception {
+        List<VisitResponse> expected = mapped(() -> visitRepository.findAll(), VisitResponse.class);
+        expected.sort(Comparator.comparing(VisitResponse::getVisitDate));
+
+        assertSameJson("/visits", expected, new TypeReference<>() {});
+    }
+}
@@ -1,10 +1,16 @@
 package com.example.medicalrecordsproject.web.controllers;
 
+import com.example.medicalrecordsproject.data.dtos.patients.GpInsuranceStatsResponse;
 import com.example.medicalrecordsproject.data.dtos.patients.PatientRequest;
 import com.example.medicalrecordsproject.data.dtos.patients.PatientResponse;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
 import com.example.medicalrecordsproject.data.repositories.DoctorRepository;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.service.impl.PatientServiceImpl;
+import com.example.medicalrecordsproject.service.impl.VisitServiceImpl;
+import com.example.medicalrecordsproject.utils.KeysetCursor;
+import com.example.medicalrecordsproject.utils.Paging;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +23,7 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -43,6 +50,9 @@ class PatientControllerTest {
     @MockBean
     private DoctorRepository doctorRepository;
 
+    @MockBean
+    private VisitServiceImpl visitService;
+
     @Test
     void testCreatePatient_withRandomData_shouldCreate() throws Exception {
         PatientRequest patientRequest = new PatientRequest();
@@ -104,7 +114,7 @@ class PatientControllerTest {
 
         List<PatientResponse> expected = List.of(patientResponse1, patientResponse2);
 
-        given(patientService.getAllPatients()).willReturn(expected);
+        given(patientService.getPatientsPage(100, null)).willReturn(new CursorPage<>(expected, null));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/patients")
@@ -155,6 +165,38 @@ class PatientControllerTest {
                 .andDo(print());
     }
 
+    @Test
+    void testRetrieveVisits_withMoreVisits_shouldReturnPageAndNextCursor() throws Exception {
+        VisitResponse visitResponse = new VisitResponse(7L, 1L, 2L, LocalDate.of(2023, 5, 4));
+        String nextCursor = KeysetCursor.of(visitResponse.getVisitDate(), visitResponse.getId()).encode();
+
+        given(visitService.getVisitsOfPatientPage(1L, 1, null))
+                .willReturn(new CursorPage<>(List.of(visitResponse), nextCursor));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/patients/1/visits?limit=1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(Paging.NEXT_CURSOR_HEADER, nextCursor))
+                .andExpect(jsonPath("$[0].id", is(7)))
+                .andExpect(jsonPath("$[0].patientId", is(1)))
+                .andExpect(jsonPath("$[0].doctorId", is(2)));
+    }
+
+    @Test
+    void testRetrieveVisits_notFound_shouldThrow() throws Exception {
+        given(visitService.getVisitsOfPatientPage(1L, 100, null))
+                .willThrow(new EntityNotFoundException("Patient not found"));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/patients/{id}/visits", 1L)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Patient not found"));
+    }
+
     @Test
     void testUpdatePatient_withValidData_shouldUpdate() throws Exception {
         PatientRequest patientRequest = new PatientRequest();
@@ -275,4 +317,21 @@ class PatientControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("20.00"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetInsuranceStatsByGp_shouldReturnCountsOfEveryGp() throws Exception {
+        given(patientService.getInsuranceStatsByGp()).willReturn(List.of(
+                new GpInsuranceStatsResponse(null, 0, 1, new BigDecimal("100.00")),
+                new GpInsuranceStatsResponse(1L, 3, 1, new BigDecimal("25.00"))));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/patients/insurance-by-gp")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].gpId").doesNotExist())
+                .andExpect(jsonPath("$[0].uninsuredPatients", is(1)))
+                .andExpect(jsonPath("$[1].gpId", is(1)))
+                .andExpect(jsonPath("$[1].insuredPatients", is(3)))
+                .andExpect(jsonPath("$[1].percentWithoutInsurance", is(25.00)));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.medicalrecordsproject.web.controllers;
+
+import com.example.medicalrecordsproject.data.dtos.queries.QueryStatsResponse;
+import com.example.medicalrecordsproject.service.impl.QueryStatsServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.List;
+
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(QueryController.class)
+class QueryControllerTest {
+
+    @MockBean
+    private QueryStatsServiceImpl queryStatsService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testRetrieveStats_shouldReturnCountersOfEveryQuery() throws Exception {
+        given(queryStatsService.getQueryStats()).willReturn(List.of(
+                new QueryStatsResponse("select v from Visit v", 4, 100, 25.0, 70, 4000),
+                new QueryStatsResponse("select d from Doctor d", 10, 20, 2.0, 5, 30)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/internal/queries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].query").value("select v from Visit v"))
+                .andExpect(jsonPath("$[0].executions").value(4))
+                .andExpect(jsonPath("$[0].meanMillis").value(25.0))
+                .andExpect(jsonPath("$[0].maxMillis").value(70))
+                .andExpect(jsonPath("$[0].rows").value(4000))
+                .andExpect(jsonPath("$[1].totalMillis").value(20));
+    }
+}
@@ -3,6 +3,7 @@ package com.example.medicalrecordsproject.web.controllers;
 
 import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyRequest;
 import com.example.medicalrecordsproject.data.dtos.specialties.SpecialtyResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
 import com.example.medicalrecordsproject.service.impl.SpecialtyServiceImpl;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -89,7 +90,7 @@ class SpecialtyControllerTest {
 
         List<SpecialtyResponse> expected = List.of(specialtyResponse1, specialtyResponse2);
 
-        given(specialtyService.getAllSpecialties()).willReturn(expected);
+        given(specialtyService.getSpecialtiesPage(100, null)).willReturn(new CursorPage<>(expected, null));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/specialties"))
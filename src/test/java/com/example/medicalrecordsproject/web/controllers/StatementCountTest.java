@@ -0,0 +1,373 @@
+package com.example.medicalrecordsproject.web.controllers;
+
+import com.example.medicalrecordsproject.data.entities.*;
+import com.example.medicalrecordsproject.data.repositories.*;
+import com.example.medicalrecordsproject.data.dtos.caches.CacheRegionStatsResponse;
+import com.example.medicalrecordsproject.helpers.StatementCounter;
+import com.example.medicalrecordsproject.service.CacheRegionStatsService;
+import com.example.medicalrecordsproject.service.DoctorIncomeIndexService;
+import com.example.medicalrecordsproject.service.IncomeLedgerService;
+import com.example.medicalrecordsproject.utils.ReferenceCaches;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Runs the read endpoints against an in-memory database and checks that the number of statements
+// doesn't depend on how many rows are returned, i.e. that no relation is loaded once per row
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor=WARN"})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class StatementCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private SpecialtyRepository specialtyRepository;
+
+    @Autowired
+    private DiagnosisRepository diagnosisRepository;
+
+    @Autowired
+    private HealthSystemRepository healthSystemRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private VisitRepository visitRepository;
+
+    @Autowired
+    private ReferenceCaches referenceCaches;
+
+    @Autowired
+    private CacheRegionStatsService cacheRegionStatsService;
+
+    @Autowired
+    private DoctorIncomeIndexService doctorIncomeIndexService;
+
+    @Autowired
+    private IncomeLedgerService incomeLedgerService;
+
+    @Autowired
+    private DoctorIncomeRepository doctorIncomeRepository;
+
+    private StatementCounter statementCounter;
+
+    private List<Specialty> specialties;
+    private List<Diagnosis> diagnoses;
+    private HealthSystem healthSystem;
+    private Doctor firstDoctor;
+    private Visit firstVisit;
+
+    @BeforeEach
+    public void setup() {
+        statementCounter = new StatementCounter(entityManagerFactory);
+
+        specialties = new ArrayList<>();
+        diagnoses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Specialty specialty = new Specialty();
+            specialty.setName("specialty" + i);
+            specialties.add(specialtyRepository.save(specialty));
+
+            Diagnosis diagnosis = new Diagnosis();
+            diagnosis.setName("diagnosis" + i);
+            diagnoses.add(diagnosisRepository.save(diagnosis));
+        }
+
+        healthSystem = new HealthSystem();
+        healthSystem.setNoInsuranceFee(BigDecimal.TEN);
+        healthSystem = healthSystemRepository.save(healthSystem);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        visitRepository.deleteAll();
+        patientRepository.deleteAll();
+        doctorRepository.deleteAll();
+        healthSystemRepository.deleteAll();
+        diagnosisRepository.deleteAll();
+        specialtyRepository.deleteAll();
+        doctorIncomeRepository.deleteAll();
+        // the rows were deleted through the repositories, not the services
+        referenceCaches.invalidateAll();
+    }
+
+    // Every doctor is a GP with two specialties and one patient, every visit has two diagnoses
+    private void addRows(int count) {
+        for (int i = 0; i < count; i++) {
+            Doctor doctor = new Doctor();
+            doctor.setName("doctor" + i);
+            doctor.setGp(true);
+            doctor.setSpecialties(Set.of(specialties.get(i % 3), specialties.get((i + 1) % 3)));
+            doctor = doctorRepository.save(doctor);
+            incomeLedgerService.doctorCreated(doctor.getId());
+
+            Patient patient = new Patient();
+            patient.setName("patient" + i);
+            patient.setHasInsurance(i % 2 == 0);
+            patient.setGp(doctor);
+            patient = patientRepository.save(patient);
+
+            Visit visit = new Visit();
+            visit.setPatient(patient);
+            visit.setDoctor(doctor);
+            visit.setHealthSystem(healthSystem);
+            visit.setDiagnoses(Set.of(diagnoses.get(i % 3), diagnoses.get((i + 1) % 3)));
+            visit.setVisitDate(LocalDate.of(2020, 1, 1).plusDays(i));
+            visit = visitRepository.save(visit);
+
+            if (firstDoctor == null) {
+                firstDoctor = doctor;
+                firstVisit = visit;
+            }
+        }
+    }
+
+    private long statementsFor(String url) throws Exception {
+        return statementCounter.count(() -> mockMvc.perform(MockMvcRequestBuilders.get(url))
+                .andExpect(status().isOk()));
+    }
+
+    // The count with few rows and with many rows, which must be the same
+    private long[] statementsForFewAndManyRows(String url) throws Exception {
+        addRows(2);
+        long few = statementsFor(url);
+        addRows(20);
+        long many = statementsFor(url);
+        return new long[]{few, many};
+    }
+
+    @Test
+    void testRetrieveAllVisits_shouldUseTwoStatements() throws Exception {
+        long[] counts = statementsForFewAndManyRows("/visits");
+
+        // the page of visits with their patient, GP, doctor and health system + the diagnoses of the page
+        assertEquals(2, counts[0]);
+        assertEquals(2, counts[1]);
+    }
+
+    @Test
+    void testRetrieveSingleVisit_shouldUseOneStatement() throws Exception {
+        addRows(2);
+
+        assertEquals(1, statementsFor("/visits/" + firstVisit.getId()));
+    }
+
+    @Test
+    void testExportVisits_shouldUseOneStatementPerChunk() throws Exception {
+        addRows(22);
+
+        // the streamed visits + the diagnoses of the only chunk
+        assertEquals(2, statementCounter.count(() -> {
+            var result = mockMvc.perform(MockMvcRequestBuilders.get("/visits/export")).andReturn();
+            mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andExpect(status().isOk());
+        }));
+    }
+
+    @Test
+    void testRetrieveAllDoctors_shouldUseTwoStatements() throws Exception {
+        long[] counts = statementsForFewAndManyRows("/doctors");
+
+        // the page of doctors + the specialties of the page
+        assertEquals(2, counts[0]);
+        assertEquals(2, counts[1]);
+    }
+
+    @Test
+    void testRetrieveSingleDoctor_shouldUseOneStatement() throws Exception {
+        addRows(2);
+
+        assertEquals(1, statementsFor("/doctors/" + firstDoctor.getId()));
+    }
+
+    @Test
+    void testRetrieveAllPatients_shouldUseOneStatement() throws Exception {
+        long[] counts = statementsForFewAndManyRows("/patients");
+
+        assertEquals(1, counts[0]);
+        assertEquals(1, counts[1]);
+    }
+
+    @Test
+    void testRetrievePatientsWithInsurance_shouldJoinGpsInOneStatement() throws Exception {
+        addRows(20);
+        // the GPs must come from the join, not from the doctors kept in the second-level cache
+        entityManagerFactory.getCache().evictAll();
+
+        assertEquals(1, statementsFor("/patients/has-insurance"));
+    }
+
+    @Test
+    void testRetrieveSinglePatient_shouldUseOneStatement() throws Exception {
+        addRows(2);
+        entityManagerFactory.getCache().evictAll();
+
+        assertEquals(1, statementsFor("/patients/" + firstVisit.getPatient().getId()));
+    }
+
+    @Test
+    void testInsuranceStatistics_shouldUseOneStatement() throws Exception {
+        long[] percentCounts = statementsForFewAndManyRows("/patients/percent-without-insurance");
+        long byGpStatements = statementsFor("/patients/insurance-by-gp");
+
+        // grouped counts, no patient or GP is loaded
+        assertEquals(1, percentCounts[0]);
+        assertEquals(1, percentCounts[1]);
+        assertEquals(1, byGpStatements);
+    }
+
+    @Test
+    void testCountDoctorsByIncome_withIndexBuilt_shouldUseNoStatement() throws Exception {
+        addRows(3);
+        // the visits were saved through the repository, the ledger rows of the other tests were deleted through it
+        incomeLedgerService.reconcile();
+        doctorIncomeIndexService.rebuild();
+
+        assertEquals(0, statementsFor("/visits/count-doctors-by-income/15"));
+        assertEquals(0, statementsFor("/visits/top-doctors-by-income?limit=2"));
+        assertEquals(0, doctorIncomeIndexService.countDoctorsAbove(BigDecimal.valueOf(15)));
+
+        // the committed visit is added to the index without reading the visits table again
+        statementsForCreateVisit(diagnoses);
+        assertEquals(1, doctorIncomeIndexService.countDoctorsAbove(BigDecimal.valueOf(15)));
+    }
+
+    @Test
+    void testRetrieveIncome_shouldReadRollupsWithOneStatement() throws Exception {
+        long[] counts = statementsForFewAndManyRows("/visits/income?from=2020-01-01&to=2020-12-31&granularity=week");
+
+        assertEquals(1, counts[0]);
+        assertEquals(1, counts[1]);
+    }
+
+    private long statementsForCreateVisit(List<Diagnosis> visitDiagnoses) throws Exception {
+        String diagnosesIds = visitDiagnoses.stream()
+                .map(diagnosis -> diagnosis.getId().toString())
+                .collect(Collectors.joining(","));
+        String body = "{\"patientId\":" + firstVisit.getPatient().getId()
+                + ",\"doctorId\":" + firstDoctor.getId()
+                + ",\"healthSystemId\":" + healthSystem.getId()
+                + ",\"diagnosesIds\":[" + diagnosesIds + "]"
+                + ",\"visitDate\":\"2021-08-11\"}";
+
+        // count the lookups, not what the earlier requests left in the reference data cache
+        referenceCaches.invalidateAll();
+        return statementCounter.count(() -> mockMvc.perform(MockMvcRequestBuilders.post("/visits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated()));
+    }
+
+    @Test
+    void testCreateVisit_withManyDiagnoses_shouldLoadDiagnosesWithOneStatement() throws Exception {
+        addRows(1);
+        // the first visit of the doctor on that day also creates its income rollup row
+        statementsForCreateVisit(diagnoses);
+        long few = statementsForCreateVisit(diagnoses);
+
+        for (int i = diagnoses.size(); i < 30; i++) {
+            Diagnosis diagnosis = new Diagnosis();
+            diagnosis.setName("diagnosis" + i);
+            diagnoses.add(diagnosisRepository.save(diagnosis));
+        }
+        long many = statementsForCreateVisit(diagnoses);
+
+        // the diagnoses are loaded with one statement and their join rows are inserted in one JDBC batch
+        assertEquals(few, many);
+    }
+
+    @Test
+    void testCreateVisitsBatch_shouldInsertInJdbcBatches() throws Exception {
+        addRows(1);
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 200; i++) {
+            body.append(i == 0 ? "" : ",")
+                    .append("{\"patientId\":").append(firstVisit.getPatient().getId())
+                    .append(",\"doctorId\":").append(firstDoctor.getId())
+                    .append(",\"healthSystemId\":").append(healthSystem.getId())
+                    .append(",\"diagnosesIds\":[").append(diagnoses.get(0).getId())
+                    .append(",").append(diagnoses.get(1).getId()).append("]")
+                    .append(",\"visitDate\":\"2021-08-11\"}");
+        }
+        body.append("]");
+
+        long statements = statementCounter.count(() -> mockMvc.perform(MockMvcRequestBuilders.post("/visits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.toString()))
+                .andExpect(status().isOk()));
+
+        // 200 visits and 400 join rows inserted one by one would be 600 statements. With batching the count
+        // is only the lookups, the id sequence calls, the ledger and rollup rows and a few prepared batch statements.
+        assertTrue(statements <= 20, () -> "expected batched inserts but " + statements + " statements were used");
+        assertEquals(201, visitRepository.count());
+    }
+
+    @Test
+    void testRetrieveAllDiagnoses_secondTime_shouldUseNoStatement() throws Exception {
+        assertEquals(1, statementsFor("/diagnoses"));
+        assertEquals(0, statementsFor("/diagnoses"));
+        assertEquals(0, statementsFor("/diagnoses/" + diagnoses.get(0).getId()));
+    }
+
+    @Test
+    void testFindDoctorById_secondTime_shouldHitSecondLevelCache() throws Exception {
+        addRows(1);
+        entityManagerFactory.getCache().evictAll();
+
+        assertEquals(1, statementCounter.count(() -> doctorRepository.findById(firstDoctor.getId())));
+        assertEquals(0, statementCounter.count(() -> doctorRepository.findById(firstDoctor.getId())));
+
+        CacheRegionStatsResponse doctorsRegion = cacheRegionStatsService.getRegionStats().stream()
+                .filter(region -> region.getRegion().equals("doctors"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1, doctorsRegion.getHits());
+        assertEquals(1.0, doctorsRegion.getHitRatio());
+    }
+
+    @Test
+    void testReconcile_shouldKeepSecondLevelCacheOfDoctors() throws Exception {
+        Doctor doctor = new Doctor();
+        doctor.setName("doctor");
+        doctor.setGp(true);
+        doctor = doctorRepository.save(doctor);
+        incomeLedgerService.doctorCreated(doctor.getId());
+        entityManagerFactory.getCache().evictAll();
+        Long doctorId = doctor.getId();
+        doctorRepository.findById(doctorId);
+
+        // the rollups are rebuilt with a native statement that is declared to write only their table
+        incomeLedgerService.reconcile();
+
+        assertEquals(0, statementCounter.count(() -> doctorRepository.findById(doctorId)));
+    }
+}
@@ -1,11 +1,24 @@
 package com.example.medicalrecordsproject.web.controllers;
 
 import com.example.medicalrecordsproject.data.dtos.diagnoses.DiagnosisResponse;
+import com.example.medicalrecordsproject.data.dtos.incomes.DoctorIncomeResponse;
+import com.example.medicalrecordsproject.data.dtos.incomes.IncomeBucketResponse;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitBatchError;
+import com.example.medicalrecordsproject.data.dtos.visits.VisitBatchResponse;
 import com.example.medicalrecordsproject.data.dtos.visits.VisitRequest;
 import com.example.medicalrecordsproject.data.dtos.visits.VisitResponse;
+import com.example.medicalrecordsproject.data.dtos.pages.CursorPage;
+import com.example.medicalrecordsproject.exceptions.BatchTooLargeException;
+import com.example.medicalrecordsproject.exceptions.EntitiesNotFoundException;
 import com.example.medicalrecordsproject.exceptions.EntityNotFoundException;
+import com.example.medicalrecordsproject.exceptions.InvalidIncomeRequestException;
+import com.example.medicalrecordsproject.exceptions.InvalidPageRequestException;
 import com.example.medicalrecordsproject.exceptions.NegativeIncomeException;
+import com.example.medicalrecordsproject.service.impl.IncomeRollupServiceImpl;
+import com.example.medicalrecordsproject.service.impl.VisitBatchServiceImpl;
+import com.example.medicalrecordsproject.service.impl.VisitExportServiceImpl;
 import com.example.medicalrecordsproject.service.impl.VisitServiceImpl;
+import com.example.medicalrecordsproject.utils.Paging;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,9 +27,12 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Set;
@@ -24,6 +40,7 @@ import java.util.Set;
 import static org.hamcrest.CoreMatchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
@@ -36,6 +53,15 @@ class VisitControllerTest {
     @MockBean
     private VisitServiceImpl visitService;
 
+    @MockBean
+    private VisitExportServiceImpl visitExportService;
+
+    @MockBean
+    private VisitBatchServiceImpl visitBatchService;
+
+    @MockBean
+    private IncomeRollupServiceImpl incomeRollupService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -118,7 +144,7 @@ class VisitControllerTest {
 
         List<VisitResponse> expected = List.of(response);
 
-        given(visitService.getAllVisits()).willReturn(expected);
+        given(visitService.getVisitsPage(100, null)).willReturn(new CursorPage<>(expected, null));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/visits"))
@@ -131,6 +157,108 @@ class VisitControllerTest {
                 .andExpect(jsonPath("$[0].visitDate", is("2021-08-11")));
     }
 
+    @Test
+    void testRetrieveAll_withLimitAndAfter_shouldReturnPageAndNextCursor() throws Exception {
+        VisitResponse response = new VisitResponse();
+        ReflectionTestUtils.setField(response, "id", 2L);
+        ReflectionTestUtils.setField(response, "visitDate", LocalDate.of(2021, 8, 11));
+
+        given(visitService.getVisitsPage(1, "MjAyMS0wOC0xMDox"))
+                .willReturn(new CursorPage<>(List.of(response), "MjAyMS0wOC0xMToy"));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/visits")
+                        .param("limit", "1")
+                        .param("after", "MjAyMS0wOC0xMDox"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(Paging.NEXT_CURSOR_HEADER, "MjAyMS0wOC0xMToy"))
+                .andExpect(jsonPath("$.length()", is(1)))
+                .andExpect(jsonPath("$[0].id", is(2)));
+    }
+
+    @Test
+    void testRetrieveAll_withLastPage_shouldNotSendNextCursor() throws Exception {
+        given(visitService.getVisitsPage(100, null)).willReturn(new CursorPage<>(List.of(), null));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/visits"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(Paging.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$.length()", is(0)));
+    }
+
+    @Test
+    void testRetrieveAll_withInvalidLimit_shouldReturnBadRequest() throws Exception {
+        given(visitService.getVisitsPage(0, null))
+                .willThrow(new InvalidPageRequestException("The limit must be at least 1"));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/visits")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("The limit must be at least 1")));
+    }
+
+    @Test
+    void testCreateVisits_withValidAndInvalidItems_shouldReturnCreatedIdsAndErrors() throws Exception {
+        VisitRequest validRequest = new VisitRequest();
+        ReflectionTestUtils.setField(validRequest, "patientId", 1L);
+        ReflectionTestUtils.setField(validRequest, "healthSystemId", 1L);
+        ReflectionTestUtils.setField(validRequest, "doctorId", 1L);
+        ReflectionTestUtils.setField(validRequest, "diagnosesIds", Set.of(1L));
+        ReflectionTestUtils.setField(validRequest, "visitDate", LocalDate.of(2021, 8, 11));
+
+        // the items are validated by the service, so an invalid item doesn't make the request a bad request
+        VisitRequest invalidRequest = new VisitRequest();
+
+        given(visitBatchService.createVisits(any())).willReturn(new VisitBatchResponse(List.of(10L),
+                List.of(new VisitBatchError(1, List.of("Must provide patient")))));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/visits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(validRequest, invalidRequest))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.createdIds[0]").value(10))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[0].messages[0]").value("Must provide patient"));
+    }
+
+    @Test
+    void testCreateVisits_withTooManyItems_shouldReturnPayloadTooLarge() throws Exception {
+        given(visitBatchService.createVisits(any()))
+                .willThrow(new BatchTooLargeException("A batch can have at most 5000 visits"));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/visits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.message").value("A batch can have at most 5000 visits"));
+    }
+
+    @Test
+    void testExportVisits_withSince_shouldStreamNdjson() throws Exception {
+        String lines = "{\"id\":1,\"visitDate\":\"2021-08-11\"}\n{\"id\":2,\"visitDate\":\"2021-09-01\"}\n";
+
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write(lines.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(visitExportService).exportVisits(eq(LocalDate.of(2021, 8, 1)), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/visits/export")
+                        .param("since", "2021-08-01"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(lines));
+    }
+
     @Test
     void testRetrieveSingle_withValidId_shouldReturnSingle() throws Exception {
         DiagnosisResponse diagnosisResponse = new DiagnosisResponse();
@@ -159,6 +287,28 @@ class VisitControllerTest {
                 .andExpect(jsonPath("$.visitDate", is("2021-08-11")));
     }
 
+    @Test
+    void testCreateVisit_withNotExistingDiagnoses_shouldListMissingIds() throws Exception {
+        VisitRequest visitRequest = new VisitRequest();
+        ReflectionTestUtils.setField(visitRequest, "patientId", 1L);
+        ReflectionTestUtils.setField(visitRequest, "healthSystemId", 1L);
+        ReflectionTestUtils.setField(visitRequest, "doctorId", 1L);
+        ReflectionTestUtils.setField(visitRequest, "diagnosesIds", Set.of(1L, 3L, 7L));
+        ReflectionTestUtils.setField(visitRequest, "visitDate", LocalDate.of(2021, 8, 11));
+
+        given(visitService.createVisit(any(VisitRequest.class)))
+                .willThrow(new EntitiesNotFoundException("Diagnoses not found: [3, 7]", List.of(3L, 7L)));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/visits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(visitRequest)))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Diagnoses not found: [3, 7]"))
+                .andExpect(jsonPath("$.missingIds[0]").value(3))
+                .andExpect(jsonPath("$.missingIds[1]").value(7));
+    }
+
     @Test
     void testRetrieveSingle_notFound_shouldThrow() throws Exception {
         given(visitService.getVisitById(1L)).willThrow(new EntityNotFoundException("Visit not found"));
@@ -374,6 +524,64 @@ class VisitControllerTest {
                 .andExpect(jsonPath("$.message").value("The minimal income cannot be negative"));
     }
 
+    @Test
+    void testGetIncome_withPeriod_shouldReturnBuckets() throws Exception {
+        IncomeBucketResponse bucket = new IncomeBucketResponse(LocalDate.of(2021, 8, 1), 1L, null);
+        bucket.setInsuredIncome(BigDecimal.valueOf(10));
+        bucket.setUninsuredIncome(BigDecimal.valueOf(20));
+        bucket.setVisits(3);
+        given(incomeRollupService.getIncome(LocalDate.of(2021, 1, 1), LocalDate.of(2021, 12, 31), "month", "doctor"))
+                .willReturn(List.of(bucket));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/visits/income")
+                        .param("from", "2021-01-01")
+                        .param("to", "2021-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].periodStart").value("2021-08-01"))
+                .andExpect(jsonPath("$[0].doctorId").value(1))
+                .andExpect(jsonPath("$[0].insuredIncome").value(10))
+                .andExpect(jsonPath("$[0].uninsuredIncome").value(20))
+                .andExpect(jsonPath("$[0].visits").value(3));
+    }
+
+    @Test
+    void testGetIncome_withInvalidGranularity_shouldReturnBadRequest() throws Exception {
+        given(incomeRollupService.getIncome(any(), any(), eq("year"), any()))
+                .willThrow(new InvalidIncomeRequestException("The granularity must be day, week or month"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/visits/income")
+                        .param("from", "2021-01-01")
+                        .param("to", "2021-12-31")
+                        .param("granularity", "year"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("The granularity must be day, week or month"));
+    }
+
+    @Test
+    void testGetTopDoctorsByIncome_withLimit_shouldReturnDoctors() throws Exception {
+        given(visitService.getTopDoctorsByIncome(2)).willReturn(List.of(
+                new DoctorIncomeResponse(2L, BigDecimal.valueOf(30)),
+                new DoctorIncomeResponse(1L, BigDecimal.valueOf(20))));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/visits/top-doctors-by-income").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].doctorId").value(2))
+                .andExpect(jsonPath("$[0].income").value(30))
+                .andExpect(jsonPath("$[1].doctorId").value(1));
+    }
+
+    @Test
+    void testGetIncomePercentileRankOfDoctor_withNotExistingDoctor_shouldReturnNotFound() throws Exception {
+        given(visitService.getIncomePercentileRankOfDoctor(1L))
+                .willThrow(new EntityNotFoundException("Doctor not found"));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/visits/income-percentile-rank/{doctorId}", 1L))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Doctor not found"));
+    }
+
     @Test
     void testGetTotalIncomeFromVisitsByDiagnosis_withValidDiagnosisId_shouldReturnTotalIncome() throws Exception {
         Long diagnosisId = 1L;